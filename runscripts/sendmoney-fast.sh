@@ -0,0 +1,3 @@
+#!/usr/bin/env bash
+# Slim jar with the class data sharing archive built by ./gradlew exportCdsArchive
+java -Xshare:auto -XX:SharedArchiveFile=sendmoneyautomator.jsa -XX:TieredStopAtLevel=1 -jar sendmoneyautomator-slim.jar
@@ -0,0 +1,72 @@
+package io.github.bcherniakh.sendmoney.benchmark;
+
+import io.github.bcherniakh.sendmoney.batch.BatchPreflight;
+import io.github.bcherniakh.sendmoney.batch.PreflightReport;
+import io.github.bcherniakh.sendmoney.util.InputError;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Batch file pre-flight check. {@code checkFile} reports the time per line of a 1 000 000 lines file,
+ * the inverse is the number of lines checked per second. Run with the gc profiler to see that lines
+ * are checked without allocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchPreflightBenchmark {
+
+    private static final int LINES = 1_000_000;
+    private static final String LINE = "%d,4111-1111-1111-1111,05/2099,123,380501234567,5500-0000-0000-0004,10.50";
+
+    private BatchPreflight preflight = new BatchPreflight();
+    private String line = String.format(LINE, 1);
+    private Path batchFile;
+
+    @Setup
+    public void createBatchFile() throws IOException {
+        batchFile = Files.createTempFile("batch", ".csv");
+        try (BufferedWriter writer = Files.newBufferedWriter(batchFile, StandardCharsets.US_ASCII)) {
+            for (int i = 0; i < LINES; i++) {
+                writer.write(String.format(LINE, i));
+                writer.newLine();
+            }
+        }
+    }
+
+    @TearDown
+    public void deleteBatchFile() throws IOException {
+        Files.deleteIfExists(batchFile);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public PreflightReport checkFile() {
+        return preflight.check(batchFile);
+    }
+
+    @Benchmark
+    public InputError checkLine() {
+        return preflight.checkLine(line);
+    }
+}
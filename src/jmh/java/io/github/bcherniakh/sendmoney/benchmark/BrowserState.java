@@ -0,0 +1,52 @@
+package io.github.bcherniakh.sendmoney.benchmark;
+
+import io.github.bcherniakh.sendmoney.metrics.StepTimer;
+import io.github.bcherniakh.sendmoney.page.SendMoneyPbPage;
+import io.github.bcherniakh.sendmoney.page.Step1Form;
+import io.github.bcherniakh.sendmoney.stub.HeadlessChrome;
+import io.github.bcherniakh.sendmoney.stub.StubSendMoneySite;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openqa.selenium.PageLoadStrategy;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.ui.Wait;
+import org.openqa.selenium.support.ui.WebDriverWait;
+
+import java.util.concurrent.TimeUnit;
+
+import static io.github.bcherniakh.sendmoney.constant.WebConstant.DEFAULT_WAIT_TIMEOUT;
+import static io.github.bcherniakh.sendmoney.constant.WebConstant.SCRIPT_TIMEOUT;
+
+/**
+ * A headless browser and the in-process copy of the sendmoney pages, shared by all iterations of a benchmark.
+ */
+@State(Scope.Benchmark)
+public class BrowserState {
+
+    static final Step1Form FORM = new Step1Form("1234-5678-9101-2345", "05", "27", "123", "1098-7654-3210-1234", "10.50");
+    static final String PHONE_NUMBER = "380501234567";
+
+    StubSendMoneySite site;
+    WebDriver webDriver;
+    Wait<WebDriver> wait;
+
+    @Setup
+    public void start() {
+        site = new StubSendMoneySite();
+        webDriver = HeadlessChrome.start();
+        webDriver.manage().timeouts().setScriptTimeout(SCRIPT_TIMEOUT, TimeUnit.SECONDS);
+        wait = new WebDriverWait(webDriver, DEFAULT_WAIT_TIMEOUT);
+    }
+
+    @TearDown
+    public void stop() {
+        webDriver.quit();
+        site.close();
+    }
+
+    SendMoneyPbPage openPage() {
+        return new SendMoneyPbPage(webDriver, wait, site.getUrl(), StepTimer.NONE, PageLoadStrategy.NORMAL);
+    }
+}
@@ -0,0 +1,53 @@
+package io.github.bcherniakh.sendmoney.benchmark;
+
+import io.github.bcherniakh.sendmoney.exception.InvalidInputException;
+import io.github.bcherniakh.sendmoney.util.CardNumbers;
+import io.github.bcherniakh.sendmoney.util.Validation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Card number splitting and validation done for every transfer before the browser is touched.
+ * Run with the gc profiler to see the allocation per transfer.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CardNumbersBenchmark {
+
+    private String cardNumber = "1234-5678-9101-2345";
+    private String invalidCardNumber = "1234-5678-9101-23456";
+
+    @Benchmark
+    public List<String> splitIntoBlocks() {
+        return CardNumbers.splitIntoBlocks(cardNumber);
+    }
+
+    @Benchmark
+    public Object rejectInvalidNumber() {
+        try {
+            return CardNumbers.splitIntoBlocks(invalidCardNumber);
+        } catch (InvalidInputException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public String notNull() {
+        Validation.notNull(cardNumber, () -> new InvalidInputException("Sender card number can not be null"));
+        return cardNumber;
+    }
+}
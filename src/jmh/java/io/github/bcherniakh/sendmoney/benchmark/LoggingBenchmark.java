@@ -0,0 +1,108 @@
+package io.github.bcherniakh.sendmoney.benchmark;
+
+import io.github.bcherniakh.sendmoney.logging.MaskingMessageConverter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.impl.Log4jLogEvent;
+import org.apache.logging.log4j.core.pattern.LogEventPatternConverter;
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The cost of logging a transfer for the thread that runs it.
+ * <p>
+ * {@code logTransferSync} is the previous setup: synchronous loggers, unmasked messages and a flush per event.
+ * {@code logTransferAsync} is the current one: the async loggers with the masked messages. The async fork blocks
+ * when the ring buffer is full instead of dropping events, so the result includes the writer falling behind.
+ * Run with the gc profiler to compare the allocation per transfer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+public class LoggingBenchmark {
+
+    private static final String SYNC_SELECTOR = "org.apache.logging.log4j.core.selector.ClassLoaderContextSelector";
+
+    private Logger log = LoggerFactory.getLogger("io.github.bcherniakh.sendmoney.page.SendMoneyPbPage");
+
+    private String senderCard = "5168-7420-1234-5678";
+    private String receiverCard = "4149-4393-0000-1111";
+    private String amount = "100";
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {
+            "-Dlog4j.configurationFile=log4j2-benchmark-sync.xml",
+            "-DLog4jContextSelector=" + SYNC_SELECTOR})
+    public void logTransferSync() {
+        logTransfer();
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {
+            "-Dlog4j.configurationFile=log4j2-benchmark-async.xml",
+            "-Dlog4j2.AsyncQueueFullPolicy=Default"})
+    public void logTransferAsync() {
+        logTransfer();
+    }
+
+    @TearDown
+    public void shutdown() {
+        LogManager.shutdown();
+    }
+
+    /*
+     * The debug lines of SendMoneyPbPage and TransferConfirmationPage for a single transfer
+     */
+    private void logTransfer() {
+        log.debug("Filling sender card number {}", senderCard);
+        log.debug("Filling sender card expire date. Year: {}, Month: {}", "21", "04");
+        log.debug("Filling sender cvv2 code");
+        log.debug("Filling receiver card number {}", receiverCard);
+        log.debug("Filling amount field with value {}", amount);
+        log.debug("Invoking send button");
+        log.debug("Loading step 2 page");
+        log.debug("Invoking send button on step 2");
+    }
+
+    /**
+     * Masking a formatted message in the layout buffer, the work the background thread adds per event.
+     */
+    @State(Scope.Thread)
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    @Warmup(iterations = 5, time = 1)
+    @Measurement(iterations = 5, time = 1)
+    @Fork(1)
+    public static class Masking {
+
+        private LogEventPatternConverter converter = MaskingMessageConverter.newInstance(null);
+        private LogEvent event = Log4jLogEvent.newBuilder()
+                .setMessage(new ParameterizedMessage("Filling sender card number {}", "5168-7420-1234-5678"))
+                .build();
+        private StringBuilder buffer = new StringBuilder(256);
+
+        @Benchmark
+        public StringBuilder maskMessage() {
+            buffer.setLength(0);
+            converter.format(event, buffer);
+            return buffer;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package io.github.bcherniakh.sendmoney.benchmark;
+
+import io.github.bcherniakh.sendmoney.page.FillMode;
+import io.github.bcherniakh.sendmoney.page.SendMoneyPbPage;
+import io.github.bcherniakh.sendmoney.page.TransferConfirmationPage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static io.github.bcherniakh.sendmoney.benchmark.BrowserState.FORM;
+
+/**
+ * Step 1 of a transfer against the local copy of the page: opening the page, filling the fields and sending the form.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class SendMoneyPbPageBenchmark {
+
+    @Benchmark
+    public SendMoneyPbPage openPage(BrowserState browser) {
+        return browser.openPage();
+    }
+
+    @Benchmark
+    public SendMoneyPbPage fillByKeystrokes(BrowserState browser) {
+        SendMoneyPbPage page = browser.openPage();
+        page.fillStep1(FORM, FillMode.KEYSTROKE);
+        return page;
+    }
+
+    @Benchmark
+    public SendMoneyPbPage fillByScript(BrowserState browser) {
+        SendMoneyPbPage page = browser.openPage();
+        page.fillStep1(FORM, FillMode.SCRIPT);
+        return page;
+    }
+
+    @Benchmark
+    public TransferConfirmationPage clickSendButton(FilledPage filledPage) {
+        return filledPage.page.clickSendButton();
+    }
+
+    /**
+     * A page with all step 1 fields filled, so only the send button is measured.
+     */
+    @State(Scope.Thread)
+    public static class FilledPage {
+
+        SendMoneyPbPage page;
+
+        @Setup(Level.Invocation)
+        public void fill(BrowserState browser) {
+            page = browser.openPage();
+            page.fillStep1(FORM, FillMode.SCRIPT);
+        }
+    }
+}
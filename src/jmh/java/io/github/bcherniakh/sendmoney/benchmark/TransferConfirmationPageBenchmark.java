@@ -0,0 +1,61 @@
+package io.github.bcherniakh.sendmoney.benchmark;
+
+import io.github.bcherniakh.sendmoney.page.FillMode;
+import io.github.bcherniakh.sendmoney.page.SendMoneyPbPage;
+import io.github.bcherniakh.sendmoney.page.TransferConfirmationPage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+import static io.github.bcherniakh.sendmoney.benchmark.BrowserState.FORM;
+import static io.github.bcherniakh.sendmoney.benchmark.BrowserState.PHONE_NUMBER;
+
+/**
+ * Step 2 of a transfer against the local copy of the page: filling the phone number and confirming the transfer.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class TransferConfirmationPageBenchmark {
+
+    @Benchmark
+    public boolean fillPhoneNumber(ConfirmationPage confirmation) {
+        confirmation.page.fillPhoneNumber(PHONE_NUMBER);
+        return confirmation.page.isPhoneNumberFieldPresent();
+    }
+
+    @Benchmark
+    public TransferConfirmationPage confirmTransfer(ConfirmationPage confirmation) {
+        confirmation.page.fillPhoneNumber(PHONE_NUMBER);
+        confirmation.page.clickSendButton();
+        return confirmation.page;
+    }
+
+    /**
+     * A freshly opened step 2 page, so the step 1 work stays out of the measurement.
+     */
+    @State(Scope.Thread)
+    public static class ConfirmationPage {
+
+        TransferConfirmationPage page;
+
+        @Setup(Level.Invocation)
+        public void open(BrowserState browser) {
+            SendMoneyPbPage step1 = browser.openPage();
+            step1.fillStep1(FORM, FillMode.SCRIPT);
+            page = step1.clickSendButton();
+        }
+    }
+}
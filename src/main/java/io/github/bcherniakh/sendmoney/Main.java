@@ -1,14 +1,224 @@
 package io.github.bcherniakh.sendmoney;
 
+import com.google.inject.CreationException;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.Stage;
+import com.google.inject.name.Names;
+import io.github.bcherniakh.sendmoney.batch.BatchCheckpoint;
+import io.github.bcherniakh.sendmoney.batch.BatchPreflight;
+import io.github.bcherniakh.sendmoney.batch.PreflightReport;
+import io.github.bcherniakh.sendmoney.batch.TransferFileStream;
 import io.github.bcherniakh.sendmoney.config.AutomatorModule;
 import io.github.bcherniakh.sendmoney.controller.AppController;
+import io.github.bcherniakh.sendmoney.controller.BatchController;
+import io.github.bcherniakh.sendmoney.controller.impl.SeleniumTransferFlow;
+import io.github.bcherniakh.sendmoney.daemon.TransferDaemon;
+import io.github.bcherniakh.sendmoney.domain.BatchReport;
+import io.github.bcherniakh.sendmoney.driver.BrowserMemoryProbe;
+import io.github.bcherniakh.sendmoney.driver.WebDriverPool;
+import io.github.bcherniakh.sendmoney.journal.TransferJournal;
+import io.github.bcherniakh.sendmoney.limit.ConcurrencyLimiter;
+import io.github.bcherniakh.sendmoney.metrics.MetricsServer;
+import io.github.bcherniakh.sendmoney.metrics.TransferMetrics;
+import io.github.bcherniakh.sendmoney.proxy.FilteringProxy;
+import io.github.bcherniakh.sendmoney.trace.CommandTracer;
+import io.github.bcherniakh.sendmoney.util.StartupMetrics;
+import org.apache.logging.log4j.LogManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Locale;
 
 public class Main {
+
+    private static final String BATCH_MODE = "batch";
+    private static final String DAEMON_MODE = "daemon";
+    private static final String HTTP_ENGINE = "http";
+    private static final String CDS_TRAINING_ARGUMENT = "--cds-training";
+    private static final long MEMORY_SAMPLE_INTERVAL_MILLIS = 1000;
+    private static final long MEGABYTE = 1024 * 1024;
+    private static final String[] STARTUP_CLASSES = {
+            "org.openqa.selenium.chrome.ChromeDriver",
+            "org.openqa.selenium.support.ui.WebDriverWait",
+            "io.github.bcherniakh.sendmoney.page.SendMoneyPbPage",
+            "io.github.bcherniakh.sendmoney.page.TransferConfirmationPage"
+    };
+
+    private static Logger log = LoggerFactory.getLogger(Main.class);
+
     public static void main(String[] args) {
-        Injector injector = Guice.createInjector(new AutomatorModule());
-        AppController controller = injector.getInstance(AppController.class);
-        controller.sendMoney();
+        if (Arrays.asList(args).contains(CDS_TRAINING_ARGUMENT)) {
+            loadStartupClasses();
+            return;
+        }
+
+        Injector injector = createInjector();
+        StartupMetrics.mark(StartupMetrics.INJECTOR_READY);
+
+        String mode = property(injector, "app.mode");
+        if (BATCH_MODE.equals(mode) && !checkBatch(injector)) {
+            LogManager.shutdown();
+            return;
+        }
+        boolean browserMode = BATCH_MODE.equals(mode) || DAEMON_MODE.equals(mode);
+        WebDriverPool driverPool = injector.getInstance(WebDriverPool.class);
+        if (browserMode) {
+            driverPool.start();
+        } else if (!HTTP_ENGINE.equals(property(injector, "app.engine"))) {
+            // A single transfer needs a single browser
+            driverPool.start(1);
+        }
+        MetricsServer metricsServer = injector.getInstance(MetricsServer.class);
+        if (browserMode) {
+            injector.getInstance(TransferMetrics.class).registerMBean();
+            metricsServer.start();
+        }
+        try {
+            if (BATCH_MODE.equals(mode)) {
+                sendBatch(injector);
+                return;
+            }
+            if (DAEMON_MODE.equals(mode)) {
+                runDaemon(injector, driverPool);
+                return;
+            }
+            AppController controller = injector.getInstance(AppController.class);
+            controller.sendMoney();
+        } finally {
+            metricsServer.close();
+            driverPool.close();
+            injector.getInstance(FilteringProxy.class).close();
+            injector.getInstance(CommandTracer.class).close();
+            if (browserMode) {
+                injector.getInstance(TransferJournal.class).close();
+            }
+            // Writes out the events left in the async logger ring buffer
+            LogManager.shutdown();
+        }
+    }
+
+    /*
+     * Runs before the browsers are launched, so an invalid batch does not cost any browser time.
+     * JSON lines are read one by one, the other files are checked in place.
+     */
+    private static boolean checkBatch(Injector injector) {
+        Path batchFile = Paths.get(property(injector, "batch.file"));
+        PreflightReport report;
+        if (TransferFileStream.isJsonLines(batchFile)) {
+            try (TransferFileStream transfers = new TransferFileStream(batchFile, 0)) {
+                report = transfers.check(new BatchPreflight());
+            }
+        } else {
+            report = new BatchPreflight().check(batchFile);
+        }
+        log.info("{}", report);
+        report.getRejections().forEach(rejection -> log.error("{}", rejection));
+        if (!report.isClean()) {
+            log.error("Batch file has invalid transfers. Nothing is sent");
+        }
+        return report.isClean();
+    }
+
+    private static void sendBatch(Injector injector) {
+        Path batchFile = Paths.get(property(injector, "batch.file"));
+        BatchCheckpoint checkpoint = injector.getInstance(BatchCheckpoint.class);
+        BatchReport report;
+        try (TransferFileStream transfers = new TransferFileStream(batchFile, checkpoint.load(batchFile));
+             BrowserMemoryProbe memoryProbe = new BrowserMemoryProbe()) {
+            memoryProbe.start(MEMORY_SAMPLE_INTERVAL_MILLIS);
+            report = injector.getInstance(BatchController.class).sendMoney(transfers, checkpoint);
+            logBrowserMemory(injector.getInstance(WebDriverPool.class), memoryProbe.getPeakBytes());
+        }
+
+        log.info("{}", report);
+        logThroughput(injector.getInstance(WebDriverPool.class), report,
+                Boolean.parseBoolean(property(injector, "driver.pool.pipeline")));
+        ConcurrencyLimiter limiter = injector.getInstance(ConcurrencyLimiter.class);
+        if (limiter.isEnabled()) {
+            log.info("Concurrency limit at the end of the batch: {} of {} sessions",
+                    limiter.getLimit(), injector.getInstance(WebDriverPool.class).size());
+        }
+        injector.getInstance(TransferMetrics.class).getSteps().forEach(step -> log.info("{}", step));
+        FilteringProxy proxy = injector.getInstance(FilteringProxy.class);
+        if (proxy.isEnabled()) {
+            log.info("{}", proxy.getReport());
+        }
+    }
+
+    /*
+     * Compare the memory per transfer of a run with driver.pool.tabs=1, a browser per transfer,
+     * to a run with the same number of sessions in tabs.
+     */
+    private static void logBrowserMemory(WebDriverPool driverPool, long peakBytes) {
+        if (peakBytes == BrowserMemoryProbe.UNKNOWN) {
+            return;
+        }
+        long peakMegabytes = peakBytes / MEGABYTE;
+        log.info("Browser memory peak: {} MB for {} concurrent transfers, {} per browser. {} MB per transfer",
+                peakMegabytes, driverPool.size(), driverPool.getTabs(), peakMegabytes / Math.max(1, driverPool.size()));
+    }
+
+    /*
+     * Compare a pipelined run, driver.pool.pipeline=true, to a run of the same browsers without tabs.
+     */
+    private static void logThroughput(WebDriverPool driverPool, BatchReport report, boolean pipelined) {
+        long browsers = Math.max(1, driverPool.size() / driverPool.getTabs());
+        double minutes = Math.max(1, report.getElapsed().toMillis()) / 60_000.0;
+        log.info("Throughput: {} transfers per browser per minute. {} browsers, {} sessions each{}",
+                String.format(Locale.ROOT, "%.1f", report.getSucceededCount() / minutes / browsers),
+                browsers, driverPool.getTabs(), pipelined ? ", pipelined" : "");
+    }
+
+    private static void runDaemon(Injector injector, WebDriverPool driverPool) {
+        TransferDaemon daemon = injector.getInstance(TransferDaemon.class);
+        TransferJournal journal = injector.getInstance(TransferJournal.class);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            daemon.close();
+            driverPool.close();
+            injector.getInstance(FilteringProxy.class).close();
+            journal.close();
+            injector.getInstance(CommandTracer.class).close();
+            LogManager.shutdown();
+        }, "daemon-shutdown"));
+        daemon.start();
+        daemon.awaitTermination();
+    }
+
+    /*
+     * Singletons are created on the first use, so a mode does not pay for the parts it does not need.
+     */
+    private static Injector createInjector() {
+        return Guice.createInjector(Stage.DEVELOPMENT, new AutomatorModule());
+    }
+
+    /*
+     * The training run of the AppCDS archive build. Loads the classes a transfer needs before the first keystroke
+     * without launching a browser, so they are put into the archive.
+     */
+    private static void loadStartupClasses() {
+        try {
+            Injector injector = createInjector();
+            injector.getInstance(WebDriverPool.class);
+            injector.getInstance(SeleniumTransferFlow.class);
+        } catch (CreationException e) {
+            log.warn("Injector classes are not archived. Fill application.properties for the complete archive");
+        }
+        for (String className : STARTUP_CLASSES) {
+            try {
+                Class.forName(className);
+            } catch (ClassNotFoundException e) {
+                log.warn("Startup class {} is not on the classpath", className);
+            }
+        }
+        log.info("Startup classes are loaded");
+    }
+
+    private static String property(Injector injector, String name) {
+        return injector.getInstance(Key.get(String.class, Names.named(name)));
     }
 }
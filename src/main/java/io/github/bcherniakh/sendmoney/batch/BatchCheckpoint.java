@@ -0,0 +1,151 @@
+package io.github.bcherniakh.sendmoney.batch;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.github.bcherniakh.sendmoney.exception.SendMoneyException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Named;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * Byte offset of the batch file before which every transfer is finished. A batch started again with
+ * the same file continues from this offset instead of reading the file from the start.
+ * <p>
+ * Transfers finish out of order, so the offset is the start of the oldest transfer still being sent.
+ * Only the transfers being sent are kept, their number is limited by the batch queue.
+ * The offset is saved at most once in {@link #SAVE_INTERVAL_MILLIS} and when the batch ends.
+ * The file has a single line
+ * <pre>
+ * offset batchFileSize batchFileLastModifiedMillis
+ * </pre>
+ * A checkpoint of a batch file of another size or modification time is ignored.
+ */
+@Singleton
+public class BatchCheckpoint {
+
+    static final long SAVE_INTERVAL_MILLIS = 1000;
+
+    private Logger log = LoggerFactory.getLogger(BatchCheckpoint.class);
+
+    private final Path file;
+    private final ConcurrentSkipListSet<Long> inFlight = new ConcurrentSkipListSet<>();
+
+    private volatile long readOffset;
+    private long batchSize;
+    private long batchModified;
+    private volatile long savedAt;
+
+    /**
+     * @param file path to the checkpoint file. An empty path disables the checkpoint:
+     *             every batch is read from the start
+     */
+    @Inject
+    public BatchCheckpoint(@Named("batch.checkpoint.file") String file) {
+        this.file = file == null || file.trim().isEmpty() ? null : Paths.get(file.trim());
+    }
+
+    /**
+     * @return a checkpoint that saves nothing
+     */
+    public static BatchCheckpoint disabled() {
+        return new BatchCheckpoint("");
+    }
+
+    /**
+     * Starts tracking a batch file.
+     *
+     * @return offset to continue the batch from, 0 when the file has no checkpoint
+     */
+    public synchronized long load(Path batchFile) {
+        inFlight.clear();
+        try {
+            batchSize = Files.size(batchFile);
+            batchModified = Files.getLastModifiedTime(batchFile).toMillis();
+        } catch (IOException e) {
+            throw new SendMoneyException("Failed to read batch file " + batchFile, e);
+        }
+        readOffset = 0;
+        if (file == null || !Files.exists(file)) {
+            return 0;
+        }
+
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(file, StandardCharsets.US_ASCII);
+        } catch (IOException e) {
+            throw new SendMoneyException("Failed to read batch checkpoint " + file, e);
+        }
+        String[] values = lines.isEmpty() ? new String[0] : lines.get(0).trim().split(" ");
+        try {
+            if (values.length == 3 && Long.parseLong(values[1]) == batchSize && Long.parseLong(values[2]) == batchModified) {
+                readOffset = Long.parseLong(values[0]);
+                log.info("Continuing batch {} from byte {} of {}", batchFile, readOffset, batchSize);
+                return readOffset;
+            }
+        } catch (NumberFormatException e) {
+            log.warn("Batch checkpoint {} is corrupted. Sending {} from the start", file, batchFile);
+            return 0;
+        }
+        log.info("Batch checkpoint {} is of another file. Sending {} from the start", file, batchFile);
+        return 0;
+    }
+
+    /**
+     * Called in the order of the batch file, before the transfer is handed to a worker.
+     *
+     * @param start offset of the transfer line
+     * @param end   offset after the transfer line
+     */
+    public void started(long start, long end) {
+        inFlight.add(start);
+        readOffset = end;
+    }
+
+    /**
+     * @param start offset of the transfer line
+     */
+    public void finished(long start) {
+        inFlight.remove(start);
+        if (file != null && System.currentTimeMillis() - savedAt >= SAVE_INTERVAL_MILLIS) {
+            save();
+        }
+    }
+
+    /**
+     * @return offset before which every transfer is finished
+     */
+    public long getOffset() {
+        long read = readOffset;
+        Long oldest = inFlight.ceiling(Long.MIN_VALUE);
+        return oldest == null ? read : Math.min(oldest, read);
+    }
+
+    /**
+     * Writes the current offset. The previous checkpoint is replaced atomically, so a stop while
+     * saving leaves one of the two.
+     */
+    public synchronized void save() {
+        if (file == null) {
+            return;
+        }
+        savedAt = System.currentTimeMillis();
+        String content = getOffset() + " " + batchSize + " " + batchModified;
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.write(temporary, Collections.singletonList(content), StandardCharsets.US_ASCII);
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            log.warn("Failed to save batch checkpoint {}", file, e);
+        }
+    }
+}
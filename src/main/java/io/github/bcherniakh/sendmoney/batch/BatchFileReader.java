@@ -0,0 +1,105 @@
+package io.github.bcherniakh.sendmoney.batch;
+
+import io.github.bcherniakh.sendmoney.domain.Card;
+import io.github.bcherniakh.sendmoney.domain.Transfer;
+import io.github.bcherniakh.sendmoney.exception.InvalidInputException;
+import io.github.bcherniakh.sendmoney.exception.SendMoneyException;
+import io.github.bcherniakh.sendmoney.util.CardDates;
+import io.github.bcherniakh.sendmoney.util.InputError;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static java.lang.String.format;
+
+/**
+ * Reads transfers from a batch file. Each line of the file is a transfer in the next format:
+ * <pre>
+ * id,senderCardNumber,senderCardExpires,senderCardCvv,senderPhone,receiverCardNumber,amount
+ * </pre>
+ * Card numbers, dates, phone and amount use the same formats as application.properties.
+ * Empty lines and lines starting with # are skipped.
+ * Every line is checked by the {@link BatchPreflight} before a transfer is created from it.
+ */
+public class BatchFileReader {
+
+    private static final String COMMENT_PREFIX = "#";
+    private static final int COLUMNS = 7;
+    private static final String ERROR_INVALID_LINE = "Invalid batch line %s: %s";
+
+    private final BatchPreflight preflight;
+
+    public BatchFileReader() {
+        this(new BatchPreflight());
+    }
+
+    public BatchFileReader(BatchPreflight preflight) {
+        this.preflight = preflight;
+    }
+
+    public List<Transfer> read(Path batchFile) {
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(batchFile, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new SendMoneyException("Failed to read batch file " + batchFile, e);
+        }
+        return parse(lines);
+    }
+
+    /**
+     * Parses transfers from lines in the batch file format.
+     * Line numbers in the error messages start from 1.
+     */
+    public List<Transfer> parse(List<String> lines) {
+        List<Transfer> transfers = new ArrayList<>(lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith(COMMENT_PREFIX)) {
+                continue;
+            }
+            transfers.add(parseLine(String.valueOf(i + 1), line));
+        }
+        return transfers;
+    }
+
+    /**
+     * @param position line number or other position of the line for the error messages
+     */
+    Transfer parseLine(String position, String line) {
+        InputError error = preflight.checkLine(line);
+        if (error != null) {
+            throw new InvalidInputException(format(ERROR_INVALID_LINE, position, error.getMessage()));
+        }
+
+        String[] columns = line.split(",", -1);
+        if (columns.length != COLUMNS) {
+            throw new InvalidInputException(format(ERROR_INVALID_LINE, position, "expected " + COLUMNS + " columns"));
+        }
+
+        try {
+            Card sender = new Card();
+            sender.setNumber(columns[1].trim());
+            sender.setExpiresDate(CardDates.parseExpiresDate(columns[2].trim()));
+            sender.setSecurityCode(columns[3].trim());
+
+            Card receiver = new Card();
+            receiver.setNumber(columns[5].trim());
+
+            Transfer transfer = new Transfer();
+            transfer.setId(columns[0].trim());
+            transfer.setSender(sender);
+            transfer.setSendersPhoneNumber(columns[4].trim());
+            transfer.setReceiver(receiver);
+            transfer.setAmount(Double.parseDouble(columns[6].trim()));
+            return transfer;
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new InvalidInputException(format(ERROR_INVALID_LINE, position, e.getMessage()), e);
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package io.github.bcherniakh.sendmoney.batch;
+
+import io.github.bcherniakh.sendmoney.exception.InvalidInputException;
+import io.github.bcherniakh.sendmoney.exception.SendMoneyException;
+import io.github.bcherniakh.sendmoney.util.CardInputs;
+import io.github.bcherniakh.sendmoney.util.InputError;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Checks every transfer of a batch file before any of them is sent, so an invalid line is found
+ * without spending browser time on the lines before it. The lines are in the {@link BatchFileReader} format.
+ * <p>
+ * The file is memory mapped and checked in place with {@link CardInputs}. Only the rejections are allocated.
+ */
+public class BatchPreflight {
+
+    private static final int COLUMNS = 7;
+    private static final int WINDOW_SIZE = 64 * 1024 * 1024;
+
+    private final Clock clock;
+
+    public BatchPreflight() {
+        this(Clock.systemDefaultZone());
+    }
+
+    /**
+     * @param clock cards expired before its month at the time of the check are rejected, so a resident reader
+     *              rejects the cards that expire while it is in use
+     */
+    public BatchPreflight(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * @param currentMonth cards expired before this month are rejected
+     */
+    public BatchPreflight(YearMonth currentMonth) {
+        this(Clock.fixed(currentMonth.atDay(1).atStartOfDay(ZoneOffset.UTC).toInstant(), ZoneOffset.UTC));
+    }
+
+    public PreflightReport check(Path batchFile) {
+        long startedAt = System.nanoTime();
+        List<PreflightReport.Rejection> rejections = new ArrayList<>();
+        long checked = 0;
+        long lineNumber = 0;
+        int currentMonth = currentMonth();
+        try (FileChannel channel = FileChannel.open(batchFile, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            AsciiView line = new AsciiView();
+            while (position < size) {
+                long windowSize = Math.min(WINDOW_SIZE, size - position);
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+                boolean lastWindow = position + windowSize == size;
+                line.buffer = window;
+                int start = 0;
+                int limit = (int) windowSize;
+                for (int i = 0; i <= limit; i++) {
+                    boolean lineEnd = i < limit ? window.get(i) == '\n' : lastWindow && start < limit;
+                    if (!lineEnd) {
+                        continue;
+                    }
+                    lineNumber++;
+                    InputError error = checkLine(line, start, i, currentMonth);
+                    if (error != null) {
+                        rejections.add(new PreflightReport.Rejection(lineNumber, error));
+                    }
+                    if (!isSkipped(line, start, i)) {
+                        checked++;
+                    }
+                    start = i + 1;
+                }
+                if (!lastWindow && start == 0) {
+                    throw new InvalidInputException("Batch line " + (lineNumber + 1) + " is longer than " + WINDOW_SIZE + " bytes");
+                }
+                position += lastWindow ? windowSize : start;
+            }
+        } catch (IOException e) {
+            throw new SendMoneyException("Failed to read batch file " + batchFile, e);
+        }
+        return new PreflightReport(checked, rejections, Duration.ofNanos(System.nanoTime() - startedAt));
+    }
+
+    /**
+     * Checks a single batch line.
+     *
+     * @return the first error of the line or {@code null} for a valid line, an empty line or a comment
+     */
+    public InputError checkLine(CharSequence line) {
+        return checkLine(line, 0, line.length(), currentMonth());
+    }
+
+    private int currentMonth() {
+        return CardInputs.monthIndex(YearMonth.now(clock));
+    }
+
+    private InputError checkLine(CharSequence text, int from, int to, int currentMonth) {
+        if (isSkipped(text, from, to)) {
+            return null;
+        }
+        int column = 0;
+        int columnStart = from;
+        for (int i = from; i <= to; i++) {
+            if (i < to && text.charAt(i) != ',') {
+                continue;
+            }
+            if (column == COLUMNS) {
+                return InputError.COLUMNS;
+            }
+            InputError error = checkColumn(column++, text, columnStart, i, currentMonth);
+            if (error != null) {
+                return error;
+            }
+            columnStart = i + 1;
+        }
+        return column == COLUMNS ? null : InputError.COLUMNS;
+    }
+
+    /*
+     * id,senderCardNumber,senderCardExpires,senderCardCvv,senderPhone,receiverCardNumber,amount
+     */
+    private static InputError checkColumn(int column, CharSequence text, int from, int to, int currentMonth) {
+        switch (column) {
+            case 0:
+                return CardInputs.skipSpaces(text, from, to) == to ? InputError.TRANSFER_ID : null;
+            case 1:
+            case 5:
+                return CardInputs.checkCardNumber(text, from, to);
+            case 2:
+                return CardInputs.checkExpiresDate(text, from, to, currentMonth);
+            case 3:
+                return CardInputs.checkCvv(text, from, to);
+            case 4:
+                return CardInputs.checkPhone(text, from, to);
+            default:
+                return CardInputs.checkAmount(text, from, to);
+        }
+    }
+
+    private static boolean isSkipped(CharSequence text, int from, int to) {
+        int start = CardInputs.skipSpaces(text, from, to);
+        return start == to || text.charAt(start) == '#';
+    }
+
+    /*
+     * Mapped bytes seen as characters. The batch format is ASCII, other bytes never pass a check.
+     */
+    private static final class AsciiView implements CharSequence {
+
+        private MappedByteBuffer buffer;
+
+        @Override
+        public int length() {
+            return buffer.limit();
+        }
+
+        @Override
+        public char charAt(int index) {
+            return (char) (buffer.get(index) & 0xFF);
+        }
+
+        /*
+         * Not used by the checks, so the range is simply copied.
+         */
+        @Override
+        public CharSequence subSequence(int start, int end) {
+            if (start < 0 || end > length() || start > end) {
+                throw new IndexOutOfBoundsException("Range [" + start + ", " + end + ") of " + length());
+            }
+            StringBuilder copy = new StringBuilder(end - start);
+            for (int i = start; i < end; i++) {
+                copy.append(charAt(i));
+            }
+            return copy.toString();
+        }
+
+        @Override
+        public String toString() {
+            return subSequence(0, length()).toString();
+        }
+    }
+}
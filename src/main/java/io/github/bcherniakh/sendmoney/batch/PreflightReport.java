@@ -0,0 +1,75 @@
+package io.github.bcherniakh.sendmoney.batch;
+
+import io.github.bcherniakh.sendmoney.util.InputError;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of a {@link BatchPreflight} check of a batch file.
+ */
+public final class PreflightReport {
+
+    private final long checkedCount;
+    private final List<Rejection> rejections;
+    private final Duration elapsed;
+
+    PreflightReport(long checkedCount, List<Rejection> rejections, Duration elapsed) {
+        this.checkedCount = checkedCount;
+        this.rejections = Collections.unmodifiableList(rejections);
+        this.elapsed = elapsed;
+    }
+
+    /**
+     * @return number of transfer lines checked, without empty and comment lines
+     */
+    public long getCheckedCount() {
+        return checkedCount;
+    }
+
+    public List<Rejection> getRejections() {
+        return rejections;
+    }
+
+    public boolean isClean() {
+        return rejections.isEmpty();
+    }
+
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Checked %d transfers in %d ms. Rejected: %d",
+                checkedCount, elapsed.toMillis(), rejections.size());
+    }
+
+    /**
+     * A batch line that did not pass the check. Line numbers start from 1.
+     */
+    public static final class Rejection {
+
+        private final long lineNumber;
+        private final InputError error;
+
+        Rejection(long lineNumber, InputError error) {
+            this.lineNumber = lineNumber;
+            this.error = error;
+        }
+
+        public long getLineNumber() {
+            return lineNumber;
+        }
+
+        public InputError getError() {
+            return error;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Invalid batch line %d: %s", lineNumber, error.getMessage());
+        }
+    }
+}
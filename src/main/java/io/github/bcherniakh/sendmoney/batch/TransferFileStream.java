@@ -0,0 +1,268 @@
+package io.github.bcherniakh.sendmoney.batch;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import io.github.bcherniakh.sendmoney.domain.Transfer;
+import io.github.bcherniakh.sendmoney.exception.InvalidInputException;
+import io.github.bcherniakh.sendmoney.exception.SendMoneyException;
+import io.github.bcherniakh.sendmoney.util.InputError;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads the transfers of a batch file one by one, so the memory taken does not depend on the file size.
+ * A file with the .jsonl extension has a JSON object per line:
+ * <pre>
+ * {"id": "t1", "senderCardNumber": "...", "senderCardExpires": "MM/YYYY", "senderCardCvv": "...",
+ *  "senderPhone": "...", "receiverCardNumber": "...", "amount": 10.50}
+ * </pre>
+ * Other files have lines in the {@link BatchFileReader} format. Both are checked as {@link BatchFileReader} does.
+ * {@link #check(BatchPreflight)} checks the whole file without parsing the transfers.
+ * <p>
+ * The file is memory mapped in windows of {@link #WINDOW_SIZE} bytes, only the current line is copied to the heap.
+ * {@link #getOffset()} is the byte offset after the last read transfer. A stream opened at this offset
+ * continues with the next transfer.
+ */
+public class TransferFileStream implements AutoCloseable {
+
+    static final int WINDOW_SIZE = 64 * 1024 * 1024;
+    private static final int COLUMNS = 7;
+    private static final String JSONL_EXTENSION = ".jsonl";
+    private static final String COMMENT_PREFIX = "#";
+
+    private final Path file;
+    private final int windowSize;
+    private final boolean json;
+    private final BatchFileReader reader;
+    private final FileChannel channel;
+    private final long size;
+    private final long startOffset;
+    private final Gson gson = new Gson();
+
+    private MappedByteBuffer window;
+    private long windowStart;
+    private int cursor;
+    private long lineNumber;
+    private byte[] line = new byte[256];
+
+    public TransferFileStream(Path file, long offset) {
+        this(file, offset, new BatchFileReader(), WINDOW_SIZE);
+    }
+
+    TransferFileStream(Path file, long offset, BatchFileReader reader, int windowSize) {
+        this.file = file;
+        this.windowSize = windowSize;
+        this.reader = reader;
+        this.json = isJsonLines(file);
+        this.startOffset = offset;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            size = channel.size();
+        } catch (IOException e) {
+            throw new SendMoneyException("Failed to read batch file " + file, e);
+        }
+        if (offset < 0 || offset > size) {
+            close();
+            throw new InvalidInputException("Offset " + offset + " is out of the batch file " + file);
+        }
+        windowStart = offset;
+    }
+
+    /**
+     * @return whether the file has a JSON object per line
+     */
+    public static boolean isJsonLines(Path file) {
+        return file.getFileName().toString().toLowerCase().endsWith(JSONL_EXTENSION);
+    }
+
+    /**
+     * @return the next transfer or {@code null} after the last one
+     */
+    public Transfer next() {
+        while (true) {
+            long lineStart = getOffset();
+            int length = nextLine();
+            if (length < 0) {
+                return null;
+            }
+            lineNumber++;
+            String text = new String(line, 0, length, StandardCharsets.UTF_8).trim();
+            if (text.isEmpty() || text.startsWith(COMMENT_PREFIX)) {
+                continue;
+            }
+            String position = startOffset == 0 ? String.valueOf(lineNumber) : "at byte " + lineStart;
+            return json ? parseJson(position, text) : reader.parseLine(position, text);
+        }
+    }
+
+    /**
+     * Checks the transfers left in the file with the {@link BatchPreflight}, a JSON record as the batch line
+     * it is turned into. Reads the file to the end, so the stream is used up afterwards.
+     */
+    public PreflightReport check(BatchPreflight preflight) {
+        long startedAt = System.nanoTime();
+        List<PreflightReport.Rejection> rejections = new ArrayList<>();
+        long checked = 0;
+        String[] columns = new String[COLUMNS];
+        int length;
+        while ((length = nextLine()) >= 0) {
+            lineNumber++;
+            String text = new String(line, 0, length, StandardCharsets.UTF_8).trim();
+            if (text.isEmpty() || text.startsWith(COMMENT_PREFIX)) {
+                continue;
+            }
+            checked++;
+            InputError error = json ? jsonColumns(text, columns) : null;
+            if (error == null) {
+                error = preflight.checkLine(json ? String.join(",", columns) : text);
+            }
+            if (error != null) {
+                rejections.add(new PreflightReport.Rejection(lineNumber, error));
+            }
+        }
+        return new PreflightReport(checked, rejections, Duration.ofNanos(System.nanoTime() - startedAt));
+    }
+
+    /**
+     * @return byte offset of the file after the last read line
+     */
+    public long getOffset() {
+        return windowStart + cursor;
+    }
+
+    public long size() {
+        return size;
+    }
+
+    public Path getFile() {
+        return file;
+    }
+
+    @Override
+    public void close() {
+        window = null;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            throw new SendMoneyException("Failed to close batch file " + file, e);
+        }
+    }
+
+    /*
+     * Copies the next line without the line break to the line buffer. Maps the next window when the line
+     * does not end in the current one.
+     */
+    private int nextLine() {
+        while (true) {
+            if (window == null || cursor == window.limit()) {
+                if (!mapWindow()) {
+                    return -1;
+                }
+            }
+            int limit = window.limit();
+            boolean lastWindow = windowStart + limit == size;
+            int end = cursor;
+            while (end < limit && window.get(end) != '\n') {
+                end++;
+            }
+            if (end == limit && !lastWindow) {
+                if (cursor == 0) {
+                    throw new InvalidInputException("Batch line at byte " + windowStart + " is longer than "
+                            + windowSize + " bytes");
+                }
+                windowStart += cursor;
+                cursor = 0;
+                window = null;
+                continue;
+            }
+            int length = end - cursor;
+            if (line.length < length) {
+                line = Arrays.copyOf(line, Math.max(length, line.length * 2));
+            }
+            for (int i = 0; i < length; i++) {
+                line[i] = window.get(cursor + i);
+            }
+            cursor = end == limit ? end : end + 1;
+            return length;
+        }
+    }
+
+    private boolean mapWindow() {
+        if (window != null) {
+            windowStart += cursor;
+            cursor = 0;
+        }
+        if (windowStart >= size) {
+            window = null;
+            cursor = 0;
+            return false;
+        }
+        try {
+            window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(windowSize, size - windowStart));
+        } catch (IOException e) {
+            throw new SendMoneyException("Failed to read batch file " + file, e);
+        }
+        return true;
+    }
+
+    /*
+     * The record is turned into a line of the batch format, so both formats are checked the same way.
+     */
+    private Transfer parseJson(String position, String text) {
+        String[] columns = new String[COLUMNS];
+        InputError error = jsonColumns(text, columns);
+        if (error != null) {
+            throw new InvalidInputException("Invalid batch line " + position + ": " + error.getMessage());
+        }
+        return reader.parseLine(position, String.join(",", columns));
+    }
+
+    /*
+     * Puts the values of the record to the columns in the batch line order, a missing value as an empty one.
+     */
+    private InputError jsonColumns(String text, String[] columns) {
+        JsonTransfer record;
+        try {
+            record = gson.fromJson(text, JsonTransfer.class);
+        } catch (JsonParseException e) {
+            return InputError.JSON_FORMAT;
+        }
+        if (record == null) {
+            return InputError.JSON_FORMAT;
+        }
+        columns[0] = record.id;
+        columns[1] = record.senderCardNumber;
+        columns[2] = record.senderCardExpires;
+        columns[3] = record.senderCardCvv;
+        columns[4] = record.senderPhone;
+        columns[5] = record.receiverCardNumber;
+        columns[6] = record.amount;
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i] == null) {
+                columns[i] = "";
+            } else if (columns[i].indexOf(',') >= 0) {
+                return InputError.JSON_VALUE;
+            }
+        }
+        return null;
+    }
+
+    private static class JsonTransfer {
+        private String id;
+        private String senderCardNumber;
+        private String senderCardExpires;
+        private String senderCardCvv;
+        private String senderPhone;
+        private String receiverCardNumber;
+        private String amount;
+    }
+}
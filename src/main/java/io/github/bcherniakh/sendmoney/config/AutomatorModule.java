@@ -5,26 +5,45 @@ import com.google.inject.Provides;
 import com.google.inject.Singleton;
 import com.google.inject.name.Names;
 import io.github.bcherniakh.sendmoney.controller.AppController;
+import io.github.bcherniakh.sendmoney.controller.BatchController;
+import io.github.bcherniakh.sendmoney.controller.TransferController;
+import io.github.bcherniakh.sendmoney.controller.impl.AsyncTransferController;
+import io.github.bcherniakh.sendmoney.controller.impl.HttpSendMoneyController;
+import io.github.bcherniakh.sendmoney.controller.impl.ParallelBatchController;
 import io.github.bcherniakh.sendmoney.controller.impl.SeleniumSendMoneyController;
 import io.github.bcherniakh.sendmoney.domain.Card;
+import io.github.bcherniakh.sendmoney.driver.DriverSessionFactory;
+import io.github.bcherniakh.sendmoney.driver.GridNodes;
+import io.github.bcherniakh.sendmoney.driver.GridSessionFactory;
+import io.github.bcherniakh.sendmoney.exception.InvalidInputException;
+import io.github.bcherniakh.sendmoney.proxy.FilteringProxy;
+import io.github.bcherniakh.sendmoney.proxy.ResourceType;
+import io.github.bcherniakh.sendmoney.trace.CommandTracer;
+import io.github.bcherniakh.sendmoney.util.CardDates;
+import io.github.bcherniakh.sendmoney.util.CardInputs;
+import io.github.bcherniakh.sendmoney.util.InputError;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.client.LaxRedirectStrategy;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.openqa.selenium.PageLoadStrategy;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.chrome.ChromeDriver;
-import org.openqa.selenium.support.ui.Wait;
-import org.openqa.selenium.support.ui.WebDriverWait;
+import org.openqa.selenium.chrome.ChromeOptions;
 
 import javax.inject.Named;
 import java.io.FileReader;
 import java.io.IOException;
-import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.time.format.DateTimeFormatterBuilder;
-import java.time.temporal.ChronoField;
+import java.time.YearMonth;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
 
-import static io.github.bcherniakh.sendmoney.constant.WebConstant.DEFAULT_WAIT_TIMEOUT;
-
 public class AutomatorModule extends AbstractModule {
 
+    private static final String HTTP_ENGINE = "http";
+    private static final int BLOCKED_CONTENT_SETTING = 2;
+
     @Override
     protected void configure() {
         Properties properties = new Properties();
@@ -36,26 +55,77 @@ public class AutomatorModule extends AbstractModule {
 
         Names.bindProperties(binder(), properties);
         bind(AppController.class)
-                .to(SeleniumSendMoneyController.class)
+                .to(appControllerClass(properties.getProperty("app.engine")))
+                .in(Singleton.class);
+        bind(BatchController.class)
+                .to(ParallelBatchController.class)
+                .in(Singleton.class);
+        bind(TransferController.class)
+                .to(AsyncTransferController.class)
                 .in(Singleton.class);
+        GridNodes gridNodes = new GridNodes(properties.getProperty("grid.nodes", ""), 1);
+        if (gridNodes.isEnabled()) {
+            // The proxy listens on the loopback, the browsers of other machines would not reach it
+            if (Boolean.parseBoolean(properties.getProperty("browser.proxy.enabled")) && !gridNodes.isLocal()) {
+                throw new InvalidInputException("browser.proxy.enabled works only with the Grid nodes of this machine, "
+                        + "disable it or remove the remote nodes from grid.nodes");
+            }
+            bind(DriverSessionFactory.class).to(GridSessionFactory.class);
+        }
 
         bindConstant().annotatedWith(SenderPhone.class).to(properties.getProperty("sender.phone"));
         bindConstant().annotatedWith(MoneyAmount.class).to(properties.getProperty("sender.money.amount"));
     }
 
+    /**
+     * Shared by all HTTP transfers, so connections to the site are kept alive and reused.
+     */
     @Provides
     @Singleton
-    public Wait<WebDriver> webDriverWait(WebDriver webDriver) {
-        return new WebDriverWait(webDriver, DEFAULT_WAIT_TIMEOUT);
+    public CloseableHttpClient httpClient(@Named("http.max.connections") int maxConnections) {
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+
+        return HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setRedirectStrategy(new LaxRedirectStrategy())
+                .build();
     }
 
+    /**
+     * Not scoped on purpose: every injection launches a new browser,
+     * so each {@link io.github.bcherniakh.sendmoney.driver.DriverSession} gets its own one.
+     * The browser commands are traced when trace.file is set.
+     */
     @Provides
-    @Singleton
-    public WebDriver webDriver(@Named("selenium.webdriver.path") String chromeDriverPath) {
+    public WebDriver webDriver(@Named("selenium.webdriver.path") String chromeDriverPath, ChromeOptions options,
+                               CommandTracer tracer) {
         System.setProperty("org.apache.commons.logging.Log", "org.apache.commons.logging.impl.Jdk14Logger");
         System.setProperty("webdriver.chrome.driver", chromeDriverPath);
 
-        return new ChromeDriver();
+        return tracer.wrap(new ChromeDriver(options));
+    }
+
+    /**
+     * Options of the local browsers and the ones started on the Grid nodes.
+     * A browser shared by several tabs keeps running the pages of the background tabs at full speed.
+     * With browser.proxy.enabled the browser requests go through the {@link FilteringProxy}.
+     */
+    @Provides
+    public ChromeOptions chromeOptions(@Named("driver.pool.tabs") int tabs,
+                                       @Named("driver.page.load.strategy") PageLoadStrategy pageLoadStrategy,
+                                       FilteringProxy proxy) {
+        ChromeOptions options = new ChromeOptions();
+        options.setPageLoadStrategy(pageLoadStrategy);
+        if (tabs > 1) {
+            options.addArguments("--disable-background-timer-throttling", "--disable-renderer-backgrounding",
+                    "--disable-backgrounding-occluded-windows");
+        }
+        if (proxy.isEnabled()) {
+            routeThroughProxy(options, proxy);
+        }
+        return options;
     }
 
     @Provides
@@ -64,9 +134,13 @@ public class AutomatorModule extends AbstractModule {
     public Card senderCard(@Named("sender.card.number") String cardNumber,
                            @Named("sender.card.expires") String expiresDate,
                            @Named("sender.card.cvv") String securityCode) {
+        checkInput("sender.card.number", CardInputs.checkCardNumber(cardNumber, 0, cardNumber.length()));
+        checkInput("sender.card.expires", CardInputs.checkExpiresDate(expiresDate, 0, expiresDate.length(),
+                CardInputs.monthIndex(YearMonth.now())));
+        checkInput("sender.card.cvv", CardInputs.checkCvv(securityCode, 0, securityCode.length()));
         Card card = new Card();
         card.setNumber(cardNumber);
-        card.setExpiresDate(parseDate(expiresDate));
+        card.setExpiresDate(CardDates.parseExpiresDate(expiresDate));
         card.setSecurityCode(securityCode);
         return card;
 
@@ -76,19 +150,39 @@ public class AutomatorModule extends AbstractModule {
     @Singleton
     @ReceiverCard
     public Card receiverCard(@Named("receiver.card.number") String cardNumber) {
+        checkInput("receiver.card.number", CardInputs.checkCardNumber(cardNumber, 0, cardNumber.length()));
         Card card = new Card();
         card.setNumber(cardNumber);
 
         return card;
     }
 
-    private LocalDate parseDate(String date) {
-        DateTimeFormatter dateTimeFormatter = new DateTimeFormatterBuilder()
-                .appendPattern("MM/yyyy")
-                .parseDefaulting(ChronoField.DAY_OF_MONTH, 1)
-                .toFormatter();
+    /*
+     * The card of the properties is checked as the batch lines are, see BatchPreflight.
+     */
+    private static void checkInput(String property, InputError error) {
+        if (error != null) {
+            throw new InvalidInputException("Invalid " + property + ": " + error.getMessage());
+        }
+    }
 
-        return LocalDate.parse(date, dateTimeFormatter);
+    /*
+     * Chrome does not proxy the local addresses by default, <-loopback> turns that off for the local copy of the site.
+     * Images denied for any URL are not requested at all, which works for the HTTPS pages the proxy can not look into.
+     */
+    private static void routeThroughProxy(ChromeOptions options, FilteringProxy proxy) {
+        options.addArguments("--proxy-server=http://127.0.0.1:" + proxy.start(), "--proxy-bypass-list=<-loopback>");
+        if (proxy.getFilter().deniesAll(ResourceType.IMAGE)) {
+            Map<String, Object> preferences = new HashMap<>();
+            preferences.put("profile.managed_default_content_settings.images", BLOCKED_CONTENT_SETTING);
+            options.setExperimentalOption("prefs", preferences);
+        }
     }
 
+    private Class<? extends AppController> appControllerClass(String engine) {
+        if (HTTP_ENGINE.equals(engine)) {
+            return HttpSendMoneyController.class;
+        }
+        return SeleniumSendMoneyController.class;
+    }
 }
@@ -2,4 +2,7 @@ package io.github.bcherniakh.sendmoney.constant;
 
 public interface WebConstant {
     static final int DEFAULT_WAIT_TIMEOUT = 60;
+    static final int DRIVER_BORROW_TIMEOUT = 120;
+    static final int SCRIPT_TIMEOUT = DEFAULT_WAIT_TIMEOUT + 5;
+    static final int READINESS_POLL_INTERVAL_MILLIS = 50;
 }
@@ -0,0 +1,17 @@
+package io.github.bcherniakh.sendmoney.controller;
+
+import io.github.bcherniakh.sendmoney.batch.BatchCheckpoint;
+import io.github.bcherniakh.sendmoney.batch.TransferFileStream;
+import io.github.bcherniakh.sendmoney.domain.BatchReport;
+import io.github.bcherniakh.sendmoney.domain.Transfer;
+
+import java.util.List;
+
+public interface BatchController {
+    BatchReport sendMoney(List<Transfer> transfers);
+
+    /**
+     * Sends the transfers as they are read from the file. The checkpoint is moved past the finished ones.
+     */
+    BatchReport sendMoney(TransferFileStream transfers, BatchCheckpoint checkpoint);
+}
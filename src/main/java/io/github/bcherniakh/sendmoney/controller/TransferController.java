@@ -0,0 +1,23 @@
+package io.github.bcherniakh.sendmoney.controller;
+
+import io.github.bcherniakh.sendmoney.domain.Transfer;
+import io.github.bcherniakh.sendmoney.domain.TransferResult;
+
+import java.util.concurrent.CompletableFuture;
+
+public interface TransferController extends AutoCloseable {
+
+    /**
+     * Queues the transfer and returns at once.
+     *
+     * @return the result of the transfer, completed when the transfer is finished. A failed transfer
+     * completes it normally with a failed {@link TransferResult}
+     */
+    CompletableFuture<TransferResult> submit(Transfer transfer);
+
+    /**
+     * Stops accepting transfers and waits for the ones in progress.
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,141 @@
+package io.github.bcherniakh.sendmoney.controller.impl;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.github.bcherniakh.sendmoney.controller.TransferController;
+import io.github.bcherniakh.sendmoney.domain.Transfer;
+import io.github.bcherniakh.sendmoney.domain.TransferResult;
+import io.github.bcherniakh.sendmoney.domain.TransferStage;
+import io.github.bcherniakh.sendmoney.exception.SendMoneyException;
+import io.github.bcherniakh.sendmoney.util.TransferThreads;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import static io.github.bcherniakh.sendmoney.constant.WebConstant.DEFAULT_WAIT_TIMEOUT;
+
+/**
+ * Sends transfers in the background with the {@link PooledTransferSender}.
+ * <p>
+ * Every submitted transfer gets a thread of {@link TransferThreads}, a virtual one on Java 21 and newer.
+ * Only as many transfers as there are browser sessions go to the pool at the same time, the rest wait
+ * for a free session without a timeout, so any number of transfers can be queued.
+ * <p>
+ * A transfer held back by the rate limits, see {@link PooledTransferSender#reserveRate}, is parked on a timer
+ * and gets its thread when the wait is over, so it takes neither a thread nor a session while it waits.
+ * Transfers still parked on {@link #close()} are reported as failed, the journal has them as queued.
+ */
+@Singleton
+public class AsyncTransferController implements TransferController {
+
+    private Logger log = LoggerFactory.getLogger(AsyncTransferController.class);
+
+    private final PooledTransferSender transferSender;
+    private final Semaphore sessions;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService timer;
+    private final Map<CompletableFuture<TransferResult>, Transfer> parked = new ConcurrentHashMap<>();
+
+    @Inject
+    public AsyncTransferController(PooledTransferSender transferSender) {
+        this.transferSender = transferSender;
+        this.sessions = new Semaphore(transferSender.concurrency(), true);
+        this.executor = TransferThreads.newPerTaskExecutor("transfer", transferSender.concurrency());
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "transfer-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public CompletableFuture<TransferResult> submit(Transfer transfer) {
+        if (executor.isShutdown()) {
+            throw new SendMoneyException("Transfers are not accepted after close");
+        }
+        long delay = transferSender.reserveRate(transfer);
+        if (delay <= 0) {
+            return start(transfer);
+        }
+        log.debug("Transfer {} waits {} ms for the rate limit", transfer.getId(), TimeUnit.NANOSECONDS.toMillis(delay));
+        CompletableFuture<TransferResult> result = new CompletableFuture<>();
+        parked.put(result, transfer);
+        timer.schedule(() -> {
+            if (parked.remove(result) == null) {
+                return;
+            }
+            try {
+                start(transfer).whenComplete((sent, error) -> {
+                    if (error != null) {
+                        result.completeExceptionally(error);
+                    } else {
+                        result.complete(sent);
+                    }
+                });
+            } catch (SendMoneyException e) {
+                result.complete(stopped(transfer));
+            }
+        }, delay, TimeUnit.NANOSECONDS);
+        return result;
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+        for (CompletableFuture<TransferResult> result : parked.keySet()) {
+            Transfer transfer = parked.remove(result);
+            if (transfer != null) {
+                result.complete(stopped(transfer));
+            }
+        }
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(DEFAULT_WAIT_TIMEOUT, TimeUnit.SECONDS)) {
+                log.warn("Transfers are still running after {} seconds", DEFAULT_WAIT_TIMEOUT);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static TransferResult stopped(Transfer transfer) {
+        return TransferResult.failed(transfer.getId(), TransferStage.OPEN_PAGE,
+                "Stopped while waiting for the rate limit", Duration.ZERO);
+    }
+
+    private CompletableFuture<TransferResult> start(Transfer transfer) {
+        try {
+            return CompletableFuture.supplyAsync(() -> send(transfer), executor);
+        } catch (RejectedExecutionException e) {
+            throw new SendMoneyException("Transfers are not accepted after close", e);
+        }
+    }
+
+    private TransferResult send(Transfer transfer) {
+        long queuedAt = System.nanoTime();
+        try {
+            sessions.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return TransferResult.failed(transfer.getId(), TransferStage.OPEN_PAGE, "Interrupted while queued",
+                    Duration.ofNanos(System.nanoTime() - queuedAt));
+        }
+        try {
+            log.debug("Transfer {} waited {} ms for a browser", transfer.getId(),
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - queuedAt));
+            return transferSender.send(transfer);
+        } finally {
+            sessions.release();
+        }
+    }
+}
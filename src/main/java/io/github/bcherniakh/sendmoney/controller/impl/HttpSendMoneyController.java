@@ -0,0 +1,29 @@
+package io.github.bcherniakh.sendmoney.controller.impl;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.github.bcherniakh.sendmoney.controller.AppController;
+import io.github.bcherniakh.sendmoney.domain.AppSettings;
+import io.github.bcherniakh.sendmoney.domain.Transfer;
+
+/**
+ * Sends money without a browser. See {@link HttpTransferFlow}.
+ */
+@Singleton
+public class HttpSendMoneyController implements AppController {
+
+    private static final String SINGLE_TRANSFER_ID = "single";
+
+    private AppSettings settings;
+    private HttpTransferFlow transferFlow;
+
+    @Inject
+    public HttpSendMoneyController(AppSettings settings, HttpTransferFlow transferFlow) {
+        this.settings = settings;
+        this.transferFlow = transferFlow;
+    }
+
+    public void sendMoney() {
+        transferFlow.run(settings.toTransfer(SINGLE_TRANSFER_ID));
+    }
+}
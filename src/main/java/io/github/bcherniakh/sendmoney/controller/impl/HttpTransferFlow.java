@@ -0,0 +1,156 @@
+package io.github.bcherniakh.sendmoney.controller.impl;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.github.bcherniakh.sendmoney.domain.Transfer;
+import io.github.bcherniakh.sendmoney.domain.TransferStage;
+import io.github.bcherniakh.sendmoney.exception.SendMoneyException;
+import io.github.bcherniakh.sendmoney.exception.TransferFailedException;
+import io.github.bcherniakh.sendmoney.http.HtmlForm;
+import io.github.bcherniakh.sendmoney.http.SiteForms.Step1;
+import io.github.bcherniakh.sendmoney.http.SiteForms.Step2;
+import org.apache.http.HttpResponse;
+import org.apache.http.NameValuePair;
+import org.apache.http.client.entity.UrlEncodedFormEntity;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.client.methods.HttpUriRequest;
+import org.apache.http.client.protocol.HttpClientContext;
+import org.apache.http.impl.client.BasicCookieStore;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.message.BasicNameValuePair;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Named;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Performs a transfer with plain HTTP requests instead of a browser.
+ * Opens the main page, submits its step 1 form, reads the step 2 page and submits its form. The form actions
+ * and the fields the engine does not fill, e.g. hidden and token inputs, are taken from the fetched pages,
+ * the transfer fields are named by {@link io.github.bcherniakh.sendmoney.http.SiteForms}.
+ * Every transfer has its own cookies, while connections are shared by all transfers through
+ * the pooled {@link CloseableHttpClient}.
+ */
+@Singleton
+public class HttpTransferFlow {
+
+    private static final DateTimeFormatter YEAR_FORMATTER = DateTimeFormatter.ofPattern("yy");
+    private static final DateTimeFormatter MONTH_FORMATTER = DateTimeFormatter.ofPattern("MM");
+    private static final List<String> STEP1_FIELDS = Arrays.stream(Step1.values())
+            .map(Step1::field)
+            .collect(Collectors.toList());
+
+    private Logger log = LoggerFactory.getLogger(HttpTransferFlow.class);
+
+    private CloseableHttpClient httpClient;
+    private URI sendMoneyUrl;
+
+    @Inject
+    public HttpTransferFlow(CloseableHttpClient httpClient, @Named("sendmoney.url") String sendMoneyUrl) {
+        this.httpClient = httpClient;
+        this.sendMoneyUrl = URI.create(sendMoneyUrl);
+    }
+
+    /**
+     * Performs the transfer.
+     *
+     * @throws TransferFailedException when any of the stages fails. The exception keeps the failed stage.
+     */
+    public void run(Transfer transfer) {
+        HttpClientContext context = HttpClientContext.create();
+        context.setCookieStore(new BasicCookieStore());
+
+        TransferStage stage = TransferStage.OPEN_PAGE;
+        try {
+            log.debug("Starting transfer {}", transfer.getId());
+            HtmlForm step1 = HtmlForm.parse(execute(new HttpGet(sendMoneyUrl), context)).stream()
+                    .filter(form -> form.hasFields(STEP1_FIELDS))
+                    .findFirst()
+                    .orElseThrow(() -> new SendMoneyException("The page has no form with the fields " + STEP1_FIELDS));
+
+            stage = TransferStage.SUBMIT_STEP_1;
+            HttpPost step1Post = post(sendMoneyUrl, step1, step1Values(transfer));
+            String step2Page = execute(step1Post, context);
+            HtmlForm step2 = HtmlForm.parse(step2Page).stream()
+                    .filter(form -> "post".equals(form.getMethod()) && !form.hasFields(STEP1_FIELDS))
+                    .findFirst()
+                    .orElseThrow(() -> new SendMoneyException("Step 1 form was not accepted"));
+
+            stage = TransferStage.FILL_STEP_2;
+            Map<String, String> step2Values = new LinkedHashMap<>();
+            if (step2.getFields().containsKey(Step2.PHONE_NUMBER.field())) {
+                step2Values.put(Step2.PHONE_NUMBER.field(), transfer.getSendersPhoneNumber());
+            }
+
+            stage = TransferStage.SUBMIT_STEP_2;
+            execute(post(pageUrl(step1Post, context), step2, step2Values), context);
+        } catch (IOException | RuntimeException e) {
+            throw new TransferFailedException("Transfer " + transfer.getId() + " failed on " + stage, stage, e);
+        }
+    }
+
+    private Map<String, String> step1Values(Transfer transfer) {
+        LocalDate expiresDate = transfer.getSender().getExpiresDate();
+        Map<String, String> values = new LinkedHashMap<>();
+        values.put(Step1.SENDER_CARD_NUMBER.field(), transfer.getSender().getNumber());
+        values.put(Step1.SENDER_CARD_EXPIRES_DATE_MONTH.field(), expiresDate.format(MONTH_FORMATTER));
+        values.put(Step1.SENDER_CARD_EXPIRES_DATE_YEAR.field(), expiresDate.format(YEAR_FORMATTER));
+        values.put(Step1.SENDER_CARD_CVV2.field(), transfer.getSender().getSecurityCode());
+        values.put(Step1.RECEIVER_CARD_NUMBER.field(), transfer.getReceiver().getNumber());
+        values.put(Step1.AMOUNT.field(), String.format(Locale.ROOT, "%.2f", transfer.getAmount()));
+        return values;
+    }
+
+    /*
+     * Submits the fields of the form as the page has them with the given values put over them.
+     */
+    private HttpPost post(URI pageUrl, HtmlForm form, Map<String, String> values) {
+        Map<String, String> fields = new LinkedHashMap<>(form.getFields());
+        fields.putAll(values);
+        List<NameValuePair> pairs = new ArrayList<>(fields.size());
+        fields.forEach((name, value) -> pairs.add(new BasicNameValuePair(name, value)));
+
+        HttpPost post = new HttpPost(form.getAction().isEmpty() ? pageUrl : pageUrl.resolve(form.getAction()));
+        post.setEntity(new UrlEncodedFormEntity(pairs, StandardCharsets.UTF_8));
+        return post;
+    }
+
+    /*
+     * The address of the page the request ended on, after the redirects.
+     */
+    private static URI pageUrl(HttpUriRequest request, HttpClientContext context) {
+        List<URI> redirects = context.getRedirectLocations();
+        return redirects == null || redirects.isEmpty() ? request.getURI() : redirects.get(redirects.size() - 1);
+    }
+
+    private String execute(HttpUriRequest request, HttpClientContext context) throws IOException {
+        try (CloseableHttpResponse response = httpClient.execute(request, context)) {
+            String body = response.getEntity() == null ? "" : EntityUtils.toString(response.getEntity(), StandardCharsets.UTF_8);
+            verifySuccess(request, response);
+            return body;
+        }
+    }
+
+    private void verifySuccess(HttpUriRequest request, HttpResponse response) {
+        int status = response.getStatusLine().getStatusCode();
+        log.trace("{} {} answered with {}", request.getMethod(), request.getURI(), status);
+        if (status < 200 || status >= 300) {
+            throw new SendMoneyException(request.getMethod() + " " + request.getURI() + " answered with " + status);
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package io.github.bcherniakh.sendmoney.controller.impl;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.github.bcherniakh.sendmoney.batch.BatchCheckpoint;
+import io.github.bcherniakh.sendmoney.batch.TransferFileStream;
+import io.github.bcherniakh.sendmoney.controller.BatchController;
+import io.github.bcherniakh.sendmoney.domain.BatchReport;
+import io.github.bcherniakh.sendmoney.domain.Card;
+import io.github.bcherniakh.sendmoney.domain.Transfer;
+import io.github.bcherniakh.sendmoney.domain.TransferResult;
+import io.github.bcherniakh.sendmoney.domain.TransferStage;
+import io.github.bcherniakh.sendmoney.exception.SendMoneyException;
+import io.github.bcherniakh.sendmoney.journal.JournalState;
+import io.github.bcherniakh.sendmoney.journal.TransferJournal;
+import io.github.bcherniakh.sendmoney.util.KeyedSerialExecutor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Runs a batch of transfers concurrently. There is a worker per browser session of the
+ * {@link io.github.bcherniakh.sendmoney.driver.WebDriverPool}.
+ * <p>
+ * Transfers from the same sender card are sent one after another in the batch order, so the balance
+ * of a card is spent in the order of the batch and the site never sees two transfers of a card at once.
+ * Transfers of different cards are sent in parallel: a worker takes the next transfer of any card
+ * that has none being sent, so a card with many transfers takes one worker and the others keep
+ * the rest of the sessions busy. A card waiting for its rate limit is put aside without a worker,
+ * see {@link PooledTransferSender#reserveRate}.
+ * <p>
+ * Transfers the {@link TransferJournal} has as done are skipped. Transfers that may have been sent
+ * before the application stopped are reported as failed without sending them again.
+ * <p>
+ * A batch file is sent as it is read. The reader waits while {@link #QUEUED_PER_WORKER} transfers per worker
+ * are queued, so only the transfers being sent and queued are in memory whatever the file size.
+ * The results of a file are logged as they finish and counted in the report.
+ */
+@Singleton
+public class ParallelBatchController implements BatchController {
+
+    static final int QUEUED_PER_WORKER = 8;
+    private static final String IN_DOUBT_MESSAGE = "Step 2 was submitted before the stop. Check the transfer manually";
+
+    private Logger log = LoggerFactory.getLogger(ParallelBatchController.class);
+
+    private PooledTransferSender transferSender;
+    private TransferJournal journal;
+
+    @Inject
+    public ParallelBatchController(PooledTransferSender transferSender, TransferJournal journal) {
+        this.transferSender = transferSender;
+        this.journal = journal;
+    }
+
+    @Override
+    public BatchReport sendMoney(List<Transfer> transfers) {
+        long startedAt = System.nanoTime();
+        TransferResult[] results = new TransferResult[transfers.size()];
+        List<Integer> toSend = recover(transfers, results);
+        journal.recordAll(toSend.stream().map(index -> transfers.get(index).getId()).collect(Collectors.toList()),
+                JournalState.QUEUED);
+
+        int workers = Math.max(1, Math.min(transferSender.concurrency(), toSend.size()));
+        log.info("Sending {} transfers using {} browser sessions", toSend.size(), workers);
+        KeyedSerialExecutor<String> executor = new KeyedSerialExecutor<>("batch", workers, Math.max(1, toSend.size()));
+        try {
+            for (int index : toSend) {
+                Transfer transfer = transfers.get(index);
+                executor.submit(senderKey(transfer), () -> transferSender.reserveRate(transfer),
+                        () -> results[index] = transferSender.send(transfer));
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new SendMoneyException("Interrupted while queueing the batch", e);
+        }
+        executor.shutdown();
+        awaitTermination(executor);
+
+        return new BatchReport(Arrays.stream(results).filter(Objects::nonNull).collect(Collectors.toList()),
+                Duration.ofNanos(System.nanoTime() - startedAt));
+    }
+
+    @Override
+    public BatchReport sendMoney(TransferFileStream transfers, BatchCheckpoint checkpoint) {
+        long startedAt = System.nanoTime();
+        int workers = Math.max(1, transferSender.concurrency());
+        AtomicLong succeeded = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+
+        log.info("Sending {} from byte {} using {} browser sessions", transfers.getFile(), transfers.getOffset(), workers);
+        KeyedSerialExecutor<String> executor = new KeyedSerialExecutor<>("batch", workers, workers * QUEUED_PER_WORKER);
+        try {
+            readFile(transfers, checkpoint, executor, succeeded, failed);
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            checkpoint.save();
+            Thread.currentThread().interrupt();
+            throw new SendMoneyException("Interrupted while reading the batch file", e);
+        } catch (RuntimeException e) {
+            // The queued transfers are left before the checkpoint, so they are sent by the next run
+            executor.cancelQueued();
+            executor.shutdown();
+            awaitTermination(executor);
+            checkpoint.save();
+            throw e;
+        }
+        executor.shutdown();
+        awaitTermination(executor);
+        checkpoint.save();
+
+        return new BatchReport(succeeded.get(), failed.get(), Duration.ofNanos(System.nanoTime() - startedAt));
+    }
+
+    /*
+     * Transfers without a sender card can not conflict with each other, each of them gets its own lane.
+     */
+    static String senderKey(Transfer transfer) {
+        Card sender = transfer.getSender();
+        return sender == null || sender.getNumber() == null ? "id:" + transfer.getId() : sender.getNumber();
+    }
+
+    /*
+     * Blocks on the full executor while every worker is busy.
+     */
+    private void readFile(TransferFileStream transfers, BatchCheckpoint checkpoint,
+                          KeyedSerialExecutor<String> executor, AtomicLong succeeded,
+                          AtomicLong failed) throws InterruptedException {
+        long start = transfers.getOffset();
+        Transfer transfer;
+        while ((transfer = transfers.next()) != null) {
+            long end = transfers.getOffset();
+            checkpoint.started(start, end);
+            TransferJournal.Recovery recovery = journal.recovery(transfer.getId());
+            if (recovery == TransferJournal.Recovery.DONE) {
+                log.info("Transfer {} is already done. Skipping it", transfer.getId());
+                checkpoint.finished(start);
+            } else if (recovery == TransferJournal.Recovery.IN_DOUBT) {
+                log.warn("Transfer {} may have been sent before the stop. Not sending it again", transfer.getId());
+                log.info("{}", TransferResult.failed(transfer.getId(), TransferStage.SUBMIT_STEP_2, IN_DOUBT_MESSAGE,
+                        Duration.ZERO));
+                failed.incrementAndGet();
+                checkpoint.finished(start);
+            } else {
+                Transfer queued = transfer;
+                long queuedStart = start;
+                executor.submit(senderKey(transfer), () -> transferSender.reserveRate(queued), () -> {
+                    TransferResult result = transferSender.send(queued);
+                    log.info("{}", result);
+                    (result.isSuccess() ? succeeded : failed).incrementAndGet();
+                    checkpoint.finished(queuedStart);
+                });
+            }
+            start = end;
+        }
+    }
+
+    /*
+     * Reports the transfers that can not be sent and returns indexes of the ones to send.
+     */
+    private List<Integer> recover(List<Transfer> transfers, TransferResult[] results) {
+        List<Integer> toSend = new ArrayList<>(transfers.size());
+        for (int i = 0; i < transfers.size(); i++) {
+            String transferId = transfers.get(i).getId();
+            TransferJournal.Recovery recovery = journal.recovery(transferId);
+            if (recovery == TransferJournal.Recovery.DONE) {
+                log.info("Transfer {} is already done. Skipping it", transferId);
+            } else if (recovery == TransferJournal.Recovery.IN_DOUBT) {
+                log.warn("Transfer {} may have been sent before the stop. Not sending it again", transferId);
+                results[i] = TransferResult.failed(transferId, TransferStage.SUBMIT_STEP_2, IN_DOUBT_MESSAGE, Duration.ZERO);
+            } else {
+                toSend.add(i);
+            }
+        }
+        return toSend;
+    }
+
+    private void awaitTermination(KeyedSerialExecutor<String> executor) {
+        try {
+            executor.awaitTermination();
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new SendMoneyException("Interrupted while waiting for the batch to finish", e);
+        }
+    }
+}
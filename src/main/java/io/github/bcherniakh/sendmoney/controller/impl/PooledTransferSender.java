@@ -0,0 +1,162 @@
+package io.github.bcherniakh.sendmoney.controller.impl;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.github.bcherniakh.sendmoney.domain.Transfer;
+import io.github.bcherniakh.sendmoney.domain.TransferResult;
+import io.github.bcherniakh.sendmoney.domain.TransferStage;
+import io.github.bcherniakh.sendmoney.driver.DriverSession;
+import io.github.bcherniakh.sendmoney.driver.WebDriverPool;
+import io.github.bcherniakh.sendmoney.exception.SendMoneyException;
+import io.github.bcherniakh.sendmoney.exception.TransferFailedException;
+import io.github.bcherniakh.sendmoney.journal.JournalState;
+import io.github.bcherniakh.sendmoney.journal.TransferJournal;
+import io.github.bcherniakh.sendmoney.limit.ConcurrencyLimiter;
+import io.github.bcherniakh.sendmoney.limit.TransferRateLimiter;
+import org.openqa.selenium.ScriptTimeoutException;
+import org.openqa.selenium.TimeoutException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+
+/**
+ * Sends a transfer with a browser session borrowed from the {@link WebDriverPool}.
+ * The session is returned to the pool afterwards, a failed transfer gets it restarted.
+ * Failures are reported in the {@link TransferResult} instead of being thrown.
+ * <p>
+ * The progress of the transfer is recorded in the {@link TransferJournal}. Step 2 is sent only after
+ * the journal has it on the disk.
+ * <p>
+ * A transfer stopped by a lost Selenium Grid node before step 2 is sent again with a session of another node.
+ * A transfer the node was lost on after step 2 was submitted is reported as failed, it may have been sent.
+ * <p>
+ * The rate limits of the sender and the site, see {@link TransferRateLimiter}, are taken with {@link #reserveRate}
+ * before the transfer is sent. The caller puts the transfer aside for the time it returns, so a waiting transfer
+ * keeps neither a worker nor a session. A transfer waits for the {@link ConcurrencyLimiter} before a session is
+ * borrowed, so the page is never opened early. The limiter learns from the time every transfer took
+ * and from the transfers a page wait timed out on.
+ */
+@Singleton
+public class PooledTransferSender {
+
+    private static final int MAX_NODE_ATTEMPTS = 3;
+
+    private Logger log = LoggerFactory.getLogger(PooledTransferSender.class);
+
+    private WebDriverPool driverPool;
+    private SeleniumTransferFlow transferFlow;
+    private TransferJournal journal;
+    private ConcurrencyLimiter limiter;
+    private TransferRateLimiter rateLimiter;
+
+    @Inject
+    public PooledTransferSender(WebDriverPool driverPool, SeleniumTransferFlow transferFlow, TransferJournal journal,
+                                ConcurrencyLimiter limiter, TransferRateLimiter rateLimiter) {
+        this.driverPool = driverPool;
+        this.transferFlow = transferFlow;
+        this.journal = journal;
+        this.limiter = limiter;
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * @return number of transfers that can be sent at the same time
+     */
+    public int concurrency() {
+        return driverPool.size();
+    }
+
+    /**
+     * Takes the rate limit tokens of the transfer.
+     *
+     * @return nanoseconds to wait before the transfer is sent
+     */
+    public long reserveRate(Transfer transfer) {
+        return rateLimiter.reserve(transfer);
+    }
+
+    /**
+     * Sends the transfer now, the rate limits are expected to be taken with {@link #reserveRate}.
+     */
+    public TransferResult send(Transfer transfer) {
+        long startedAt = limiter.acquire();
+        boolean limiterNotified = false;
+        try {
+            for (int attempt = 1; ; attempt++) {
+                DriverSession session;
+                try {
+                    session = driverPool.borrow();
+                } catch (SendMoneyException e) {
+                    log.error("No browser session for transfer {}", transfer.getId(), e);
+                    recordFinished(transfer, JournalState.FAILED);
+                    return TransferResult.failed(transfer.getId(), TransferStage.OPEN_PAGE, e.getMessage(),
+                            Duration.ofNanos(System.nanoTime() - startedAt));
+                }
+
+                TransferResult result;
+                boolean failed = true;
+                try {
+                    transferFlow.run(transfer, session, stage -> recordStage(transfer, stage));
+                    failed = false;
+                    limiter.onSuccess(startedAt);
+                    limiterNotified = true;
+                    result = TransferResult.succeeded(transfer.getId(), Duration.ofNanos(System.nanoTime() - startedAt));
+                } catch (TransferFailedException e) {
+                    if (session.failNode(e.getCause()) && e.getStage() != TransferStage.SUBMIT_STEP_2
+                            && attempt < MAX_NODE_ATTEMPTS) {
+                        log.warn("{}. Sending it with another Grid node", e.getMessage(), e.getCause());
+                        continue;
+                    }
+                    log.warn(e.getMessage(), e.getCause());
+                    if (isTimeout(e.getCause())) {
+                        limiter.onTimeout(startedAt);
+                        limiterNotified = true;
+                    }
+                    result = TransferResult.failed(transfer.getId(), e.getStage(), String.valueOf(e.getCause().getMessage()),
+                            Duration.ofNanos(System.nanoTime() - startedAt));
+                } finally {
+                    driverPool.release(session, failed);
+                }
+                recordFinished(transfer, result.isSuccess() ? JournalState.DONE : JournalState.FAILED);
+                return result;
+            }
+        } finally {
+            if (!limiterNotified) {
+                limiter.onIgnored();
+            }
+        }
+    }
+
+    /*
+     * A wait of a page ran out, the site did not answer in time.
+     */
+    private static boolean isTimeout(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof TimeoutException || cause instanceof ScriptTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * The transfer is over whatever the journal says, so a failed record is only logged. A transfer done
+     * but not recorded is reported for a manual check after a restart, as its step 2 is in the journal.
+     */
+    private void recordFinished(Transfer transfer, JournalState state) {
+        try {
+            journal.record(transfer.getId(), state);
+        } catch (SendMoneyException e) {
+            log.error("Failed to record transfer {} as {}", transfer.getId(), state, e);
+        }
+    }
+
+    private void recordStage(Transfer transfer, TransferStage stage) {
+        if (stage == TransferStage.SUBMIT_STEP_1) {
+            journal.record(transfer.getId(), JournalState.STEP1_FILLED);
+        } else if (stage == TransferStage.SUBMIT_STEP_2) {
+            journal.record(transfer.getId(), JournalState.STEP2_SUBMITTED);
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package io.github.bcherniakh.sendmoney.controller.impl;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.github.bcherniakh.sendmoney.domain.Transfer;
+import io.github.bcherniakh.sendmoney.domain.TransferStage;
+import io.github.bcherniakh.sendmoney.driver.DriverSession;
+import io.github.bcherniakh.sendmoney.exception.TransferFailedException;
+import io.github.bcherniakh.sendmoney.metrics.StepTimer;
+import io.github.bcherniakh.sendmoney.metrics.TransferMetrics;
+import io.github.bcherniakh.sendmoney.metrics.TransferStep;
+import io.github.bcherniakh.sendmoney.page.FillMode;
+import io.github.bcherniakh.sendmoney.page.SendMoneyPbPage;
+import io.github.bcherniakh.sendmoney.page.Step1Form;
+import io.github.bcherniakh.sendmoney.page.TransferConfirmationPage;
+import io.github.bcherniakh.sendmoney.trace.CommandTracer;
+import io.github.bcherniakh.sendmoney.util.StartupMetrics;
+import org.openqa.selenium.PageLoadStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Named;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Drives a single transfer through both Sendmoney pages using the given browser session.
+ * <p>
+ * Pipelined transfers of tab sessions take the step 1 turn of their browser before the page is opened
+ * and pass it on when step 1 is submitted, see {@link io.github.bcherniakh.sendmoney.driver.TabScheduler}.
+ */
+@Singleton
+public class SeleniumTransferFlow {
+
+    private static final DateTimeFormatter YEAR_FORMATTER = DateTimeFormatter.ofPattern("yy");
+    private static final DateTimeFormatter MONTH_FORMATTER = DateTimeFormatter.ofPattern("MM");
+
+    private Logger log = LoggerFactory.getLogger(SeleniumTransferFlow.class);
+
+    private String sendMoneyUrl;
+    private FillMode fillMode;
+    private StepTimer timer;
+    private CommandTracer tracer;
+    private PageLoadStrategy pageLoadStrategy;
+    private boolean pipelined;
+
+    public SeleniumTransferFlow(String sendMoneyUrl, FillMode fillMode, TransferMetrics metrics, CommandTracer tracer) {
+        this(sendMoneyUrl, fillMode, metrics, tracer, PageLoadStrategy.NORMAL, false);
+    }
+
+    /**
+     * @param pageLoadStrategy the strategy the browsers are launched with. See {@link SendMoneyPbPage}
+     * @param pipelined        whether the tabs of a browser run their transfers as a pipeline
+     */
+    @Inject
+    public SeleniumTransferFlow(@Named("sendmoney.url") String sendMoneyUrl, @Named("page.fill.mode") FillMode fillMode,
+                                TransferMetrics metrics, CommandTracer tracer,
+                                @Named("driver.page.load.strategy") PageLoadStrategy pageLoadStrategy,
+                                @Named("driver.pool.pipeline") boolean pipelined) {
+        this.sendMoneyUrl = sendMoneyUrl;
+        this.fillMode = fillMode;
+        this.timer = metrics;
+        this.tracer = tracer;
+        this.pageLoadStrategy = pageLoadStrategy;
+        this.pipelined = pipelined;
+    }
+
+    /**
+     * Performs the transfer.
+     *
+     * @throws TransferFailedException when any of the stages fails. The exception keeps the failed stage.
+     */
+    public void run(Transfer transfer, DriverSession session) {
+        run(transfer, session, stage -> {
+        });
+    }
+
+    /**
+     * Performs the transfer and reports every stage right before it starts.
+     *
+     * @param stageListener notified before the stage. The stage starts only after the listener returns
+     * @throws TransferFailedException when any of the stages fails. The exception keeps the failed stage.
+     */
+    public void run(Transfer transfer, DriverSession session, Consumer<TransferStage> stageListener) {
+        tracer.inTransfer(transfer.getId(), () -> runStages(transfer, session, stageListener));
+    }
+
+    private void runStages(Transfer transfer, DriverSession session, Consumer<TransferStage> stageListener) {
+        TransferStage stage = TransferStage.OPEN_PAGE;
+        long startedAt = System.nanoTime();
+        boolean step1Turn = false;
+        try {
+            stageListener.accept(stage);
+            if (pipelined) {
+                session.awaitStep1Turn();
+                step1Turn = true;
+            }
+            log.debug("Starting transfer {}", transfer.getId());
+            SendMoneyPbPage startPage = new SendMoneyPbPage(session.getWebDriver(), session.getWait(), sendMoneyUrl, timer,
+                    pageLoadStrategy);
+
+            stage = TransferStage.FILL_STEP_1;
+            stageListener.accept(stage);
+            StartupMetrics.mark(StartupMetrics.FIRST_KEYSTROKE);
+            startPage.fillStep1(step1Form(transfer), fillMode);
+
+            stage = TransferStage.SUBMIT_STEP_1;
+            stageListener.accept(stage);
+            TransferConfirmationPage transferConfirmationPage = startPage.clickSendButton();
+
+            stage = TransferStage.FILL_STEP_2;
+            if (step1Turn) {
+                step1Turn = false;
+                session.passStep1Turn();
+            }
+            stageListener.accept(stage);
+            if (transferConfirmationPage.isPhoneNumberFieldPresent()) {
+                transferConfirmationPage.fillPhoneNumber(transfer.getSendersPhoneNumber());
+            }
+
+            stage = TransferStage.SUBMIT_STEP_2;
+            stageListener.accept(stage);
+            transferConfirmationPage.clickSendButton();
+            timer.record(TransferStep.TRANSFER, System.nanoTime() - startedAt);
+        } catch (RuntimeException e) {
+            throw new TransferFailedException("Transfer " + transfer.getId() + " failed on " + stage, stage, e);
+        } finally {
+            if (step1Turn) {
+                session.passStep1Turn();
+            }
+        }
+    }
+
+    private Step1Form step1Form(Transfer transfer) {
+        LocalDate expiresDate = transfer.getSender().getExpiresDate();
+        return new Step1Form(
+                transfer.getSender().getNumber(),
+                expiresDate.format(MONTH_FORMATTER),
+                expiresDate.format(YEAR_FORMATTER),
+                transfer.getSender().getSecurityCode(),
+                transfer.getReceiver().getNumber(),
+                String.format(Locale.ROOT, "%.2f", transfer.getAmount()));
+    }
+}
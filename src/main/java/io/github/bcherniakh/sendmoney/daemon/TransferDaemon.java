@@ -0,0 +1,363 @@
+package io.github.bcherniakh.sendmoney.daemon;
+
+import com.google.gson.Gson;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.github.bcherniakh.sendmoney.batch.BatchFileReader;
+import io.github.bcherniakh.sendmoney.controller.TransferController;
+import io.github.bcherniakh.sendmoney.domain.Transfer;
+import io.github.bcherniakh.sendmoney.domain.TransferResult;
+import io.github.bcherniakh.sendmoney.exception.InvalidInputException;
+import io.github.bcherniakh.sendmoney.exception.SendMoneyException;
+import io.github.bcherniakh.sendmoney.journal.JournalState;
+import io.github.bcherniakh.sendmoney.journal.TransferJournal;
+import io.github.bcherniakh.sendmoney.schedule.ScheduledTransfer;
+import io.github.bcherniakh.sendmoney.schedule.TransferScheduler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Named;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static java.lang.String.format;
+
+/**
+ * Keeps the application resident and accepts transfers over a local HTTP endpoint.
+ * The injector, the browser pool and the warmed up code are shared by all transfers,
+ * so only the first transfer pays for the startup.
+ * <p>
+ * The endpoint listens on the loopback interface only:
+ * <ul>
+ * <li>{@code POST /transfers} - body is one or more lines in the batch file format.
+ * Responds 202 with the state of every accepted transfer. Transfers are sent asynchronously</li>
+ * <li>{@code GET /transfers/{id}} - state of a transfer: PENDING, SUCCEEDED or FAILED with the failed stage</li>
+ * <li>{@code GET /transfers} - state of all transfers submitted since the start</li>
+ * <li>{@code POST /schedules} - body is one or more lines {@code dueAt,every,batchLine}. The transfers are
+ * submitted by the {@link TransferScheduler} when they are due, a recurring one as {@code id@instant}</li>
+ * <li>{@code GET /schedules/{id}} - next release of a scheduled transfer</li>
+ * <li>{@code DELETE /schedules/{id}} - cancels a scheduled transfer</li>
+ * <li>{@code PUT /schedules/{id}/cvv} - body is the CVV of a scheduled transfer. The CVV codes are not kept
+ * across restarts, a transfer scheduled before one waits for it when it is due</li>
+ * </ul>
+ * The state of a finished transfer is kept for {@code daemon.status.retention.minutes}, the journal keeps it
+ * for good.
+ */
+@Singleton
+public class TransferDaemon implements AutoCloseable {
+
+    static final String TRANSFERS_PATH = "/transfers";
+    static final String SCHEDULES_PATH = "/schedules";
+    static final long DEFAULT_STATUS_RETENTION_MINUTES = 60;
+    private static final String CVV_SUFFIX = "/cvv";
+
+    private Logger log = LoggerFactory.getLogger(TransferDaemon.class);
+
+    private final TransferController transferController;
+    private final TransferJournal journal;
+    private final TransferScheduler scheduler;
+    private final int port;
+    private final long statusRetentionNanos;
+    private final BatchFileReader reader = new BatchFileReader();
+    private final Gson gson = new Gson();
+    private final Map<String, CompletableFuture<TransferResult>> transfers = new ConcurrentHashMap<>();
+    private final Queue<Finished> finished = new ArrayDeque<>();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+
+    private HttpServer server;
+
+    public TransferDaemon(TransferController transferController, TransferJournal journal, int port) {
+        this(transferController, journal, TransferScheduler.inMemory(), port, DEFAULT_STATUS_RETENTION_MINUTES);
+    }
+
+    /**
+     * @param statusRetentionMinutes how long the state of a finished transfer is reported
+     */
+    @Inject
+    public TransferDaemon(TransferController transferController, TransferJournal journal, TransferScheduler scheduler,
+                          @Named("daemon.port") int port,
+                          @Named("daemon.status.retention.minutes") long statusRetentionMinutes) {
+        this.transferController = transferController;
+        this.journal = journal;
+        this.scheduler = scheduler;
+        this.port = port;
+        this.statusRetentionNanos = TimeUnit.MINUTES.toNanos(statusRetentionMinutes);
+    }
+
+    public void start() {
+        try {
+            server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        } catch (IOException e) {
+            throw new SendMoneyException("Failed to listen on port " + port, e);
+        }
+        scheduler.start(this::release);
+        server.createContext(TRANSFERS_PATH, this::handle);
+        server.createContext(SCHEDULES_PATH, this::handleSchedules);
+        server.setExecutor(Executors.newSingleThreadExecutor(runnable -> new Thread(runnable, "daemon-http")));
+        server.start();
+        log.info("Accepting transfers on http://{}:{}{}", server.getAddress().getHostString(), getPort(), TRANSFERS_PATH);
+    }
+
+    /**
+     * @return the port the endpoint listens on. Differs from the configured one when it is 0
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Blocks until the daemon is closed.
+     */
+    public void awaitTermination() {
+        try {
+            stopped.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stops accepting transfers and waits for the ones in progress.
+     */
+    @Override
+    public void close() {
+        if (stopped.getCount() == 0) {
+            return;
+        }
+        log.info("Stopping the daemon");
+        if (server != null) {
+            server.stop(0);
+            ((ExecutorService) server.getExecutor()).shutdown();
+            scheduler.close();
+            transferController.close();
+        }
+        stopped.countDown();
+    }
+
+    /**
+     * Either every transfer is accepted or none. An id repeated in the list is rejected as a transfer in progress.
+     */
+    List<TransferStatus> submit(List<Transfer> submitted) {
+        pruneFinished();
+        Map<String, CompletableFuture<TransferResult>> reservations = new HashMap<>();
+        List<Transfer> taken = new ArrayList<>(submitted.size());
+        try {
+            for (Transfer transfer : submitted) {
+                reservations.put(transfer.getId(), reserve(transfer.getId()));
+                taken.add(transfer);
+            }
+            return send(taken);
+        } finally {
+            giveBack(reservations);
+        }
+    }
+
+    /*
+     * Due scheduled transfers. Each one is checked on its own: a transfer in progress, done or in doubt,
+     * e.g. released again after a restart, is skipped and the rest are sent.
+     */
+    void release(List<Transfer> due) {
+        pruneFinished();
+        Map<String, CompletableFuture<TransferResult>> reservations = new HashMap<>();
+        List<Transfer> taken = new ArrayList<>(due.size());
+        try {
+            for (Transfer transfer : due) {
+                try {
+                    reservations.put(transfer.getId(), reserve(transfer.getId()));
+                    taken.add(transfer);
+                } catch (InvalidInputException e) {
+                    log.warn("Scheduled transfer is not sent: {}", e.getMessage());
+                }
+            }
+            send(taken);
+        } finally {
+            giveBack(reservations);
+        }
+    }
+
+    /*
+     * Sends the transfers reserved by the caller.
+     */
+    private List<TransferStatus> send(List<Transfer> reserved) {
+        journal.recordAll(reserved.stream().map(Transfer::getId).collect(Collectors.toList()), JournalState.QUEUED);
+
+        List<TransferStatus> accepted = new ArrayList<>(reserved.size());
+        for (Transfer transfer : reserved) {
+            log.info("Accepted transfer {}", transfer.getId());
+            CompletableFuture<TransferResult> result = transferController.submit(transfer);
+            transfers.put(transfer.getId(), result);
+            result.whenComplete((value, error) -> finished(transfer.getId(), result));
+            accepted.add(TransferStatus.pending(transfer.getId()));
+        }
+        return accepted;
+    }
+
+    /*
+     * Ids of the transfers that did not make it to the controller are given back.
+     */
+    private void giveBack(Map<String, CompletableFuture<TransferResult>> reservations) {
+        reservations.forEach(transfers::remove);
+    }
+
+    /*
+     * Takes the id for the caller with a placeholder of its own. The id of a transfer in progress is kept
+     * by it until it is finished, so neither the HTTP and the schedule threads nor a list repeating the id
+     * can send the same transfer twice.
+     */
+    private CompletableFuture<TransferResult> reserve(String id) {
+        CompletableFuture<TransferResult> reserved = new CompletableFuture<>();
+        TransferJournal.Recovery[] recovery = new TransferJournal.Recovery[1];
+        CompletableFuture<TransferResult> current = transfers.compute(id, (key, previous) -> {
+            if (previous != null && !previous.isDone()) {
+                return previous;
+            }
+            recovery[0] = journal.recovery(key);
+            return recovery[0] == TransferJournal.Recovery.DONE || recovery[0] == TransferJournal.Recovery.IN_DOUBT
+                    ? previous : reserved;
+        });
+        if (current == reserved) {
+            return reserved;
+        }
+        if (recovery[0] == TransferJournal.Recovery.DONE) {
+            throw new InvalidInputException(format("Transfer %s is already done", id));
+        }
+        if (recovery[0] == TransferJournal.Recovery.IN_DOUBT) {
+            throw new InvalidInputException(format("Transfer %s may have been sent already. Check it manually", id));
+        }
+        throw new InvalidInputException(format("Transfer %s is already in progress", id));
+    }
+
+    private void finished(String id, CompletableFuture<TransferResult> result) {
+        synchronized (finished) {
+            finished.add(new Finished(id, result, System.nanoTime()));
+        }
+    }
+
+    /*
+     * The transfers finish roughly in the order they are queued, so only the head of the queue is checked.
+     */
+    private void pruneFinished() {
+        long now = System.nanoTime();
+        synchronized (finished) {
+            Finished oldest;
+            while ((oldest = finished.peek()) != null && now - oldest.finishedAt >= statusRetentionNanos) {
+                finished.poll();
+                transfers.remove(oldest.id, oldest.result);
+            }
+        }
+    }
+
+    TransferStatus status(String id) {
+        pruneFinished();
+        CompletableFuture<TransferResult> transfer = transfers.get(id);
+        if (transfer == null) {
+            return null;
+        }
+        return transfer.isDone() ? TransferStatus.of(transfer.join()) : TransferStatus.pending(id);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
+        try {
+            if ("POST".equals(method) && TRANSFERS_PATH.equals(path)) {
+                respond(exchange, 202, submit(reader.parse(readLines(exchange))));
+            } else if ("GET".equals(method) && TRANSFERS_PATH.equals(path)) {
+                respond(exchange, 200, transfers.keySet().stream().map(this::status).filter(Objects::nonNull)
+                        .collect(Collectors.toList()));
+            } else if ("GET".equals(method) && path.startsWith(TRANSFERS_PATH + "/")) {
+                TransferStatus status = status(path.substring(TRANSFERS_PATH.length() + 1));
+                respond(exchange, status == null ? 404 : 200, status == null ? error("Unknown transfer") : status);
+            } else {
+                respond(exchange, 404, error("Not found"));
+            }
+        } catch (InvalidInputException e) {
+            respond(exchange, 400, error(e.getMessage()));
+        } catch (RuntimeException e) {
+            log.error("Failed to handle {} {}", method, path, e);
+            respond(exchange, 500, error(e.getMessage()));
+        }
+    }
+
+    private void handleSchedules(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String path = exchange.getRequestURI().getPath();
+        String id = path.startsWith(SCHEDULES_PATH + "/") ? path.substring(SCHEDULES_PATH.length() + 1) : null;
+        try {
+            if ("POST".equals(method) && SCHEDULES_PATH.equals(path)) {
+                respond(exchange, 202, scheduler.schedule(readLines(exchange)));
+            } else if ("PUT".equals(method) && id != null && id.endsWith(CVV_SUFFIX)) {
+                String scheduleId = id.substring(0, id.length() - CVV_SUFFIX.length());
+                ScheduledTransfer scheduled = scheduler.supplyCvv(scheduleId, String.join("", readLines(exchange)).trim());
+                respond(exchange, scheduled == null ? 404 : 200, scheduled == null ? error("Unknown schedule") : scheduled);
+            } else if ("GET".equals(method) && id != null) {
+                ScheduledTransfer scheduled = scheduler.get(id);
+                respond(exchange, scheduled == null ? 404 : 200, scheduled == null ? error("Unknown schedule") : scheduled);
+            } else if ("DELETE".equals(method) && id != null) {
+                boolean cancelled = scheduler.cancel(id);
+                respond(exchange, cancelled ? 200 : 404, cancelled ? Collections.singletonMap("id", id) : error("Unknown schedule"));
+            } else {
+                respond(exchange, 404, error("Not found"));
+            }
+        } catch (InvalidInputException e) {
+            respond(exchange, 400, error(e.getMessage()));
+        } catch (RuntimeException e) {
+            log.error("Failed to handle {} {}", method, path, e);
+            respond(exchange, 500, error(e.getMessage()));
+        }
+    }
+
+    private List<String> readLines(HttpExchange exchange) throws IOException {
+        try (BufferedReader body = new BufferedReader(new InputStreamReader(exchange.getRequestBody(), StandardCharsets.UTF_8))) {
+            return body.lines().collect(Collectors.toList());
+        }
+    }
+
+    private Map<String, String> error(String message) {
+        return Collections.singletonMap("error", message);
+    }
+
+    private void respond(HttpExchange exchange, int status, Object body) throws IOException {
+        byte[] bytes = gson.toJson(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static final class Finished {
+
+        private final String id;
+        private final CompletableFuture<TransferResult> result;
+        private final long finishedAt;
+
+        private Finished(String id, CompletableFuture<TransferResult> result, long finishedAt) {
+            this.id = id;
+            this.result = result;
+            this.finishedAt = finishedAt;
+        }
+    }
+}
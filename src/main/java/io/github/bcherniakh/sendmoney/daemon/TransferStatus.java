@@ -0,0 +1,46 @@
+package io.github.bcherniakh.sendmoney.daemon;
+
+import io.github.bcherniakh.sendmoney.domain.TransferResult;
+import io.github.bcherniakh.sendmoney.domain.TransferStage;
+
+/**
+ * State of a submitted transfer as reported by the {@link TransferDaemon}.
+ * Fields that do not apply to the state are left {@code null}.
+ */
+class TransferStatus {
+
+    enum State {
+        PENDING, SUCCEEDED, FAILED
+    }
+
+    private final String id;
+    private final State state;
+    private TransferStage failedStage;
+    private String error;
+    private Long elapsedMillis;
+
+    private TransferStatus(String id, State state) {
+        this.id = id;
+        this.state = state;
+    }
+
+    static TransferStatus pending(String id) {
+        return new TransferStatus(id, State.PENDING);
+    }
+
+    static TransferStatus of(TransferResult result) {
+        TransferStatus status = new TransferStatus(result.getTransferId(), result.isSuccess() ? State.SUCCEEDED : State.FAILED);
+        status.failedStage = result.getFailedStage();
+        status.error = result.getErrorMessage();
+        status.elapsedMillis = result.getElapsed().toMillis();
+        return status;
+    }
+
+    String getId() {
+        return id;
+    }
+
+    State getState() {
+        return state;
+    }
+}
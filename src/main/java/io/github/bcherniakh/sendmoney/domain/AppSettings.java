@@ -28,6 +28,21 @@ public class AppSettings {
         this.amount = amount;
     }
 
+    /**
+     * Creates a transfer described by these settings.
+     *
+     * @param id identifier of the created transfer
+     */
+    public Transfer toTransfer(String id) {
+        Transfer transfer = new Transfer();
+        transfer.setId(id);
+        transfer.setSender(sender);
+        transfer.setReceiver(receiver);
+        transfer.setSendersPhoneNumber(sendersPhoneNumber);
+        transfer.setAmount(amount);
+        return transfer;
+    }
+
     public Card getSender() {
         return sender;
     }
@@ -0,0 +1,56 @@
+package io.github.bcherniakh.sendmoney.domain;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Results of a batch run in the order transfers were submitted.
+ * A report of a streamed batch file has the counts only.
+ */
+public final class BatchReport {
+
+    private final List<TransferResult> results;
+    private final long succeeded;
+    private final long failed;
+    private final Duration elapsed;
+
+    public BatchReport(List<TransferResult> results, Duration elapsed) {
+        this.results = Collections.unmodifiableList(results);
+        this.succeeded = results.stream().filter(TransferResult::isSuccess).count();
+        this.failed = results.size() - succeeded;
+        this.elapsed = elapsed;
+    }
+
+    public BatchReport(long succeeded, long failed, Duration elapsed) {
+        this.results = Collections.emptyList();
+        this.succeeded = succeeded;
+        this.failed = failed;
+        this.elapsed = elapsed;
+    }
+
+    /**
+     * @return results of the transfers or an empty list for a streamed batch
+     */
+    public List<TransferResult> getResults() {
+        return results;
+    }
+
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    public long getSucceededCount() {
+        return succeeded;
+    }
+
+    public long getFailedCount() {
+        return failed;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Batch of %d transfers finished in %d ms. Succeeded: %d, failed: %d",
+                succeeded + failed, elapsed.toMillis(), succeeded, failed);
+    }
+}
@@ -0,0 +1,53 @@
+package io.github.bcherniakh.sendmoney.domain;
+
+/**
+ * A single money transfer: who pays, who receives and how much.
+ * Unlike {@link AppSettings} a transfer carries an identifier, so it can be tracked inside a batch.
+ */
+public class Transfer {
+    private String id;
+    private Card sender;
+    private Card receiver;
+    private String sendersPhoneNumber;
+    private double amount;
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Card getSender() {
+        return sender;
+    }
+
+    public void setSender(Card sender) {
+        this.sender = sender;
+    }
+
+    public Card getReceiver() {
+        return receiver;
+    }
+
+    public void setReceiver(Card receiver) {
+        this.receiver = receiver;
+    }
+
+    public String getSendersPhoneNumber() {
+        return sendersPhoneNumber;
+    }
+
+    public void setSendersPhoneNumber(String sendersPhoneNumber) {
+        this.sendersPhoneNumber = sendersPhoneNumber;
+    }
+
+    public double getAmount() {
+        return amount;
+    }
+
+    public void setAmount(double amount) {
+        this.amount = amount;
+    }
+}
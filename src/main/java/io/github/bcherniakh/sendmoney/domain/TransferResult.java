@@ -0,0 +1,63 @@
+package io.github.bcherniakh.sendmoney.domain;
+
+import java.time.Duration;
+
+/**
+ * Outcome of a single transfer. A failed result knows the stage it failed on.
+ */
+public final class TransferResult {
+
+    private final String transferId;
+    private final boolean success;
+    private final TransferStage failedStage;
+    private final String errorMessage;
+    private final Duration elapsed;
+
+    private TransferResult(String transferId, boolean success, TransferStage failedStage,
+                           String errorMessage, Duration elapsed) {
+        this.transferId = transferId;
+        this.success = success;
+        this.failedStage = failedStage;
+        this.errorMessage = errorMessage;
+        this.elapsed = elapsed;
+    }
+
+    public static TransferResult succeeded(String transferId, Duration elapsed) {
+        return new TransferResult(transferId, true, null, null, elapsed);
+    }
+
+    public static TransferResult failed(String transferId, TransferStage failedStage, String errorMessage, Duration elapsed) {
+        return new TransferResult(transferId, false, failedStage, errorMessage, elapsed);
+    }
+
+    public String getTransferId() {
+        return transferId;
+    }
+
+    public boolean isSuccess() {
+        return success;
+    }
+
+    /**
+     * @return stage the transfer failed on or {@code null} for a successful transfer
+     */
+    public TransferStage getFailedStage() {
+        return failedStage;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    @Override
+    public String toString() {
+        if (success) {
+            return String.format("Transfer %s succeeded in %d ms", transferId, elapsed.toMillis());
+        }
+        return String.format("Transfer %s failed on %s in %d ms: %s", transferId, failedStage, elapsed.toMillis(), errorMessage);
+    }
+}
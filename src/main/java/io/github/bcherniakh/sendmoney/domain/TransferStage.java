@@ -0,0 +1,13 @@
+package io.github.bcherniakh.sendmoney.domain;
+
+/**
+ * Stages a transfer goes through on the Sendmoney site.
+ * Used to report where exactly a failed transfer stopped.
+ */
+public enum TransferStage {
+    OPEN_PAGE,
+    FILL_STEP_1,
+    SUBMIT_STEP_1,
+    FILL_STEP_2,
+    SUBMIT_STEP_2
+}
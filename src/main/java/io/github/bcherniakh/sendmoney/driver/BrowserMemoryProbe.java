@@ -0,0 +1,137 @@
+package io.github.bcherniakh.sendmoney.driver;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the memory of the browsers launched by this application: chromedriver and Chrome processes
+ * are descendants of the JVM process. The proportional set size is summed, so the memory the Chrome
+ * processes share is counted once. The resident set size is used when the kernel does not report it.
+ * <p>
+ * Works on Linux only. Elsewhere the memory is reported as unknown.
+ */
+public class BrowserMemoryProbe implements AutoCloseable {
+
+    public static final long UNKNOWN = -1;
+
+    private static final Path PROC = Paths.get("/proc");
+
+    private static Logger log = LoggerFactory.getLogger(BrowserMemoryProbe.class);
+
+    private final AtomicLong peakBytes = new AtomicLong(UNKNOWN);
+    private ScheduledExecutorService sampler;
+
+    /**
+     * Starts sampling the memory in the background to find the peak.
+     */
+    public void start(long intervalMillis) {
+        sampler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "browser-memory");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sampler.scheduleAtFixedRate(() -> peakBytes.accumulateAndGet(browserMemoryBytes(), Math::max),
+                0, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * @return the highest memory sampled since the start or {@link #UNKNOWN}
+     */
+    public long getPeakBytes() {
+        return peakBytes.get();
+    }
+
+    @Override
+    public void close() {
+        if (sampler != null) {
+            sampler.shutdownNow();
+        }
+    }
+
+    /**
+     * @return memory of all processes started by this JVM in bytes or {@link #UNKNOWN}
+     */
+    public static long browserMemoryBytes() {
+        if (!Files.isDirectory(PROC)) {
+            return UNKNOWN;
+        }
+        try {
+            String self = PROC.resolve("self").toRealPath().getFileName().toString();
+            Map<String, List<String>> children = childProcesses();
+            long total = 0;
+            Deque<String> pending = new ArrayDeque<>(children.getOrDefault(self, new ArrayList<>()));
+            while (!pending.isEmpty()) {
+                String pid = pending.pop();
+                total += processMemoryBytes(pid);
+                pending.addAll(children.getOrDefault(pid, new ArrayList<>()));
+            }
+            return total;
+        } catch (IOException e) {
+            log.debug("Failed to read the browser memory", e);
+            return UNKNOWN;
+        }
+    }
+
+    private static Map<String, List<String>> childProcesses() throws IOException {
+        Map<String, List<String>> children = new HashMap<>();
+        try (DirectoryStream<Path> processes = Files.newDirectoryStream(PROC, "[0-9]*")) {
+            for (Path process : processes) {
+                String parent = parentPid(process);
+                if (parent != null) {
+                    children.computeIfAbsent(parent, pid -> new ArrayList<>()).add(process.getFileName().toString());
+                }
+            }
+        }
+        return children;
+    }
+
+    /*
+     * /proc/<pid>/stat: pid (command) state ppid ... The command may contain spaces and parentheses.
+     */
+    private static String parentPid(Path process) {
+        try {
+            String stat = new String(Files.readAllBytes(process.resolve("stat")), StandardCharsets.US_ASCII);
+            String[] fields = stat.substring(stat.lastIndexOf(')') + 2).split(" ");
+            return fields[1];
+        } catch (IOException | RuntimeException e) {
+            // The process has exited meanwhile
+            return null;
+        }
+    }
+
+    private static long processMemoryBytes(String pid) {
+        long pss = readKilobytes(PROC.resolve(pid).resolve("smaps_rollup"), "Pss:");
+        long kilobytes = pss != UNKNOWN ? pss : readKilobytes(PROC.resolve(pid).resolve("status"), "VmRSS:");
+        return kilobytes == UNKNOWN ? 0 : kilobytes * 1024;
+    }
+
+    private static long readKilobytes(Path file, String field) {
+        try {
+            for (String line : Files.readAllLines(file, StandardCharsets.US_ASCII)) {
+                if (line.startsWith(field)) {
+                    return Long.parseLong(line.substring(field.length()).replace("kB", "").trim());
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            // Not readable or the process has exited meanwhile
+        }
+        return UNKNOWN;
+    }
+}
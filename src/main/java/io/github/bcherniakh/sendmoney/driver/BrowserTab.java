@@ -0,0 +1,14 @@
+package io.github.bcherniakh.sendmoney.driver;
+
+/**
+ * Implemented by the drivers bound to one tab of a browser shared by several transfers.
+ * A command of such driver waits until the browser is free, so a wait should poll short
+ * commands instead of blocking the browser until the condition is met.
+ */
+public interface BrowserTab {
+
+    /**
+     * @return handle of the window this driver sends its commands to
+     */
+    String getTabHandle();
+}
@@ -0,0 +1,137 @@
+package io.github.bcherniakh.sendmoney.driver;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.ui.Wait;
+
+/**
+ * A browser session together with the {@link Wait} bound to it.
+ * A session must be used by one transfer at a time.
+ * A session may be a tab of a browser shared with other sessions, see {@link TabScheduler},
+ * or run on a Selenium Grid node, see {@link GridNodes}.
+ */
+public class DriverSession {
+
+    private final WebDriver webDriver;
+    private final Wait<WebDriver> wait;
+    private final TabScheduler tabScheduler;
+    private final GridNode gridNode;
+    private int uses;
+    private long borrowedAt;
+
+    public DriverSession(WebDriver webDriver, Wait<WebDriver> wait) {
+        this(webDriver, wait, null, null);
+    }
+
+    public DriverSession(WebDriver webDriver, Wait<WebDriver> wait, TabScheduler tabScheduler) {
+        this(webDriver, wait, tabScheduler, null);
+    }
+
+    /**
+     * Creates a session running on a Grid node. The slot of the node is given back when the session quits.
+     */
+    public DriverSession(WebDriver webDriver, Wait<WebDriver> wait, GridNode gridNode) {
+        this(webDriver, wait, null, gridNode);
+    }
+
+    private DriverSession(WebDriver webDriver, Wait<WebDriver> wait, TabScheduler tabScheduler, GridNode gridNode) {
+        this.webDriver = webDriver;
+        this.wait = wait;
+        this.tabScheduler = tabScheduler;
+        this.gridNode = gridNode;
+    }
+
+    public WebDriver getWebDriver() {
+        return webDriver;
+    }
+
+    public Wait<WebDriver> getWait() {
+        return wait;
+    }
+
+    /**
+     * @return scheduler of the browser this session is a tab of or {@code null} when the session has its own browser
+     */
+    TabScheduler getTabScheduler() {
+        return tabScheduler;
+    }
+
+    /**
+     * @return node the session runs on or {@code null} when the browser is local
+     */
+    GridNode getGridNode() {
+        return gridNode;
+    }
+
+    /**
+     * Waits for the step 1 turn of the browser this session is a tab of, see {@link TabScheduler}.
+     * Returns right away for a session with its own browser.
+     */
+    public void awaitStep1Turn() {
+        if (tabScheduler != null) {
+            tabScheduler.awaitStep1Turn();
+        }
+    }
+
+    /**
+     * Lets the next tab of the browser start its step 1. Must follow every {@link #awaitStep1Turn()} exactly once.
+     */
+    public void passStep1Turn() {
+        if (tabScheduler != null) {
+            tabScheduler.passStep1Turn();
+        }
+    }
+
+    /**
+     * Marks the Grid node of this session as failed when the error means the node is lost.
+     *
+     * @return true when the node failed, so the transfer may be sent again by a session of another node
+     */
+    public boolean failNode(Throwable error) {
+        if (gridNode == null || !GridNodes.isNodeFailure(error)) {
+            return false;
+        }
+        gridNode.markDown();
+        return true;
+    }
+
+    void markBorrowed() {
+        borrowedAt = System.nanoTime();
+        if (gridNode != null) {
+            gridNode.sessionBorrowed();
+        }
+    }
+
+    /*
+     * Only successful transfers count in the node latency, a failure may have taken any time.
+     */
+    void markReleased(boolean failed) {
+        if (gridNode != null) {
+            gridNode.sessionReleased();
+            if (!failed) {
+                gridNode.recordLatency(System.nanoTime() - borrowedAt);
+            }
+        }
+    }
+
+    /**
+     * Counts one more transfer made with this session.
+     *
+     * @return number of transfers made with this session so far
+     */
+    int incrementUses() {
+        return ++uses;
+    }
+
+    /**
+     * Closes the browser of this session. A tab session closes its tab, the browser is closed with the last tab.
+     */
+    public void quit() {
+        try {
+            webDriver.quit();
+        } finally {
+            if (gridNode != null) {
+                gridNode.releaseSlot();
+            }
+        }
+    }
+}
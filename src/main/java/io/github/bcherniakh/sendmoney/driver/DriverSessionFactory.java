@@ -0,0 +1,68 @@
+package io.github.bcherniakh.sendmoney.driver;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.ui.WebDriverWait;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static io.github.bcherniakh.sendmoney.constant.WebConstant.DEFAULT_WAIT_TIMEOUT;
+import static io.github.bcherniakh.sendmoney.constant.WebConstant.READINESS_POLL_INTERVAL_MILLIS;
+import static io.github.bcherniakh.sendmoney.constant.WebConstant.SCRIPT_TIMEOUT;
+
+/**
+ * Launches new browser sessions. Every {@code create} and {@code createTabs} call starts a new browser.
+ */
+@Singleton
+public class DriverSessionFactory {
+
+    private Provider<WebDriver> webDriverProvider;
+
+    @Inject
+    public DriverSessionFactory(Provider<WebDriver> webDriverProvider) {
+        this.webDriverProvider = webDriverProvider;
+    }
+
+    /**
+     * For the factories that start the browsers by other means and override {@link #create()}.
+     */
+    protected DriverSessionFactory() {
+    }
+
+    public DriverSession create() {
+        WebDriver webDriver = launch();
+        return new DriverSession(webDriver, new WebDriverWait(webDriver, DEFAULT_WAIT_TIMEOUT));
+    }
+
+    /**
+     * Starts a browser shared by the given number of sessions, each in its own tab.
+     */
+    public List<DriverSession> createTabs(int tabs) {
+        TabScheduler scheduler = new TabScheduler(launch());
+        List<DriverSession> sessions = new ArrayList<>(tabs);
+        for (int i = 0; i < tabs; i++) {
+            sessions.add(openTab(scheduler));
+        }
+        return sessions;
+    }
+
+    /**
+     * Opens one more tab session in a browser started by {@link #createTabs(int)}.
+     */
+    public DriverSession openTab(TabScheduler scheduler) {
+        WebDriver tab = scheduler.openTab();
+        // Tabs poll their waits, the browser is busy with the other tabs between the polls
+        return new DriverSession(tab, new WebDriverWait(tab, DEFAULT_WAIT_TIMEOUT, READINESS_POLL_INTERVAL_MILLIS), scheduler);
+    }
+
+    private WebDriver launch() {
+        WebDriver webDriver = webDriverProvider.get();
+        // Readiness scripts wait inside the browser for up to DEFAULT_WAIT_TIMEOUT
+        webDriver.manage().timeouts().setScriptTimeout(SCRIPT_TIMEOUT, TimeUnit.SECONDS);
+        return webDriver;
+    }
+}
@@ -0,0 +1,115 @@
+package io.github.bcherniakh.sendmoney.driver;
+
+import java.net.URL;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A Selenium Grid node the browser sessions are started on. Keeps the load and the recent latency
+ * of the node, so the transfers go to the node that is expected to finish them first.
+ */
+public final class GridNode {
+
+    /**
+     * Weight of the latest transfer in the recent latency. The latency follows a slowing node within a few transfers.
+     */
+    private static final double LATENCY_WEIGHT = 0.3;
+
+    private final GridNodes nodes;
+    private final URL url;
+    private final int slots;
+    private final AtomicInteger busySessions = new AtomicInteger();
+    private int sessions;
+    private long latencyNanos;
+    private volatile long downUntilNanos;
+    private volatile boolean down;
+
+    GridNode(GridNodes nodes, URL url, int slots) {
+        this.nodes = nodes;
+        this.url = url;
+        this.slots = slots;
+    }
+
+    public URL getUrl() {
+        return url;
+    }
+
+    /**
+     * @return maximum number of sessions on the node
+     */
+    public int getSlots() {
+        return slots;
+    }
+
+    /**
+     * @return recent duration of a transfer on the node, 0 until the first transfer is finished
+     */
+    public synchronized long getLatencyNanos() {
+        return latencyNanos;
+    }
+
+    /**
+     * @return true while the node is excluded after a failure
+     */
+    public boolean isDown() {
+        return down && System.nanoTime() - downUntilNanos < 0;
+    }
+
+    /**
+     * Expected time to finish one more transfer on the node. A node without finished transfers is tried first.
+     */
+    double score() {
+        return Math.max(1, getLatencyNanos()) * (busySessions.get() + 1) / (double) slots;
+    }
+
+    synchronized void recordLatency(long nanos) {
+        latencyNanos = latencyNanos == 0 ? nanos : (long) (latencyNanos + LATENCY_WEIGHT * (nanos - latencyNanos));
+    }
+
+    /**
+     * Excludes the node from the new sessions for a while, see {@link GridNodes#markDown(GridNode)}.
+     */
+    void markDown() {
+        nodes.markDown(this);
+    }
+
+    void markDown(long retryDelayMillis) {
+        downUntilNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(retryDelayMillis);
+        down = true;
+    }
+
+    long getDownUntilNanos() {
+        return downUntilNanos;
+    }
+
+    void sessionBorrowed() {
+        busySessions.incrementAndGet();
+    }
+
+    void sessionReleased() {
+        busySessions.decrementAndGet();
+    }
+
+    /*
+     * Sessions started on the node, guarded by GridNodes.
+     */
+    int getSessions() {
+        return sessions;
+    }
+
+    void setSessions(int sessions) {
+        this.sessions = sessions;
+    }
+
+    /**
+     * Gives the slot of a quit session back.
+     */
+    void releaseSlot() {
+        nodes.releaseSlot(this);
+    }
+
+    @Override
+    public String toString() {
+        return url.toString();
+    }
+}
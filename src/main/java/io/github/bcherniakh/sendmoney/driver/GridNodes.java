@@ -0,0 +1,161 @@
+package io.github.bcherniakh.sendmoney.driver;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.github.bcherniakh.sendmoney.exception.InvalidInputException;
+import io.github.bcherniakh.sendmoney.exception.SendMoneyException;
+import org.openqa.selenium.NoSuchSessionException;
+import org.openqa.selenium.SessionNotCreatedException;
+import org.openqa.selenium.remote.UnreachableBrowserException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Named;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Selenium Grid nodes of the {@code grid.nodes} property. Sessions are started on the nodes directly,
+ * so every session lands on the node chosen here: the one with a free slot and the lowest expected time
+ * of a transfer, see {@link GridNode}. A node that failed to start a session or lost one is excluded
+ * for a while and then tried again.
+ */
+@Singleton
+public class GridNodes {
+
+    private static final long NODE_RETRY_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(30);
+
+    private Logger log = LoggerFactory.getLogger(GridNodes.class);
+
+    private final List<GridNode> nodes;
+    private final long retryDelayMillis;
+
+    /**
+     * @param nodes addresses of the nodes separated by ','. Empty when the browsers are launched locally
+     * @param slots maximum number of sessions on a node
+     */
+    @Inject
+    public GridNodes(@Named("grid.nodes") String nodes, @Named("grid.node.slots") int slots) {
+        this(nodes, slots, NODE_RETRY_DELAY_MILLIS);
+    }
+
+    GridNodes(String nodes, int slots, long retryDelayMillis) {
+        List<GridNode> parsed = new ArrayList<>();
+        for (String node : nodes.split(",")) {
+            if (!node.trim().isEmpty()) {
+                parsed.add(new GridNode(this, url(node.trim()), Math.max(1, slots)));
+            }
+        }
+        this.nodes = Collections.unmodifiableList(parsed);
+        this.retryDelayMillis = retryDelayMillis;
+    }
+
+    public boolean isEnabled() {
+        return !nodes.isEmpty();
+    }
+
+    public List<GridNode> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return true when every node is on this machine, so its browsers can reach a proxy listening on the loopback
+     */
+    public boolean isLocal() {
+        for (GridNode node : nodes) {
+            String host = node.getUrl().getHost();
+            if (!host.equalsIgnoreCase("localhost") && !host.startsWith("127.") && !host.equals("[::1]")) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Takes a slot of the best node for a new session, waiting until a node has one.
+     * The slot is given back when the session quits.
+     *
+     * @throws SendMoneyException when no node had a free slot in time
+     */
+    public synchronized GridNode acquireSlot(long timeoutMillis) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis);
+        while (true) {
+            GridNode best = null;
+            for (GridNode node : nodes) {
+                if (!node.isDown() && node.getSessions() < node.getSlots() && (best == null || node.score() < best.score())) {
+                    best = node;
+                }
+            }
+            if (best != null) {
+                best.setSessions(best.getSessions() + 1);
+                return best;
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                throw new SendMoneyException("No Grid node had a free slot in " + timeoutMillis + " ms");
+            }
+            awaitSlot(Math.min(remaining, untilNodeIsBack()));
+        }
+    }
+
+    /**
+     * Excludes the node from the new sessions for a while. Sessions already running on it are recycled
+     * by the pool when they are borrowed.
+     */
+    public void markDown(GridNode node) {
+        log.warn("Grid node {} failed. Not using it for {} ms", node, retryDelayMillis);
+        node.markDown(retryDelayMillis);
+    }
+
+    /**
+     * @return true when the error means the node is unreachable or has lost the session,
+     * so the session and likely the other sessions of the node are gone
+     */
+    public static boolean isNodeFailure(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof UnreachableBrowserException || cause instanceof NoSuchSessionException
+                    || cause instanceof SessionNotCreatedException || cause instanceof IOException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    synchronized void releaseSlot(GridNode node) {
+        node.setSessions(node.getSessions() - 1);
+        notifyAll();
+    }
+
+    private long untilNodeIsBack() {
+        long now = System.nanoTime();
+        long nearest = Long.MAX_VALUE;
+        for (GridNode node : nodes) {
+            if (node.isDown()) {
+                nearest = Math.min(nearest, node.getDownUntilNanos() - now);
+            }
+        }
+        return Math.max(1, nearest);
+    }
+
+    private void awaitSlot(long nanos) {
+        try {
+            TimeUnit.NANOSECONDS.timedWait(this, nanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SendMoneyException("Interrupted while waiting for a Grid node slot", e);
+        }
+    }
+
+    private static URL url(String node) {
+        try {
+            return new URL(node);
+        } catch (MalformedURLException e) {
+            throw new InvalidInputException("Invalid Grid node address " + node, e);
+        }
+    }
+}
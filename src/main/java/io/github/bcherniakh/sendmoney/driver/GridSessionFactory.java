@@ -0,0 +1,73 @@
+package io.github.bcherniakh.sendmoney.driver;
+
+import com.google.inject.Inject;
+import com.google.inject.Provider;
+import com.google.inject.Singleton;
+import io.github.bcherniakh.sendmoney.exception.SendMoneyException;
+import io.github.bcherniakh.sendmoney.trace.CommandTracer;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.remote.RemoteWebDriver;
+import org.openqa.selenium.support.ui.WebDriverWait;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static io.github.bcherniakh.sendmoney.constant.WebConstant.DEFAULT_WAIT_TIMEOUT;
+import static io.github.bcherniakh.sendmoney.constant.WebConstant.DRIVER_BORROW_TIMEOUT;
+import static io.github.bcherniakh.sendmoney.constant.WebConstant.SCRIPT_TIMEOUT;
+
+/**
+ * Starts browser sessions on the Selenium Grid nodes instead of the local machine.
+ * Every session is started on the node {@link GridNodes} choose, a node that fails to start it
+ * is excluded and the next one is tried.
+ */
+@Singleton
+public class GridSessionFactory extends DriverSessionFactory {
+
+    private Logger log = LoggerFactory.getLogger(GridSessionFactory.class);
+
+    private GridNodes nodes;
+    private Provider<ChromeOptions> chromeOptions;
+    private CommandTracer tracer;
+
+    @Inject
+    public GridSessionFactory(GridNodes nodes, Provider<ChromeOptions> chromeOptions, CommandTracer tracer) {
+        this.nodes = nodes;
+        this.chromeOptions = chromeOptions;
+        this.tracer = tracer;
+    }
+
+    /**
+     * @throws SendMoneyException when no node had a free slot in {@link io.github.bcherniakh.sendmoney.constant.WebConstant#DRIVER_BORROW_TIMEOUT}
+     */
+    @Override
+    public DriverSession create() {
+        while (true) {
+            GridNode node = nodes.acquireSlot(TimeUnit.SECONDS.toMillis(DRIVER_BORROW_TIMEOUT));
+            long startedAt = System.nanoTime();
+            try {
+                WebDriver webDriver = tracer.wrap(new RemoteWebDriver(node.getUrl(), chromeOptions.get()));
+                webDriver.manage().timeouts().setScriptTimeout(SCRIPT_TIMEOUT, TimeUnit.SECONDS);
+                log.debug("Started a session on Grid node {} in {} ms", node,
+                        TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+                return new DriverSession(webDriver, new WebDriverWait(webDriver, DEFAULT_WAIT_TIMEOUT), node);
+            } catch (WebDriverException e) {
+                log.warn("Failed to start a session on Grid node {}", node, e);
+                node.releaseSlot();
+                nodes.markDown(node);
+            }
+        }
+    }
+
+    /**
+     * A Grid node slot is a browser, so the sessions are never tabs of a shared one.
+     */
+    @Override
+    public List<DriverSession> createTabs(int tabs) {
+        throw new SendMoneyException("Grid sessions can not share a browser. Set driver.pool.tabs to 1");
+    }
+}
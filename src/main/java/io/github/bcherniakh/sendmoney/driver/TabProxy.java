@@ -0,0 +1,171 @@
+package io.github.bcherniakh.sendmoney.driver;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.internal.WrapsDriver;
+import org.openqa.selenium.internal.WrapsElement;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Dynamic proxy of a driver, an element or a driver helper like {@link WebDriver.Options} that sends
+ * every call to one tab through the {@link TabScheduler}. The proxy implements all interfaces of the
+ * wrapped object and {@link BrowserTab}. Found elements and returned helpers are wrapped as well.
+ * <p>
+ * {@code quit} and {@code close} close only the tab.
+ */
+final class TabProxy implements InvocationHandler {
+
+    private static final String SELENIUM_PACKAGE = "org.openqa.selenium";
+
+    private final Object target;
+    private final String handle;
+    private final TabScheduler scheduler;
+    private WebDriver driverProxy;
+
+    private TabProxy(Object target, String handle, TabScheduler scheduler, WebDriver driverProxy) {
+        this.target = target;
+        this.handle = handle;
+        this.scheduler = scheduler;
+        this.driverProxy = driverProxy;
+    }
+
+    static WebDriver wrapDriver(WebDriver driver, String handle, TabScheduler scheduler) {
+        TabProxy handler = new TabProxy(driver, handle, scheduler, null);
+        WebDriver proxy = (WebDriver) proxy(driver, handler, interfacesOf(driver, WrapsDriver.class));
+        handler.driverProxy = proxy;
+        return proxy;
+    }
+
+    private Object wrap(Object target, Class<?>... interfaces) {
+        return proxy(target, new TabProxy(target, handle, scheduler, driverProxy), interfaces);
+    }
+
+    private static Object proxy(Object target, TabProxy handler, Class<?>... interfaces) {
+        Set<Class<?>> implemented = new LinkedHashSet<>();
+        for (Class<?> type : interfaces) {
+            implemented.add(type);
+        }
+        implemented.add(BrowserTab.class);
+        return Proxy.newProxyInstance(TabProxy.class.getClassLoader(), implemented.toArray(new Class<?>[0]), handler);
+    }
+
+    private static Class<?>[] interfacesOf(Object target, Class<?> wrapperInterface) {
+        Set<Class<?>> interfaces = new LinkedHashSet<>();
+        for (Class<?> type = target.getClass(); type != null; type = type.getSuperclass()) {
+            collectInterfaces(type, interfaces);
+        }
+        interfaces.add(wrapperInterface);
+        return interfaces.toArray(new Class<?>[0]);
+    }
+
+    private static void collectInterfaces(Class<?> type, Set<Class<?>> interfaces) {
+        for (Class<?> implemented : type.getInterfaces()) {
+            if (Modifier.isPublic(implemented.getModifiers()) && interfaces.add(implemented)) {
+                collectInterfaces(implemented, interfaces);
+            }
+        }
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        if (method.getDeclaringClass() == Object.class) {
+            return invokeTarget(method, args);
+        }
+        if (method.getDeclaringClass() == BrowserTab.class) {
+            return handle;
+        }
+        if (("getWrappedDriver".equals(name) && target instanceof WebDriver)
+                || ("getWrappedElement".equals(name) && target instanceof WebElement)) {
+            return target;
+        }
+        if (target instanceof WebDriver) {
+            if ("quit".equals(name) || "close".equals(name)) {
+                scheduler.closeTab(handle);
+                return null;
+            }
+            if ("getWindowHandle".equals(name)) {
+                return handle;
+            }
+        }
+
+        Object[] unwrapped = unwrap(args);
+        return wrapResult(method, scheduler.inTab(handle, () -> invokeUnchecked(method, unwrapped)));
+    }
+
+    private Object invokeTarget(Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private Object invokeUnchecked(Method method, Object[] args) {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private Object wrapResult(Method method, Object result) {
+        if (result == null) {
+            return null;
+        }
+        if (result instanceof WebDriver) {
+            return driverProxy;
+        }
+        if (result instanceof WebElement) {
+            return wrap(result, interfacesOf(result, WrapsElement.class));
+        }
+        if (result instanceof List && !((List<?>) result).isEmpty() && ((List<?>) result).get(0) instanceof WebElement) {
+            List<Object> wrapped = new ArrayList<>();
+            for (Object element : (List<?>) result) {
+                wrapped.add(element instanceof WebElement ? wrap(element, interfacesOf(element, WrapsElement.class)) : element);
+            }
+            return wrapped;
+        }
+        // Navigation, Options, Timeouts, TargetLocator and the like run their commands later
+        Class<?> returnType = method.getReturnType();
+        if (returnType.isInterface() && returnType.getName().startsWith(SELENIUM_PACKAGE)) {
+            return wrap(result, returnType);
+        }
+        return result;
+    }
+
+    /*
+     * Elements passed to the driver, for example as script arguments, are replaced by the wrapped ones.
+     */
+    private static Object[] unwrap(Object[] args) {
+        if (args == null) {
+            return null;
+        }
+        Object[] unwrapped = args.clone();
+        for (int i = 0; i < unwrapped.length; i++) {
+            if (unwrapped[i] instanceof BrowserTab && unwrapped[i] instanceof WrapsElement) {
+                unwrapped[i] = ((WrapsElement) unwrapped[i]).getWrappedElement();
+            } else if (unwrapped[i] instanceof Object[]) {
+                unwrapped[i] = unwrap((Object[]) unwrapped[i]);
+            }
+        }
+        return unwrapped;
+    }
+}
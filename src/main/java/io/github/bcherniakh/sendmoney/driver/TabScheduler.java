@@ -0,0 +1,168 @@
+package io.github.bcherniakh.sendmoney.driver;
+
+import org.openqa.selenium.Cookie;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Shares one browser between several transfers, each in its own tab.
+ * <p>
+ * A browser runs the commands of one window at a time. The scheduler gives the browser to the tabs
+ * command by command in the order they asked for it and switches the window when the next command is
+ * for another tab. A tab waiting for an element polls, so the other tabs run their commands between the polls.
+ * A page load started by a command, like {@code get} or a click on a submit button, keeps the browser
+ * until the page is loaded.
+ * <p>
+ * The tabs of a browser share the cookie jar, while the site keeps the transfer in a session cookie.
+ * So every tab has its own copy of the cookies: they are saved when the browser switches away from the tab
+ * and put back when it switches to the tab again. Only the cookies of the site the tabs show are switched.
+ */
+public class TabScheduler {
+
+    private static final String OPEN_TAB_SCRIPT = "window.open('about:blank', '_blank');";
+
+    private Logger log = LoggerFactory.getLogger(TabScheduler.class);
+
+    private final WebDriver browser;
+    private final ReentrantLock turn = new ReentrantLock(true);
+    private final Semaphore step1Turn = new Semaphore(1, true);
+    private final Map<String, Set<Cookie>> tabCookies = new HashMap<>();
+    private final AtomicLong switchCount = new AtomicLong();
+    private String initialHandle;
+    private String currentHandle;
+
+    public TabScheduler(WebDriver browser) {
+        this.browser = browser;
+        this.initialHandle = browser.getWindowHandle();
+        this.currentHandle = initialHandle;
+    }
+
+    /**
+     * Opens a new tab. The first call takes the window the browser was started with.
+     *
+     * @return driver that sends all its commands to the tab
+     */
+    public WebDriver openTab() {
+        return inTurn(() -> {
+            String handle;
+            if (initialHandle != null) {
+                handle = initialHandle;
+                initialHandle = null;
+            } else {
+                Set<String> before = browser.getWindowHandles();
+                ((JavascriptExecutor) browser).executeScript(OPEN_TAB_SCRIPT);
+                Set<String> opened = new HashSet<>(browser.getWindowHandles());
+                opened.removeAll(before);
+                if (opened.size() != 1) {
+                    throw new WebDriverException("Failed to open a new tab. New windows: " + opened.size());
+                }
+                handle = opened.iterator().next();
+            }
+            tabCookies.put(handle, Collections.emptySet());
+            log.debug("Opened tab {}. Tabs in the browser: {}", handle, tabCookies.size());
+            return TabProxy.wrapDriver(browser, handle, this);
+        });
+    }
+
+    /**
+     * @return number of times the browser was switched from one tab to another
+     */
+    public long getSwitchCount() {
+        return switchCount.get();
+    }
+
+    /**
+     * @return whether the browser has any open tab
+     */
+    public boolean isOpen() {
+        return inTurn(() -> !tabCookies.isEmpty());
+    }
+
+    /**
+     * Waits until no other tab is on step 1.
+     */
+    void awaitStep1Turn() {
+        step1Turn.acquireUninterruptibly();
+    }
+
+    void passStep1Turn() {
+        step1Turn.release();
+    }
+
+    /**
+     * Runs a command in the tab as soon as the browser is free.
+     */
+    <T> T inTab(String handle, Supplier<T> command) {
+        return inTurn(() -> {
+            switchTo(handle);
+            return command.get();
+        });
+    }
+
+    /**
+     * Closes the tab. The browser is quit together with its last tab.
+     */
+    void closeTab(String handle) {
+        inTurn(() -> {
+            if (!tabCookies.containsKey(handle)) {
+                return null;
+            }
+            if (tabCookies.size() == 1) {
+                tabCookies.clear();
+                log.debug("Last tab is closed. Quitting the browser");
+                browser.quit();
+                return null;
+            }
+            switchTo(handle);
+            tabCookies.remove(handle);
+            browser.close();
+            currentHandle = null;
+            switchTo(tabCookies.keySet().iterator().next());
+            return null;
+        });
+    }
+
+    private void switchTo(String handle) {
+        if (handle.equals(currentHandle)) {
+            return;
+        }
+        if (currentHandle != null && tabCookies.containsKey(currentHandle)) {
+            tabCookies.put(currentHandle, browser.manage().getCookies());
+        }
+        browser.switchTo().window(handle);
+        currentHandle = handle;
+        switchCount.incrementAndGet();
+
+        browser.manage().deleteAllCookies();
+        for (Cookie cookie : tabCookies.getOrDefault(handle, Collections.emptySet())) {
+            try {
+                browser.manage().addCookie(cookie);
+            } catch (WebDriverException e) {
+                // The tab shows another site than the one the cookie is from
+                log.trace("Cookie {} is not restored in tab {}", cookie.getName(), handle);
+            }
+        }
+    }
+
+    private <T> T inTurn(Supplier<T> command) {
+        turn.lock();
+        try {
+            return command.get();
+        } finally {
+            turn.unlock();
+        }
+    }
+}
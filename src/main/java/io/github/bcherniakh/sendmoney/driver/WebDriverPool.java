@@ -0,0 +1,332 @@
+package io.github.bcherniakh.sendmoney.driver;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.github.bcherniakh.sendmoney.exception.SendMoneyException;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Named;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static io.github.bcherniakh.sendmoney.constant.WebConstant.DRIVER_BORROW_TIMEOUT;
+
+/**
+ * Keeps a fixed number of browser sessions ready for transfers.
+ * <p>
+ * Browsers are launched in the background as soon as the pool is started, so a transfer
+ * normally gets an already running browser. A released session is cleaned up (cookies, storage,
+ * current page) in the background as well. A session is quit and replaced by a new one after
+ * {@code driver.pool.max.uses} transfers or after a failed transfer.
+ * <p>
+ * With {@code driver.pool.tabs} above 1 every browser is shared by that number of sessions, each in its
+ * own tab, see {@link TabScheduler}. The cookies are shared by the tabs, so a released tab is not cleaned
+ * from them. A tab session is replaced by a new tab of the same browser. A new browser is launched when
+ * the last tab of the previous one is closed.
+ * <p>
+ * Sessions on Selenium Grid nodes are borrowed from the node expected to finish the transfer first,
+ * by its recent latency and free slots, see {@link GridNode}. Idle sessions of a failed node are recycled,
+ * their replacements are started on the other nodes.
+ * <p>
+ * A browser or a tab that fails to start is started again after {@link #RETRY_DELAY_MILLIS}, doubled after every
+ * failure up to {@link #MAX_RETRY_DELAY_MILLIS}, so a failed launch does not shrink the pool for good.
+ */
+@Singleton
+public class WebDriverPool implements AutoCloseable {
+
+    static final long RETRY_DELAY_MILLIS = 1000;
+    static final long MAX_RETRY_DELAY_MILLIS = 30_000;
+    private static final String BLANK_PAGE = "about:blank";
+    private static final String CLEAR_STORAGE_SCRIPT = "window.localStorage.clear(); window.sessionStorage.clear();";
+    private static final String CLEAR_TAB_STORAGE_SCRIPT = "window.sessionStorage.clear();";
+
+    private Logger log = LoggerFactory.getLogger(WebDriverPool.class);
+
+    private final DriverSessionFactory sessionFactory;
+    private final int browsers;
+    private final int tabs;
+    private final int maxUses;
+
+    private final List<DriverSession> idleSessions = new ArrayList<>();
+    private final ReentrantLock idleLock = new ReentrantLock();
+    private final Condition sessionIdle = idleLock.newCondition();
+    private final Set<DriverSession> sessions = ConcurrentHashMap.newKeySet();
+    private final AtomicBoolean started = new AtomicBoolean();
+    private final AtomicBoolean closed = new AtomicBoolean();
+    private final ScheduledExecutorService maintenance;
+
+    public WebDriverPool(DriverSessionFactory sessionFactory, int size, int maxUses) {
+        this(sessionFactory, size, 1, maxUses);
+    }
+
+    /**
+     * @param browsers number of browsers to launch
+     * @param tabs     number of sessions sharing every browser
+     */
+    @Inject
+    public WebDriverPool(DriverSessionFactory sessionFactory,
+                         @Named("driver.pool.size") int browsers,
+                         @Named("driver.pool.tabs") int tabs,
+                         @Named("driver.pool.max.uses") int maxUses) {
+        this.sessionFactory = sessionFactory;
+        this.browsers = browsers;
+        this.tabs = Math.max(1, tabs);
+        this.maxUses = maxUses;
+        this.maintenance = Executors.newScheduledThreadPool(browsers, runnable -> {
+            Thread thread = new Thread(runnable, "webdriver-pool");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return number of sessions, the number of transfers that can be made at the same time
+     */
+    public int size() {
+        return browsers * tabs;
+    }
+
+    /**
+     * @return number of sessions sharing a browser
+     */
+    public int getTabs() {
+        return tabs;
+    }
+
+    /**
+     * Starts launching browsers in the background. Does nothing if the pool is already started.
+     */
+    public void start() {
+        start(browsers);
+    }
+
+    /**
+     * Starts launching only some of the browsers, for a run that needs fewer sessions than the pool has.
+     * Does nothing if the pool is already started.
+     *
+     * @param count number of browsers to launch, at most the pool size
+     */
+    public void start(int count) {
+        if (started.compareAndSet(false, true)) {
+            int launched = Math.max(1, Math.min(count, browsers));
+            log.debug("Launching {} browsers with {} sessions each", launched, tabs);
+            for (int i = 0; i < launched; i++) {
+                maintenance.execute(this::launch);
+            }
+        }
+    }
+
+    /**
+     * Takes an idle session out of the pool, waiting for one if all of them are busy.
+     * The session must be given back with {@link #release(DriverSession, boolean)}.
+     */
+    public DriverSession borrow() {
+        start();
+        long remaining = TimeUnit.SECONDS.toNanos(DRIVER_BORROW_TIMEOUT);
+        idleLock.lock();
+        try {
+            DriverSession session;
+            while ((session = takeBest()) == null) {
+                if (remaining <= 0) {
+                    throw new SendMoneyException("No browser session became available in " + DRIVER_BORROW_TIMEOUT + " seconds");
+                }
+                remaining = sessionIdle.awaitNanos(remaining);
+            }
+            session.markBorrowed();
+            return session;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SendMoneyException("Interrupted while waiting for a browser session", e);
+        } finally {
+            idleLock.unlock();
+        }
+    }
+
+    /**
+     * Gives a session back to the pool.
+     *
+     * @param session session taken by {@link #borrow()}
+     * @param failed  {@code true} when the transfer made with the session failed. Such session is never reused.
+     */
+    public void release(DriverSession session, boolean failed) {
+        session.markReleased(failed);
+        if (closed.get()) {
+            quit(session);
+            return;
+        }
+        int uses = session.incrementUses();
+        try {
+            if (failed || uses >= maxUses) {
+                log.debug("Recycling browser session after {} uses. Failed: {}", uses, failed);
+                maintenance.execute(() -> recycle(session));
+            } else {
+                maintenance.execute(() -> reset(session));
+            }
+        } catch (RejectedExecutionException e) {
+            // Closed in the meantime
+            quit(session);
+        }
+    }
+
+    /**
+     * Quits all browsers. Sessions that are still borrowed are quit as well.
+     */
+    @Override
+    public void close() {
+        if (closed.compareAndSet(false, true)) {
+            maintenance.shutdownNow();
+            sessions.forEach(this::quit);
+            sessions.clear();
+            idleLock.lock();
+            try {
+                idleSessions.clear();
+            } finally {
+                idleLock.unlock();
+            }
+        }
+    }
+
+    private void launch() {
+        launch(0);
+    }
+
+    private void launch(int attempt) {
+        if (closed.get()) {
+            return;
+        }
+        try {
+            if (tabs == 1) {
+                add(sessionFactory.create());
+            } else {
+                sessionFactory.createTabs(tabs).forEach(this::add);
+            }
+        } catch (RuntimeException e) {
+            long delay = retryDelay(attempt);
+            log.error("Failed to launch a browser session. Retrying in {} ms", delay, e);
+            retry(() -> launch(attempt + 1), delay);
+        }
+    }
+
+    /*
+     * A closed tab scheduler means the browser is gone. Its last tab session launched a new one when it was recycled.
+     */
+    private void openTab(TabScheduler tabScheduler, int attempt) {
+        if (closed.get() || !tabScheduler.isOpen()) {
+            return;
+        }
+        try {
+            add(sessionFactory.openTab(tabScheduler));
+        } catch (RuntimeException e) {
+            long delay = retryDelay(attempt);
+            log.error("Failed to open a tab instead of a recycled one. Retrying in {} ms", delay, e);
+            retry(() -> openTab(tabScheduler, attempt + 1), delay);
+        }
+    }
+
+    private void retry(Runnable task, long delayMillis) {
+        try {
+            maintenance.schedule(task, delayMillis, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            log.debug("Pool is closed. Not retrying");
+        }
+    }
+
+    private static long retryDelay(int attempt) {
+        return Math.min(MAX_RETRY_DELAY_MILLIS, RETRY_DELAY_MILLIS << Math.min(attempt, 20));
+    }
+
+    private void add(DriverSession session) {
+        sessions.add(session);
+        if (closed.get()) {
+            quit(session);
+            return;
+        }
+        addIdle(session);
+    }
+
+    private void addIdle(DriverSession session) {
+        idleLock.lock();
+        try {
+            idleSessions.add(session);
+            sessionIdle.signal();
+        } finally {
+            idleLock.unlock();
+        }
+    }
+
+    /*
+     * Takes the idle session of the node with the lowest score. Local sessions score the same,
+     * so they are taken in the order they became idle. Sessions of failed nodes are recycled on the way.
+     */
+    private DriverSession takeBest() {
+        DriverSession best = null;
+        double bestScore = Double.MAX_VALUE;
+        for (Iterator<DriverSession> iterator = idleSessions.iterator(); iterator.hasNext(); ) {
+            DriverSession session = iterator.next();
+            GridNode node = session.getGridNode();
+            if (node != null && node.isDown()) {
+                iterator.remove();
+                maintenance.execute(() -> recycle(session));
+                continue;
+            }
+            double score = node == null ? 0 : node.score();
+            if (best == null || score < bestScore) {
+                best = session;
+                bestScore = score;
+            }
+        }
+        idleSessions.remove(best);
+        return best;
+    }
+
+    private void reset(DriverSession session) {
+        try {
+            WebDriver webDriver = session.getWebDriver();
+            boolean sharedBrowser = session.getTabScheduler() != null;
+            if (!sharedBrowser) {
+                webDriver.manage().deleteAllCookies();
+            }
+            if (webDriver instanceof JavascriptExecutor) {
+                ((JavascriptExecutor) webDriver).executeScript(sharedBrowser ? CLEAR_TAB_STORAGE_SCRIPT : CLEAR_STORAGE_SCRIPT);
+            }
+            webDriver.navigate().to(BLANK_PAGE);
+            addIdle(session);
+        } catch (WebDriverException e) {
+            log.warn("Failed to reset a browser session. Recycling it", e);
+            recycle(session);
+        }
+    }
+
+    private void recycle(DriverSession session) {
+        quit(session);
+        TabScheduler tabScheduler = session.getTabScheduler();
+        if (tabScheduler == null || !tabScheduler.isOpen()) {
+            launch();
+            return;
+        }
+        openTab(tabScheduler, 0);
+    }
+
+    private void quit(DriverSession session) {
+        sessions.remove(session);
+        try {
+            session.quit();
+        } catch (WebDriverException e) {
+            log.warn("Failed to quit a browser session", e);
+        }
+    }
+}
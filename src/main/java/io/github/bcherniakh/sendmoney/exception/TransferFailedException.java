@@ -0,0 +1,20 @@
+package io.github.bcherniakh.sendmoney.exception;
+
+import io.github.bcherniakh.sendmoney.domain.TransferStage;
+
+/**
+ * Thrown when a transfer could not be completed. Keeps the stage the transfer failed on.
+ */
+public class TransferFailedException extends SendMoneyException {
+
+    private final TransferStage stage;
+
+    public TransferFailedException(String message, TransferStage stage, Throwable cause) {
+        super(message, cause);
+        this.stage = stage;
+    }
+
+    public TransferStage getStage() {
+        return stage;
+    }
+}
@@ -0,0 +1,146 @@
+package io.github.bcherniakh.sendmoney.http;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Form of a fetched page with the values its fields would be submitted with: the hidden and token inputs,
+ * the checked boxes and the selected options. Buttons are not submitted. The pages of the site are simple enough
+ * for regular expressions, scripts adding fields at runtime are not run.
+ */
+public final class HtmlForm {
+
+    private static final int FLAGS = Pattern.CASE_INSENSITIVE | Pattern.DOTALL;
+    private static final Pattern FORM = Pattern.compile("<form\\b([^>]*)>(.*?)</form\\s*>", FLAGS);
+    private static final Pattern INPUT = Pattern.compile("<input\\b([^>]*)>", FLAGS);
+    private static final Pattern SELECT = Pattern.compile("<select\\b([^>]*)>(.*?)</select\\s*>", FLAGS);
+    private static final Pattern OPTION = Pattern.compile("<option\\b([^>]*)>", FLAGS);
+    private static final Pattern TEXTAREA = Pattern.compile("<textarea\\b([^>]*)>(.*?)</textarea\\s*>", FLAGS);
+    private static final Pattern ATTRIBUTE = Pattern.compile(
+            "([a-zA-Z_:][-\\w:.]*)(?:\\s*=\\s*(?:\"([^\"]*)\"|'([^']*)'|([^\\s\"'>]+)))?", FLAGS);
+
+    private final String action;
+    private final String method;
+    private final Map<String, String> fields;
+
+    private HtmlForm(String action, String method, Map<String, String> fields) {
+        this.action = action;
+        this.method = method;
+        this.fields = fields;
+    }
+
+    /**
+     * @return forms of the page in the order they appear
+     */
+    public static List<HtmlForm> parse(String html) {
+        List<HtmlForm> forms = new ArrayList<>();
+        Matcher form = FORM.matcher(html);
+        while (form.find()) {
+            Map<String, String> attributes = attributes(form.group(1));
+            forms.add(new HtmlForm(attributes.getOrDefault("action", ""),
+                    attributes.getOrDefault("method", "get").toLowerCase(), fields(form.group(2))));
+        }
+        return forms;
+    }
+
+    /**
+     * @return the action as written in the page, empty when the form is submitted to the page address
+     */
+    public String getAction() {
+        return action;
+    }
+
+    /**
+     * @return lower case method
+     */
+    public String getMethod() {
+        return method;
+    }
+
+    /**
+     * @return names and values of the submitted fields in the order they appear
+     */
+    public Map<String, String> getFields() {
+        return Collections.unmodifiableMap(fields);
+    }
+
+    public boolean hasFields(Iterable<String> names) {
+        for (String name : names) {
+            if (!fields.containsKey(name)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Map<String, String> fields(String content) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        Matcher input = INPUT.matcher(content);
+        while (input.find()) {
+            Map<String, String> attributes = attributes(input.group(1));
+            String type = attributes.getOrDefault("type", "text").toLowerCase();
+            boolean button = type.equals("submit") || type.equals("button") || type.equals("image") || type.equals("reset");
+            boolean unchecked = (type.equals("checkbox") || type.equals("radio")) && !attributes.containsKey("checked");
+            if (attributes.containsKey("name") && !button && !unchecked) {
+                fields.put(attributes.get("name"), attributes.getOrDefault("value", ""));
+            }
+        }
+        Matcher select = SELECT.matcher(content);
+        while (select.find()) {
+            Map<String, String> attributes = attributes(select.group(1));
+            if (attributes.containsKey("name")) {
+                fields.put(attributes.get("name"), selectedOption(select.group(2)));
+            }
+        }
+        Matcher textarea = TEXTAREA.matcher(content);
+        while (textarea.find()) {
+            Map<String, String> attributes = attributes(textarea.group(1));
+            if (attributes.containsKey("name")) {
+                fields.put(attributes.get("name"), unescape(textarea.group(2)));
+            }
+        }
+        return fields;
+    }
+
+    /*
+     * The first option is submitted when none is selected.
+     */
+    private static String selectedOption(String options) {
+        String value = "";
+        boolean first = true;
+        Matcher option = OPTION.matcher(options);
+        while (option.find()) {
+            Map<String, String> attributes = attributes(option.group(1));
+            if (first || attributes.containsKey("selected")) {
+                value = attributes.getOrDefault("value", "");
+            }
+            if (attributes.containsKey("selected")) {
+                break;
+            }
+            first = false;
+        }
+        return value;
+    }
+
+    private static Map<String, String> attributes(String tag) {
+        Map<String, String> attributes = new LinkedHashMap<>();
+        Matcher attribute = ATTRIBUTE.matcher(tag);
+        while (attribute.find()) {
+            String value = attribute.group(2) != null ? attribute.group(2)
+                    : attribute.group(3) != null ? attribute.group(3)
+                    : attribute.group(4) != null ? attribute.group(4) : "";
+            attributes.putIfAbsent(attribute.group(1).toLowerCase(), unescape(value));
+        }
+        return attributes;
+    }
+
+    private static String unescape(String text) {
+        return text.replace("&quot;", "\"").replace("&#39;", "'").replace("&lt;", "<").replace("&gt;", ">")
+                .replace("&amp;", "&");
+    }
+}
@@ -0,0 +1,51 @@
+package io.github.bcherniakh.sendmoney.http;
+
+/**
+ * Aggregates the names of the transfer fields the HTTP engine fills in the forms of the Sendmoney pages.
+ * The names are those of the stub pages the engine is tested with, they are not verified against the live site.
+ * The form action and every other field, the hidden and token inputs included, are taken from the fetched page,
+ * see {@link HtmlForm}. A page without a form with these fields fails the transfer before anything is posted.
+ */
+public final class SiteForms {
+
+    private SiteForms() {
+    }
+
+    public enum Step1 {
+
+        SENDER_CARD_NUMBER("sender_card"),
+        SENDER_CARD_EXPIRES_DATE_MONTH("sender_exp_month"),
+        SENDER_CARD_EXPIRES_DATE_YEAR("sender_exp_year"),
+        SENDER_CARD_CVV2("sender_cvv"),
+        RECEIVER_CARD_NUMBER("receiver_card"),
+        AMOUNT("amount");
+
+        private String field;
+
+        Step1(String field) {
+            this.field = field;
+        }
+
+        public String field() {
+            return field;
+        }
+    }
+
+    public enum Step2 {
+
+        /**
+         * The field is absent for PB cards.
+         */
+        PHONE_NUMBER("phone");
+
+        private String field;
+
+        Step2(String field) {
+            this.field = field;
+        }
+
+        public String field() {
+            return field;
+        }
+    }
+}
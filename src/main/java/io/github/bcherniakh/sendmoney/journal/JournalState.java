@@ -0,0 +1,21 @@
+package io.github.bcherniakh.sendmoney.journal;
+
+/**
+ * States of a transfer recorded in the {@link TransferJournal}.
+ */
+public enum JournalState {
+    /**
+     * Accepted for sending. Nothing is sent yet.
+     */
+    QUEUED,
+    /**
+     * Step 1 is filled and is about to be sent. No money can be sent without step 2.
+     */
+    STEP1_FILLED,
+    /**
+     * Recorded right before step 2 is sent. From this point the money may be sent.
+     */
+    STEP2_SUBMITTED,
+    DONE,
+    FAILED
+}
@@ -0,0 +1,86 @@
+package io.github.bcherniakh.sendmoney.journal;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Set of transfer ids kept as 64-bit fingerprints in an open addressing table,
+ * at most 32 bytes per id whatever its length. The chance of two of a million ids sharing a fingerprint
+ * is below 10^-7.
+ */
+class TransferIdSet {
+
+    private static final long EMPTY = 0;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private long[] fingerprints = new long[INITIAL_CAPACITY];
+    private int size;
+
+    synchronized void add(String transferId) {
+        if (2 * (size + 1) > fingerprints.length) {
+            resize();
+        }
+        if (insert(fingerprints, fingerprint(transferId))) {
+            size++;
+        }
+    }
+
+    synchronized boolean contains(String transferId) {
+        long fingerprint = fingerprint(transferId);
+        int mask = fingerprints.length - 1;
+        for (int i = (int) fingerprint & mask; fingerprints[i] != EMPTY; i = (i + 1) & mask) {
+            if (fingerprints[i] == fingerprint) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    synchronized void clear() {
+        fingerprints = new long[INITIAL_CAPACITY];
+        size = 0;
+    }
+
+    private void resize() {
+        long[] resized = new long[fingerprints.length * 2];
+        for (long fingerprint : fingerprints) {
+            if (fingerprint != EMPTY) {
+                insert(resized, fingerprint);
+            }
+        }
+        fingerprints = resized;
+    }
+
+    private static boolean insert(long[] table, long fingerprint) {
+        int mask = table.length - 1;
+        int i = (int) fingerprint & mask;
+        while (table[i] != EMPTY) {
+            if (table[i] == fingerprint) {
+                return false;
+            }
+            i = (i + 1) & mask;
+        }
+        table[i] = fingerprint;
+        return true;
+    }
+
+    /*
+     * FNV-1a of the UTF-8 bytes with the murmur finalizer, so the low bits used as the index are mixed too.
+     */
+    private static long fingerprint(String transferId) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : transferId.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash == EMPTY ? 1 : hash;
+    }
+}
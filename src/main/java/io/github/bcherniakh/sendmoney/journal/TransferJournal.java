@@ -0,0 +1,505 @@
+package io.github.bcherniakh.sendmoney.journal;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.github.bcherniakh.sendmoney.exception.SendMoneyException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Named;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of the transfer state transitions. Tells on restart which transfers are done,
+ * which can safely be sent again and which may have been sent before the application stopped.
+ * <p>
+ * The file is memory mapped in chunks of {@link #CHUNK_SIZE} bytes. A record is
+ * <pre>
+ * length (int) | crc32 of the payload (int) | payload: state (byte), timestamp (long), transfer id (UTF-8)
+ * </pre>
+ * Records never cross a chunk boundary. Reading stops at the first empty or corrupted record,
+ * so a record torn by a crash is overwritten by the next one.
+ * <p>
+ * Records are durable when the record methods return. The writes are forced to the disk by a single flusher
+ * thread, so the transfers recording at the same time share one force (group commit).
+ * <p>
+ * Only the transfers in progress are kept in memory with their state. Done transfers and transfers failed before
+ * step 2 are kept as fingerprints of their ids in a {@link TransferIdSet} each, transfers failed after step 2
+ * by their ids to be listed on open.
+ * <p>
+ * The file is compacted when the journal is opened and most of its records are outdated: it is rewritten with
+ * the final records of the finished transfers and a record per transfer in progress. The final records older
+ * than the retention are dropped then, such a transfer is new to the journal again. The file keeps growing
+ * while the journal is open.
+ */
+@Singleton
+public class TransferJournal implements AutoCloseable {
+
+    /**
+     * What to do with a transfer according to the journal.
+     */
+    public enum Recovery {
+        /**
+         * The transfer is not in the journal.
+         */
+        NEW,
+        /**
+         * The transfer was started but step 2 was never sent. It is safe to send it again.
+         */
+        RESEND,
+        DONE,
+        /**
+         * Step 2 may have been sent but the result is unknown. Has to be checked manually.
+         */
+        IN_DOUBT
+    }
+
+    static final int CHUNK_SIZE = 8 * 1024 * 1024;
+    private static final int HEADER_SIZE = 8;
+    private static final int FIXED_PAYLOAD_SIZE = 9;
+    private static final JournalState[] STATES = JournalState.values();
+    private static final long DAY_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    private Logger log = LoggerFactory.getLogger(TransferJournal.class);
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final TransferIdSet done = new TransferIdSet();
+    private final TransferIdSet failed = new TransferIdSet();
+    private final Set<String> inDoubt = ConcurrentHashMap.newKeySet();
+    private final Object lock = new Object();
+    private final Thread flusher;
+    private final LongSupplier clock;
+
+    private FileChannel channel;
+
+    private MappedByteBuffer chunk;
+    private long chunkStart;
+    private long appended;
+    private long forced;
+    private boolean closed;
+    private RuntimeException flushFailure;
+
+    /**
+     * Opens the journal and reads the recorded transfers.
+     *
+     * @param file          path to the journal file. An empty path disables the journal: nothing is recorded
+     *                      and every transfer is new
+     * @param retentionDays days the done and failed transfers are kept. 0 - kept for good
+     */
+    @Inject
+    public TransferJournal(@Named("journal.file") String file, @Named("journal.retention.days") int retentionDays) {
+        this(file, retentionDays, System::currentTimeMillis);
+    }
+
+    TransferJournal(String file, int retentionDays, LongSupplier clock) {
+        this.clock = clock;
+        if (file == null || file.trim().isEmpty()) {
+            flusher = null;
+            return;
+        }
+
+        Path path = Paths.get(file.trim());
+        long expiredBefore = retentionDays > 0 ? clock.getAsLong() - retentionDays * DAY_MILLIS : Long.MIN_VALUE;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            // records, final records kept by a compaction, expired final records
+            long[] counts = new long[3];
+            recover((transferId, state, timestamp) -> {
+                apply(transferId, state);
+                counts[0]++;
+                if (isFinal(state)) {
+                    counts[timestamp < expiredBefore ? 2 : 1]++;
+                }
+            });
+            if (counts[2] > 0 || counts[0] > 2 * (counts[1] + 2L * entries.size())) {
+                compact(path, expiredBefore, counts[0]);
+            }
+        } catch (IOException e) {
+            throw new SendMoneyException("Failed to open transfer journal " + path, e);
+        }
+        logRecovery(path);
+
+        flusher = new Thread(this::flushLoop, "journal-flush");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * @return a journal that records nothing
+     */
+    public static TransferJournal disabled() {
+        return new TransferJournal("", 0);
+    }
+
+    public Recovery recovery(String transferId) {
+        Entry entry = entries.get(transferId);
+        if (entry != null) {
+            return entry.step2Submitted || inDoubt.contains(transferId) ? Recovery.IN_DOUBT : Recovery.RESEND;
+        }
+        if (done.contains(transferId)) {
+            return Recovery.DONE;
+        }
+        if (inDoubt.contains(transferId)) {
+            return Recovery.IN_DOUBT;
+        }
+        return failed.contains(transferId) ? Recovery.RESEND : Recovery.NEW;
+    }
+
+    /**
+     * Records the state and waits until it is on the disk.
+     */
+    public void record(String transferId, JournalState state) {
+        recordAll(Collections.singletonList(transferId), state);
+    }
+
+    /**
+     * Records the same state of all transfers and waits once until all records are on the disk.
+     */
+    public void recordAll(Collection<String> transferIds, JournalState state) {
+        if (channel == null || transferIds.isEmpty()) {
+            return;
+        }
+
+        long timestamp = clock.getAsLong();
+        long sequence;
+        synchronized (lock) {
+            if (closed) {
+                throw new SendMoneyException("Transfer journal is closed");
+            }
+            for (String transferId : transferIds) {
+                append(transferId, state, timestamp);
+            }
+            sequence = appended;
+            lock.notifyAll();
+        }
+        awaitForced(sequence);
+    }
+
+    /**
+     * Writes the remaining records to the disk and closes the file.
+     */
+    @Override
+    public void close() {
+        if (channel == null) {
+            return;
+        }
+        synchronized (lock) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            lock.notifyAll();
+        }
+        try {
+            flusher.join();
+            channel.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            log.warn("Failed to close transfer journal", e);
+        }
+    }
+
+    private void append(String transferId, JournalState state, long timestamp) {
+        byte[] id = transferId.getBytes(StandardCharsets.UTF_8);
+        int length = FIXED_PAYLOAD_SIZE + id.length;
+        if (chunk.remaining() < HEADER_SIZE + length) {
+            nextChunk();
+        }
+
+        int start = chunk.position();
+        chunk.position(start + HEADER_SIZE);
+        chunk.put((byte) state.ordinal());
+        chunk.putLong(timestamp);
+        chunk.put(id);
+        chunk.putInt(start, length);
+        chunk.putInt(start + 4, crc(chunk, start + HEADER_SIZE, length));
+
+        apply(transferId, state);
+        appended++;
+    }
+
+    /*
+     * The flusher only forces the current chunk, so the previous one is forced before it is left.
+     */
+    private void nextChunk() {
+        chunk.force();
+        try {
+            map(chunkStart + CHUNK_SIZE);
+        } catch (IOException e) {
+            throw new SendMoneyException("Failed to extend transfer journal", e);
+        }
+    }
+
+    /*
+     * The waiters depend on the flusher, so it ignores interrupts until the journal is closed.
+     * When forcing fails, the waiters are failed instead of being left waiting.
+     */
+    private void flushLoop() {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                long target;
+                MappedByteBuffer toForce;
+                synchronized (lock) {
+                    while (forced == appended && !closed) {
+                        try {
+                            lock.wait();
+                        } catch (InterruptedException e) {
+                            interrupted = true;
+                        }
+                    }
+                    if (forced == appended) {
+                        return;
+                    }
+                    target = appended;
+                    toForce = chunk;
+                }
+                toForce.force();
+                synchronized (lock) {
+                    forced = Math.max(forced, target);
+                    lock.notifyAll();
+                }
+            }
+        } catch (RuntimeException e) {
+            log.error("Failed to write transfer journal", e);
+            synchronized (lock) {
+                flushFailure = e;
+                lock.notifyAll();
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void awaitForced(long sequence) {
+        synchronized (lock) {
+            while (forced < sequence) {
+                if (flushFailure != null) {
+                    throw new SendMoneyException("Failed to write transfer journal", flushFailure);
+                }
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new SendMoneyException("Interrupted while waiting for the transfer journal", e);
+                }
+            }
+        }
+    }
+
+    /*
+     * Passes every record of the file to the consumer and leaves the current chunk at the end of the records.
+     */
+    private void recover(RecordConsumer consumer) throws IOException {
+        long fileSize = channel.size();
+        map(0);
+        while (true) {
+            if (readRecord(consumer)) {
+                continue;
+            }
+            boolean atChunkTail = chunk.position() > 0;
+            long next = chunkStart + CHUNK_SIZE;
+            if (!atChunkTail || next >= fileSize || !startsWithRecord(next)) {
+                return;
+            }
+            map(next);
+        }
+    }
+
+    private boolean startsWithRecord(long position) throws IOException {
+        MappedByteBuffer next = channel.map(FileChannel.MapMode.READ_ONLY, position, HEADER_SIZE + FIXED_PAYLOAD_SIZE);
+        int length = next.getInt(0);
+        return length >= FIXED_PAYLOAD_SIZE && length <= CHUNK_SIZE - HEADER_SIZE;
+    }
+
+    /*
+     * Reads the record at the current position. Leaves the position at the record when it is empty or corrupted.
+     */
+    private boolean readRecord(RecordConsumer consumer) {
+        int start = chunk.position();
+        if (chunk.remaining() < HEADER_SIZE + FIXED_PAYLOAD_SIZE) {
+            return false;
+        }
+        int length = chunk.getInt(start);
+        if (length < FIXED_PAYLOAD_SIZE || length > chunk.remaining() - HEADER_SIZE
+                || chunk.getInt(start + 4) != crc(chunk, start + HEADER_SIZE, length)) {
+            return false;
+        }
+
+        int stateIndex = chunk.get(start + HEADER_SIZE);
+        if (stateIndex < 0 || stateIndex >= STATES.length) {
+            return false;
+        }
+        long timestamp = chunk.getLong(start + HEADER_SIZE + 1);
+        byte[] id = new byte[length - FIXED_PAYLOAD_SIZE];
+        chunk.position(start + HEADER_SIZE + FIXED_PAYLOAD_SIZE);
+        chunk.get(id);
+        consumer.accept(new String(id, StandardCharsets.UTF_8), STATES[stateIndex], timestamp);
+        return true;
+    }
+
+    /*
+     * Copies the final records younger than the retention, preceded by the step 2 record of a failure in doubt,
+     * and a record per transfer in progress to a new file that replaces the journal. The state is then read
+     * from the new file.
+     */
+    private void compact(Path path, long expiredBefore, long records) throws IOException {
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        RecordWriter writer;
+        try (FileChannel out = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            writer = new RecordWriter(out);
+            recover((transferId, state, timestamp) -> {
+                if (!isFinal(state) || timestamp < expiredBefore) {
+                    return;
+                }
+                if (state == JournalState.FAILED && inDoubt.contains(transferId)) {
+                    writer.write(transferId, JournalState.STEP2_SUBMITTED, timestamp);
+                }
+                writer.write(transferId, state, timestamp);
+            });
+            long now = clock.getAsLong();
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                if (entry.getValue().step2Submitted && entry.getValue().state != JournalState.STEP2_SUBMITTED) {
+                    writer.write(entry.getKey(), JournalState.STEP2_SUBMITTED, now);
+                }
+                writer.write(entry.getKey(), entry.getValue().state, now);
+            }
+            out.force(true);
+        }
+        channel.close();
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        entries.clear();
+        done.clear();
+        failed.clear();
+        inDoubt.clear();
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        recover(this::replay);
+        log.info("Compacted transfer journal {} from {} records to {}", path, records, writer.count);
+    }
+
+    private void map(long start) throws IOException {
+        chunk = channel.map(FileChannel.MapMode.READ_WRITE, start, CHUNK_SIZE);
+        chunkStart = start;
+    }
+
+    private void replay(String transferId, JournalState state, long timestamp) {
+        apply(transferId, state);
+    }
+
+    /*
+     * A finished transfer is added to its set before its entry is removed, so it is never reported as new.
+     */
+    private void apply(String transferId, JournalState state) {
+        if (state == JournalState.DONE) {
+            done.add(transferId);
+            entries.remove(transferId);
+            return;
+        }
+        if (state == JournalState.FAILED) {
+            Entry entry = entries.get(transferId);
+            if (entry != null && entry.step2Submitted) {
+                inDoubt.add(transferId);
+            } else {
+                failed.add(transferId);
+            }
+            entries.remove(transferId);
+            return;
+        }
+        Entry entry = entries.computeIfAbsent(transferId, id -> new Entry());
+        entry.state = state;
+        if (state == JournalState.STEP2_SUBMITTED) {
+            entry.step2Submitted = true;
+        }
+    }
+
+    private static boolean isFinal(JournalState state) {
+        return state == JournalState.DONE || state == JournalState.FAILED;
+    }
+
+    private void logRecovery(Path path) {
+        log.info("Transfer journal {}: {} transfers in progress, {} done, {} failed", path, entries.size(), done.size(),
+                failed.size() + inDoubt.size());
+        entries.keySet().stream()
+                .filter(id -> recovery(id) == Recovery.IN_DOUBT)
+                .forEach(id -> log.warn("Transfer {} may have been sent before the stop. Check it manually", id));
+        inDoubt.stream()
+                .filter(id -> !entries.containsKey(id) && !done.contains(id))
+                .forEach(id -> log.warn("Transfer {} failed after step 2 was sent. Check it manually", id));
+    }
+
+    private static int crc(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer payload = buffer.duplicate();
+        payload.position(offset);
+        payload.limit(offset + length);
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private interface RecordConsumer {
+        void accept(String transferId, JournalState state, long timestamp);
+    }
+
+    /*
+     * Appends records to a file the way the journal does, a record that does not fit the rest of the chunk
+     * starts the next one.
+     */
+    private static final class RecordWriter {
+
+        private final FileChannel channel;
+        private long position;
+        private long count;
+
+        private RecordWriter(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        private void write(String transferId, JournalState state, long timestamp) {
+            byte[] id = transferId.getBytes(StandardCharsets.UTF_8);
+            int length = FIXED_PAYLOAD_SIZE + id.length;
+            long chunkRemaining = CHUNK_SIZE - position % CHUNK_SIZE;
+            if (chunkRemaining < HEADER_SIZE + length) {
+                position += chunkRemaining;
+            }
+            ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + length);
+            record.putInt(length).putInt(0).put((byte) state.ordinal()).putLong(timestamp).put(id);
+            record.putInt(4, crc(record, HEADER_SIZE, length));
+            record.flip();
+            try {
+                while (record.hasRemaining()) {
+                    position += channel.write(record, position);
+                }
+                count++;
+            } catch (IOException e) {
+                throw new SendMoneyException("Failed to write transfer journal", e);
+            }
+        }
+    }
+
+    private static class Entry {
+        private volatile JournalState state;
+        private volatile boolean step2Submitted;
+    }
+}
@@ -0,0 +1,166 @@
+package io.github.bcherniakh.sendmoney.limit;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.github.bcherniakh.sendmoney.exception.SendMoneyException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Named;
+import java.util.function.LongSupplier;
+
+/**
+ * Limits the number of transfers sent to the site at the same time by the latency the site answers with.
+ * More transfers than the site can serve only queue up on its side, so every transfer gets slower
+ * and the waits of the pages time out one after another.
+ * <p>
+ * The limit grows additively and shrinks multiplicatively (AIMD). A transfer finished in less than
+ * {@code tolerance} times the baseline latency raises the limit by one per limit transfers, so by about one
+ * per round of the concurrent transfers. A slower transfer lowers it by {@link #SLOW_BACKOFF},
+ * a timed out one by {@link #TIMEOUT_BACKOFF}. Transfers started before the last decrease do not lower it again,
+ * so a round of slow transfers backs off once. The limit is raised only after the transfers reached it:
+ * transfers below the limit say nothing about the site at the limit.
+ * <p>
+ * The baseline is the lowest transfer latency seen. It slowly moves up to the recent latencies,
+ * so a site that became slower for good is not taken for an overloaded one.
+ */
+@Singleton
+public class ConcurrencyLimiter {
+
+    static final double SLOW_BACKOFF = 0.9;
+    static final double TIMEOUT_BACKOFF = 0.5;
+    private static final double BASELINE_DRIFT = 0.01;
+    private static final int MIN_LIMIT = 1;
+
+    private Logger log = LoggerFactory.getLogger(ConcurrencyLimiter.class);
+
+    private final boolean enabled;
+    private final double tolerance;
+    private final LongSupplier nanoClock;
+
+    private double limit;
+    private int inFlight;
+    private boolean limitReached;
+    private long baselineNanos = Long.MAX_VALUE;
+    private long decreasedAt;
+
+    /**
+     * @param enabled   when false every transfer is let through right away
+     * @param initial   limit to start with
+     * @param tolerance latency over the baseline that is still taken as a site that keeps up
+     */
+    @Inject
+    public ConcurrencyLimiter(@Named("limiter.enabled") boolean enabled,
+                              @Named("limiter.initial") int initial,
+                              @Named("limiter.latency.tolerance") double tolerance) {
+        this(enabled, initial, tolerance, System::nanoTime);
+    }
+
+    ConcurrencyLimiter(boolean enabled, int initial, double tolerance, LongSupplier nanoClock) {
+        this.enabled = enabled;
+        this.limit = Math.max(MIN_LIMIT, initial);
+        this.tolerance = tolerance;
+        this.nanoClock = nanoClock;
+        this.decreasedAt = nanoClock.getAsLong();
+    }
+
+    /**
+     * @return a limiter that never waits
+     */
+    public static ConcurrencyLimiter disabled() {
+        return new ConcurrencyLimiter(false, MIN_LIMIT, 1);
+    }
+
+    /**
+     * Waits until a transfer can be sent. Every call must be followed by one of
+     * {@link #onSuccess(long)}, {@link #onTimeout(long)} or {@link #onIgnored()}.
+     *
+     * @return the time the transfer started at
+     */
+    public synchronized long acquire() {
+        while (enabled && inFlight >= (int) limit) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new SendMoneyException("Interrupted while waiting for the concurrency limit", e);
+            }
+        }
+        inFlight++;
+        if (inFlight >= (int) limit) {
+            limitReached = true;
+        }
+        return nanoClock.getAsLong();
+    }
+
+    /**
+     * @param startedAt the time {@link #acquire()} returned
+     */
+    public synchronized void onSuccess(long startedAt) {
+        long latencyNanos = nanoClock.getAsLong() - startedAt;
+        inFlight--;
+        if (baselineNanos == Long.MAX_VALUE || latencyNanos < baselineNanos) {
+            baselineNanos = latencyNanos;
+        } else {
+            baselineNanos += (long) ((latencyNanos - baselineNanos) * BASELINE_DRIFT);
+        }
+
+        if (latencyNanos > baselineNanos * tolerance) {
+            decrease(startedAt, SLOW_BACKOFF);
+        } else if (limitReached) {
+            setLimit(limit + 1 / limit);
+        }
+        notifyAll();
+    }
+
+    /**
+     * A page wait of the transfer timed out.
+     *
+     * @param startedAt the time {@link #acquire()} returned
+     */
+    public synchronized void onTimeout(long startedAt) {
+        inFlight--;
+        decrease(startedAt, TIMEOUT_BACKOFF);
+        notifyAll();
+    }
+
+    /**
+     * The transfer failed for a reason that does not tell about the site load.
+     */
+    public synchronized void onIgnored() {
+        inFlight--;
+        notifyAll();
+    }
+
+    /**
+     * @return number of transfers that can be sent at the same time now
+     */
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    private void decrease(long startedAt, double backoff) {
+        if (startedAt - decreasedAt < 0) {
+            return;
+        }
+        decreasedAt = nanoClock.getAsLong();
+        setLimit(limit * backoff);
+    }
+
+    /*
+     * A new limit has to be reached again before it is raised further.
+     */
+    private void setLimit(double newLimit) {
+        int previous = (int) limit;
+        limit = Math.max(MIN_LIMIT, newLimit);
+        if ((int) limit != previous) {
+            limitReached = inFlight >= (int) limit;
+            log.debug("Concurrency limit {} -> {}. Baseline latency {} ms",
+                    previous, (int) limit, baselineNanos / 1_000_000);
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package io.github.bcherniakh.sendmoney.limit;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket kept as a single number, the time the bucket is full again (generic cell rate algorithm).
+ * Taking a token moves the time one token interval further, so the bucket is updated with one
+ * compare-and-set and never locks.
+ * <p>
+ * A token is reserved even when the bucket is empty: the caller waits until the reserved token is there.
+ */
+final class TokenBucket {
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final AtomicLong fullAt;
+
+    /**
+     * @param intervalNanos time a token takes to come back
+     * @param burst         number of tokens the bucket holds
+     * @param now           the bucket starts full at this time
+     */
+    TokenBucket(long intervalNanos, int burst, long now) {
+        this.intervalNanos = intervalNanos;
+        this.burstNanos = intervalNanos * Math.max(1, burst);
+        this.fullAt = new AtomicLong(now);
+    }
+
+    /**
+     * Takes a token.
+     *
+     * @return nanoseconds to wait for the token, 0 when it is in the bucket
+     */
+    long reserve(long now) {
+        while (true) {
+            long current = fullAt.get();
+            long next = (current - now < 0 ? now : current) + intervalNanos;
+            if (fullAt.compareAndSet(current, next)) {
+                return Math.max(0, next - now - burstNanos);
+            }
+        }
+    }
+
+    /**
+     * @return whether the bucket has been full for the given time, so it is no different from a new one
+     */
+    boolean isIdle(long now, long idleNanos) {
+        return now - fullAt.get() >= idleNanos;
+    }
+}
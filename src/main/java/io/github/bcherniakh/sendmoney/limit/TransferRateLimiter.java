@@ -0,0 +1,130 @@
+package io.github.bcherniakh.sendmoney.limit;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.github.bcherniakh.sendmoney.domain.Card;
+import io.github.bcherniakh.sendmoney.domain.Transfer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Named;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Spaces the transfers of every sender card and of all senders together by their rates.
+ * A transfer takes a token of its sender bucket and then one of the global bucket for the time the sender token
+ * is there. Taking a token never blocks: {@link #reserve(Transfer)} returns the time the transfer has to wait,
+ * so the caller can put the transfer aside instead of keeping a thread asleep. The global tokens are taken
+ * in the order of the transfers, one taken ahead for a waiting sender is not used by a later transfer.
+ * <p>
+ * The buckets are lock-free, see {@link TokenBucket}, and the sender buckets are kept in a concurrent map
+ * by the card number. A sender bucket full for {@link #IDLE_NANOS} is removed, a new one is the same.
+ * Removed buckets are looked for at most once in {@link #SWEEP_INTERVAL_NANOS}, by the transfer that comes first.
+ */
+@Singleton
+public class TransferRateLimiter {
+
+    static final long IDLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+    static final long SWEEP_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(30);
+    private static final long MINUTE_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private Logger log = LoggerFactory.getLogger(TransferRateLimiter.class);
+
+    private final Map<String, TokenBucket> senderBuckets = new ConcurrentHashMap<>();
+    private final long senderIntervalNanos;
+    private final int senderBurst;
+    private final TokenBucket globalBucket;
+    private final LongSupplier nanoClock;
+    private final AtomicLong sweptAt;
+
+    /**
+     * @param senderPerMinute transfers of a sender card per minute. 0 - no limit
+     * @param senderBurst     transfers of a sender card sent without waiting after a pause
+     * @param globalPerMinute transfers of all senders per minute. 0 - no limit
+     * @param globalBurst     transfers of all senders sent without waiting after a pause
+     */
+    @Inject
+    public TransferRateLimiter(@Named("rate.sender.per.minute") double senderPerMinute,
+                               @Named("rate.sender.burst") int senderBurst,
+                               @Named("rate.global.per.minute") double globalPerMinute,
+                               @Named("rate.global.burst") int globalBurst) {
+        this(senderPerMinute, senderBurst, globalPerMinute, globalBurst, System::nanoTime);
+    }
+
+    TransferRateLimiter(double senderPerMinute, int senderBurst, double globalPerMinute, int globalBurst,
+                        LongSupplier nanoClock) {
+        long now = nanoClock.getAsLong();
+        this.senderIntervalNanos = interval(senderPerMinute);
+        this.senderBurst = senderBurst;
+        this.globalBucket = globalPerMinute > 0 ? new TokenBucket(interval(globalPerMinute), globalBurst, now) : null;
+        this.nanoClock = nanoClock;
+        this.sweptAt = new AtomicLong(now);
+    }
+
+    /**
+     * @return a limiter that never waits
+     */
+    public static TransferRateLimiter unlimited() {
+        return new TransferRateLimiter(0, 1, 0, 1);
+    }
+
+    /**
+     * Takes the tokens of the transfer. A transfer without a sender card number takes only the global token.
+     *
+     * @return nanoseconds until the sender and the site can take the transfer, 0 when they can now
+     */
+    public long reserve(Transfer transfer) {
+        Card sender = transfer.getSender();
+        long senderWait = 0;
+        if (senderIntervalNanos > 0 && sender != null && sender.getNumber() != null) {
+            senderWait = reserveSender(sender.getNumber());
+        }
+        return senderWait + reserveGlobal(senderWait);
+    }
+
+    /**
+     * @return nanoseconds to wait for the token of the sender
+     */
+    long reserveSender(String senderCardNumber) {
+        long now = nanoClock.getAsLong();
+        sweepIdle(now);
+        return senderBuckets.computeIfAbsent(senderCardNumber, card -> new TokenBucket(senderIntervalNanos, senderBurst, now))
+                .reserve(now);
+    }
+
+    /**
+     * @param afterNanos the token is taken for this time from now
+     * @return nanoseconds to wait for the global token after that time
+     */
+    long reserveGlobal(long afterNanos) {
+        return globalBucket == null ? 0 : globalBucket.reserve(nanoClock.getAsLong() + afterNanos);
+    }
+
+    /**
+     * @return number of senders with a bucket
+     */
+    int senderCount() {
+        return senderBuckets.size();
+    }
+
+    /*
+     * A bucket taken by a transfer while it is removed lets at most one more burst of the sender through.
+     */
+    private void sweepIdle(long now) {
+        long last = sweptAt.get();
+        if (now - last < SWEEP_INTERVAL_NANOS || !sweptAt.compareAndSet(last, now)) {
+            return;
+        }
+        int before = senderBuckets.size();
+        senderBuckets.values().removeIf(bucket -> bucket.isIdle(now, IDLE_NANOS));
+        log.debug("Removed {} idle sender buckets of {}", before - senderBuckets.size(), before);
+    }
+
+    private static long interval(double perMinute) {
+        return perMinute > 0 ? (long) (MINUTE_NANOS / perMinute) : 0;
+    }
+}
@@ -0,0 +1,136 @@
+package io.github.bcherniakh.sendmoney.logging;
+
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.config.plugins.Plugin;
+import org.apache.logging.log4j.core.pattern.ConverterKeys;
+import org.apache.logging.log4j.core.pattern.LogEventPatternConverter;
+import org.apache.logging.log4j.core.pattern.PatternConverter;
+import org.apache.logging.log4j.message.Message;
+import org.apache.logging.log4j.util.StringBuilderFormattable;
+
+/**
+ * Writes the log message with the card data masked. Use {@code %maskedMsg} instead of {@code %msg} in a pattern.
+ * <ul>
+ * <li>Runs of 13-19 digits, optionally grouped by dashes or spaces, are card numbers.
+ * All digits but the last 4 are replaced by {@code *}</li>
+ * <li>3-4 digits shortly after the word "cvv" are a security code and are replaced completely</li>
+ * </ul>
+ * The message is formatted into the output buffer of the layout and masked in place,
+ * so the unmasked text never becomes a {@link String} and no garbage is created.
+ */
+@Plugin(name = "MaskingMessageConverter", category = PatternConverter.CATEGORY)
+@ConverterKeys({"maskedMsg", "maskedMessage"})
+public final class MaskingMessageConverter extends LogEventPatternConverter {
+
+    private static final int MIN_CARD_DIGITS = 13;
+    private static final int MAX_CARD_DIGITS = 19;
+    private static final int VISIBLE_CARD_DIGITS = 4;
+    private static final int MAX_GAP_AFTER_CVV = 12;
+    private static final char MASK = '*';
+
+    private static final MaskingMessageConverter INSTANCE = new MaskingMessageConverter();
+
+    private MaskingMessageConverter() {
+        super("MaskedMessage", "message");
+    }
+
+    public static MaskingMessageConverter newInstance(String[] options) {
+        return INSTANCE;
+    }
+
+    @Override
+    public void format(LogEvent event, StringBuilder toAppendTo) {
+        int start = toAppendTo.length();
+        Message message = event.getMessage();
+        if (message instanceof StringBuilderFormattable) {
+            ((StringBuilderFormattable) message).formatTo(toAppendTo);
+        } else if (message != null) {
+            toAppendTo.append(message.getFormattedMessage());
+        }
+        mask(toAppendTo, start);
+    }
+
+    /**
+     * Masks the card numbers and security codes found in the text after the given position.
+     */
+    static void mask(StringBuilder text, int from) {
+        maskCardNumbers(text, from);
+        maskSecurityCodes(text, from);
+    }
+
+    private static void maskCardNumbers(StringBuilder text, int from) {
+        int i = from;
+        while (i < text.length()) {
+            if (!isDigit(text, i)) {
+                i++;
+                continue;
+            }
+            int digits = 0;
+            int end = i;
+            while (end < text.length()) {
+                if (isDigit(text, end)) {
+                    digits++;
+                    end++;
+                } else if (isSeparator(text.charAt(end)) && isDigit(text, end + 1)) {
+                    end++;
+                } else {
+                    break;
+                }
+            }
+            if (digits >= MIN_CARD_DIGITS && digits <= MAX_CARD_DIGITS) {
+                int toMask = digits - VISIBLE_CARD_DIGITS;
+                for (int j = i; j < end && toMask > 0; j++) {
+                    if (isDigit(text, j)) {
+                        text.setCharAt(j, MASK);
+                        toMask--;
+                    }
+                }
+            }
+            i = end;
+        }
+    }
+
+    private static void maskSecurityCodes(StringBuilder text, int from) {
+        for (int i = from; i + 3 <= text.length(); i++) {
+            if (!isCvv(text, i)) {
+                continue;
+            }
+            int position = i + 3;
+            if (position < text.length() && text.charAt(position) == '2') {
+                position++;
+            }
+            int gapEnd = Math.min(text.length(), position + MAX_GAP_AFTER_CVV);
+            while (position < gapEnd && !isDigit(text, position)) {
+                position++;
+            }
+            int digitsEnd = position;
+            while (isDigit(text, digitsEnd)) {
+                digitsEnd++;
+            }
+            int digits = digitsEnd - position;
+            if (digits == 3 || digits == 4) {
+                for (int j = position; j < digitsEnd; j++) {
+                    text.setCharAt(j, MASK);
+                }
+            }
+        }
+    }
+
+    private static boolean isCvv(StringBuilder text, int at) {
+        return Character.toLowerCase(text.charAt(at)) == 'c'
+                && Character.toLowerCase(text.charAt(at + 1)) == 'v'
+                && Character.toLowerCase(text.charAt(at + 2)) == 'v';
+    }
+
+    private static boolean isDigit(StringBuilder text, int at) {
+        if (at >= text.length()) {
+            return false;
+        }
+        char c = text.charAt(at);
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == '-' || c == ' ';
+    }
+}
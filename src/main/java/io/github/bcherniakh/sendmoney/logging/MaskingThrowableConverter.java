@@ -0,0 +1,37 @@
+package io.github.bcherniakh.sendmoney.logging;
+
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.config.Configuration;
+import org.apache.logging.log4j.core.config.plugins.Plugin;
+import org.apache.logging.log4j.core.pattern.ConverterKeys;
+import org.apache.logging.log4j.core.pattern.ExtendedThrowablePatternConverter;
+import org.apache.logging.log4j.core.pattern.PatternConverter;
+import org.apache.logging.log4j.core.pattern.ThrowablePatternConverter;
+
+/**
+ * Writes the stack trace of the logged exception like {@code %xEx} with the card data masked the same way
+ * as {@link MaskingMessageConverter} does. Use {@code %maskedEx} in a pattern. A pattern without a throwable
+ * converter writes the exceptions unmasked.
+ */
+@Plugin(name = "MaskingThrowableConverter", category = PatternConverter.CATEGORY)
+@ConverterKeys({"maskedEx", "maskedThrowable"})
+public final class MaskingThrowableConverter extends ThrowablePatternConverter {
+
+    private final ExtendedThrowablePatternConverter delegate;
+
+    private MaskingThrowableConverter(Configuration config, String[] options) {
+        super("MaskedThrowable", "throwable", options, config);
+        this.delegate = ExtendedThrowablePatternConverter.newInstance(config, options);
+    }
+
+    public static MaskingThrowableConverter newInstance(Configuration config, String[] options) {
+        return new MaskingThrowableConverter(config, options);
+    }
+
+    @Override
+    public void format(LogEvent event, StringBuilder toAppendTo) {
+        int start = toAppendTo.length();
+        delegate.format(event, toAppendTo);
+        MaskingMessageConverter.mask(toAppendTo, start);
+    }
+}
@@ -0,0 +1,75 @@
+package io.github.bcherniakh.sendmoney.metrics;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.github.bcherniakh.sendmoney.exception.SendMoneyException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Named;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Serves the {@link TransferMetrics} in the Prometheus text format on {@code GET /metrics}.
+ */
+@Singleton
+public class MetricsServer implements AutoCloseable {
+
+    static final String METRICS_PATH = "/metrics";
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private Logger log = LoggerFactory.getLogger(MetricsServer.class);
+
+    private final TransferMetrics metrics;
+    private final int port;
+    private HttpServer server;
+
+    /**
+     * @param port port to listen on. 0 disables the endpoint
+     */
+    @Inject
+    public MetricsServer(TransferMetrics metrics, @Named("metrics.port") int port) {
+        this.metrics = metrics;
+        this.port = port;
+    }
+
+    public void start() {
+        if (port == 0) {
+            return;
+        }
+        try {
+            server = HttpServer.create(new InetSocketAddress(port), 0);
+        } catch (IOException e) {
+            throw new SendMoneyException("Failed to listen on port " + port, e);
+        }
+        server.createContext(METRICS_PATH, this::handle);
+        server.start();
+        log.info("Serving metrics on port {}{}", port, METRICS_PATH);
+    }
+
+    @Override
+    public void close() {
+        if (server != null) {
+            server.stop(0);
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        if (!"GET".equals(exchange.getRequestMethod())) {
+            exchange.sendResponseHeaders(405, -1);
+            exchange.close();
+            return;
+        }
+        byte[] bytes = metrics.toPrometheus().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", CONTENT_TYPE);
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package io.github.bcherniakh.sendmoney.metrics;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * Latency percentiles of a transfer step in milliseconds. Cover all transfers since the application start.
+ */
+public class StepStatistics {
+
+    private final String step;
+    private final long count;
+    private final double p50;
+    private final double p90;
+    private final double p99;
+    private final double p999;
+    private final double max;
+
+    @ConstructorProperties({"step", "count", "p50", "p90", "p99", "p999", "max"})
+    public StepStatistics(String step, long count, double p50, double p90, double p99, double p999, double max) {
+        this.step = step;
+        this.count = count;
+        this.p50 = p50;
+        this.p90 = p90;
+        this.p99 = p99;
+        this.p999 = p999;
+        this.max = max;
+    }
+
+    public String getStep() {
+        return step;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getP50() {
+        return p50;
+    }
+
+    public double getP90() {
+        return p90;
+    }
+
+    public double getP99() {
+        return p99;
+    }
+
+    public double getP999() {
+        return p999;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: count %d, p50 %.1f ms, p90 %.1f ms, p99 %.1f ms, max %.1f ms", step, count, p50, p90, p99, max);
+    }
+}
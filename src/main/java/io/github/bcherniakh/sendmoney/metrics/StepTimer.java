@@ -0,0 +1,35 @@
+package io.github.bcherniakh.sendmoney.metrics;
+
+import java.util.function.Supplier;
+
+/**
+ * Records how long the transfer steps take.
+ */
+public interface StepTimer {
+
+    /**
+     * Records nothing. Used by the page objects created without a timer.
+     */
+    StepTimer NONE = (step, nanos) -> {
+    };
+
+    void record(TransferStep step, long nanos);
+
+    default void time(TransferStep step, Runnable action) {
+        long startedAt = System.nanoTime();
+        try {
+            action.run();
+        } finally {
+            record(step, System.nanoTime() - startedAt);
+        }
+    }
+
+    default <T> T timeAndGet(TransferStep step, Supplier<T> action) {
+        long startedAt = System.nanoTime();
+        try {
+            return action.get();
+        } finally {
+            record(step, System.nanoTime() - startedAt);
+        }
+    }
+}
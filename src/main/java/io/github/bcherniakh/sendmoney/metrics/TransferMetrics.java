@@ -0,0 +1,125 @@
+package io.github.bcherniakh.sendmoney.metrics;
+
+import com.google.inject.Singleton;
+import io.github.bcherniakh.sendmoney.exception.SendMoneyException;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histograms of the transfer steps.
+ * <p>
+ * Steps are recorded into HdrHistogram {@link Recorder}s, which are wait-free for the transfer threads.
+ * Readers move the recorded values into the cumulative histograms, so reading does not stop the transfers.
+ * Values are kept with 3 significant digits up to {@link #HIGHEST_TRACKABLE_NANOS}. Longer steps are
+ * recorded as the maximum.
+ */
+@Singleton
+public class TransferMetrics implements StepTimer, TransferMetricsMXBean {
+
+    static final long HIGHEST_TRACKABLE_NANOS = TimeUnit.MINUTES.toNanos(10);
+    private static final int SIGNIFICANT_DIGITS = 3;
+    private static final double NANOS_IN_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+    private static final double NANOS_IN_SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final double[] QUANTILES = {0.5, 0.9, 0.99, 0.999};
+    private static final String OBJECT_NAME = "io.github.bcherniakh.sendmoney:type=TransferMetrics";
+
+    private final Map<TransferStep, Recorder> recorders = new EnumMap<>(TransferStep.class);
+    private final Map<TransferStep, Histogram> totals = new EnumMap<>(TransferStep.class);
+    private final Map<TransferStep, Histogram> intervals = new EnumMap<>(TransferStep.class);
+    private final Map<TransferStep, LongAdder> sums = new EnumMap<>(TransferStep.class);
+
+    public TransferMetrics() {
+        for (TransferStep step : TransferStep.values()) {
+            recorders.put(step, new Recorder(HIGHEST_TRACKABLE_NANOS, SIGNIFICANT_DIGITS));
+            totals.put(step, new Histogram(HIGHEST_TRACKABLE_NANOS, SIGNIFICANT_DIGITS));
+            sums.put(step, new LongAdder());
+        }
+    }
+
+    @Override
+    public void record(TransferStep step, long nanos) {
+        recorders.get(step).recordValue(Math.max(0, Math.min(nanos, HIGHEST_TRACKABLE_NANOS)));
+        sums.get(step).add(nanos);
+    }
+
+    @Override
+    public List<StepStatistics> getSteps() {
+        List<StepStatistics> steps = new ArrayList<>();
+        for (TransferStep step : TransferStep.values()) {
+            Histogram histogram = snapshot(step);
+            if (histogram.getTotalCount() > 0) {
+                steps.add(new StepStatistics(step.name(), histogram.getTotalCount(),
+                        millis(histogram, 50), millis(histogram, 90), millis(histogram, 99), millis(histogram, 99.9),
+                        histogram.getMaxValue() / NANOS_IN_MILLI));
+            }
+        }
+        return steps;
+    }
+
+    /**
+     * Makes the metrics available over JMX as {@value #OBJECT_NAME}.
+     */
+    public void registerMBean() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (!server.isRegistered(name)) {
+                server.registerMBean(this, name);
+            }
+        } catch (JMException e) {
+            throw new SendMoneyException("Failed to register transfer metrics MBean", e);
+        }
+    }
+
+    /**
+     * @return the metrics in the Prometheus text format. Every step is a summary in seconds
+     */
+    public String toPrometheus() {
+        StringBuilder text = new StringBuilder();
+        text.append("# HELP sendmoney_step_seconds Duration of the transfer steps\n");
+        text.append("# TYPE sendmoney_step_seconds summary\n");
+        for (TransferStep step : TransferStep.values()) {
+            Histogram histogram = snapshot(step);
+            String label = step.name().toLowerCase(Locale.ROOT);
+            for (double quantile : QUANTILES) {
+                text.append(format("sendmoney_step_seconds{step=\"%s\",quantile=\"%s\"} %s\n", label, quantile,
+                        histogram.getValueAtPercentile(quantile * 100) / NANOS_IN_SECOND));
+            }
+            text.append(format("sendmoney_step_seconds_sum{step=\"%s\"} %s\n", label,
+                    sums.get(step).sum() / NANOS_IN_SECOND));
+            text.append(format("sendmoney_step_seconds_count{step=\"%s\"} %d\n", label, histogram.getTotalCount()));
+        }
+        return text.toString();
+    }
+
+    /*
+     * Moves the values recorded since the previous snapshot into the cumulative histogram of the step.
+     */
+    private synchronized Histogram snapshot(TransferStep step) {
+        Histogram interval = recorders.get(step).getIntervalHistogram(intervals.get(step));
+        intervals.put(step, interval);
+        Histogram total = totals.get(step);
+        total.add(interval);
+        return total.copy();
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / NANOS_IN_MILLI;
+    }
+
+    private static String format(String pattern, Object... arguments) {
+        return String.format(Locale.ROOT, pattern, arguments);
+    }
+}
@@ -0,0 +1,14 @@
+package io.github.bcherniakh.sendmoney.metrics;
+
+import java.util.List;
+
+/**
+ * JMX view of the {@link TransferMetrics}.
+ */
+public interface TransferMetricsMXBean {
+
+    /**
+     * @return percentiles of every step that was recorded at least once
+     */
+    List<StepStatistics> getSteps();
+}
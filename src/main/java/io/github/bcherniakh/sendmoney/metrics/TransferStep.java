@@ -0,0 +1,31 @@
+package io.github.bcherniakh.sendmoney.metrics;
+
+/**
+ * Timed steps of a browser transfer.
+ */
+public enum TransferStep {
+    PAGE_LOAD,
+    /**
+     * From the start of the step 1 navigation until the page has the elements the transfer needs.
+     * The same as {@link #PAGE_LOAD} with the NORMAL page load strategy.
+     */
+    STEP1_INTERACTIVE,
+    FILL_BY_SCRIPT,
+    FILL_SENDER_CARD,
+    FILL_EXPIRES_DATE,
+    FILL_CVV,
+    FILL_RECEIVER_CARD,
+    FILL_AMOUNT,
+    SEND_BUTTON_WAIT,
+    STEP2_LOAD,
+    /**
+     * From the step 1 send button click until the step 2 page has the elements the transfer needs.
+     */
+    STEP2_INTERACTIVE,
+    FILL_PHONE,
+    FINAL_SUBMIT,
+    /**
+     * The whole successful transfer from opening the page to the final submit.
+     */
+    TRANSFER
+}
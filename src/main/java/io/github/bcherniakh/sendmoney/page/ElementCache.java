@@ -0,0 +1,156 @@
+package io.github.bcherniakh.sendmoney.page;
+
+import io.github.bcherniakh.sendmoney.page.xpath.SiteElement;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Resolves every site element once per page load and reuses the found {@link WebElement}.
+ * When the page re-renders an element and the handle becomes stale, the element is resolved again
+ * and the action is repeated once. Only actions that can be repeated safely are repeated: reads and single
+ * commands, which fail on a stale element before they change it. Typing into several elements is repeated
+ * with every element cleared first.
+ * <p>
+ * Counts resolutions, their total time and cache hits, so the lookup cost of a page can be reported.
+ * Not thread safe: a cache belongs to a single page object.
+ */
+public class ElementCache {
+
+    private Logger log = LoggerFactory.getLogger(ElementCache.class);
+
+    private final WebDriver webDriver;
+    private final Map<SiteElement, WebElement> elements = new HashMap<>();
+    private final Map<SiteElement, List<WebElement>> elementLists = new HashMap<>();
+
+    private int resolveCount;
+    private long resolveNanos;
+    private int hitCount;
+
+    public ElementCache(WebDriver webDriver) {
+        this.webDriver = webDriver;
+    }
+
+    /**
+     * @return the first element matching the locator
+     * @throws org.openqa.selenium.NoSuchElementException when the element is absent
+     */
+    public WebElement find(SiteElement element) {
+        WebElement found = elements.get(element);
+        if (found != null) {
+            hitCount++;
+            return found;
+        }
+        long startedAt = System.nanoTime();
+        found = webDriver.findElement(element.locator());
+        countResolution(element, startedAt);
+        elements.put(element, found);
+        return found;
+    }
+
+    /**
+     * @return all elements matching the locator. Empty when there are none
+     */
+    public List<WebElement> findAll(SiteElement element) {
+        List<WebElement> found = elementLists.get(element);
+        if (found != null) {
+            hitCount++;
+            return found;
+        }
+        long startedAt = System.nanoTime();
+        found = webDriver.findElements(element.locator());
+        countResolution(element, startedAt);
+        elementLists.put(element, found);
+        return found;
+    }
+
+    /**
+     * Performs the action with the element, resolving it again if the cached one is stale.
+     * The action is repeated from the start, so it must be a single command on the element
+     * or begin by clearing what the previous attempt may have changed.
+     */
+    public void use(SiteElement element, Consumer<WebElement> action) {
+        read(element, found -> {
+            action.accept(found);
+            return null;
+        });
+    }
+
+    /**
+     * Reads a value from the element, resolving it again if the cached one is stale.
+     */
+    public <T> T read(SiteElement element, Function<WebElement, T> action) {
+        try {
+            return action.apply(find(element));
+        } catch (StaleElementReferenceException e) {
+            log.debug("Element {} is stale. Resolving it again", element.name());
+            evict(element);
+            return action.apply(find(element));
+        }
+    }
+
+    /**
+     * Types the values into the matching elements in order, resolving them again if any of the cached ones is stale.
+     * The elements typed before the stale one are cleared before the values are typed again.
+     *
+     * @param clearFirst whether to clear every element before typing into it on the first attempt as well
+     */
+    public void typeAll(SiteElement element, List<String> values, boolean clearFirst) {
+        try {
+            typeAll(findAll(element), values, clearFirst);
+        } catch (StaleElementReferenceException e) {
+            log.debug("Elements {} are stale. Resolving them again", element.name());
+            evict(element);
+            typeAll(findAll(element), values, true);
+        }
+    }
+
+    /**
+     * Forgets the element, so the next lookup resolves it again.
+     */
+    public void evict(SiteElement element) {
+        elements.remove(element);
+        elementLists.remove(element);
+    }
+
+    public int getResolveCount() {
+        return resolveCount;
+    }
+
+    public long getResolveNanos() {
+        return resolveNanos;
+    }
+
+    public int getHitCount() {
+        return hitCount;
+    }
+
+    private static void typeAll(List<WebElement> found, List<String> values, boolean clearFirst) {
+        Iterator<String> iterator = values.iterator();
+        for (WebElement input : found) {
+            if (!iterator.hasNext()) {
+                return;
+            }
+            if (clearFirst) {
+                input.clear();
+            }
+            input.sendKeys(iterator.next());
+        }
+    }
+
+    private void countResolution(SiteElement element, long startedAt) {
+        long elapsed = System.nanoTime() - startedAt;
+        resolveCount++;
+        resolveNanos += elapsed;
+        log.trace("Resolved {} by {} in {} us", element.name(), element.locator(), elapsed / 1000);
+    }
+}
@@ -0,0 +1,16 @@
+package io.github.bcherniakh.sendmoney.page;
+
+/**
+ * How {@link SendMoneyPbPage#fillStep1(Step1Form, FillMode)} puts values into the step 1 fields.
+ */
+public enum FillMode {
+    /**
+     * Types every value into its field. One browser round trip per lookup and per field.
+     */
+    KEYSTROKE,
+    /**
+     * Sets all values and fires the input events the page listens to in a single script call.
+     * Falls back to {@link #KEYSTROKE} for the fields the script could not fill.
+     */
+    SCRIPT
+}
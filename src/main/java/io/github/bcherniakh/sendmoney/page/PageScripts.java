@@ -0,0 +1,34 @@
+package io.github.bcherniakh.sendmoney.page;
+
+import io.github.bcherniakh.sendmoney.exception.SendMoneyException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Loads the scripts the page objects run inside the browser. Scripts are kept next to the page classes.
+ */
+final class PageScripts {
+
+    private PageScripts() {
+    }
+
+    static String load(String name) {
+        try (InputStream stream = PageScripts.class.getResourceAsStream(name)) {
+            if (stream == null) {
+                throw new SendMoneyException("Page script " + name + " is missing");
+            }
+            ByteArrayOutputStream script = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = stream.read(buffer)) != -1) {
+                script.write(buffer, 0, read);
+            }
+            return new String(script.toByteArray(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new SendMoneyException("Failed to load page script " + name, e);
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package io.github.bcherniakh.sendmoney.page;
+
+import io.github.bcherniakh.sendmoney.driver.BrowserTab;
+import io.github.bcherniakh.sendmoney.page.xpath.SiteElement;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.support.ui.ExpectedCondition;
+import org.openqa.selenium.support.ui.FluentWait;
+import org.openqa.selenium.support.ui.Wait;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static io.github.bcherniakh.sendmoney.constant.WebConstant.DEFAULT_WAIT_TIMEOUT;
+import static io.github.bcherniakh.sendmoney.constant.WebConstant.READINESS_POLL_INTERVAL_MILLIS;
+import static org.openqa.selenium.support.ui.ExpectedConditions.attributeToBe;
+import static org.openqa.selenium.support.ui.ExpectedConditions.elementToBeClickable;
+
+/**
+ * Waits for the page readiness conditions and continues as soon as they are met.
+ * <p>
+ * Element conditions are watched inside the browser by a {@code MutationObserver}, so the browser
+ * answers right after the DOM change instead of on the next poll. When the script can not be used
+ * the condition is polled with the given {@link Wait}. A {@link BrowserTab} always polls, a script waiting
+ * in the browser would keep it from the other tabs. URL conditions are polled every
+ * {@link io.github.bcherniakh.sendmoney.constant.WebConstant#READINESS_POLL_INTERVAL_MILLIS} ms
+ * because a navigation discards any script waiting on the old page.
+ * <p>
+ * The time between the condition being met in the browser and the wait returning is measured
+ * and available through {@link #getLastReactionMillis()}.
+ */
+public class ReadinessWait {
+
+    private static final String AWAIT_ELEMENT_SCRIPT = PageScripts.load("await-element.js");
+    private static final String PAGE_READY_SCRIPT = PageScripts.load("page-ready.js");
+    private static final String MARK_STALE_SCRIPT = "document.sendMoneyStale = true;";
+    private static final long UNKNOWN_REACTION = -1;
+
+    private Logger log = LoggerFactory.getLogger(ReadinessWait.class);
+
+    private WebDriver webDriver;
+    private Wait<WebDriver> fallbackWait;
+    private long lastReactionMillis = UNKNOWN_REACTION;
+
+    public ReadinessWait(WebDriver webDriver, Wait<WebDriver> fallbackWait) {
+        this.webDriver = webDriver;
+        this.fallbackWait = fallbackWait;
+    }
+
+    /**
+     * Waits until the element is enabled.
+     */
+    public void untilEnabled(SiteElement element) {
+        if (!awaitInBrowser(element, null, null, "enabled")) {
+            fallbackWait.until(elementToBeClickable(element.locator()));
+        }
+    }
+
+    /**
+     * Waits until the attribute of the element has the expected value.
+     */
+    public void untilAttributeEquals(SiteElement element, String attribute, String value) {
+        if (!awaitInBrowser(element, attribute, value, attribute + " to be " + value)) {
+            fallbackWait.until(attributeToBe(element.locator(), attribute, value));
+        }
+    }
+
+    /**
+     * Waits until the current URL ends with the suffix.
+     */
+    public void untilUrlEndsWith(String suffix) {
+        new FluentWait<>(webDriver)
+                .withTimeout(DEFAULT_WAIT_TIMEOUT, TimeUnit.SECONDS)
+                .pollingEvery(READINESS_POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)
+                .until((ExpectedCondition<Boolean>) currentWebDriver -> currentWebDriver.getCurrentUrl().endsWith(suffix));
+        lastReactionMillis = UNKNOWN_REACTION;
+    }
+
+    /**
+     * Waits until the page the browser navigated to has all the elements, and its URL ends with the suffix.
+     * Used with the EAGER and NONE page load strategies, when the navigation returns before the page is loaded.
+     * The page is polled by a single script call per poll. Call {@link #markStale()} before the navigation.
+     *
+     * @param urlSuffix suffix of the page URL or null for any URL
+     * @param elements  elements the page object needs before it starts
+     */
+    public void untilPresent(String urlSuffix, Collection<? extends SiteElement> elements) {
+        List<String> selectors = elements.stream().map(SiteElement::selector).collect(Collectors.toList());
+        new FluentWait<>(webDriver)
+                .withTimeout(DEFAULT_WAIT_TIMEOUT, TimeUnit.SECONDS)
+                .pollingEvery(READINESS_POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS)
+                // A script fails while the browser swaps the documents
+                .ignoring(WebDriverException.class)
+                .until((ExpectedCondition<Boolean>) currentWebDriver -> isPresent(urlSuffix, elements, selectors));
+        lastReactionMillis = UNKNOWN_REACTION;
+    }
+
+    /**
+     * Marks the current page, so {@link #untilPresent(String, Collection)} does not take it for the next one.
+     */
+    public void markStale() {
+        if (!(webDriver instanceof JavascriptExecutor)) {
+            return;
+        }
+        try {
+            ((JavascriptExecutor) webDriver).executeScript(MARK_STALE_SCRIPT);
+        } catch (WebDriverException e) {
+            log.debug("Failed to mark the current page", e);
+        }
+    }
+
+    /**
+     * @return milliseconds between the last condition being met in the browser and the wait returning,
+     * or -1 when it is unknown because the condition was polled
+     */
+    public long getLastReactionMillis() {
+        return lastReactionMillis;
+    }
+
+    private boolean isPresent(String urlSuffix, Collection<? extends SiteElement> elements, List<String> selectors) {
+        if (webDriver instanceof JavascriptExecutor) {
+            return Boolean.TRUE.equals(((JavascriptExecutor) webDriver).executeScript(PAGE_READY_SCRIPT, selectors, urlSuffix));
+        }
+        if (urlSuffix != null && !webDriver.getCurrentUrl().endsWith(urlSuffix)) {
+            return false;
+        }
+        return elements.stream().noneMatch(element -> webDriver.findElements(element.locator()).isEmpty());
+    }
+
+    /*
+     * Returns false when the condition could not be watched in the browser and has to be polled.
+     * Throws TimeoutException when the browser watched it and it was not met in time.
+     */
+    private boolean awaitInBrowser(SiteElement element, String attribute, String value, String condition) {
+        lastReactionMillis = UNKNOWN_REACTION;
+        if (!(webDriver instanceof JavascriptExecutor) || webDriver instanceof BrowserTab) {
+            return false;
+        }
+        Object result;
+        try {
+            result = ((JavascriptExecutor) webDriver).executeAsyncScript(AWAIT_ELEMENT_SCRIPT,
+                    element.selector(), attribute, value, TimeUnit.SECONDS.toMillis(DEFAULT_WAIT_TIMEOUT));
+        } catch (WebDriverException e) {
+            log.debug("Failed to wait for element {} in the browser. Polling it", element.name(), e);
+            return false;
+        }
+        if (!(result instanceof Map)) {
+            return false;
+        }
+        if (!Boolean.TRUE.equals(((Map<?, ?>) result).get("ready"))) {
+            throw new TimeoutException("Waited " + DEFAULT_WAIT_TIMEOUT + " seconds for " + element.name() + " " + condition);
+        }
+        long readyAt = ((Number) ((Map<?, ?>) result).get("readyAt")).longValue();
+        lastReactionMillis = Math.max(0, System.currentTimeMillis() - readyAt);
+        log.debug("Element {} is ready. Reacted in {} ms", element.name(), lastReactionMillis);
+        return true;
+    }
+}
@@ -1,24 +1,31 @@
 package io.github.bcherniakh.sendmoney.page;
 
 import io.github.bcherniakh.sendmoney.exception.InvalidInputException;
+import io.github.bcherniakh.sendmoney.metrics.StepTimer;
+import io.github.bcherniakh.sendmoney.page.xpath.SiteElement;
+import io.github.bcherniakh.sendmoney.page.xpath.SiteElements.MainPage;
+import io.github.bcherniakh.sendmoney.util.CardNumbers;
 import io.github.bcherniakh.sendmoney.util.Validation;
-import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.PageLoadStrategy;
 import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.support.ui.Select;
 import org.openqa.selenium.support.ui.Wait;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Arrays;
-import java.util.Iterator;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static io.github.bcherniakh.sendmoney.constant.WebConstant.DEFAULT_WAIT_TIMEOUT;
+import static io.github.bcherniakh.sendmoney.metrics.TransferStep.*;
 import static io.github.bcherniakh.sendmoney.page.xpath.SiteElements.MainPage.*;
-import static java.lang.String.format;
-import static org.openqa.selenium.support.ui.ExpectedConditions.attributeToBe;
-import static org.openqa.selenium.support.ui.ExpectedConditions.elementToBeClickable;
 
 /**
  * Represents a main web page of Privatbank SendMoney system.
@@ -31,18 +38,96 @@ public class SendMoneyPbPage {
     private static final String SENDMONEY_URL = "https://sendmoney.privatbank.ua/ua/";
 
     private static final String ACTIVE_SEND_BUTTON_CLASS = "content__buttom send_money_step_1";
-    private static final String ERROR_NOT_FOUR_BLOCKS_PATTERN = "Failed to split card number to 4 blocks. Created blocks %d blocks";
-    private static final String ERROR_INVALID_BLOCK_LENGTH = "Each card number block should consist of 4 symbols. Symbols in block %d. Block %s";
+    private static final String FILL_STEP1_SCRIPT = PageScripts.load("fill-step1.js");
+    private static final Set<MainPage> STEP1_FIELDS = EnumSet.of(SENDER_CARD_NUMBER, SENDER_CARD_EXPIRES_DATE_MONTH,
+            SENDER_CARD_EXPIRES_DATE_YEAR, SENDER_CARD_CVV2, RECEIVER_CARD_NUMBER, AMOUNT);
+    /**
+     * The page is usable as soon as the step 1 fields and the send button are there, whatever else it loads.
+     */
+    private static final Set<MainPage> READY_ELEMENTS = Collections.unmodifiableSet(EnumSet.of(SENDER_CARD_NUMBER,
+            SENDER_CARD_EXPIRES_DATE_MONTH, SENDER_CARD_EXPIRES_DATE_YEAR, SENDER_CARD_CVV2, RECEIVER_CARD_NUMBER,
+            AMOUNT, SEND_BUTTON));
 
     private Logger log = LoggerFactory.getLogger(SendMoneyPbPage.class);
 
     private WebDriver webDriver;
     private Wait<WebDriver> wait;
+    private ReadinessWait readinessWait;
+    private ElementCache elements;
+    private StepTimer timer;
+    private PageLoadStrategy pageLoadStrategy;
 
     public  SendMoneyPbPage(WebDriver webDriver, Wait<WebDriver> wait) {
+        this(webDriver, wait, SENDMONEY_URL, StepTimer.NONE, PageLoadStrategy.NORMAL);
+    }
+
+    /**
+     * Opens the page at the given address, useful to point the automation to a copy of the site,
+     * and records the duration of every step of this and the step 2 page.
+     * The browser is expected to be launched with the page load strategy.
+     * With EAGER and NONE the browser returns before the page is loaded, so the page continues
+     * as soon as it has the step 1 fields and the send button. The step 2 page does the same with its elements.
+     */
+    public SendMoneyPbPage(WebDriver webDriver, Wait<WebDriver> wait, String sendMoneyUrl, StepTimer timer,
+                           PageLoadStrategy pageLoadStrategy) {
         this.webDriver = webDriver;
         this.wait = wait;
-        webDriver.get(SENDMONEY_URL);
+        this.readinessWait = new ReadinessWait(webDriver, wait);
+        this.elements = new ElementCache(webDriver);
+        this.timer = timer;
+        this.pageLoadStrategy = pageLoadStrategy;
+
+        long startedAt = System.nanoTime();
+        if (pageLoadStrategy != PageLoadStrategy.NORMAL) {
+            readinessWait.markStale();
+        }
+        timer.time(PAGE_LOAD, () -> webDriver.get(sendMoneyUrl));
+        if (pageLoadStrategy != PageLoadStrategy.NORMAL) {
+            readinessWait.untilPresent(null, READY_ELEMENTS);
+        }
+        timer.record(STEP1_INTERACTIVE, System.nanoTime() - startedAt);
+    }
+
+    /**
+     * Fills all step 1 fields.
+     * <p>
+     * With {@link FillMode#SCRIPT} the fields are filled by a single script call. The fields the script
+     * could not fill, for example the amount that is still disabled, are typed in the same way as
+     * with {@link FillMode#KEYSTROKE}. They are cleared first, as the script may have left a part of the value.
+     *
+     * @param form values of the fields in the formats the separate fill methods accept
+     * @param mode how the values are put into the fields
+     */
+    public void fillStep1(Step1Form form, FillMode mode) {
+        boolean scripted = mode == FillMode.SCRIPT && webDriver instanceof JavascriptExecutor;
+        Set<MainPage> unfilled = scripted
+                ? timer.timeAndGet(FILL_BY_SCRIPT, () -> fillStep1WithScript(form))
+                : STEP1_FIELDS;
+
+        if (unfilled.contains(SENDER_CARD_NUMBER)) {
+            Validation.notNull(form.getSenderCardNumber(), () -> new InvalidInputException("Sender card number can not be null"));
+            timer.time(FILL_SENDER_CARD, () -> fillCardNumber(SENDER_CARD_NUMBER, form.getSenderCardNumber(), scripted));
+        }
+        if (unfilled.contains(SENDER_CARD_EXPIRES_DATE_MONTH) || unfilled.contains(SENDER_CARD_EXPIRES_DATE_YEAR)) {
+            timer.time(FILL_EXPIRES_DATE, () -> {
+                if (unfilled.contains(SENDER_CARD_EXPIRES_DATE_MONTH)) {
+                    choseSelectorByValue(SENDER_CARD_EXPIRES_DATE_MONTH, form.getExpiresMonth());
+                }
+                if (unfilled.contains(SENDER_CARD_EXPIRES_DATE_YEAR)) {
+                    choseSelectorByValue(SENDER_CARD_EXPIRES_DATE_YEAR, form.getExpiresYear());
+                }
+            });
+        }
+        if (unfilled.contains(SENDER_CARD_CVV2)) {
+            timer.time(FILL_CVV, () -> type(SENDER_CARD_CVV2, form.getCvvCode(), scripted));
+        }
+        if (unfilled.contains(RECEIVER_CARD_NUMBER)) {
+            Validation.notNull(form.getReceiverCardNumber(), () -> new InvalidInputException("Receiver card number can not be null"));
+            timer.time(FILL_RECEIVER_CARD, () -> fillCardNumber(RECEIVER_CARD_NUMBER, form.getReceiverCardNumber(), scripted));
+        }
+        if (unfilled.contains(AMOUNT)) {
+            timer.time(FILL_AMOUNT, () -> typeAmount(form.getAmount(), scripted));
+        }
     }
 
     /**
@@ -54,8 +139,8 @@ public class SendMoneyPbPage {
     public void fillSenderCardNumber(String cardNumber) {
         Validation.notNull(cardNumber, () -> new InvalidInputException("Sender card number can not be null"));
 
-        log.debug("Filling sender card number {}", cardNumber);
-        fillCardNumber(SENDER_CARD_NUMBER.xPath(), cardNumber);
+        log.debug("Filling sender card number");
+        timer.time(FILL_SENDER_CARD, () -> fillCardNumber(SENDER_CARD_NUMBER, cardNumber, false));
     }
 
     /**
@@ -69,9 +154,11 @@ public class SendMoneyPbPage {
      *              2020 - 20
      */
     public void fillSenderExpiresDate(String month, String year) {
-        log.debug("Filling sender card expire date. Year: {}, Month: {}", year, month);
-        choseSelectorByValue(SENDER_CARD_EXPIRES_DATE_MONTH.xPath(), month);
-        choseSelectorByValue(SENDER_CARD_EXPIRES_DATE_YEAR.xPath(), year);
+        log.debug("Filling sender card expire date");
+        timer.time(FILL_EXPIRES_DATE, () -> {
+            choseSelectorByValue(SENDER_CARD_EXPIRES_DATE_MONTH, month);
+            choseSelectorByValue(SENDER_CARD_EXPIRES_DATE_YEAR, year);
+        });
     }
 
     /**
@@ -81,8 +168,7 @@ public class SendMoneyPbPage {
      */
     public void fillCvv2Code(String cvvCode) {
         log.debug("Filling sender cvv2 code");
-        WebElement cvv2Element = webDriver.findElement(By.xpath(SENDER_CARD_CVV2.xPath()));
-        cvv2Element.sendKeys(cvvCode);
+        timer.time(FILL_CVV, () -> type(SENDER_CARD_CVV2, cvvCode, false));
     }
 
     /**
@@ -94,29 +180,33 @@ public class SendMoneyPbPage {
     public void fillReceiverCardNumber(String cardNumber) {
         Validation.notNull(cardNumber, () -> new InvalidInputException("Receiver card number can not be null"));
 
-        log.debug("Filling receiver card number {}", cardNumber);
-        fillCardNumber(RECEIVER_CARD_NUMBER.xPath(), cardNumber);
+        log.debug("Filling receiver card number");
+        timer.time(FILL_RECEIVER_CARD, () -> fillCardNumber(RECEIVER_CARD_NUMBER, cardNumber, false));
     }
 
     public void fillAmount(String amount) {
         log.debug("Filling amount field with value {}", amount);
-        WebElement amountElement = webDriver.findElement(By.xpath(AMOUNT.xPath()));
-        if (!amountElement.isEnabled()) {
-            log.debug("Amount field is unavailable. Wait for {} sec", DEFAULT_WAIT_TIMEOUT);
-            wait.until(elementToBeClickable(amountElement));
-        }
-        amountElement.sendKeys(amount);
+        timer.time(FILL_AMOUNT, () -> typeAmount(amount, false));
     }
 
     public TransferConfirmationPage clickSendButton() {
         log.debug("Invoking send button");
-        WebElement sendMoneyButton = webDriver.findElement(By.xpath(SEND_BUTTON.xPath()));
-        if (isSendButtonDisabled(sendMoneyButton)) {
-            log.debug("Send button is not clickable. Wait for {} seconds", DEFAULT_WAIT_TIMEOUT);
-            wait.until(attributeToBe(By.xpath(SEND_BUTTON.xPath()), "class", ACTIVE_SEND_BUTTON_CLASS));
+        timer.time(SEND_BUTTON_WAIT, () -> {
+            if (elements.read(SEND_BUTTON, this::isSendButtonDisabled)) {
+                log.debug("Send button is not clickable. Wait for {} seconds", DEFAULT_WAIT_TIMEOUT);
+                readinessWait.untilAttributeEquals(SEND_BUTTON, "class", ACTIVE_SEND_BUTTON_CLASS);
+            }
+        });
+        log.debug("Step 1 elements resolved {} times in {} us, reused {} times",
+                elements.getResolveCount(), elements.getResolveNanos() / 1000, elements.getHitCount());
+        long clickedAt = System.nanoTime();
+        if (pageLoadStrategy != PageLoadStrategy.NORMAL) {
+            readinessWait.markStale();
         }
-        sendMoneyButton.click();
-        return new TransferConfirmationPage(webDriver, wait);
+        elements.use(SEND_BUTTON, WebElement::click);
+        TransferConfirmationPage confirmationPage = new TransferConfirmationPage(webDriver, wait, timer, pageLoadStrategy);
+        timer.record(STEP2_INTERACTIVE, System.nanoTime() - clickedAt);
+        return confirmationPage;
     }
 
     /*
@@ -130,34 +220,61 @@ public class SendMoneyPbPage {
         return buttonsClassName.endsWith("disabledbutton");
     }
 
-    private void choseSelectorByValue(String elementXpath, String value) {
-        WebElement selectorElement = webDriver.findElement(By.xpath(elementXpath));
-        Select selector = new Select(selectorElement);
-        selector.selectByValue(value);
+    private Set<MainPage> fillStep1WithScript(Step1Form form) {
+        Validation.notNull(form.getSenderCardNumber(), () -> new InvalidInputException("Sender card number can not be null"));
+        Validation.notNull(form.getReceiverCardNumber(), () -> new InvalidInputException("Receiver card number can not be null"));
+
+        Map<String, String> selectors = new HashMap<>();
+        STEP1_FIELDS.forEach(field -> selectors.put(field.name(), field.selector()));
+
+        Map<String, Object> values = new HashMap<>();
+        values.put(SENDER_CARD_NUMBER.name(), CardNumbers.splitIntoBlocks(form.getSenderCardNumber()));
+        values.put(SENDER_CARD_EXPIRES_DATE_MONTH.name(), form.getExpiresMonth());
+        values.put(SENDER_CARD_EXPIRES_DATE_YEAR.name(), form.getExpiresYear());
+        values.put(SENDER_CARD_CVV2.name(), form.getCvvCode());
+        values.put(RECEIVER_CARD_NUMBER.name(), CardNumbers.splitIntoBlocks(form.getReceiverCardNumber()));
+        values.put(AMOUNT.name(), form.getAmount());
+
+        log.debug("Filling step 1 fields with a script");
+        try {
+            Object result = ((JavascriptExecutor) webDriver).executeScript(FILL_STEP1_SCRIPT, selectors, values);
+            Set<MainPage> unfilled = EnumSet.noneOf(MainPage.class);
+            if (result instanceof List) {
+                ((List<?>) result).forEach(field -> unfilled.add(MainPage.valueOf(String.valueOf(field))));
+            }
+            log.debug("Fields left for typing: {}", unfilled);
+            return unfilled;
+        } catch (WebDriverException e) {
+            log.warn("Failed to fill step 1 with a script. Typing the values", e);
+            return STEP1_FIELDS;
+        }
     }
 
-    private void fillCardNumber(String xPathCardNumberInput, String cardNumber) {
-        List<WebElement> elements = webDriver.findElements(By.xpath(xPathCardNumberInput));
-        List<String> cardNumberBlocks = splitCardNumberIntoBlocks(cardNumber);
-        verifyCreatedCardNumberBlocksBlocks(cardNumberBlocks);
-        Iterator<String> iterator = cardNumberBlocks.iterator();
-        elements.forEach(element -> element.sendKeys(iterator.next()));
+    private void choseSelectorByValue(SiteElement selectorElement, String value) {
+        elements.use(selectorElement, element -> new Select(element).selectByValue(value));
     }
 
-    private void verifyCreatedCardNumberBlocksBlocks(List<String> cardNumberBlocks) {
-        Validation.isFalse(cardNumberBlocks.isEmpty(),
-                () -> new InvalidInputException("Failed to tokenize card number. No fields created"));
-        Validation.isTrue(cardNumberBlocks.size() == 4,
-                () -> new InvalidInputException(format(ERROR_NOT_FOUR_BLOCKS_PATTERN, cardNumberBlocks.size())));
-        cardNumberBlocks.forEach(this::validateEachBlockCardNumberBlock);
+    private void typeAmount(String amount, boolean clearFirst) {
+        if (!elements.read(AMOUNT, WebElement::isEnabled)) {
+            log.debug("Amount field is unavailable. Wait for {} sec", DEFAULT_WAIT_TIMEOUT);
+            readinessWait.untilEnabled(AMOUNT);
+        }
+        type(AMOUNT, amount, clearFirst);
     }
 
-    private void validateEachBlockCardNumberBlock(String cardNumberBlock) {
-        Validation.isTrue(cardNumberBlock.length() == 4, () ->
-         new InvalidInputException(format(ERROR_INVALID_BLOCK_LENGTH, cardNumberBlock.length(), cardNumberBlock)));
+    /*
+     * A field the fill script failed on may hold a part of the value, it is cleared before typing.
+     */
+    private void type(SiteElement input, String value, boolean clearFirst) {
+        elements.use(input, element -> {
+            if (clearFirst) {
+                element.clear();
+            }
+            element.sendKeys(value);
+        });
     }
 
-    private List<String> splitCardNumberIntoBlocks(String cardNumber) {
-        return Arrays.asList(cardNumber.split("-"));
+    private void fillCardNumber(SiteElement cardNumberInput, String cardNumber, boolean clearFirst) {
+        elements.typeAll(cardNumberInput, CardNumbers.splitIntoBlocks(cardNumber), clearFirst);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,48 @@
+package io.github.bcherniakh.sendmoney.page;
+
+/**
+ * Values of all step 1 fields of the Sendmoney page, in the formats the page fill methods accept.
+ */
+public final class Step1Form {
+
+    private final String senderCardNumber;
+    private final String expiresMonth;
+    private final String expiresYear;
+    private final String cvvCode;
+    private final String receiverCardNumber;
+    private final String amount;
+
+    public Step1Form(String senderCardNumber, String expiresMonth, String expiresYear,
+                     String cvvCode, String receiverCardNumber, String amount) {
+        this.senderCardNumber = senderCardNumber;
+        this.expiresMonth = expiresMonth;
+        this.expiresYear = expiresYear;
+        this.cvvCode = cvvCode;
+        this.receiverCardNumber = receiverCardNumber;
+        this.amount = amount;
+    }
+
+    public String getSenderCardNumber() {
+        return senderCardNumber;
+    }
+
+    public String getExpiresMonth() {
+        return expiresMonth;
+    }
+
+    public String getExpiresYear() {
+        return expiresYear;
+    }
+
+    public String getCvvCode() {
+        return cvvCode;
+    }
+
+    public String getReceiverCardNumber() {
+        return receiverCardNumber;
+    }
+
+    public String getAmount() {
+        return amount;
+    }
+}
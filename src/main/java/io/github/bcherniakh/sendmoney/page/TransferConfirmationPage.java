@@ -1,12 +1,20 @@
 package io.github.bcherniakh.sendmoney.page;
 
-import org.openqa.selenium.By;
+import io.github.bcherniakh.sendmoney.metrics.StepTimer;
+import io.github.bcherniakh.sendmoney.page.xpath.SiteElements.ConfirmationPage;
+import org.openqa.selenium.PageLoadStrategy;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.support.ui.Wait;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Collections;
+import java.util.Set;
+
+import static io.github.bcherniakh.sendmoney.metrics.TransferStep.FILL_PHONE;
+import static io.github.bcherniakh.sendmoney.metrics.TransferStep.FINAL_SUBMIT;
+import static io.github.bcherniakh.sendmoney.metrics.TransferStep.STEP2_LOAD;
 import static io.github.bcherniakh.sendmoney.page.xpath.SiteElements.ConfirmationPage.PHONE_NUMBER_FIELD;
 import static io.github.bcherniakh.sendmoney.page.xpath.SiteElements.ConfirmationPage.SEND_BUTTON;
 
@@ -16,19 +24,39 @@ import static io.github.bcherniakh.sendmoney.page.xpath.SiteElements.Confirmatio
  */
 public class TransferConfirmationPage {
 
+    private static final String STEP2_URL_SUFFIX = "step2";
+    /**
+     * The phone number field, when the page has it, comes before the send button.
+     * So the page is usable once the button is there.
+     */
+    private static final Set<ConfirmationPage> READY_ELEMENTS = Collections.singleton(SEND_BUTTON);
+
     private Logger log = LoggerFactory.getLogger(TransferConfirmationPage.class);
 
     private WebDriver webDriver;
-    private Wait<WebDriver> wait;
+    private ElementCache elements;
+    private StepTimer timer;
+    private ReadinessWait readinessWait;
+    private PageLoadStrategy pageLoadStrategy;
 
-    public TransferConfirmationPage(WebDriver webDriver, Wait<WebDriver> wait) {
+    /**
+     * Waits for the page and records the duration of every step. With the EAGER and NONE page load strategies
+     * the page does not wait for the load, only for the elements it needs.
+     */
+    public TransferConfirmationPage(WebDriver webDriver, Wait<WebDriver> wait, StepTimer timer,
+                                    PageLoadStrategy pageLoadStrategy) {
         this.webDriver = webDriver;
-        this.wait = wait;
-//        wait = new WebDriverWait(webDriver, DEFAULT_WAIT_TIMEOUT);
+        this.elements = new ElementCache(webDriver);
+        this.timer = timer;
+        this.readinessWait = new ReadinessWait(webDriver, wait);
+        this.pageLoadStrategy = pageLoadStrategy;
 
         //Wait until the page is fully loaded
         log.debug("Loading step 2 page");
-        this.wait.until(currentWebDriver -> currentWebDriver.getCurrentUrl().endsWith("step2"));
+        timer.time(STEP2_LOAD, () -> readinessWait.untilUrlEndsWith(STEP2_URL_SUFFIX));
+        if (pageLoadStrategy != PageLoadStrategy.NORMAL) {
+            readinessWait.untilPresent(STEP2_URL_SUFFIX, READY_ELEMENTS);
+        }
     }
 
     /**
@@ -36,7 +64,7 @@ public class TransferConfirmationPage {
      * Checks whether phone number field is present on a page.
      */
     public boolean isPhoneNumberFieldPresent() {
-        return !webDriver.findElements(By.xpath(PHONE_NUMBER_FIELD.xPath())).isEmpty();
+        return !elements.findAll(PHONE_NUMBER_FIELD).isEmpty();
     }
 
 
@@ -52,13 +80,23 @@ public class TransferConfirmationPage {
             return;
         }
 
-        WebElement phoneNumberElement = webDriver.findElement(By.xpath("//*[@id=\"step2Phone\"]"));
-        phoneNumberElement.sendKeys(phoneNumber);
+        timer.time(FILL_PHONE, () -> elements.use(PHONE_NUMBER_FIELD, phoneNumberElement -> phoneNumberElement.sendKeys(phoneNumber)));
     }
 
+    /**
+     * Submits the transfer. Returns when the browser got the answer of the site.
+     * With the NORMAL and EAGER page load strategies the click waits for it, with NONE the page does.
+     */
     public void clickSendButton() {
         log.debug("Invoking send button on step 2");
-        WebElement sendMoneyButton = webDriver.findElement(By.xpath(SEND_BUTTON.xPath()));
-        sendMoneyButton.click();
+        timer.time(FINAL_SUBMIT, () -> {
+            if (pageLoadStrategy == PageLoadStrategy.NONE) {
+                readinessWait.markStale();
+            }
+            elements.use(SEND_BUTTON, WebElement::click);
+            if (pageLoadStrategy == PageLoadStrategy.NONE) {
+                readinessWait.untilPresent(null, Collections.emptySet());
+            }
+        });
     }
 }
@@ -0,0 +1,37 @@
+package io.github.bcherniakh.sendmoney.page.xpath;
+
+import org.openqa.selenium.By;
+
+/**
+ * An element of the PB Sendmoney site.
+ */
+public interface SiteElement {
+
+    String name();
+
+    /**
+     * @return XPath of the element as it was taken from the site
+     */
+    String xPath();
+
+    /**
+     * @return CSS selector matching the same elements as {@link #xPath()}
+     * or {@code null} when the element has no CSS alternative
+     */
+    String cssSelector();
+
+    /**
+     * @return the fastest locator of the element. CSS is preferred, XPath is used when there is no CSS alternative.
+     */
+    default By locator() {
+        return cssSelector() == null ? By.xpath(xPath()) : By.cssSelector(cssSelector());
+    }
+
+    /**
+     * @return the same choice as {@link #locator()} as a plain string for the page scripts.
+     * XPaths are told apart by the leading slash.
+     */
+    default String selector() {
+        return cssSelector() == null ? xPath() : cssSelector();
+    }
+}
@@ -1,44 +1,65 @@
 package io.github.bcherniakh.sendmoney.page.xpath;
 
 /**
- * Aggregates the meaningful elements of the PB Sendmoney site
+ * Aggregates the meaningful elements of the PB Sendmoney site.
+ * Every element keeps its original XPath and a CSS alternative, which browsers evaluate faster.
+ * The CSS selectors follow the XPaths step by step: div[2] becomes div:nth-of-type(2).
  */
 public final class SiteElements {
 
-    public enum MainPage {
+    private static final String MAIN_CONTENT = "body > div:nth-of-type(2) > div:nth-of-type(3) > div";
 
-        SENDER_CARD_NUMBER("/html/body/div[2]/div[3]/div/div[1]/div[1]/div/div[1]/div[1]/form/input"),
-        SENDER_CARD_EXPIRES_DATE_MONTH("/html/body/div[2]/div[3]/div/div[1]/div[1]/div/div[1]/div[2]/select[1]"),
-        SENDER_CARD_EXPIRES_DATE_YEAR("/html/body/div[2]/div[3]/div/div[1]/div[1]/div/div[1]/div[2]/select[2]"),
-        SENDER_CARD_CVV2("/html/body/div[2]/div[3]/div/div[1]/div[1]/div/div[2]/div/form/input"),
-        RECEIVER_CARD_NUMBER("//*[@id=\"receiver_card\"]/input"),
-        AMOUNT("//*[@id=\"amount\"]"),
-        SEND_BUTTON("/html/body/div[2]/div[3]/div/div[1]/div[9]");
+    public enum MainPage implements SiteElement {
+
+        SENDER_CARD_NUMBER("/html/body/div[2]/div[3]/div/div[1]/div[1]/div/div[1]/div[1]/form/input",
+                MAIN_CONTENT + " > div:nth-of-type(1) > div:nth-of-type(1) > div > div:nth-of-type(1) > div:nth-of-type(1) > form > input"),
+        SENDER_CARD_EXPIRES_DATE_MONTH("/html/body/div[2]/div[3]/div/div[1]/div[1]/div/div[1]/div[2]/select[1]",
+                MAIN_CONTENT + " > div:nth-of-type(1) > div:nth-of-type(1) > div > div:nth-of-type(1) > div:nth-of-type(2) > select:nth-of-type(1)"),
+        SENDER_CARD_EXPIRES_DATE_YEAR("/html/body/div[2]/div[3]/div/div[1]/div[1]/div/div[1]/div[2]/select[2]",
+                MAIN_CONTENT + " > div:nth-of-type(1) > div:nth-of-type(1) > div > div:nth-of-type(1) > div:nth-of-type(2) > select:nth-of-type(2)"),
+        SENDER_CARD_CVV2("/html/body/div[2]/div[3]/div/div[1]/div[1]/div/div[2]/div/form/input",
+                MAIN_CONTENT + " > div:nth-of-type(1) > div:nth-of-type(1) > div > div:nth-of-type(2) > div > form > input"),
+        RECEIVER_CARD_NUMBER("//*[@id=\"receiver_card\"]/input", "#receiver_card > input"),
+        AMOUNT("//*[@id=\"amount\"]", "#amount"),
+        SEND_BUTTON("/html/body/div[2]/div[3]/div/div[1]/div[9]",
+                MAIN_CONTENT + " > div:nth-of-type(1) > div:nth-of-type(9)");
 
         private String xPath;
+        private String cssSelector;
 
-        MainPage(String xPath) {
+        MainPage(String xPath, String cssSelector) {
             this.xPath = xPath;
+            this.cssSelector = cssSelector;
         }
 
         public String xPath() {
             return xPath;
         }
+
+        public String cssSelector() {
+            return cssSelector;
+        }
     }
 
-    public enum ConfirmationPage {
+    public enum ConfirmationPage implements SiteElement {
 
-        PHONE_NUMBER_FIELD("//*[@id=\"step2Phone\"]"),
-        SEND_BUTTON("/html/body/div[2]/div[3]/div/div[15]/div");
+        PHONE_NUMBER_FIELD("//*[@id=\"step2Phone\"]", "#step2Phone"),
+        SEND_BUTTON("/html/body/div[2]/div[3]/div/div[15]/div", MAIN_CONTENT + " > div:nth-of-type(15) > div");
 
         private String xPath;
+        private String cssSelector;
 
-        ConfirmationPage(String xPath) {
+        ConfirmationPage(String xPath, String cssSelector) {
             this.xPath = xPath;
+            this.cssSelector = cssSelector;
         }
 
         public String xPath() {
             return xPath;
         }
+
+        public String cssSelector() {
+            return cssSelector;
+        }
     }
 }
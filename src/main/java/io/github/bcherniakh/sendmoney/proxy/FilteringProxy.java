@@ -0,0 +1,338 @@
+package io.github.bcherniakh.sendmoney.proxy;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.github.bcherniakh.sendmoney.exception.SendMoneyException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Named;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local HTTP proxy the browser is routed through. Drops the requests the {@link RequestFilter} does not allow,
+ * so the pages load without the images, fonts, analytics and ads the automation never uses,
+ * and counts the traffic of the rest.
+ * <p>
+ * Plain HTTP requests are checked by their URL and {@link ResourceType}. HTTPS requests are tunneled,
+ * so the proxy sees only their host: they are checked as {@code https://host/} of the {@link ResourceType#OTHER}
+ * type and counted once per connection. Types denied for any URL are switched off in the browser as well,
+ * see {@link RequestFilter#deniesAll(ResourceType)}.
+ */
+@Singleton
+public class FilteringProxy implements AutoCloseable {
+
+    private static final int MAX_HEAD_BYTES = 64 * 1024;
+    private static final int BUFFER_SIZE = 16 * 1024;
+    private static final int CONNECT_TIMEOUT_MILLIS = 10_000;
+    private static final int HTTP_PORT = 80;
+    private static final int HTTPS_PORT = 443;
+    private static final byte[] BLOCKED = response("403 Forbidden");
+    private static final byte[] BAD_REQUEST = response("400 Bad Request");
+    private static final byte[] BAD_GATEWAY = response("502 Bad Gateway");
+    private static final byte[] TUNNEL_ESTABLISHED = "HTTP/1.1 200 Connection established\r\n\r\n"
+            .getBytes(StandardCharsets.ISO_8859_1);
+
+    private Logger log = LoggerFactory.getLogger(FilteringProxy.class);
+
+    private final boolean enabled;
+    private final RequestFilter filter;
+    private final AtomicLong requestCount = new AtomicLong();
+    private final AtomicLong blockedCount = new AtomicLong();
+    private final AtomicLong bytesReceived = new AtomicLong();
+    private final AtomicLong bytesSent = new AtomicLong();
+    private ServerSocket serverSocket;
+    private ExecutorService connections;
+
+    /**
+     * @param enabled when false the browser is not routed through the proxy
+     * @param allow   allow rules of the {@link RequestFilter}
+     * @param deny    deny rules of the {@link RequestFilter}. Without them the proxy only counts the traffic
+     */
+    @Inject
+    public FilteringProxy(@Named("browser.proxy.enabled") boolean enabled,
+                          @Named("browser.proxy.allow") String allow,
+                          @Named("browser.proxy.deny") String deny) {
+        this.enabled = enabled;
+        this.filter = RequestFilter.parse(allow, deny);
+    }
+
+    /**
+     * Creates an enabled proxy.
+     */
+    public FilteringProxy(RequestFilter filter) {
+        this.enabled = true;
+        this.filter = filter;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public RequestFilter getFilter() {
+        return filter;
+    }
+
+    /**
+     * Starts listening on a free local port, unless already started.
+     *
+     * @return the port the browser should use
+     */
+    public synchronized int start() {
+        if (serverSocket != null) {
+            return serverSocket.getLocalPort();
+        }
+        try {
+            serverSocket = new ServerSocket();
+            serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        } catch (IOException e) {
+            throw new SendMoneyException("Failed to start the browser proxy", e);
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        connections = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "proxy-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        ServerSocket listener = serverSocket;
+        Thread acceptor = new Thread(() -> acceptLoop(listener), "proxy-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        log.info("Browser proxy is listening on port {}", listener.getLocalPort());
+        return listener.getLocalPort();
+    }
+
+    public TrafficReport getReport() {
+        return new TrafficReport(requestCount.get(), blockedCount.get(), bytesReceived.get(), bytesSent.get());
+    }
+
+    @Override
+    public synchronized void close() {
+        if (serverSocket == null) {
+            return;
+        }
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            log.warn("Failed to close the browser proxy", e);
+        }
+        connections.shutdownNow();
+        serverSocket = null;
+    }
+
+    private void acceptLoop(ServerSocket listener) {
+        while (!listener.isClosed()) {
+            try {
+                Socket browser = listener.accept();
+                connections.execute(() -> serve(browser));
+            } catch (IOException e) {
+                if (!listener.isClosed()) {
+                    log.warn("Browser proxy failed to accept a connection", e);
+                }
+            }
+        }
+    }
+
+    private void serve(Socket browser) {
+        try (Socket client = browser) {
+            InputStream in = new BufferedInputStream(client.getInputStream(), BUFFER_SIZE);
+            String head = readHead(in);
+            if (head == null) {
+                return;
+            }
+            String[] lines = head.split("\r\n");
+            String[] requestLine = lines[0].split(" ");
+            requestCount.incrementAndGet();
+            if (requestLine.length != 3) {
+                client.getOutputStream().write(BAD_REQUEST);
+                return;
+            }
+            if ("CONNECT".equals(requestLine[0])) {
+                tunnel(client, in, requestLine[1]);
+            } else {
+                forward(client, in, requestLine, lines);
+            }
+        } catch (IOException e) {
+            log.trace("Browser proxy connection is broken", e);
+        }
+    }
+
+    private void tunnel(Socket client, InputStream in, String authority) throws IOException {
+        int colon = authority.lastIndexOf(':');
+        String host = colon < 0 ? authority : authority.substring(0, colon);
+        int port = colon < 0 ? HTTPS_PORT : parsePort(authority.substring(colon + 1));
+        if (port < 0) {
+            client.getOutputStream().write(BAD_REQUEST);
+            return;
+        }
+        String url = "https://" + (port == HTTPS_PORT ? host : authority) + "/";
+        if (!allowed(client, url, ResourceType.OTHER)) {
+            return;
+        }
+        try (Socket upstream = connect(client, host, port)) {
+            if (upstream == null) {
+                return;
+            }
+            client.getOutputStream().write(TUNNEL_ESTABLISHED);
+            exchange(in, client, upstream);
+        }
+    }
+
+    /*
+     * -1 when the port of a CONNECT request is not a number or out of range.
+     */
+    private static int parsePort(String text) {
+        try {
+            int port = Integer.parseInt(text);
+            return port > 0 && port <= 0xFFFF ? port : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private void forward(Socket client, InputStream in, String[] requestLine, String[] lines) throws IOException {
+        URI uri;
+        try {
+            uri = new URI(requestLine[1]);
+        } catch (URISyntaxException e) {
+            client.getOutputStream().write(BAD_REQUEST);
+            return;
+        }
+        if (!"http".equalsIgnoreCase(uri.getScheme()) || uri.getHost() == null) {
+            client.getOutputStream().write(BAD_REQUEST);
+            return;
+        }
+
+        StringBuilder head = new StringBuilder(requestLine[0]).append(' ')
+                .append(uri.getRawPath() == null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath());
+        if (uri.getRawQuery() != null) {
+            head.append('?').append(uri.getRawQuery());
+        }
+        head.append(' ').append(requestLine[2]).append("\r\n");
+        String fetchDest = null;
+        String accept = null;
+        for (int i = 1; i < lines.length; i++) {
+            String name = lines[i].substring(0, Math.max(0, lines[i].indexOf(':'))).trim().toLowerCase(Locale.ROOT);
+            String value = lines[i].substring(lines[i].indexOf(':') + 1).trim();
+            if ("sec-fetch-dest".equals(name)) {
+                fetchDest = value;
+            } else if ("accept".equals(name)) {
+                accept = value;
+            } else if ("connection".equals(name) || "proxy-connection".equals(name) || "keep-alive".equals(name)) {
+                continue;
+            }
+            head.append(lines[i]).append("\r\n");
+        }
+        // A connection per request keeps the exchange a plain byte copy in both directions
+        head.append("Connection: close\r\n\r\n");
+
+        ResourceType type = ResourceType.detect(fetchDest, accept, uri.getPath() == null ? "/" : uri.getPath());
+        if (!allowed(client, requestLine[1], type)) {
+            return;
+        }
+        try (Socket upstream = connect(client, uri.getHost(), uri.getPort() < 0 ? HTTP_PORT : uri.getPort())) {
+            if (upstream == null) {
+                return;
+            }
+            byte[] headBytes = head.toString().getBytes(StandardCharsets.ISO_8859_1);
+            upstream.getOutputStream().write(headBytes);
+            bytesSent.addAndGet(headBytes.length);
+            exchange(in, client, upstream);
+        }
+    }
+
+    private boolean allowed(Socket client, String url, ResourceType type) throws IOException {
+        if (filter.allows(url, type)) {
+            log.trace("Proxying {} {}", type, url);
+            return true;
+        }
+        log.trace("Blocked {} {}", type, url);
+        blockedCount.incrementAndGet();
+        client.getOutputStream().write(BLOCKED);
+        return false;
+    }
+
+    private Socket connect(Socket client, String host, int port) throws IOException {
+        Socket upstream = new Socket();
+        try {
+            upstream.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MILLIS);
+            return upstream;
+        } catch (IOException e) {
+            log.debug("Browser proxy failed to connect to {}:{}", host, port, e);
+            upstream.close();
+            client.getOutputStream().write(BAD_GATEWAY);
+            return null;
+        }
+    }
+
+    /*
+     * The browser to site direction is copied by another thread. The exchange ends when the site closes
+     * the connection, the sockets are closed by the callers then.
+     */
+    private void exchange(InputStream in, Socket client, Socket upstream) throws IOException {
+        OutputStream upstreamOut = upstream.getOutputStream();
+        connections.execute(() -> {
+            try {
+                copy(in, upstreamOut, bytesSent);
+                upstream.shutdownOutput();
+            } catch (IOException e) {
+                log.trace("Browser proxy stopped sending to the site", e);
+            }
+        });
+        try {
+            copy(upstream.getInputStream(), client.getOutputStream(), bytesReceived);
+        } catch (SocketException e) {
+            log.trace("Browser proxy stopped receiving from the site", e);
+        }
+    }
+
+    private static void copy(InputStream from, OutputStream to, AtomicLong counter) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        int read;
+        while ((read = from.read(buffer)) != -1) {
+            to.write(buffer, 0, read);
+            to.flush();
+            counter.addAndGet(read);
+        }
+    }
+
+    /*
+     * Reads the request line and the headers up to the empty line, the body is left in the stream.
+     */
+    private static String readHead(InputStream in) throws IOException {
+        ByteArrayOutputStream head = new ByteArrayOutputStream();
+        int matched = 0;
+        int b;
+        while (matched < 4 && (b = in.read()) != -1) {
+            head.write(b);
+            matched = (b == '\r' && matched % 2 == 0) || (b == '\n' && matched % 2 == 1) ? matched + 1
+                    : b == '\r' ? 1 : 0;
+            if (head.size() > MAX_HEAD_BYTES) {
+                return null;
+            }
+        }
+        return matched == 4 ? new String(head.toByteArray(), 0, head.size() - 4, StandardCharsets.ISO_8859_1) : null;
+    }
+
+    private static byte[] response(String status) {
+        return ("HTTP/1.1 " + status + "\r\nContent-Length: 0\r\nConnection: close\r\n\r\n")
+                .getBytes(StandardCharsets.ISO_8859_1);
+    }
+}
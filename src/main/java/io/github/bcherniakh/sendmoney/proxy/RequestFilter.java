@@ -0,0 +1,124 @@
+package io.github.bcherniakh.sendmoney.proxy;
+
+import io.github.bcherniakh.sendmoney.exception.InvalidInputException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * Decides which browser requests are sent. A request is dropped when it matches a deny rule
+ * and none of the allow rules, so an allow rule makes an exception from a broad deny rule.
+ * <p>
+ * Rules are separated by ';'. A rule is a list of resource types separated by ',' or * for any type,
+ * a space and a URL pattern where * matches any text. For example: {@code image,font *; * *://*.doubleclick.net/*}
+ */
+public final class RequestFilter {
+
+    private static final String ANY = "*";
+
+    private final List<Rule> allowRules;
+    private final List<Rule> denyRules;
+
+    private RequestFilter(List<Rule> allowRules, List<Rule> denyRules) {
+        this.allowRules = allowRules;
+        this.denyRules = denyRules;
+    }
+
+    /**
+     * @param allow allow rules, may be empty
+     * @param deny  deny rules, may be empty. Nothing is dropped when there are no deny rules
+     * @throws InvalidInputException when a rule can not be parsed
+     */
+    public static RequestFilter parse(String allow, String deny) {
+        return new RequestFilter(parseRules(allow), parseRules(deny));
+    }
+
+    /**
+     * @return the filter that drops nothing
+     */
+    public static RequestFilter allowAll() {
+        return new RequestFilter(Collections.emptyList(), Collections.emptyList());
+    }
+
+    public boolean allows(String url, ResourceType type) {
+        return !matches(denyRules, url, type) || matches(allowRules, url, type);
+    }
+
+    /**
+     * @return true when every request of the type is dropped whatever its URL is.
+     * Such types can be switched off in the browser itself, which works for HTTPS as well
+     */
+    public boolean deniesAll(ResourceType type) {
+        return denyRules.stream().anyMatch(rule -> rule.anyUrl && rule.types.contains(type))
+                && allowRules.stream().noneMatch(rule -> rule.types.contains(type));
+    }
+
+    public boolean isEmpty() {
+        return denyRules.isEmpty();
+    }
+
+    private static boolean matches(List<Rule> rules, String url, ResourceType type) {
+        for (Rule rule : rules) {
+            if (rule.types.contains(type) && rule.url.matcher(url).matches()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static List<Rule> parseRules(String rules) {
+        List<Rule> parsed = new ArrayList<>();
+        if (rules == null) {
+            return parsed;
+        }
+        for (String rule : rules.split(";")) {
+            if (!rule.trim().isEmpty()) {
+                parsed.add(parseRule(rule.trim()));
+            }
+        }
+        return parsed;
+    }
+
+    private static Rule parseRule(String rule) {
+        String[] typesAndUrl = rule.split("\\s+");
+        if (typesAndUrl.length != 2) {
+            throw new InvalidInputException("Invalid request rule '" + rule + "'. Expected: <types> <url pattern>");
+        }
+        Set<ResourceType> types = EnumSet.noneOf(ResourceType.class);
+        if (ANY.equals(typesAndUrl[0])) {
+            types.addAll(EnumSet.allOf(ResourceType.class));
+        } else {
+            for (String type : typesAndUrl[0].split(",")) {
+                try {
+                    types.add(ResourceType.valueOf(type.trim().toUpperCase(Locale.ROOT)));
+                } catch (IllegalArgumentException e) {
+                    throw new InvalidInputException("Unknown resource type '" + type + "' in request rule '" + rule + "'", e);
+                }
+            }
+        }
+        return new Rule(types, typesAndUrl[1]);
+    }
+
+    private static final class Rule {
+
+        private final Set<ResourceType> types;
+        private final Pattern url;
+        private final boolean anyUrl;
+
+        private Rule(Set<ResourceType> types, String urlPattern) {
+            this.types = types;
+            this.anyUrl = ANY.equals(urlPattern);
+            String[] parts = urlPattern.split("\\*", -1);
+            StringBuilder regex = new StringBuilder(Pattern.quote(parts[0]));
+            for (int i = 1; i < parts.length; i++) {
+                regex.append(".*").append(Pattern.quote(parts[i]));
+            }
+            this.url = Pattern.compile(regex.toString());
+        }
+    }
+}
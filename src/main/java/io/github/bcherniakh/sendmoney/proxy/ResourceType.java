@@ -0,0 +1,108 @@
+package io.github.bcherniakh.sendmoney.proxy;
+
+import java.util.Locale;
+
+/**
+ * Kind of a resource the browser requests. Rules of the {@link RequestFilter} are set per type.
+ */
+public enum ResourceType {
+    DOCUMENT,
+    SCRIPT,
+    STYLE,
+    IMAGE,
+    FONT,
+    MEDIA,
+    XHR,
+    /**
+     * Anything else, including the HTTPS requests: only their host is visible to the proxy.
+     */
+    OTHER;
+
+    /**
+     * Detects the type by the request headers. Chrome tells the purpose of every request in Sec-Fetch-Dest,
+     * the extension of the path and the Accept header are used when it is missing.
+     *
+     * @param fetchDest value of the Sec-Fetch-Dest header or null
+     * @param accept    value of the Accept header or null
+     * @param path      path of the requested URL without the query
+     */
+    public static ResourceType detect(String fetchDest, String accept, String path) {
+        if (fetchDest != null) {
+            switch (fetchDest.toLowerCase(Locale.ROOT)) {
+                case "document":
+                case "iframe":
+                case "frame":
+                    return DOCUMENT;
+                case "script":
+                case "worker":
+                case "sharedworker":
+                case "serviceworker":
+                    return SCRIPT;
+                case "style":
+                    return STYLE;
+                case "image":
+                    return IMAGE;
+                case "font":
+                    return FONT;
+                case "audio":
+                case "video":
+                case "track":
+                    return MEDIA;
+                case "empty":
+                    return XHR;
+                default:
+                    break;
+            }
+        }
+        ResourceType byExtension = byExtension(path.toLowerCase(Locale.ROOT));
+        if (byExtension != OTHER || accept == null) {
+            return byExtension;
+        }
+        if (accept.startsWith("text/html")) {
+            return DOCUMENT;
+        }
+        if (accept.startsWith("image/")) {
+            return IMAGE;
+        }
+        if (accept.startsWith("text/css")) {
+            return STYLE;
+        }
+        return OTHER;
+    }
+
+    private static ResourceType byExtension(String path) {
+        String extension = path.substring(path.lastIndexOf('.') + 1);
+        if (extension.contains("/")) {
+            return OTHER;
+        }
+        switch (extension) {
+            case "html":
+            case "htm":
+                return DOCUMENT;
+            case "js":
+                return SCRIPT;
+            case "css":
+                return STYLE;
+            case "png":
+            case "jpg":
+            case "jpeg":
+            case "gif":
+            case "svg":
+            case "webp":
+            case "ico":
+                return IMAGE;
+            case "woff":
+            case "woff2":
+            case "ttf":
+            case "otf":
+            case "eot":
+                return FONT;
+            case "mp4":
+            case "webm":
+            case "mp3":
+                return MEDIA;
+            default:
+                return OTHER;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package io.github.bcherniakh.sendmoney.proxy;
+
+/**
+ * Browser traffic that went through the {@link FilteringProxy}.
+ */
+public final class TrafficReport {
+
+    private static final long KILOBYTE = 1024;
+
+    private final long requestCount;
+    private final long blockedCount;
+    private final long bytesReceived;
+    private final long bytesSent;
+
+    public TrafficReport(long requestCount, long blockedCount, long bytesReceived, long bytesSent) {
+        this.requestCount = requestCount;
+        this.blockedCount = blockedCount;
+        this.bytesReceived = bytesReceived;
+        this.bytesSent = bytesSent;
+    }
+
+    /**
+     * @return all requests of the browser including the blocked ones
+     */
+    public long getRequestCount() {
+        return requestCount;
+    }
+
+    public long getBlockedCount() {
+        return blockedCount;
+    }
+
+    /**
+     * @return bytes the sites sent to the browser, headers included
+     */
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    /**
+     * @return bytes the browser sent to the sites, headers included
+     */
+    public long getBytesSent() {
+        return bytesSent;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("Browser traffic: %d requests, %d blocked. Received %d KB, sent %d KB",
+                requestCount, blockedCount, bytesReceived / KILOBYTE, bytesSent / KILOBYTE);
+    }
+}
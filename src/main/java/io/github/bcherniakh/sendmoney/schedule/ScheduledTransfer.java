@@ -0,0 +1,47 @@
+package io.github.bcherniakh.sendmoney.schedule;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Schedule of a transfer as reported by the {@link TransferScheduler}. The transfer details are not included.
+ */
+public class ScheduledTransfer {
+
+    private final String id;
+    private final String nextAt;
+    private final String every;
+    private final boolean cvvRequired;
+
+    ScheduledTransfer(String id, long nextAtMillis, long intervalMillis, boolean cvvRequired) {
+        this.id = id;
+        this.nextAt = Instant.ofEpochMilli(nextAtMillis).toString();
+        this.every = intervalMillis == 0 ? null : Duration.ofMillis(intervalMillis).toString();
+        this.cvvRequired = cvvRequired;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return ISO-8601 instant of the next release
+     */
+    public String getNextAt() {
+        return nextAt;
+    }
+
+    /**
+     * @return ISO-8601 interval of a recurring transfer, {@code null} for a one-off one
+     */
+    public String getEvery() {
+        return every;
+    }
+
+    /**
+     * @return whether the CVV has to be given again after a restart before the transfer is released
+     */
+    public boolean isCvvRequired() {
+        return cvvRequired;
+    }
+}
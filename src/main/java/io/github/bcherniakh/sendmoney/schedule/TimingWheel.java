@@ -0,0 +1,189 @@
+package io.github.bcherniakh.sendmoney.schedule;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel of values due at absolute ticks. Not thread safe.
+ * <p>
+ * There are {@link #LEVELS} wheels of {@link #SLOTS} slots. The tick is split into groups of {@link #SLOT_BITS} bits,
+ * wheel {@code n} is indexed by group {@code n}. A value is put on the wheel of the highest group its tick differs
+ * in from the current tick, so adding is a shift and an index whatever the number of values. When the current tick
+ * reaches the start of a slot of an upper wheel, the values of the slot are put down onto the lower wheels.
+ * Every value is moved down at most {@link #LEVELS} - 1 times before it is due.
+ * <p>
+ * Each wheel keeps a bitmap of its occupied slots, so {@link #nextTick()} finds the next tick with work without
+ * walking the empty ticks, and {@link #advance} jumps over them.
+ *
+ * @param <T> scheduled value
+ */
+class TimingWheel<T> {
+
+    static final int SLOT_BITS = 8;
+    static final int SLOTS = 1 << SLOT_BITS;
+    static final int LEVELS = 6;
+    static final long NONE = Long.MAX_VALUE;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int BITMAP_WORDS = SLOTS / Long.SIZE;
+
+    private final ArrayDeque<Timer<T>>[][] wheels;
+    private final long[][] occupied = new long[LEVELS][BITMAP_WORDS];
+
+    private long currentTick;
+    private int size;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    TimingWheel(long currentTick) {
+        this.currentTick = currentTick;
+        this.wheels = new ArrayDeque[LEVELS][SLOTS];
+    }
+
+    /**
+     * Adds a value due at the tick. A value due at the current tick or before it is passed to {@code due} at once.
+     *
+     * @throws IllegalArgumentException when the tick is further than the wheels reach
+     */
+    void add(long tick, T value, Consumer<T> due) {
+        if (tick <= currentTick) {
+            due.accept(value);
+            return;
+        }
+        put(new Timer<>(tick, value));
+        size++;
+    }
+
+    /**
+     * Moves the current tick forward and passes the values due up to it to {@code due} in the order of their ticks.
+     */
+    void advance(long tick, Consumer<T> due) {
+        while (true) {
+            long next = nextTick();
+            if (next > tick) {
+                currentTick = Math.max(currentTick, tick);
+                return;
+            }
+            currentTick = next;
+            for (int level = LEVELS - 1; level > 0; level--) {
+                if ((next & lowerBitsMask(level)) == 0) {
+                    cascade(level, slot(next, level));
+                }
+            }
+            ArrayDeque<Timer<T>> expired = take(0, slot(next, 0));
+            if (expired != null) {
+                for (Timer<T> timer : expired) {
+                    size--;
+                    due.accept(timer.value);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the next tick at which a value is due or has to be moved down, {@link #NONE} when the wheel is empty
+     */
+    long nextTick() {
+        if (size == 0) {
+            return NONE;
+        }
+        for (int level = 0; level < LEVELS; level++) {
+            int slot = nextOccupied(level, slot(currentTick, level) + 1);
+            if (slot >= 0) {
+                return (currentTick & ~lowerBitsMask(level + 1)) | ((long) slot << (SLOT_BITS * level));
+            }
+        }
+        return NONE;
+    }
+
+    long getCurrentTick() {
+        return currentTick;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return every value on the wheel
+     */
+    List<T> values() {
+        List<T> values = new ArrayList<>(size);
+        for (ArrayDeque<Timer<T>>[] wheel : wheels) {
+            for (ArrayDeque<Timer<T>> slot : wheel) {
+                if (slot != null) {
+                    slot.forEach(timer -> values.add(timer.value));
+                }
+            }
+        }
+        return values;
+    }
+
+    /*
+     * Puts the timer on the wheel of the highest group its tick differs in from the current tick.
+     */
+    private void put(Timer<T> timer) {
+        int highestBit = 63 - Long.numberOfLeadingZeros(timer.tick ^ currentTick);
+        int level = highestBit / SLOT_BITS;
+        if (level >= LEVELS) {
+            throw new IllegalArgumentException("Tick " + timer.tick + " is out of the timing wheel reach");
+        }
+        int slot = slot(timer.tick, level);
+        ArrayDeque<Timer<T>> timers = wheels[level][slot];
+        if (timers == null) {
+            timers = new ArrayDeque<>();
+            wheels[level][slot] = timers;
+        }
+        timers.add(timer);
+        occupied[level][slot / Long.SIZE] |= 1L << slot;
+    }
+
+    /*
+     * The current tick is the start of the slot, so its timers land on the lower wheels.
+     */
+    private void cascade(int level, int slot) {
+        ArrayDeque<Timer<T>> timers = take(level, slot);
+        if (timers != null) {
+            timers.forEach(this::put);
+        }
+    }
+
+    private ArrayDeque<Timer<T>> take(int level, int slot) {
+        ArrayDeque<Timer<T>> timers = wheels[level][slot];
+        wheels[level][slot] = null;
+        occupied[level][slot / Long.SIZE] &= ~(1L << slot);
+        return timers;
+    }
+
+    private int nextOccupied(int level, int from) {
+        for (int word = from / Long.SIZE; word < BITMAP_WORDS; word++) {
+            long bits = occupied[level][word];
+            if (word == from / Long.SIZE) {
+                bits &= -1L << from;
+            }
+            if (bits != 0) {
+                return word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+            }
+        }
+        return -1;
+    }
+
+    private static int slot(long tick, int level) {
+        return (int) (tick >>> (SLOT_BITS * level)) & SLOT_MASK;
+    }
+
+    private static long lowerBitsMask(int level) {
+        return (1L << (SLOT_BITS * level)) - 1;
+    }
+
+    private static final class Timer<T> {
+
+        private final long tick;
+        private final T value;
+
+        private Timer(long tick, T value) {
+            this.tick = tick;
+            this.value = value;
+        }
+    }
+}
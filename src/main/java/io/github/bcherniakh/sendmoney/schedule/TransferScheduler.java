@@ -0,0 +1,644 @@
+package io.github.bcherniakh.sendmoney.schedule;
+
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.github.bcherniakh.sendmoney.batch.BatchFileReader;
+import io.github.bcherniakh.sendmoney.domain.Transfer;
+import io.github.bcherniakh.sendmoney.exception.InvalidInputException;
+import io.github.bcherniakh.sendmoney.exception.SendMoneyException;
+import io.github.bcherniakh.sendmoney.util.CardInputs;
+import io.github.bcherniakh.sendmoney.util.InputError;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Named;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+import static java.lang.String.format;
+
+/**
+ * Keeps future-dated and recurring transfers and releases them when they are due.
+ * <p>
+ * The schedules are kept on a {@link TimingWheel}, so adding one and releasing it take the same time whatever
+ * the number of schedules. A single thread sleeps until the next tick the wheel has work at or until an earlier
+ * transfer is scheduled. All transfers due at a tick are released in one call, so the journal records them
+ * with a single write.
+ * <p>
+ * A recurring transfer is released as {@code id@instant}, so every occurrence is a transfer of its own in the
+ * journal. Occurrences missed while the application was stopped are released once, the rest are skipped.
+ * <p>
+ * The schedules are kept in an append-only file with a line per change:
+ * <pre>
+ * S dueEpochMillis intervalMillis batchLine
+ * R dueEpochMillis nextDueEpochMillis id
+ * C id
+ * </pre>
+ * for a scheduled, released and cancelled transfer. A release is recorded after the transfers are handed over,
+ * a stop in between releases them again and the journal tells which of them were sent. When the release fails,
+ * the transfers are released again after {@link #RETRY_DELAY_MILLIS} with the same ids. The file is rewritten
+ * with the live schedules on start and when most of its lines are outdated.
+ * <p>
+ * The CVV codes are kept in memory only, the batch lines are written to the file with an empty CVV column.
+ * A schedule read from the file after a restart waits for its CVV when it is due, it is released as soon as
+ * the CVV is given with {@link #supplyCvv}. Where the file system supports it, the file is readable by its owner only,
+ * as it keeps the card numbers.
+ */
+@Singleton
+public class TransferScheduler implements AutoCloseable {
+
+    static final int COMPACT_MIN_RECORDS = 100_000;
+    static final long RETRY_DELAY_MILLIS = TimeUnit.SECONDS.toMillis(30);
+    private static final String SCHEDULED = "S";
+    private static final String RELEASED = "R";
+    private static final String CANCELLED = "C";
+    private static final String COMMENT_PREFIX = "#";
+    private static final int CVV_COLUMN = 3;
+    private static final String ERROR_INVALID_LINE = "Invalid schedule line %d: %s";
+
+    private Logger log = LoggerFactory.getLogger(TransferScheduler.class);
+
+    private final Path file;
+    private final long tickMillis;
+    private final long retryDelayMillis;
+    private final LongSupplier clock;
+    private final BatchFileReader reader = new BatchFileReader();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final Map<String, Schedule> schedules = new HashMap<>();
+    private final List<Schedule> due = new ArrayList<>();
+
+    private TimingWheel<Schedule> wheel;
+    private FileChannel channel;
+    private long records;
+    private Thread releaser;
+    private boolean closed;
+
+    /**
+     * @param file       path to the schedule file. An empty path keeps the schedules in memory only
+     * @param tickMillis transfers are released at the first tick after their time
+     */
+    @Inject
+    public TransferScheduler(@Named("schedule.file") String file, @Named("schedule.tick.millis") long tickMillis) {
+        this(file, tickMillis, RETRY_DELAY_MILLIS, System::currentTimeMillis);
+    }
+
+    TransferScheduler(String file, long tickMillis, long retryDelayMillis, LongSupplier clock) {
+        this.file = file == null || file.trim().isEmpty() ? null : Paths.get(file.trim());
+        this.tickMillis = Math.max(1, tickMillis);
+        this.retryDelayMillis = retryDelayMillis;
+        this.clock = clock;
+    }
+
+    /**
+     * @return a scheduler that does not keep its schedules across restarts
+     */
+    public static TransferScheduler inMemory() {
+        return new TransferScheduler("", 1000);
+    }
+
+    /**
+     * Reads the schedule file and starts releasing the due transfers. Transfers that became due while
+     * the application was stopped are released right away.
+     *
+     * @param release takes the transfers due at the same tick
+     */
+    public void start(Consumer<List<Transfer>> release) {
+        lock.lock();
+        try {
+            wheel = new TimingWheel<>(clock.getAsLong() / tickMillis);
+            if (file != null) {
+                load();
+                compact();
+            }
+            schedules.values().forEach(this::add);
+            log.info("{} scheduled transfers", schedules.size());
+        } finally {
+            lock.unlock();
+        }
+        releaser = new Thread(() -> runReleaser(release), "schedule");
+        releaser.setDaemon(true);
+        releaser.start();
+    }
+
+    /**
+     * Schedules transfers from lines of the format
+     * <pre>
+     * dueAt,every,batchLine
+     * </pre>
+     * {@code dueAt} is an ISO-8601 date and time with an offset, e.g. {@code 2026-11-01T09:00:00+02:00}.
+     * {@code every} is an ISO-8601 duration, e.g. {@code P1D}, or empty for a one-off transfer.
+     * The id of the batch line identifies the schedule. Either every line is scheduled or none.
+     */
+    public List<ScheduledTransfer> schedule(List<String> lines) {
+        List<Schedule> parsed = parse(lines);
+        lock.lock();
+        try {
+            if (wheel == null || closed) {
+                throw new SendMoneyException("Transfer scheduler is not running");
+            }
+            Set<String> ids = new HashSet<>();
+            for (Schedule schedule : parsed) {
+                if (schedules.containsKey(schedule.id) || !ids.add(schedule.id)) {
+                    throw new InvalidInputException(format("Transfer %s is already scheduled", schedule.id));
+                }
+            }
+            StringBuilder changes = new StringBuilder();
+            parsed.forEach(schedule -> appendScheduled(changes, schedule));
+            write(changes, parsed.size());
+
+            List<ScheduledTransfer> scheduled = new ArrayList<>(parsed.size());
+            for (Schedule schedule : parsed) {
+                schedules.put(schedule.id, schedule);
+                add(schedule);
+                ScheduledTransfer view = schedule.view();
+                scheduled.add(view);
+                log.info("Scheduled transfer {} at {}", schedule.id, view.getNextAt());
+            }
+            changed.signal();
+            return scheduled;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops a one-off transfer from being released or a recurring one from being released again.
+     *
+     * @return whether the transfer was scheduled
+     */
+    public boolean cancel(String id) {
+        lock.lock();
+        try {
+            Schedule schedule = schedules.remove(id);
+            if (schedule == null) {
+                return false;
+            }
+            schedule.cancelled = true;
+            write(new StringBuilder(CANCELLED).append(' ').append(id).append('\n'), 1);
+            log.info("Cancelled scheduled transfer {}", id);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gives the CVV of a schedule read from the file. A schedule that is already due is released right away.
+     *
+     * @return the schedule of the transfer, {@code null} when it is not scheduled
+     */
+    public ScheduledTransfer supplyCvv(String id, String cvv) {
+        InputError error = CardInputs.checkCvv(cvv, 0, cvv.length());
+        if (error != null) {
+            throw new InvalidInputException("Invalid CVV of scheduled transfer " + id + ": " + error.getMessage());
+        }
+        lock.lock();
+        try {
+            Schedule schedule = schedules.get(id);
+            if (schedule == null) {
+                return null;
+            }
+            schedule.cvv = cvv;
+            if (schedule.waitingForCvv) {
+                schedule.waitingForCvv = false;
+                due.add(schedule);
+                changed.signal();
+            }
+            log.info("CVV of scheduled transfer {} is given", id);
+            return schedule.view();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return the schedule of the transfer, {@code null} when it is not scheduled
+     */
+    public ScheduledTransfer get(String id) {
+        lock.lock();
+        try {
+            Schedule schedule = schedules.get(id);
+            return schedule == null ? null : schedule.view();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return schedules.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stops releasing transfers. A release in progress is finished.
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            changed.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        if (releaser != null) {
+            try {
+                releaser.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.warn("Failed to close transfer schedule {}", file, e);
+            }
+        }
+    }
+
+    private void runReleaser(Consumer<List<Transfer>> release) {
+        while (true) {
+            List<Schedule> released;
+            lock.lock();
+            try {
+                while (true) {
+                    if (closed) {
+                        return;
+                    }
+                    long now = clock.getAsLong();
+                    wheel.advance(now / tickMillis, due::add);
+                    if (!due.isEmpty()) {
+                        break;
+                    }
+                    long next = wheel.nextTick();
+                    if (next == TimingWheel.NONE) {
+                        changed.await();
+                    } else {
+                        changed.await(Math.max(1, next * tickMillis - now), TimeUnit.MILLISECONDS);
+                    }
+                }
+                released = new ArrayList<>(due);
+                due.clear();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                lock.unlock();
+            }
+            try {
+                release(released, release);
+            } catch (RuntimeException e) {
+                log.error("Failed to release scheduled transfers", e);
+            }
+        }
+    }
+
+    private void release(List<Schedule> dueSchedules, Consumer<List<Transfer>> release) {
+        List<Schedule> released = new ArrayList<>(dueSchedules.size());
+        List<Transfer> transfers = new ArrayList<>(dueSchedules.size());
+        for (Schedule schedule : dueSchedules) {
+            if (schedule.cancelled) {
+                continue;
+            }
+            if (schedule.cvv == null) {
+                waitForCvv(schedule);
+                continue;
+            }
+            released.add(schedule);
+            try {
+                Transfer transfer = reader.parse(Collections.singletonList(withCvv(schedule.line, schedule.cvv))).get(0);
+                transfer.setId(schedule.occurrenceId());
+                transfers.add(transfer);
+            } catch (InvalidInputException e) {
+                log.error("Scheduled transfer {} is not sent: {}", schedule.id, e.getMessage());
+            }
+        }
+        if (!transfers.isEmpty()) {
+            log.info("Releasing {} scheduled transfers", transfers.size());
+            try {
+                release.accept(transfers);
+            } catch (RuntimeException e) {
+                log.error("Failed to release {} scheduled transfers. Releasing them again in {} ms",
+                        transfers.size(), retryDelayMillis, e);
+                retry(released);
+                return;
+            }
+        }
+
+        lock.lock();
+        try {
+            StringBuilder changes = new StringBuilder();
+            int count = 0;
+            long now = clock.getAsLong();
+            for (Schedule schedule : released) {
+                if (schedule.cancelled) {
+                    continue;
+                }
+                long releasedDue = schedule.due;
+                if (schedule.interval == 0) {
+                    schedules.remove(schedule.id);
+                } else {
+                    schedule.due = nextDue(schedule, now);
+                    add(schedule);
+                }
+                changes.append(RELEASED).append(' ').append(releasedDue).append(' ')
+                        .append(schedule.interval == 0 ? 0 : schedule.due).append(' ').append(schedule.id).append('\n');
+                count++;
+            }
+            write(changes, count);
+            if (records > COMPACT_MIN_RECORDS && records > 2L * schedules.size()) {
+                compact();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+     * The schedule is neither released nor put back on the wheel, so its occurrence id stays the same.
+     */
+    private void waitForCvv(Schedule schedule) {
+        lock.lock();
+        try {
+            if (schedule.cvv != null) {
+                due.add(schedule);
+                changed.signal();
+            } else if (!schedule.cancelled) {
+                schedule.waitingForCvv = true;
+                log.warn("Scheduled transfer {} is due but its CVV is not known after the restart. "
+                        + "Give it with PUT /schedules/{}/cvv", schedule.id, schedule.id);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+     * Puts the schedules back on the wheel without changing their due time, so the occurrence ids stay the same.
+     */
+    private void retry(List<Schedule> released) {
+        lock.lock();
+        try {
+            long retryTick = dueTick(clock.getAsLong() + retryDelayMillis);
+            for (Schedule schedule : released) {
+                if (!schedule.cancelled) {
+                    wheel.add(retryTick, schedule, due::add);
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+     * Skips the occurrences that are already in the past, so a long stop does not release a transfer per missed one.
+     */
+    private long nextDue(Schedule schedule, long now) {
+        long next = schedule.due + schedule.interval;
+        if (next <= now) {
+            long missed = (now - next) / schedule.interval + 1;
+            log.warn("Skipping {} missed occurrences of scheduled transfer {}", missed, schedule.id);
+            next += missed * schedule.interval;
+        }
+        return next;
+    }
+
+    private void add(Schedule schedule) {
+        wheel.add(dueTick(schedule.due), schedule, due::add);
+    }
+
+    private long dueTick(long dueMillis) {
+        return (dueMillis + tickMillis - 1) / tickMillis;
+    }
+
+    private List<Schedule> parse(List<String> lines) {
+        List<String> batchLines = new ArrayList<>(lines.size());
+        List<Schedule> parsed = new ArrayList<>(lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            String line = lines.get(i).trim();
+            if (line.isEmpty() || line.startsWith(COMMENT_PREFIX)) {
+                batchLines.add("");
+                continue;
+            }
+            String[] columns = line.split(",", 3);
+            if (columns.length != 3) {
+                throw new InvalidInputException(format(ERROR_INVALID_LINE, i + 1, "expected dueAt,every,batchLine"));
+            }
+            long dueMillis;
+            long intervalMillis = 0;
+            try {
+                dueMillis = OffsetDateTime.parse(columns[0].trim()).toInstant().toEpochMilli();
+                if (!columns[1].trim().isEmpty()) {
+                    intervalMillis = Duration.parse(columns[1].trim()).toMillis();
+                }
+            } catch (DateTimeParseException | ArithmeticException e) {
+                throw new InvalidInputException(format(ERROR_INVALID_LINE, i + 1, e.getMessage()), e);
+            }
+            if (!columns[1].trim().isEmpty() && intervalMillis < tickMillis) {
+                throw new InvalidInputException(format(ERROR_INVALID_LINE, i + 1,
+                        "interval is shorter than the schedule tick of " + tickMillis + " ms"));
+            }
+            if (dueTick(dueMillis) >= 1L << (TimingWheel.SLOT_BITS * TimingWheel.LEVELS)) {
+                throw new InvalidInputException(format(ERROR_INVALID_LINE, i + 1, "due time is too far"));
+            }
+            batchLines.add(columns[2].trim());
+            parsed.add(new Schedule(null, dueMillis, intervalMillis, columns[2].trim(), null));
+        }
+
+        // Checked as the daemon checks submitted transfers, the line numbers match the schedule lines
+        List<Transfer> transfers = reader.parse(batchLines);
+        List<Schedule> schedules = new ArrayList<>(parsed.size());
+        for (int i = 0; i < parsed.size(); i++) {
+            Schedule schedule = parsed.get(i);
+            schedules.add(new Schedule(transfers.get(i).getId(), schedule.due, schedule.interval,
+                    withCvv(schedule.line, ""), cvvOf(schedule.line)));
+        }
+        return schedules;
+    }
+
+    /*
+     * A torn last line of a stopped write is skipped. The CVV of a file written before the CVV codes were
+     * left out of it is kept in memory, the file is compacted without it on start.
+     */
+    private void load() {
+        if (!Files.exists(file)) {
+            return;
+        }
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                try {
+                    replay(line);
+                } catch (RuntimeException e) {
+                    log.warn("Skipping invalid line of transfer schedule {}: {}", file, e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            throw new SendMoneyException("Failed to read transfer schedule " + file, e);
+        }
+    }
+
+    private void replay(String line) {
+        String[] values = line.split(" ", 2);
+        if (SCHEDULED.equals(values[0])) {
+            String[] fields = values[1].split(" ", 3);
+            String batchLine = fields[2];
+            String id = batchLine.split(",", 2)[0].trim();
+            String cvv = cvvOf(batchLine);
+            schedules.put(id, new Schedule(id, Long.parseLong(fields[0]), Long.parseLong(fields[1]),
+                    withCvv(batchLine, ""), cvv.isEmpty() ? null : cvv));
+        } else if (RELEASED.equals(values[0])) {
+            String[] fields = values[1].split(" ", 3);
+            Schedule schedule = schedules.get(fields[2]);
+            if (schedule != null && schedule.due == Long.parseLong(fields[0])) {
+                if (schedule.interval == 0) {
+                    schedules.remove(schedule.id);
+                } else {
+                    schedule.due = Long.parseLong(fields[1]);
+                }
+            }
+        } else if (CANCELLED.equals(values[0])) {
+            schedules.remove(values[1]);
+        } else {
+            throw new IllegalArgumentException("unknown record " + values[0]);
+        }
+    }
+
+    /*
+     * The previous file is replaced atomically, so a stop while compacting leaves one of the two.
+     */
+    private void compact() {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            if (channel != null) {
+                channel.close();
+            }
+            createOwnerOnly(temporary);
+            try (BufferedWriter out = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+                StringBuilder line = new StringBuilder();
+                for (Schedule schedule : schedules.values()) {
+                    line.setLength(0);
+                    appendScheduled(line, schedule);
+                    out.write(line.toString());
+                }
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            throw new SendMoneyException("Failed to write transfer schedule " + file, e);
+        }
+        records = schedules.size();
+    }
+
+    /*
+     * The file keeps the card numbers, see the class comment.
+     */
+    private static void createOwnerOnly(Path path) throws IOException {
+        Files.deleteIfExists(path);
+        if (path.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+            Files.createFile(path, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        }
+    }
+
+    /*
+     * Called under the lock. The changes are on the disk when it returns.
+     */
+    private void write(StringBuilder changes, int count) {
+        if (channel == null || count == 0) {
+            return;
+        }
+        ByteBuffer bytes = ByteBuffer.wrap(changes.toString().getBytes(StandardCharsets.UTF_8));
+        try {
+            while (bytes.hasRemaining()) {
+                channel.write(bytes);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            throw new SendMoneyException("Failed to write transfer schedule " + file, e);
+        }
+        records += count;
+    }
+
+    private static void appendScheduled(StringBuilder changes, Schedule schedule) {
+        changes.append(SCHEDULED).append(' ').append(schedule.due).append(' ').append(schedule.interval)
+                .append(' ').append(schedule.line).append('\n');
+    }
+
+    /*
+     * The batch line is checked already, so it has the CVV column.
+     */
+    private static String cvvOf(String batchLine) {
+        return batchLine.split(",", -1)[CVV_COLUMN].trim();
+    }
+
+    private static String withCvv(String batchLine, String cvv) {
+        String[] columns = batchLine.split(",", -1);
+        columns[CVV_COLUMN] = cvv;
+        return String.join(",", columns);
+    }
+
+    private static final class Schedule {
+
+        private final String id;
+        private final long interval;
+        /**
+         * Batch line without the CVV
+         */
+        private final String line;
+        private long due;
+        private volatile String cvv;
+        private boolean waitingForCvv;
+        private volatile boolean cancelled;
+
+        private Schedule(String id, long due, long interval, String line, String cvv) {
+            this.id = id;
+            this.due = due;
+            this.interval = interval;
+            this.line = line;
+            this.cvv = cvv;
+        }
+
+        private String occurrenceId() {
+            return interval == 0 ? id : id + "@" + Instant.ofEpochMilli(due);
+        }
+
+        private ScheduledTransfer view() {
+            return new ScheduledTransfer(id, due, interval, cvv == null);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package io.github.bcherniakh.sendmoney.trace;
+
+import com.google.gson.Gson;
+import com.google.inject.Inject;
+import com.google.inject.Singleton;
+import io.github.bcherniakh.sendmoney.exception.SendMoneyException;
+import org.openqa.selenium.WebDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Named;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Records the WebDriver commands as spans of the Chrome trace event format. The file opens as a timeline
+ * in chrome://tracing or ui.perfetto.dev: a row per thread, a span per command with the transfer id.
+ * <p>
+ * Spans are put into a queue and written by a background thread, so tracing adds little to the commands.
+ * Values typed into the fields are never written.
+ */
+@Singleton
+public class CommandTracer implements AutoCloseable {
+
+    private static final String NO_TRANSFER = "-";
+    private static final String END_OF_TRACE = "";
+
+    private Logger log = LoggerFactory.getLogger(CommandTracer.class);
+
+    private final Gson gson = new Gson();
+    private final ThreadLocal<String> transferId = new ThreadLocal<>();
+    private final Set<Long> namedThreads = ConcurrentHashMap.newKeySet();
+    private final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+    private final long origin = System.nanoTime();
+    private final Path file;
+    private Thread writer;
+
+    /**
+     * @param file path to the trace file. An empty path disables the tracing
+     */
+    @Inject
+    public CommandTracer(@Named("trace.file") String file) {
+        this.file = file == null || file.trim().isEmpty() ? null : Paths.get(file.trim());
+        if (this.file == null) {
+            return;
+        }
+
+        Writer output;
+        try {
+            output = Files.newBufferedWriter(this.file, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new SendMoneyException("Failed to open trace file " + this.file, e);
+        }
+        writer = new Thread(() -> writeLoop(output), "trace-writer");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("Tracing WebDriver commands to {}", this.file);
+    }
+
+    public boolean isEnabled() {
+        return file != null;
+    }
+
+    /**
+     * @return the driver that traces its commands and the commands of the elements it finds.
+     * The same driver when the tracing is disabled
+     */
+    public WebDriver wrap(WebDriver webDriver) {
+        return isEnabled() ? TracingProxy.wrapDriver(webDriver, this) : webDriver;
+    }
+
+    /**
+     * Runs the transfer, marking the commands of the current thread with its id, and records it as a span.
+     */
+    public void inTransfer(String id, Runnable transfer) {
+        if (!isEnabled()) {
+            transfer.run();
+            return;
+        }
+        transferId.set(id);
+        long startedAt = System.nanoTime();
+        try {
+            transfer.run();
+        } finally {
+            record("transfer", "transfer", null, startedAt, System.nanoTime());
+            transferId.remove();
+        }
+    }
+
+    void record(String category, String name, String detail, long startedAt, long finishedAt) {
+        long thread = Thread.currentThread().getId();
+        if (namedThreads.add(thread)) {
+            events.add(String.format("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":1,\"tid\":%d,\"args\":{\"name\":%s}}",
+                    thread, gson.toJson(Thread.currentThread().getName())));
+        }
+        String transfer = transferId.get();
+        events.add(String.format("{\"name\":%s,\"cat\":\"%s\",\"ph\":\"X\",\"ts\":%d,\"dur\":%d,\"pid\":1,\"tid\":%d,"
+                        + "\"args\":{\"transfer\":%s%s}}",
+                gson.toJson(name), category, (startedAt - origin) / 1000, (finishedAt - startedAt) / 1000, thread,
+                gson.toJson(transfer == null ? NO_TRANSFER : transfer),
+                detail == null ? "" : ",\"detail\":" + gson.toJson(detail)));
+    }
+
+    /**
+     * Writes the remaining spans and closes the file.
+     */
+    @Override
+    public void close() {
+        if (writer == null || !writer.isAlive()) {
+            return;
+        }
+        events.add(END_OF_TRACE);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void writeLoop(Writer output) {
+        List<String> batch = new ArrayList<>();
+        boolean first = true;
+        try (BufferedWriter out = new BufferedWriter(output)) {
+            out.write("[");
+            while (true) {
+                batch.add(events.take());
+                events.drainTo(batch);
+                for (String event : batch) {
+                    if (END_OF_TRACE.equals(event)) {
+                        out.write("\n]\n");
+                        return;
+                    }
+                    out.write(first ? "\n" : ",\n");
+                    out.write(event);
+                    first = false;
+                }
+                batch.clear();
+                out.flush();
+            }
+        } catch (IOException e) {
+            log.error("Failed to write trace file {}. Tracing is stopped", file, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package io.github.bcherniakh.sendmoney.trace;
+
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.internal.WrapsDriver;
+import org.openqa.selenium.internal.WrapsElement;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Dynamic proxy of a driver or an element that records every call in the {@link CommandTracer}.
+ * The proxy implements all interfaces of the wrapped object, so the capability checks like
+ * {@code instanceof JavascriptExecutor} keep working. Found elements are wrapped as well.
+ * <p>
+ * {@code EventFiringWebDriver} is not used: its listener does not see calls like {@code getAttribute}
+ * and {@code getCurrentUrl}.
+ */
+final class TracingProxy implements InvocationHandler {
+
+    private static final String DRIVER_CATEGORY = "driver";
+    private static final String ELEMENT_CATEGORY = "element";
+
+    private final Object target;
+    private final CommandTracer tracer;
+    private final String category;
+
+    private TracingProxy(Object target, CommandTracer tracer, String category) {
+        this.target = target;
+        this.tracer = tracer;
+        this.category = category;
+    }
+
+    static WebDriver wrapDriver(WebDriver driver, CommandTracer tracer) {
+        return (WebDriver) proxy(driver, tracer, DRIVER_CATEGORY, WrapsDriver.class);
+    }
+
+    private static WebElement wrapElement(WebElement element, CommandTracer tracer) {
+        return (WebElement) proxy(element, tracer, ELEMENT_CATEGORY, WrapsElement.class);
+    }
+
+    private static Object proxy(Object target, CommandTracer tracer, String category, Class<?> wrapperInterface) {
+        Set<Class<?>> interfaces = new LinkedHashSet<>();
+        for (Class<?> type = target.getClass(); type != null; type = type.getSuperclass()) {
+            collectInterfaces(type, interfaces);
+        }
+        interfaces.add(wrapperInterface);
+        return Proxy.newProxyInstance(TracingProxy.class.getClassLoader(), interfaces.toArray(new Class<?>[0]),
+                new TracingProxy(target, tracer, category));
+    }
+
+    private static void collectInterfaces(Class<?> type, Set<Class<?>> interfaces) {
+        for (Class<?> implemented : type.getInterfaces()) {
+            if (Modifier.isPublic(implemented.getModifiers()) && interfaces.add(implemented)) {
+                collectInterfaces(implemented, interfaces);
+            }
+        }
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        if (method.getDeclaringClass() == Object.class) {
+            return invokeTarget(method, args);
+        }
+        if (("getWrappedDriver".equals(name) && target instanceof WebDriver)
+                || ("getWrappedElement".equals(name) && target instanceof WebElement)) {
+            return target;
+        }
+
+        long startedAt = System.nanoTime();
+        try {
+            return wrapResult(invokeTarget(method, unwrap(args)));
+        } finally {
+            tracer.record(category, name, detail(name, args), startedAt, System.nanoTime());
+        }
+    }
+
+    private Object invokeTarget(Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private Object wrapResult(Object result) {
+        if (result instanceof WebElement) {
+            return wrapElement((WebElement) result, tracer);
+        }
+        if (result instanceof List && !((List<?>) result).isEmpty() && ((List<?>) result).get(0) instanceof WebElement) {
+            List<Object> wrapped = new ArrayList<>();
+            for (Object element : (List<?>) result) {
+                wrapped.add(element instanceof WebElement ? wrapElement((WebElement) element, tracer) : element);
+            }
+            return wrapped;
+        }
+        return result;
+    }
+
+    /*
+     * Elements passed to the driver, for example as script arguments, are replaced by the wrapped ones.
+     */
+    private static Object[] unwrap(Object[] args) {
+        if (args == null) {
+            return null;
+        }
+        Object[] unwrapped = args.clone();
+        for (int i = 0; i < unwrapped.length; i++) {
+            if (unwrapped[i] instanceof WrapsElement && Proxy.isProxyClass(unwrapped[i].getClass())) {
+                unwrapped[i] = ((WrapsElement) unwrapped[i]).getWrappedElement();
+            } else if (unwrapped[i] instanceof Object[]) {
+                unwrapped[i] = unwrap((Object[]) unwrapped[i]);
+            }
+        }
+        return unwrapped;
+    }
+
+    /*
+     * Only locators, attribute names and addresses are written. Typed values may be card numbers.
+     */
+    private static String detail(String name, Object[] args) {
+        if (args == null || args.length == 0) {
+            return null;
+        }
+        if (args[0] instanceof By || "get".equals(name)) {
+            return String.valueOf(args[0]);
+        }
+        if (args[0] instanceof String && ("getAttribute".equals(name) || "getCssValue".equals(name))) {
+            return (String) args[0];
+        }
+        return null;
+    }
+}
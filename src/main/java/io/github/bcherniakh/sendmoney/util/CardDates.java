@@ -0,0 +1,34 @@
+package io.github.bcherniakh.sendmoney.util;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Parses card related dates.
+ */
+public final class CardDates {
+
+    private static final int EXPIRES_DATE_LENGTH = 7;
+
+    private CardDates() {
+    }
+
+    /**
+     * Parses the card expires date.
+     *
+     * @param date date in the MM/YYYY format
+     * @return the first day of the month the card expires in
+     * @throws DateTimeParseException when the date is not in the expected format
+     */
+    public static LocalDate parseExpiresDate(String date) {
+        if (date.length() != EXPIRES_DATE_LENGTH || date.charAt(2) != '/'
+                || !CardInputs.isDigits(date, 0, 2) || !CardInputs.isDigits(date, 3, EXPIRES_DATE_LENGTH)) {
+            throw new DateTimeParseException("Text '" + date + "' could not be parsed as MM/YYYY", date, 0);
+        }
+        int month = CardInputs.parseInt(date, 0, 2);
+        if (month < 1 || month > 12) {
+            throw new DateTimeParseException("Text '" + date + "' has an invalid month", date, 0);
+        }
+        return LocalDate.of(CardInputs.parseInt(date, 3, EXPIRES_DATE_LENGTH), month, 1);
+    }
+}
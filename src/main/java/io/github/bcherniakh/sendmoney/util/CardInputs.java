@@ -0,0 +1,173 @@
+package io.github.bcherniakh.sendmoney.util;
+
+import java.time.YearMonth;
+
+/**
+ * Checks the transfer inputs in the formats of application.properties and batch files.
+ * <p>
+ * Every check looks at the characters between {@code from} (inclusive) and {@code to} (exclusive) of a text
+ * in a single pass and returns the {@link InputError} or {@code null} for a valid value.
+ * Nothing is allocated, so whole batch files can be checked before a browser is launched.
+ * Spaces around a value are ignored.
+ */
+public final class CardInputs {
+
+    private static final int CARD_NUMBER_LENGTH = 19;
+    private static final int CARD_BLOCK_LENGTH = 4;
+    private static final int EXPIRES_DATE_LENGTH = 7;
+    private static final int CVV_LENGTH = 3;
+    private static final int PHONE_LENGTH = 12;
+    private static final String PHONE_PREFIX = "380";
+    private static final int MAX_AMOUNT_DECIMALS = 2;
+
+    private CardInputs() {
+    }
+
+    /**
+     * Months since the beginning of the era, the form {@link #checkExpiresDate} compares the dates in.
+     */
+    public static int monthIndex(YearMonth month) {
+        return month.getYear() * 12 + month.getMonthValue() - 1;
+    }
+
+    /**
+     * Card number in the XXXX-XXXX-XXXX-XXXX format with a valid Luhn check digit.
+     */
+    public static InputError checkCardNumber(CharSequence text, int from, int to) {
+        from = skipSpaces(text, from, to);
+        to = trimSpaces(text, from, to);
+        if (to - from != CARD_NUMBER_LENGTH) {
+            return InputError.CARD_NUMBER_FORMAT;
+        }
+        int sum = 0;
+        int digitsLeft = CARD_NUMBER_LENGTH - CARD_NUMBER_LENGTH / (CARD_BLOCK_LENGTH + 1);
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if ((i - from) % (CARD_BLOCK_LENGTH + 1) == CARD_BLOCK_LENGTH) {
+                if (c != '-') {
+                    return InputError.CARD_NUMBER_FORMAT;
+                }
+                continue;
+            }
+            if (!isDigit(c)) {
+                return InputError.CARD_NUMBER_FORMAT;
+            }
+            int digit = c - '0';
+            // Every second digit counting from the check digit is doubled
+            if (digitsLeft-- % 2 == 0) {
+                digit *= 2;
+                if (digit > 9) {
+                    digit -= 9;
+                }
+            }
+            sum += digit;
+        }
+        return sum % 10 == 0 ? null : InputError.CARD_NUMBER_CHECKSUM;
+    }
+
+    /**
+     * Expires date in the MM/YYYY format. A card is valid till the end of the month it expires in.
+     *
+     * @param currentMonth {@link #monthIndex} of the current month
+     */
+    public static InputError checkExpiresDate(CharSequence text, int from, int to, int currentMonth) {
+        from = skipSpaces(text, from, to);
+        to = trimSpaces(text, from, to);
+        if (to - from != EXPIRES_DATE_LENGTH || text.charAt(from + 2) != '/'
+                || !isDigits(text, from, from + 2) || !isDigits(text, from + 3, to)) {
+            return InputError.EXPIRES_DATE_FORMAT;
+        }
+        int month = parseInt(text, from, from + 2);
+        if (month < 1 || month > 12) {
+            return InputError.EXPIRES_DATE_FORMAT;
+        }
+        int expiresMonth = parseInt(text, from + 3, to) * 12 + month - 1;
+        return expiresMonth < currentMonth ? InputError.CARD_EXPIRED : null;
+    }
+
+    public static InputError checkCvv(CharSequence text, int from, int to) {
+        from = skipSpaces(text, from, to);
+        to = trimSpaces(text, from, to);
+        return to - from == CVV_LENGTH && isDigits(text, from, to) ? null : InputError.CVV_FORMAT;
+    }
+
+    /**
+     * Phone number in the 380XXXXXXXXX format. An empty value is valid, the phone is not asked for every card.
+     */
+    public static InputError checkPhone(CharSequence text, int from, int to) {
+        from = skipSpaces(text, from, to);
+        to = trimSpaces(text, from, to);
+        if (from == to) {
+            return null;
+        }
+        if (to - from != PHONE_LENGTH || !isDigits(text, from, to)) {
+            return InputError.PHONE_FORMAT;
+        }
+        for (int i = 0; i < PHONE_PREFIX.length(); i++) {
+            if (text.charAt(from + i) != PHONE_PREFIX.charAt(i)) {
+                return InputError.PHONE_FORMAT;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Positive amount with a dot as the decimal delimiter and up to 2 decimals.
+     */
+    public static InputError checkAmount(CharSequence text, int from, int to) {
+        from = skipSpaces(text, from, to);
+        to = trimSpaces(text, from, to);
+        int dot = -1;
+        boolean positive = false;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c == '.' && dot < 0) {
+                dot = i;
+            } else if (isDigit(c)) {
+                positive |= c != '0';
+            } else {
+                return InputError.AMOUNT_FORMAT;
+            }
+        }
+        boolean validDot = dot < 0 || (dot > from && to - dot - 1 >= 1 && to - dot - 1 <= MAX_AMOUNT_DECIMALS);
+        return positive && validDot ? null : InputError.AMOUNT_FORMAT;
+    }
+
+    public static boolean isDigits(CharSequence text, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (!isDigit(text.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Parses the digits between the positions, which should be checked with {@link #isDigits} first.
+     */
+    public static int parseInt(CharSequence text, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            value = value * 10 + text.charAt(i) - '0';
+        }
+        return value;
+    }
+
+    public static int skipSpaces(CharSequence text, int from, int to) {
+        while (from < to && text.charAt(from) <= ' ') {
+            from++;
+        }
+        return from;
+    }
+
+    public static int trimSpaces(CharSequence text, int from, int to) {
+        while (to > from && text.charAt(to - 1) <= ' ') {
+            to--;
+        }
+        return to;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+}
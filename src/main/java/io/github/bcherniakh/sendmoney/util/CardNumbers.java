@@ -0,0 +1,55 @@
+package io.github.bcherniakh.sendmoney.util;
+
+import io.github.bcherniakh.sendmoney.exception.InvalidInputException;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static java.lang.String.format;
+
+/**
+ * Splits card numbers into the blocks the sendmoney page expects.
+ */
+public final class CardNumbers {
+
+    private static final String ERROR_NOT_FOUR_BLOCKS_PATTERN = "Failed to split card number to 4 blocks. Created blocks %d blocks";
+    private static final String ERROR_INVALID_BLOCK_LENGTH = "Each card number block should consist of 4 symbols. Symbols in block %d. Block %s";
+    private static final int BLOCKS = 4;
+    private static final int BLOCK_LENGTH = 4;
+    private static final char BLOCK_DELIMITER = '-';
+
+    private CardNumbers() {
+    }
+
+    /**
+     * Splits the card number into 4 blocks of 4 symbols.
+     *
+     * @param cardNumber card number in the XXXX-XXXX-XXXX-XXXX format
+     * @return the blocks in the order they appear in the number
+     * @throws InvalidInputException when the number is not in the expected format
+     */
+    public static List<String> splitIntoBlocks(String cardNumber) {
+        int blocks = 1;
+        for (int i = 0; i < cardNumber.length(); i++) {
+            if (cardNumber.charAt(i) == BLOCK_DELIMITER) {
+                blocks++;
+            }
+        }
+        if (blocks != BLOCKS) {
+            throw new InvalidInputException(format(ERROR_NOT_FOUR_BLOCKS_PATTERN, blocks));
+        }
+
+        String[] cardNumberBlocks = new String[BLOCKS];
+        int blockStart = 0;
+        for (int i = 0; i < BLOCKS; i++) {
+            int blockEnd = i == BLOCKS - 1 ? cardNumber.length() : cardNumber.indexOf(BLOCK_DELIMITER, blockStart);
+            String block = cardNumber.substring(blockStart, blockEnd);
+            if (block.length() != BLOCK_LENGTH) {
+                throw new InvalidInputException(format(ERROR_INVALID_BLOCK_LENGTH, block.length(), block));
+            }
+            cardNumberBlocks[i] = block;
+            blockStart = blockEnd + 1;
+        }
+        return Arrays.asList(cardNumberBlocks);
+    }
+}
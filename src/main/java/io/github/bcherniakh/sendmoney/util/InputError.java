@@ -0,0 +1,28 @@
+package io.github.bcherniakh.sendmoney.util;
+
+/**
+ * Reasons a transfer input is rejected by {@link CardInputs}.
+ */
+public enum InputError {
+    COLUMNS("expected 7 columns"),
+    TRANSFER_ID("transfer id can not be empty"),
+    CARD_NUMBER_FORMAT("card number should be in the XXXX-XXXX-XXXX-XXXX format"),
+    CARD_NUMBER_CHECKSUM("card number fails the Luhn check"),
+    EXPIRES_DATE_FORMAT("expires date should be in the MM/YYYY format"),
+    CARD_EXPIRED("card is expired"),
+    CVV_FORMAT("CVV code should consist of 3 digits"),
+    PHONE_FORMAT("phone number should be in the 380XXXXXXXXX format"),
+    AMOUNT_FORMAT("amount should be a positive number with a dot as the decimal delimiter and up to 2 decimals"),
+    JSON_FORMAT("expected a JSON object"),
+    JSON_VALUE("values can not contain ','");
+
+    private final String message;
+
+    InputError(String message) {
+        this.message = message;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
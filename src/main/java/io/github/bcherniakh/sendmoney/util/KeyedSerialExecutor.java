@@ -0,0 +1,283 @@
+package io.github.bcherniakh.sendmoney.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Runs the tasks of a key one after another in the order they were submitted, and the tasks of
+ * different keys in parallel.
+ * <p>
+ * Every key with queued tasks has its own lane. A worker takes the lane that has waited the longest,
+ * runs its first task and puts the lane back behind the others. A lane is run by one worker at a time,
+ * so a key with many tasks keeps a single worker and the others take the lanes of the other keys.
+ * A lane is dropped as soon as it is empty.
+ * <p>
+ * A task submitted with a delay is asked for it before it runs. A lane whose first task has to wait is parked
+ * for that time: the worker goes on with the other lanes and a timer puts the lane back, so the later tasks
+ * of the key still wait behind it.
+ * <p>
+ * At most {@code capacity} tasks are queued. {@link #submit} waits for a free place, so a producer
+ * reading faster than the workers send is held back.
+ *
+ * @param <K> key the tasks are ordered by
+ */
+public class KeyedSerialExecutor<K> {
+
+    private Logger log = LoggerFactory.getLogger(KeyedSerialExecutor.class);
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition laneReady = lock.newCondition();
+    private final Condition notFull = lock.newCondition();
+    private final Map<K, Queue<Task>> lanes = new HashMap<>();
+    private final Queue<K> readyLanes = new ArrayDeque<>();
+    private final Map<K, Task> parkedLanes = new HashMap<>();
+    private final ExecutorService workers;
+    private final ScheduledExecutorService timer;
+    private final int capacity;
+
+    private int queued;
+    private boolean shutdown;
+
+    /**
+     * @param name     prefix of the worker thread names
+     * @param workers  number of tasks run at the same time
+     * @param capacity maximum number of queued tasks
+     */
+    public KeyedSerialExecutor(String name, int workers, int capacity) {
+        this.capacity = capacity;
+        AtomicInteger number = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(workers, runnable -> new Thread(runnable, name + "-" + number.getAndIncrement()));
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name + "-timer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < workers; i++) {
+            this.workers.execute(this::runWorker);
+        }
+    }
+
+    /**
+     * Queues the task behind the other tasks of the key. Waits while the queue is full.
+     */
+    public void submit(K key, Runnable task) throws InterruptedException {
+        submit(key, () -> 0, task);
+    }
+
+    /**
+     * Queues the task behind the other tasks of the key. Waits while the queue is full.
+     *
+     * @param delayNanos asked once, when the task is the next of the key. The lane of the key is parked
+     *                   for the returned nanoseconds before the task runs
+     */
+    public void submit(K key, LongSupplier delayNanos, Runnable task) throws InterruptedException {
+        lock.lock();
+        try {
+            while (queued >= capacity) {
+                notFull.await();
+            }
+            if (shutdown) {
+                throw new IllegalStateException("Executor is shut down");
+            }
+            Queue<Task> lane = lanes.get(key);
+            if (lane == null) {
+                lane = new ArrayDeque<>();
+                lanes.put(key, lane);
+                readyLanes.add(key);
+                laneReady.signal();
+            }
+            lane.add(new Task(delayNanos, task));
+            queued++;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drops the queued tasks that have not started.
+     *
+     * @return number of dropped tasks
+     */
+    public int cancelQueued() {
+        lock.lock();
+        try {
+            int cancelled = queued;
+            lanes.values().forEach(Queue::clear);
+            parkedLanes.keySet().forEach(lanes::remove);
+            parkedLanes.clear();
+            queued = 0;
+            notFull.signalAll();
+            laneReady.signalAll();
+            return cancelled;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Lets the workers finish the queued tasks and stop. No tasks can be submitted afterwards.
+     */
+    public void shutdown() {
+        lock.lock();
+        try {
+            shutdown = true;
+            laneReady.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        workers.shutdown();
+    }
+
+    /**
+     * Drops the queued tasks and interrupts the running ones.
+     */
+    public void shutdownNow() {
+        cancelQueued();
+        shutdown();
+        workers.shutdownNow();
+        timer.shutdownNow();
+    }
+
+    /**
+     * Waits until the workers stop after {@link #shutdown()}.
+     */
+    public void awaitTermination() throws InterruptedException {
+        workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        timer.shutdownNow();
+    }
+
+    /*
+     * A worker stays while a lane is parked, so the lane has a worker to run it when it is back.
+     */
+    private void runWorker() {
+        while (true) {
+            K key;
+            Task task;
+            lock.lock();
+            try {
+                while ((key = readyLanes.poll()) == null) {
+                    if (shutdown && parkedLanes.isEmpty()) {
+                        return;
+                    }
+                    laneReady.awaitUninterruptibly();
+                }
+                task = lanes.get(key).peek();
+            } finally {
+                lock.unlock();
+            }
+
+            long delay = task == null ? 0 : task.delay(key);
+            if (delay > 0) {
+                park(key, task, delay);
+                continue;
+            }
+            lock.lock();
+            try {
+                if (task != null && lanes.get(key).poll() == task) {
+                    queued--;
+                    notFull.signal();
+                } else {
+                    // Cancelled while its delay was asked
+                    task = null;
+                }
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                if (task != null) {
+                    task.action.run();
+                }
+            } catch (RuntimeException e) {
+                log.error("Task of {} failed", key, e);
+            } finally {
+                requeue(key);
+            }
+        }
+    }
+
+    private void park(K key, Task task, long delayNanos) {
+        lock.lock();
+        try {
+            parkedLanes.put(key, task);
+        } finally {
+            lock.unlock();
+        }
+        timer.schedule(() -> unpark(key, task), delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /*
+     * A lane cancelled while parked is already dropped.
+     */
+    private void unpark(K key, Task task) {
+        lock.lock();
+        try {
+            if (parkedLanes.remove(key, task)) {
+                requeue(key);
+            }
+            if (shutdown && parkedLanes.isEmpty()) {
+                laneReady.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /*
+     * Puts the lane behind the others, so a key with many tasks takes turns with the other keys for the workers.
+     */
+    private void requeue(K key) {
+        lock.lock();
+        try {
+            if (lanes.get(key).isEmpty()) {
+                lanes.remove(key);
+            } else {
+                readyLanes.add(key);
+                laneReady.signal();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private final class Task {
+
+        private final LongSupplier delayNanos;
+        private final Runnable action;
+        private boolean delayAsked;
+
+        private Task(LongSupplier delayNanos, Runnable action) {
+            this.delayNanos = delayNanos;
+            this.action = action;
+        }
+
+        /*
+         * Only the worker holding the lane asks, so the flag needs no lock.
+         */
+        private long delay(K key) {
+            if (delayAsked) {
+                return 0;
+            }
+            delayAsked = true;
+            try {
+                return delayNanos.getAsLong();
+            } catch (RuntimeException e) {
+                log.error("Delay of the task of {} failed, running it now", key, e);
+                return 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package io.github.bcherniakh.sendmoney.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Milestones of the application startup measured from the JVM start.
+ * Only the first time a milestone is reached is kept, so it can be marked by code that runs for every transfer.
+ */
+public final class StartupMetrics {
+
+    public static final String INJECTOR_READY = "injector ready";
+    public static final String FIRST_KEYSTROKE = "first keystroke";
+
+    private static final Logger log = LoggerFactory.getLogger(StartupMetrics.class);
+    private static final Map<String, Long> MILESTONES = new ConcurrentHashMap<>();
+
+    private StartupMetrics() {
+    }
+
+    /**
+     * Records the milestone and logs the time passed since the JVM start. Does nothing for a milestone already reached.
+     */
+    public static void mark(String milestone) {
+        long reachedAt = System.currentTimeMillis();
+        if (MILESTONES.putIfAbsent(milestone, reachedAt) == null) {
+            log.info("Time to {}: {} ms since JVM start", milestone, reachedAt - ManagementFactory.getRuntimeMXBean().getStartTime());
+        }
+    }
+
+    /**
+     * @return milliseconds between the JVM start and the milestone, or -1 when it is not reached yet
+     */
+    public static long millisSinceStart(String milestone) {
+        Long reachedAt = MILESTONES.get(milestone);
+        return reachedAt == null ? -1 : reachedAt - ManagementFactory.getRuntimeMXBean().getStartTime();
+    }
+}
@@ -0,0 +1,77 @@
+package io.github.bcherniakh.sendmoney.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates executors for the blocking transfer work.
+ * <p>
+ * On Java 21 and newer every task gets its own virtual thread, so a waiting transfer costs a few hundred bytes
+ * instead of a platform thread stack. The project is built for Java 8, so the virtual thread API is looked up
+ * reflectively. On older runtimes a fixed number of platform threads runs the tasks from an unbounded queue.
+ */
+public final class TransferThreads {
+
+    private static Logger log = LoggerFactory.getLogger(TransferThreads.class);
+
+    /*
+     * Looked up once, empty before Java 21
+     */
+    private static final Optional<ThreadFactory> VIRTUAL_THREADS = virtualThreadFactory();
+
+    private TransferThreads() {
+    }
+
+    /**
+     * @return whether the tasks of {@link #newPerTaskExecutor} run on virtual threads
+     */
+    public static boolean virtualThreadsAvailable() {
+        return VIRTUAL_THREADS.isPresent();
+    }
+
+    /**
+     * @param name            prefix of the thread names
+     * @param platformThreads number of threads when virtual threads are not available
+     */
+    public static ExecutorService newPerTaskExecutor(String name, int platformThreads) {
+        AtomicInteger number = new AtomicInteger();
+        if (VIRTUAL_THREADS.isPresent()) {
+            ThreadFactory virtualThreads = VIRTUAL_THREADS.get();
+            try {
+                Method newThreadPerTaskExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+                log.debug("Running {} tasks on virtual threads", name);
+                return (ExecutorService) newThreadPerTaskExecutor.invoke(null, (ThreadFactory) runnable -> {
+                    Thread thread = virtualThreads.newThread(runnable);
+                    thread.setName(name + "-" + number.getAndIncrement());
+                    return thread;
+                });
+            } catch (NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+                log.debug("Virtual thread executor is not available", e);
+            }
+        }
+        log.debug("Running {} tasks on {} platform threads", name, platformThreads);
+        return Executors.newFixedThreadPool(platformThreads, runnable -> new Thread(runnable, name + "-" + number.getAndIncrement()));
+    }
+
+    /*
+     * Thread.ofVirtual().factory()
+     */
+    private static Optional<ThreadFactory> virtualThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            return Optional.of((ThreadFactory) builderClass.getMethod("factory").invoke(builder));
+        } catch (NoSuchMethodException | ClassNotFoundException | IllegalAccessException | InvocationTargetException e) {
+            // Before Java 21 the API is missing or, on Java 19 and 20, a preview feature that is off by default
+            return Optional.empty();
+        }
+    }
+}
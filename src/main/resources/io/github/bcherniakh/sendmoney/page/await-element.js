@@ -0,0 +1,55 @@
+/*
+ * Waits until an element is ready and answers as soon as it happens.
+ *
+ * arguments[0] - selector of the element. CSS or XPath, which starts with a slash
+ * arguments[1] - attribute to check or null to wait until the element is enabled
+ * arguments[2] - expected attribute value
+ * arguments[3] - timeout in milliseconds
+ * arguments[4] - callback supplied by executeAsyncScript
+ *
+ * The condition is checked on every DOM mutation instead of polling.
+ * Answers {ready, readyAt}, where readyAt is the browser time the condition was met at.
+ */
+var selector = arguments[0];
+var attribute = arguments[1];
+var expected = arguments[2];
+var timeout = arguments[3];
+var callback = arguments[arguments.length - 1];
+
+function element() {
+    if (selector.charAt(0) !== "/") {
+        return document.querySelector(selector);
+    }
+    return document.evaluate(selector, document, null, XPathResult.FIRST_ORDERED_NODE_TYPE, null).singleNodeValue;
+}
+
+function ready() {
+    var target = element();
+    if (!target) {
+        return false;
+    }
+    if (attribute === null) {
+        return !target.disabled;
+    }
+    return target.getAttribute(attribute) === expected;
+}
+
+if (ready()) {
+    callback({ready: true, readyAt: Date.now()});
+    return;
+}
+
+var timer;
+var observer = new MutationObserver(function () {
+    if (ready()) {
+        var readyAt = Date.now();
+        observer.disconnect();
+        clearTimeout(timer);
+        callback({ready: true, readyAt: readyAt});
+    }
+});
+observer.observe(document.documentElement, {attributes: true, childList: true, subtree: true});
+timer = setTimeout(function () {
+    observer.disconnect();
+    callback({ready: false, readyAt: Date.now()});
+}, timeout);
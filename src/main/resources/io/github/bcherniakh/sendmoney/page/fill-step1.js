@@ -0,0 +1,68 @@
+/*
+ * Fills all step 1 fields of the Sendmoney page in a single call.
+ *
+ * arguments[0] - selector of every field by SiteElements.MainPage name. CSS or XPath, which starts with a slash
+ * arguments[1] - value of every field by the same name. Card numbers are arrays of 4 blocks
+ *
+ * Values are set through the native value setters and followed by the events typing would fire,
+ * so the page scripts see the same changes as after sendKeys. Nothing is changed when any of the
+ * fields is missing. Returns the names of the fields that were not filled.
+ */
+var selectors = arguments[0];
+var values = arguments[1];
+var order = ["SENDER_CARD_NUMBER", "SENDER_CARD_EXPIRES_DATE_MONTH", "SENDER_CARD_EXPIRES_DATE_YEAR",
+    "SENDER_CARD_CVV2", "RECEIVER_CARD_NUMBER", "AMOUNT"];
+var events = ["keydown", "keypress", "input", "keyup", "change"];
+
+function find(selector) {
+    if (selector.charAt(0) !== "/") {
+        return Array.prototype.slice.call(document.querySelectorAll(selector));
+    }
+    var snapshot = document.evaluate(selector, document, null, XPathResult.ORDERED_NODE_SNAPSHOT_TYPE, null);
+    var nodes = [];
+    for (var i = 0; i < snapshot.snapshotLength; i++) {
+        nodes.push(snapshot.snapshotItem(i));
+    }
+    return nodes;
+}
+
+function setValue(element, value) {
+    var prototype = element.tagName === "SELECT" ? HTMLSelectElement.prototype : HTMLInputElement.prototype;
+    var setter = Object.getOwnPropertyDescriptor(prototype, "value").set;
+    element.focus();
+    setter.call(element, value);
+    events.forEach(function (type) {
+        element.dispatchEvent(new Event(type, {bubbles: true}));
+    });
+    element.blur();
+    return element.value === value;
+}
+
+var elements = {};
+for (var i = 0; i < order.length; i++) {
+    elements[order[i]] = find(selectors[order[i]]);
+    if (elements[order[i]].length === 0) {
+        return order;
+    }
+}
+
+var unfilled = [];
+order.forEach(function (field) {
+    var targets = elements[field];
+    var fieldValues = [].concat(values[field]);
+    var ready = targets.length === fieldValues.length && targets.every(function (target) {
+        return !target.disabled;
+    });
+    if (!ready) {
+        unfilled.push(field);
+        return;
+    }
+    var filled = true;
+    targets.forEach(function (target, index) {
+        filled = setValue(target, fieldValues[index]) && filled;
+    });
+    if (!filled) {
+        unfilled.push(field);
+    }
+});
+return unfilled;
@@ -0,0 +1,26 @@
+/*
+ * Tells whether the page is ready for the automation. Answers in a single call, the caller polls it.
+ *
+ * arguments[0] - selectors of the elements the page object needs. CSS or XPath, which starts with a slash
+ * arguments[1] - suffix the page URL ends with or null
+ *
+ * The document that was current before the navigation is marked by ReadinessWait.markStale() and is never ready,
+ * so elements of the previous page with the same paths are not mistaken for the new ones.
+ */
+var selectors = arguments[0];
+var urlSuffix = arguments[1];
+
+function present(selector) {
+    if (selector.charAt(0) !== "/") {
+        return document.querySelector(selector) !== null;
+    }
+    return document.evaluate(selector, document, null, XPathResult.FIRST_ORDERED_NODE_TYPE, null).singleNodeValue !== null;
+}
+
+if (document.sendMoneyStale === true) {
+    return false;
+}
+if (urlSuffix !== null && location.href.slice(-urlSuffix.length) !== urlSuffix) {
+    return false;
+}
+return selectors.every(present);
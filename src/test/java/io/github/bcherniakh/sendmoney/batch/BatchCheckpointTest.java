@@ -0,0 +1,68 @@
+package io.github.bcherniakh.sendmoney.batch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+@DisplayName("Batch checkpoint tests")
+class BatchCheckpointTest {
+
+    private Path batchFile;
+    private Path checkpointFile;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        batchFile = Files.createTempFile("batch", ".csv");
+        Files.write(batchFile, Collections.nCopies(10, "0123456789"), StandardCharsets.US_ASCII);
+        checkpointFile = Files.createTempFile("batch", ".checkpoint");
+        Files.delete(checkpointFile);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(batchFile);
+        Files.deleteIfExists(checkpointFile);
+    }
+
+    @Test
+    void keepsOffsetOfOldestUnfinishedTransfer() {
+        BatchCheckpoint checkpoint = new BatchCheckpoint(checkpointFile.toString());
+        assertThat(checkpoint.load(batchFile), equalTo(0L));
+
+        checkpoint.started(0, 11);
+        checkpoint.started(11, 22);
+        checkpoint.started(22, 33);
+        checkpoint.finished(11);
+        checkpoint.finished(0);
+        checkpoint.save();
+
+        assertThat(checkpoint.getOffset(), equalTo(22L));
+        assertThat(new BatchCheckpoint(checkpointFile.toString()).load(batchFile), equalTo(22L));
+        checkpoint.finished(22);
+        assertThat(checkpoint.getOffset(), equalTo(33L));
+    }
+
+    @Test
+    void ignoresCheckpointOfChangedFile() throws IOException {
+        BatchCheckpoint checkpoint = new BatchCheckpoint(checkpointFile.toString());
+        checkpoint.load(batchFile);
+        checkpoint.started(0, 11);
+        checkpoint.finished(0);
+        checkpoint.save();
+
+        Files.setLastModifiedTime(batchFile, FileTime.fromMillis(Files.getLastModifiedTime(batchFile).toMillis() - 60_000));
+
+        assertThat(new BatchCheckpoint(checkpointFile.toString()).load(batchFile), equalTo(0L));
+    }
+}
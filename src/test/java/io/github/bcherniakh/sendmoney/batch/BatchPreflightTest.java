@@ -0,0 +1,130 @@
+package io.github.bcherniakh.sendmoney.batch;
+
+import io.github.bcherniakh.sendmoney.exception.InvalidInputException;
+import io.github.bcherniakh.sendmoney.util.InputError;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DisplayName("Batch preflight tests")
+class BatchPreflightTest {
+
+    private static final String VALID_LINE = "t1,4111-1111-1111-1111,05/2020,123,380501234567,5500-0000-0000-0004,10.50";
+
+    private BatchPreflight preflight = new BatchPreflight(YearMonth.of(2020, 5));
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = Files.createTempFile("batch", ".csv");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    void reportsEveryInvalidLineOfFile() throws IOException {
+        Files.write(file, Arrays.asList(
+                "# id,senderCardNumber,senderCardExpires,senderCardCvv,senderPhone,receiverCardNumber,amount",
+                VALID_LINE,
+                "",
+                "t2,4111-1111-1111-1112,05/2020,123,380501234567,5500-0000-0000-0004,10.50",
+                "t3,4111-1111-1111-1111,04/2020,123,380501234567,5500-0000-0000-0004,10.50",
+                "t4,4111-1111-1111-1111,05/2020,123",
+                VALID_LINE + "\r"), StandardCharsets.UTF_8);
+
+        PreflightReport report = preflight.check(file);
+
+        assertThat(report.getCheckedCount(), equalTo(5L));
+        assertThat(report.getRejections(), hasSize(3));
+        assertThat(report.getRejections().get(0).getLineNumber(), equalTo(4L));
+        assertThat(report.getRejections().get(0).getError(), equalTo(InputError.CARD_NUMBER_CHECKSUM));
+        assertThat(report.getRejections().get(1).getError(), equalTo(InputError.CARD_EXPIRED));
+        assertThat(report.getRejections().get(2).toString(), equalTo("Invalid batch line 6: expected 7 columns"));
+    }
+
+    @Test
+    void checksLastLineWithoutLineBreak() throws IOException {
+        Files.write(file, ("t1,,05/2020,123,,5500-0000-0000-0004,10.50").getBytes(StandardCharsets.US_ASCII));
+
+        PreflightReport report = preflight.check(file);
+
+        assertThat(report.getCheckedCount(), equalTo(1L));
+        assertThat(report.getRejections().get(0).getError(), equalTo(InputError.CARD_NUMBER_FORMAT));
+    }
+
+    @Test
+    void acceptsValidLine() {
+        assertThat(preflight.checkLine(VALID_LINE), nullValue());
+        assertThat(preflight.checkLine(VALID_LINE + ",extra"), equalTo(InputError.COLUMNS));
+        assertThat(preflight.checkLine(" ,4111-1111-1111-1111,05/2020,123,,5500-0000-0000-0004,1"),
+                equalTo(InputError.TRANSFER_ID));
+    }
+
+    @Test
+    void checksAgainstMonthOfEachCheck() {
+        MovingClock clock = new MovingClock(Instant.parse("2020-05-31T12:00:00Z"));
+        BatchPreflight preflight = new BatchPreflight(clock);
+        assertThat(preflight.checkLine(VALID_LINE), nullValue());
+
+        clock.instant = Instant.parse("2020-06-01T12:00:00Z");
+
+        assertThat(preflight.checkLine(VALID_LINE), equalTo(InputError.CARD_EXPIRED));
+    }
+
+    @Test
+    void readerRejectsLineBeforeParsingIt() {
+        BatchFileReader reader = new BatchFileReader(preflight);
+
+        InvalidInputException exception = assertThrows(InvalidInputException.class, () -> reader.parse(
+                Collections.singletonList("t1,4111-1111-1111-1111,05/2020,12,380501234567,5500-0000-0000-0004,10.50")));
+
+        assertThat(exception.getMessage(), equalTo("Invalid batch line 1: CVV code should consist of 3 digits"));
+        assertThat(reader.parse(Collections.singletonList(VALID_LINE)), hasSize(1));
+    }
+
+    private static class MovingClock extends Clock {
+
+        private volatile Instant instant;
+
+        MovingClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package io.github.bcherniakh.sendmoney.batch;
+
+import io.github.bcherniakh.sendmoney.domain.Transfer;
+import io.github.bcherniakh.sendmoney.exception.InvalidInputException;
+import io.github.bcherniakh.sendmoney.util.InputError;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DisplayName("Transfer file stream tests")
+class TransferFileStreamTest {
+
+    private static final String LINE = ",4111-1111-1111-1111,05/2020,123,380501234567,5500-0000-0000-0004,10.50";
+    private static final int WINDOW_SIZE = 200;
+
+    private BatchFileReader reader = new BatchFileReader(new BatchPreflight(YearMonth.of(2020, 5)));
+    private Path file;
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    void readsLinesAcrossWindows() throws IOException {
+        file = write(".csv", "# comment", "t1" + LINE, "", "t2" + LINE + "\r", "t3" + LINE, "t4" + LINE, "t5" + LINE);
+
+        try (TransferFileStream stream = new TransferFileStream(file, 0, reader, WINDOW_SIZE)) {
+            assertThat(ids(stream), equalTo(Arrays.asList("t1", "t2", "t3", "t4", "t5")));
+            assertThat(stream.getOffset(), equalTo(Files.size(file)));
+        }
+    }
+
+    @Test
+    void continuesFromOffsetOfLastReadTransfer() throws IOException {
+        file = write(".csv", "t1" + LINE, "t2" + LINE, "t3" + LINE, "t4," + LINE);
+        long offset;
+        try (TransferFileStream stream = new TransferFileStream(file, 0, reader, WINDOW_SIZE)) {
+            stream.next();
+            stream.next();
+            offset = stream.getOffset();
+        }
+
+        try (TransferFileStream stream = new TransferFileStream(file, offset, reader, WINDOW_SIZE)) {
+            assertThat(stream.next().getId(), equalTo("t3"));
+            InvalidInputException error = assertThrows(InvalidInputException.class, stream::next);
+            assertThat(error.getMessage(), containsString("line at byte " + offset * 3 / 2));
+        }
+    }
+
+    @Test
+    void readsJsonLines() throws IOException {
+        file = write(".jsonl",
+                "{\"id\": \"t1\", \"senderCardNumber\": \"4111-1111-1111-1111\", \"senderCardExpires\": \"05/2020\","
+                        + " \"senderCardCvv\": \"123\", \"senderPhone\": \"380501234567\","
+                        + " \"receiverCardNumber\": \"5500-0000-0000-0004\", \"amount\": 10.50}",
+                "{\"id\": \"t2\", \"senderCardNumber\": \"4111-1111-1111-1111\"}");
+
+        try (TransferFileStream stream = new TransferFileStream(file, 0, reader, 2 * WINDOW_SIZE)) {
+            Transfer transfer = stream.next();
+            assertThat(transfer.getReceiver().getNumber(), equalTo("5500-0000-0000-0004"));
+            assertThat(transfer.getAmount(), equalTo(10.5));
+            InvalidInputException error = assertThrows(InvalidInputException.class, stream::next);
+            assertThat(error.getMessage(), containsString("Invalid batch line 2"));
+        }
+    }
+
+    @Test
+    void checksJsonLinesWithoutParsingThem() throws IOException {
+        file = write(".jsonl",
+                "{\"id\": \"t1\", \"senderCardNumber\": \"4111-1111-1111-1111\", \"senderCardExpires\": \"05/2020\","
+                        + " \"senderCardCvv\": \"123\", \"senderPhone\": \"380501234567\","
+                        + " \"receiverCardNumber\": \"5500-0000-0000-0004\", \"amount\": 10.50}",
+                "",
+                "{\"id\": \"t2\", \"senderCardNumber\": \"4111-1111-1111-1111\"}",
+                "[\"t3\"]",
+                "{\"id\": \"t,4\"}");
+
+        try (TransferFileStream stream = new TransferFileStream(file, 0, reader, 2 * WINDOW_SIZE)) {
+            PreflightReport report = stream.check(new BatchPreflight(YearMonth.of(2020, 5)));
+
+            assertThat(report.getCheckedCount(), equalTo(4L));
+            assertThat(report.getRejections(), hasSize(3));
+            assertThat(report.getRejections().get(0).toString(),
+                    equalTo("Invalid batch line 3: expires date should be in the MM/YYYY format"));
+            assertThat(report.getRejections().get(1).getError(), equalTo(InputError.JSON_FORMAT));
+            assertThat(report.getRejections().get(2).getError(), equalTo(InputError.JSON_VALUE));
+        }
+    }
+
+    @Test
+    void rejectsLineLongerThanWindow() throws IOException {
+        file = write(".csv", "t1" + LINE + LINE + LINE, "t2" + LINE);
+
+        try (TransferFileStream stream = new TransferFileStream(file, 0, reader, WINDOW_SIZE)) {
+            assertThrows(InvalidInputException.class, stream::next);
+        }
+        try (TransferFileStream stream = new TransferFileStream(file, Files.size(file), reader, WINDOW_SIZE)) {
+            assertThat(stream.next(), nullValue());
+        }
+    }
+
+    private static List<String> ids(TransferFileStream stream) {
+        List<String> ids = new ArrayList<>();
+        Transfer transfer;
+        while ((transfer = stream.next()) != null) {
+            ids.add(transfer.getId());
+        }
+        return ids;
+    }
+
+    private static Path write(String extension, String... lines) throws IOException {
+        Path file = Files.createTempFile("batch", extension);
+        Files.write(file, Arrays.asList(lines), StandardCharsets.UTF_8);
+        return file;
+    }
+}
@@ -0,0 +1,103 @@
+package io.github.bcherniakh.sendmoney.controller.impl;
+
+import io.github.bcherniakh.sendmoney.domain.Transfer;
+import io.github.bcherniakh.sendmoney.domain.TransferResult;
+import io.github.bcherniakh.sendmoney.exception.SendMoneyException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DisplayName("Async transfer controller tests")
+class AsyncTransferControllerTest {
+
+    private static final int SESSIONS = 2;
+
+    private PooledTransferSender transferSender;
+    private AsyncTransferController controller;
+
+    @BeforeEach
+    void setUp() {
+        transferSender = mock(PooledTransferSender.class);
+        when(transferSender.concurrency()).thenReturn(SESSIONS);
+        controller = new AsyncTransferController(transferSender);
+    }
+
+    @AfterEach
+    void tearDown() {
+        controller.close();
+    }
+
+    @Test
+    void sendsQueuedTransfersNoMoreThanSessionsAtOnce() {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        when(transferSender.send(any())).thenAnswer(invocation -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            Thread.sleep(5);
+            running.decrementAndGet();
+            Transfer transfer = invocation.getArgument(0);
+            return TransferResult.succeeded(transfer.getId(), Duration.ofMillis(5));
+        });
+
+        List<CompletableFuture<TransferResult>> results = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            results.add(controller.submit(transfer("t" + i)));
+        }
+
+        for (int i = 0; i < results.size(); i++) {
+            assertThat(results.get(i).join().getTransferId(), equalTo("t" + i));
+        }
+        assertThat(maxRunning.get(), lessThanOrEqualTo(SESSIONS));
+    }
+
+    @Test
+    void parksRateLimitedTransferWithoutSession() {
+        Transfer limited = transfer("t1");
+        when(transferSender.reserveRate(limited)).thenReturn(TimeUnit.HOURS.toNanos(1));
+        when(transferSender.send(any())).thenAnswer(invocation -> {
+            Transfer transfer = invocation.getArgument(0);
+            return TransferResult.succeeded(transfer.getId(), Duration.ZERO);
+        });
+
+        CompletableFuture<TransferResult> parked = controller.submit(limited);
+        for (int i = 2; i < 10; i++) {
+            assertThat(controller.submit(transfer("t" + i)).join().isSuccess(), equalTo(true));
+        }
+        assertThat(parked.isDone(), equalTo(false));
+
+        controller.close();
+        assertThat(parked.join().isSuccess(), equalTo(false));
+        verify(transferSender, never()).send(limited);
+    }
+
+    @Test
+    void rejectsTransfersAfterClose() {
+        controller.close();
+
+        assertThrows(SendMoneyException.class, () -> controller.submit(transfer("t1")));
+    }
+
+    private Transfer transfer(String id) {
+        Transfer transfer = new Transfer();
+        transfer.setId(id);
+        return transfer;
+    }
+}
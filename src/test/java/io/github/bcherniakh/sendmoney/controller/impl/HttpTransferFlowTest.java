@@ -0,0 +1,109 @@
+package io.github.bcherniakh.sendmoney.controller.impl;
+
+import io.github.bcherniakh.sendmoney.domain.Card;
+import io.github.bcherniakh.sendmoney.domain.Transfer;
+import io.github.bcherniakh.sendmoney.domain.TransferStage;
+import io.github.bcherniakh.sendmoney.exception.TransferFailedException;
+import io.github.bcherniakh.sendmoney.stub.StubSendMoneySite;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.client.LaxRedirectStrategy;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasEntry;
+import static org.hamcrest.Matchers.hasKey;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.not;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DisplayName("HTTP transfer engine tests")
+class HttpTransferFlowTest {
+
+    private StubSendMoneySite site;
+    private CloseableHttpClient httpClient;
+    private HttpTransferFlow flow;
+
+    @BeforeEach
+    void setUp() {
+        site = new StubSendMoneySite();
+        httpClient = HttpClients.custom().setRedirectStrategy(new LaxRedirectStrategy()).build();
+        flow = new HttpTransferFlow(httpClient, site.getUrl());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        httpClient.close();
+        site.close();
+    }
+
+    @Test
+    void submitsBothSteps() {
+        flow.run(transfer("1234-5678-9101-2345"));
+
+        assertThat(site.getTransfers(), hasSize(1));
+        Map<String, String> submitted = site.getTransfers().get(0);
+        assertThat(submitted, hasEntry("sender_card", "1234-5678-9101-2345"));
+        assertThat(submitted, hasEntry("sender_exp_month", "05"));
+        assertThat(submitted, hasEntry("sender_exp_year", "27"));
+        assertThat(submitted, hasEntry("sender_cvv", "123"));
+        assertThat(submitted, hasEntry("receiver_card", "1098-7654-3210-1234"));
+        assertThat(submitted, hasEntry("amount", "10.50"));
+        assertThat(submitted, hasEntry("phone", "380501234567"));
+        assertThat(submitted, hasKey("token"));
+    }
+
+    @Test
+    void skipsPhoneNumberWhenFieldIsAbsent() {
+        site.setPhoneRequired(false);
+
+        flow.run(transfer("1234-5678-9101-2345"));
+
+        assertThat(site.getTransfers().get(0), not(hasKey("phone")));
+    }
+
+    @Test
+    void reportsStep1WhenFormIsRejected() {
+        TransferFailedException exception = assertThrows(TransferFailedException.class, () -> flow.run(transfer("")));
+
+        assertThat(exception.getStage(), equalTo(TransferStage.SUBMIT_STEP_1));
+        assertThat(site.getTransfers(), hasSize(0));
+    }
+
+    @Test
+    void postsNothingWhenPageHasNoStep1Form() {
+        HttpTransferFlow assetFlow = new HttpTransferFlow(httpClient, site.getUrl() + "assets/banner.png");
+
+        TransferFailedException exception = assertThrows(TransferFailedException.class,
+                () -> assetFlow.run(transfer("1234-5678-9101-2345")));
+
+        assertThat(exception.getStage(), equalTo(TransferStage.OPEN_PAGE));
+        assertThat(site.getTransfers(), hasSize(0));
+    }
+
+    private Transfer transfer(String senderCardNumber) {
+        Card sender = new Card();
+        sender.setNumber(senderCardNumber);
+        sender.setExpiresDate(LocalDate.of(2027, 5, 1));
+        sender.setSecurityCode("123");
+
+        Card receiver = new Card();
+        receiver.setNumber("1098-7654-3210-1234");
+
+        Transfer transfer = new Transfer();
+        transfer.setId("1");
+        transfer.setSender(sender);
+        transfer.setReceiver(receiver);
+        transfer.setSendersPhoneNumber("380501234567");
+        transfer.setAmount(10.5);
+        return transfer;
+    }
+}
@@ -0,0 +1,245 @@
+package io.github.bcherniakh.sendmoney.controller.impl;
+
+import io.github.bcherniakh.sendmoney.batch.BatchCheckpoint;
+import io.github.bcherniakh.sendmoney.batch.TransferFileStream;
+import io.github.bcherniakh.sendmoney.domain.BatchReport;
+import io.github.bcherniakh.sendmoney.domain.Card;
+import io.github.bcherniakh.sendmoney.domain.Transfer;
+import io.github.bcherniakh.sendmoney.domain.TransferResult;
+import io.github.bcherniakh.sendmoney.domain.TransferStage;
+import io.github.bcherniakh.sendmoney.driver.DriverSession;
+import io.github.bcherniakh.sendmoney.driver.WebDriverPool;
+import io.github.bcherniakh.sendmoney.exception.SendMoneyException;
+import io.github.bcherniakh.sendmoney.exception.TransferFailedException;
+import io.github.bcherniakh.sendmoney.journal.TransferJournal;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.remote.UnreachableBrowserException;
+
+import io.github.bcherniakh.sendmoney.limit.ConcurrencyLimiter;
+import io.github.bcherniakh.sendmoney.limit.TransferRateLimiter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@DisplayName("Parallel batch controller tests")
+class ParallelBatchControllerTest {
+
+    private WebDriverPool driverPool;
+    private SeleniumTransferFlow transferFlow;
+    private DriverSession session;
+
+    private ParallelBatchController controller;
+
+    @BeforeEach
+    void setUp() {
+        driverPool = mock(WebDriverPool.class);
+        transferFlow = mock(SeleniumTransferFlow.class);
+        session = mock(DriverSession.class);
+        when(driverPool.size()).thenReturn(2);
+        when(driverPool.borrow()).thenReturn(session);
+        controller = new ParallelBatchController(new PooledTransferSender(driverPool, transferFlow, TransferJournal.disabled(),
+                ConcurrencyLimiter.disabled(), TransferRateLimiter.unlimited()), TransferJournal.disabled());
+    }
+
+    @Test
+    void reportsResultsInSubmissionOrder() {
+        List<Transfer> transfers = Arrays.asList(transfer("1"), transfer("2"), transfer("3"));
+
+        BatchReport report = controller.sendMoney(transfers);
+
+        assertThat(report.getSucceededCount(), equalTo(3L));
+        assertThat(report.getResults().stream().map(TransferResult::getTransferId).toArray(),
+                equalTo(new Object[]{"1", "2", "3"}));
+    }
+
+    @Test
+    void sendsTransfersOfSenderInBatchOrder() {
+        List<String> sent = Collections.synchronizedList(new ArrayList<>());
+        doAnswer(invocation -> {
+            Transfer transfer = invocation.getArgument(0);
+            Thread.sleep(5);
+            sent.add(transfer.getId());
+            return null;
+        }).when(transferFlow).run(any(), any(), any());
+        List<Transfer> transfers = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            transfers.add(transfer("a" + i, "4111-1111-1111-1111"));
+            transfers.add(transfer("b" + i, "5500-0000-0000-0004"));
+        }
+
+        controller.sendMoney(transfers);
+
+        assertThat(sent.stream().filter(id -> id.startsWith("a")).toArray(),
+                equalTo(new Object[]{"a0", "a1", "a2", "a3", "a4", "a5"}));
+        assertThat(sent.stream().filter(id -> id.startsWith("b")).toArray(),
+                equalTo(new Object[]{"b0", "b1", "b2", "b3", "b4", "b5"}));
+    }
+
+    @Test
+    void reportsStageOfFailedTransfer() {
+        doThrow(new TransferFailedException("failed", TransferStage.SUBMIT_STEP_1, new TimeoutException("Send button")))
+                .when(transferFlow).run(argThat(transfer -> "2".equals(transfer.getId())), any(), any());
+
+        BatchReport report = controller.sendMoney(Arrays.asList(transfer("1"), transfer("2")));
+
+        TransferResult failed = report.getResults().get(1);
+        assertThat(report.getFailedCount(), equalTo(1L));
+        assertThat(failed.getFailedStage(), equalTo(TransferStage.SUBMIT_STEP_1));
+        assertThat(report.getResults().get(0).getFailedStage(), nullValue());
+    }
+
+    @Test
+    void releasesSessionAsFailedAfterFailedTransfer() {
+        doThrow(new TransferFailedException("failed", TransferStage.OPEN_PAGE, new TimeoutException("Page")))
+                .when(transferFlow).run(any(), any(), any());
+
+        controller.sendMoney(Arrays.asList(transfer("1")));
+
+        verify(driverPool).release(session, true);
+    }
+
+    @Test
+    void releasesSessionAfterEveryTransfer() {
+        controller.sendMoney(Arrays.asList(transfer("1"), transfer("2"), transfer("3")));
+
+        verify(driverPool, times(3)).borrow();
+        verify(driverPool, times(3)).release(session, false);
+    }
+
+    @Test
+    void resendsTransferStoppedByLostGridNode() {
+        when(session.failNode(any())).thenReturn(true);
+        doThrow(new TransferFailedException("failed", TransferStage.FILL_STEP_1, new UnreachableBrowserException("Node is gone")))
+                .doNothing()
+                .when(transferFlow).run(any(), any(), any());
+
+        BatchReport report = controller.sendMoney(Arrays.asList(transfer("1")));
+
+        assertThat(report.getSucceededCount(), equalTo(1L));
+        verify(driverPool).release(session, true);
+        verify(driverPool).release(session, false);
+    }
+
+    @Test
+    void doesNotResendTransferLostWithGridNodeAfterStep2() {
+        when(session.failNode(any())).thenReturn(true);
+        doThrow(new TransferFailedException("failed", TransferStage.SUBMIT_STEP_2, new UnreachableBrowserException("Node is gone")))
+                .when(transferFlow).run(any(), any(), any());
+
+        BatchReport report = controller.sendMoney(Arrays.asList(transfer("1")));
+
+        assertThat(report.getFailedCount(), equalTo(1L));
+        verify(driverPool, times(1)).borrow();
+    }
+
+    @Test
+    void failsTransfersWhenNoSessionIsAvailable() {
+        when(driverPool.borrow()).thenThrow(new SendMoneyException("No browser session"));
+
+        BatchReport report = controller.sendMoney(Arrays.asList(transfer("1"), transfer("2")));
+
+        assertThat(report.getResults().stream().map(TransferResult::getFailedStage).toArray(),
+                equalTo(new Object[]{TransferStage.OPEN_PAGE, TransferStage.OPEN_PAGE}));
+    }
+
+    @Test
+    void skipsDoneTransfersAndReportsInDoubtOnes() {
+        TransferJournal journal = mock(TransferJournal.class);
+        when(journal.recovery(any())).thenReturn(TransferJournal.Recovery.RESEND);
+        when(journal.recovery("1")).thenReturn(TransferJournal.Recovery.DONE);
+        when(journal.recovery("2")).thenReturn(TransferJournal.Recovery.IN_DOUBT);
+        controller = new ParallelBatchController(new PooledTransferSender(driverPool, transferFlow, journal,
+                ConcurrencyLimiter.disabled(), TransferRateLimiter.unlimited()), journal);
+
+        BatchReport report = controller.sendMoney(Arrays.asList(transfer("1"), transfer("2"), transfer("3")));
+
+        assertThat(report.getResults().stream().map(TransferResult::getFailedStage).toArray(),
+                equalTo(new Object[]{TransferStage.SUBMIT_STEP_2, null}));
+        verify(transferFlow).run(argThat(transfer -> "3".equals(transfer.getId())), any(), any());
+        verifyNoMoreInteractions(transferFlow);
+    }
+
+    @Test
+    void sendsFileAndMovesCheckpointPastIt() throws IOException {
+        Path file = batchFile(5);
+        Path checkpointFile = Files.createTempFile("batch", ".checkpoint");
+        Files.delete(checkpointFile);
+        try {
+            BatchCheckpoint checkpoint = new BatchCheckpoint(checkpointFile.toString());
+            BatchReport report;
+            try (TransferFileStream transfers = new TransferFileStream(file, checkpoint.load(file))) {
+                report = controller.sendMoney(transfers, checkpoint);
+            }
+
+            assertThat(report.getSucceededCount(), equalTo(5L));
+            assertThat(new BatchCheckpoint(checkpointFile.toString()).load(file), equalTo(Files.size(file)));
+        } finally {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(checkpointFile);
+        }
+    }
+
+    @Test
+    void readsFileNoFurtherAheadThanQueue() throws IOException {
+        Path file = batchFile(40);
+        long lineLength = Files.size(file) / 40;
+        AtomicInteger started = new AtomicInteger();
+        AtomicLong maxAhead = new AtomicLong();
+        try (TransferFileStream transfers = new TransferFileStream(file, 0)) {
+            doAnswer(invocation -> {
+                long read = transfers.getOffset() / lineLength;
+                maxAhead.accumulateAndGet(read - started.incrementAndGet(), Math::max);
+                Thread.sleep(5);
+                return null;
+            }).when(transferFlow).run(any(), any(), any());
+
+            BatchReport report = controller.sendMoney(transfers, BatchCheckpoint.disabled());
+
+            assertThat(report.getSucceededCount(), equalTo(40L));
+            assertThat(maxAhead.get(), lessThanOrEqualTo(2L * (ParallelBatchController.QUEUED_PER_WORKER + 1) + 1));
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static Path batchFile(int transfers) throws IOException {
+        Path file = Files.createTempFile("batch", ".csv");
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < transfers; i++) {
+            lines.add(String.format("t%03d,4111-1111-1111-1111,12/2099,123,380501234567,5500-0000-0000-0004,10.50", i));
+        }
+        return Files.write(file, lines, StandardCharsets.UTF_8);
+    }
+
+    private Transfer transfer(String id) {
+        Transfer transfer = new Transfer();
+        transfer.setId(id);
+        return transfer;
+    }
+
+    private Transfer transfer(String id, String senderCardNumber) {
+        Card sender = new Card();
+        sender.setNumber(senderCardNumber);
+        Transfer transfer = transfer(id);
+        transfer.setSender(sender);
+        return transfer;
+    }
+}
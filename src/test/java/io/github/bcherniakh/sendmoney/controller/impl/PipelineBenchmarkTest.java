@@ -0,0 +1,114 @@
+package io.github.bcherniakh.sendmoney.controller.impl;
+
+import io.github.bcherniakh.sendmoney.domain.BatchReport;
+import io.github.bcherniakh.sendmoney.domain.Card;
+import io.github.bcherniakh.sendmoney.domain.Transfer;
+import io.github.bcherniakh.sendmoney.driver.DriverSessionFactory;
+import io.github.bcherniakh.sendmoney.driver.WebDriverPool;
+import io.github.bcherniakh.sendmoney.journal.TransferJournal;
+import io.github.bcherniakh.sendmoney.limit.ConcurrencyLimiter;
+import io.github.bcherniakh.sendmoney.limit.TransferRateLimiter;
+import io.github.bcherniakh.sendmoney.metrics.TransferMetrics;
+import io.github.bcherniakh.sendmoney.page.FillMode;
+import io.github.bcherniakh.sendmoney.stub.HeadlessChrome;
+import io.github.bcherniakh.sendmoney.stub.StubSendMoneySite;
+import io.github.bcherniakh.sendmoney.trace.CommandTracer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.PageLoadStrategy;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Compares the sustained transfers per minute of a browser running one transfer at a time with a browser
+ * running them as a pipeline of two tabs against the local copy of the site. Both use the NONE page load strategy,
+ * so the difference is the overlap only. Needs a chromedriver, so it is tagged as slow and excluded from the regular build.
+ */
+@Tag("slow")
+@DisplayName("Pipeline benchmark")
+class PipelineBenchmarkTest {
+
+    private static final int TRANSFERS = 16;
+    private static final long SITE_LATENCY_MILLIS = 300;
+
+    private static Logger log = LoggerFactory.getLogger(PipelineBenchmarkTest.class);
+
+    private StubSendMoneySite site;
+
+    @BeforeEach
+    void startSite() {
+        site = new StubSendMoneySite();
+        site.setLatencyMillis(SITE_LATENCY_MILLIS);
+    }
+
+    @AfterEach
+    void stopSite() {
+        site.close();
+    }
+
+    @Test
+    void comparesSequentialWithPipelinedBrowser() {
+        double sequential = transfersPerMinute(1, false);
+        stopSite();
+        startSite();
+        double pipelined = transfersPerMinute(2, true);
+
+        log.info("Transfers per browser per minute. Sequential: {}, pipelined: {}",
+                Math.round(sequential), Math.round(pipelined));
+    }
+
+    private double transfersPerMinute(int tabs, boolean pipelined) {
+        ChromeOptions options = new ChromeOptions();
+        options.setPageLoadStrategy(PageLoadStrategy.NONE);
+        options.addArguments("--disable-background-timer-throttling", "--disable-renderer-backgrounding");
+        DriverSessionFactory sessionFactory = new DriverSessionFactory(() -> HeadlessChrome.start(options));
+        SeleniumTransferFlow flow = new SeleniumTransferFlow(site.getUrl(), FillMode.SCRIPT, new TransferMetrics(),
+                new CommandTracer(""), PageLoadStrategy.NONE, pipelined);
+
+        try (WebDriverPool pool = new WebDriverPool(sessionFactory, 1, tabs, TRANSFERS)) {
+            ParallelBatchController controller = new ParallelBatchController(
+                    new PooledTransferSender(pool, flow, TransferJournal.disabled(), ConcurrencyLimiter.disabled(),
+                            TransferRateLimiter.unlimited()), TransferJournal.disabled());
+            // Launches the browser, so the measured run starts with a warm one
+            controller.sendMoney(transfers(tabs));
+
+            BatchReport report = controller.sendMoney(transfers(TRANSFERS));
+
+            log.info("{} tabs{}: {}", tabs, pipelined ? ", pipelined" : "", report);
+            assertThat(report.getSucceededCount(), equalTo((long) TRANSFERS));
+            return report.getSucceededCount() * 60_000.0 / report.getElapsed().toMillis();
+        }
+    }
+
+    private List<Transfer> transfers(int count) {
+        List<Transfer> transfers = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            Card sender = new Card();
+            sender.setNumber("4111-1111-1111-1111");
+            sender.setExpiresDate(LocalDate.of(2027, 5, 1));
+            sender.setSecurityCode("123");
+            Card receiver = new Card();
+            receiver.setNumber("5500-0000-0000-0004");
+
+            Transfer transfer = new Transfer();
+            transfer.setId("t" + i);
+            transfer.setSender(sender);
+            transfer.setReceiver(receiver);
+            transfer.setSendersPhoneNumber("380501234567");
+            transfer.setAmount(i);
+            transfers.add(transfer);
+        }
+        return transfers;
+    }
+}
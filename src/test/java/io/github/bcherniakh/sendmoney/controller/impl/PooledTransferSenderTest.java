@@ -0,0 +1,42 @@
+package io.github.bcherniakh.sendmoney.controller.impl;
+
+import io.github.bcherniakh.sendmoney.domain.Transfer;
+import io.github.bcherniakh.sendmoney.domain.TransferResult;
+import io.github.bcherniakh.sendmoney.driver.DriverSession;
+import io.github.bcherniakh.sendmoney.driver.WebDriverPool;
+import io.github.bcherniakh.sendmoney.exception.SendMoneyException;
+import io.github.bcherniakh.sendmoney.journal.JournalState;
+import io.github.bcherniakh.sendmoney.journal.TransferJournal;
+import io.github.bcherniakh.sendmoney.limit.ConcurrencyLimiter;
+import io.github.bcherniakh.sendmoney.limit.TransferRateLimiter;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@DisplayName("Pooled transfer sender tests")
+class PooledTransferSenderTest {
+
+    @Test
+    void reportsSentTransferSucceededWhenJournalFails() {
+        WebDriverPool driverPool = mock(WebDriverPool.class);
+        DriverSession session = mock(DriverSession.class);
+        when(driverPool.borrow()).thenReturn(session);
+        TransferJournal journal = mock(TransferJournal.class);
+        doThrow(new SendMoneyException("Failed to write transfer journal"))
+                .when(journal).record("t1", JournalState.DONE);
+        SeleniumTransferFlow transferFlow = mock(SeleniumTransferFlow.class);
+        Transfer transfer = new Transfer();
+        transfer.setId("t1");
+
+        TransferResult result = new PooledTransferSender(driverPool, transferFlow, journal,
+                ConcurrencyLimiter.disabled(), TransferRateLimiter.unlimited()).send(transfer);
+
+        assertThat(result.isSuccess(), equalTo(true));
+        verify(transferFlow).run(eq(transfer), eq(session), any());
+        verify(driverPool).release(session, false);
+    }
+}
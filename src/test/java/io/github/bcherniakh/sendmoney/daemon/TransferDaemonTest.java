@@ -0,0 +1,217 @@
+package io.github.bcherniakh.sendmoney.daemon;
+
+import io.github.bcherniakh.sendmoney.batch.BatchFileReader;
+import io.github.bcherniakh.sendmoney.controller.impl.AsyncTransferController;
+import io.github.bcherniakh.sendmoney.controller.impl.PooledTransferSender;
+import io.github.bcherniakh.sendmoney.domain.TransferResult;
+import io.github.bcherniakh.sendmoney.domain.TransferStage;
+import io.github.bcherniakh.sendmoney.journal.TransferJournal;
+import io.github.bcherniakh.sendmoney.schedule.TransferScheduler;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static io.github.bcherniakh.sendmoney.daemon.TransferDaemon.SCHEDULES_PATH;
+import static io.github.bcherniakh.sendmoney.daemon.TransferDaemon.TRANSFERS_PATH;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@DisplayName("Transfer daemon tests")
+class TransferDaemonTest {
+
+    private static final String TRANSFER_LINE = "t1,4111-1111-1111-1111,05/2099,123,380501234567,5500-0000-0000-0004,10.50";
+
+    private PooledTransferSender transferSender;
+    private TransferDaemon daemon;
+
+    @BeforeEach
+    void setUp() {
+        transferSender = mock(PooledTransferSender.class);
+        when(transferSender.concurrency()).thenReturn(2);
+        daemon = new TransferDaemon(new AsyncTransferController(transferSender), TransferJournal.disabled(), 0);
+        daemon.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        daemon.close();
+    }
+
+    @Test
+    void reportsTransferAcceptedAndFinished() throws Exception {
+        CountDownLatch finish = new CountDownLatch(1);
+        when(transferSender.send(any())).thenAnswer(invocation -> {
+            finish.await(5, TimeUnit.SECONDS);
+            return TransferResult.failed("t1", TransferStage.SUBMIT_STEP_2, "Declined", Duration.ofMillis(10));
+        });
+
+        Response accepted = request("POST", TRANSFERS_PATH, TRANSFER_LINE);
+        assertThat(accepted.status, equalTo(202));
+        assertThat(accepted.body, containsString("\"state\":\"PENDING\""));
+
+        finish.countDown();
+        verify(transferSender, timeout(5000)).send(argThat(transfer -> "t1".equals(transfer.getId())));
+        Response finished = awaitFinished("t1");
+        assertThat(finished.body, containsString("\"state\":\"FAILED\""));
+        assertThat(finished.body, containsString("\"failedStage\":\"SUBMIT_STEP_2\""));
+    }
+
+    @Test
+    void rejectsInvalidTransfer() throws Exception {
+        Response response = request("POST", TRANSFERS_PATH, "t1,1234-5678-9101-2345");
+
+        assertThat(response.status, equalTo(400));
+        assertThat(response.body, containsString("Invalid batch line 1"));
+        verify(transferSender, never()).send(any());
+    }
+
+    @Test
+    void submitsScheduledTransferWhenDue() throws Exception {
+        when(transferSender.send(any())).thenReturn(TransferResult.succeeded("t1", Duration.ofMillis(10)));
+
+        Response scheduled = request("POST", SCHEDULES_PATH, "2020-01-01T09:00:00+02:00,," + TRANSFER_LINE);
+        assertThat(scheduled.status, equalTo(202));
+        assertThat(scheduled.body, containsString("\"nextAt\":\"2020-01-01T07:00:00Z\""));
+
+        verify(transferSender, timeout(5000)).send(argThat(transfer -> "t1".equals(transfer.getId())));
+        assertThat(awaitFinished("t1").body, containsString("\"state\":\"SUCCEEDED\""));
+    }
+
+    @Test
+    void takesCvvOfScheduledTransfer() throws Exception {
+        request("POST", SCHEDULES_PATH, "2099-01-01T09:00:00+02:00,," + TRANSFER_LINE);
+
+        assertThat(request("PUT", SCHEDULES_PATH + "/t1/cvv", "321").body, containsString("\"cvvRequired\":false"));
+        assertThat(request("PUT", SCHEDULES_PATH + "/t1/cvv", "32").status, equalTo(400));
+        assertThat(request("PUT", SCHEDULES_PATH + "/unknown/cvv", "321").status, equalTo(404));
+    }
+
+    @Test
+    void rejectsTransferInProgress() throws Exception {
+        CountDownLatch finish = new CountDownLatch(1);
+        when(transferSender.send(any())).thenAnswer(invocation -> {
+            finish.await(5, TimeUnit.SECONDS);
+            return TransferResult.succeeded("t1", Duration.ofMillis(10));
+        });
+
+        assertThat(request("POST", TRANSFERS_PATH, TRANSFER_LINE).status, equalTo(202));
+        Response repeated = request("POST", TRANSFERS_PATH, TRANSFER_LINE);
+        finish.countDown();
+
+        assertThat(repeated.status, equalTo(400));
+        assertThat(repeated.body, containsString("Transfer t1 is already in progress"));
+        assertThat(awaitFinished("t1").body, containsString("\"state\":\"SUCCEEDED\""));
+        verify(transferSender, times(1)).send(any());
+    }
+
+    @Test
+    void rejectsIdRepeatedInOneRequest() throws Exception {
+        when(transferSender.send(any())).thenReturn(TransferResult.succeeded("t1", Duration.ofMillis(10)));
+
+        Response response = request("POST", TRANSFERS_PATH, TRANSFER_LINE + "\n" + TRANSFER_LINE);
+        daemon.release(new BatchFileReader().parse(Arrays.asList(TRANSFER_LINE.replace("t1,", "t2,"),
+                TRANSFER_LINE.replace("t1,", "t2,"))));
+
+        assertThat(response.status, equalTo(400));
+        assertThat(response.body, containsString("Transfer t1 is already in progress"));
+        assertThat(request("GET", TRANSFERS_PATH + "/t1", null).status, equalTo(404));
+        verify(transferSender, timeout(5000)).send(argThat(transfer -> "t2".equals(transfer.getId())));
+        verify(transferSender, after(200).times(1)).send(any());
+    }
+
+    @Test
+    void releasesScheduledTransfersBesideTransferInProgress() throws Exception {
+        CountDownLatch finish = new CountDownLatch(1);
+        when(transferSender.send(any())).thenAnswer(invocation -> {
+            finish.await(5, TimeUnit.SECONDS);
+            return TransferResult.succeeded("t", Duration.ofMillis(10));
+        });
+        assertThat(request("POST", TRANSFERS_PATH, TRANSFER_LINE).status, equalTo(202));
+
+        daemon.release(new BatchFileReader().parse(Arrays.asList(TRANSFER_LINE, TRANSFER_LINE.replace("t1,", "t2,"))));
+        finish.countDown();
+
+        verify(transferSender, timeout(5000)).send(argThat(transfer -> "t2".equals(transfer.getId())));
+        verify(transferSender, times(2)).send(any());
+    }
+
+    @Test
+    void forgetsFinishedTransferAfterRetention() throws Exception {
+        daemon.close();
+        daemon = new TransferDaemon(new AsyncTransferController(transferSender), TransferJournal.disabled(),
+                TransferScheduler.inMemory(), 0, 0);
+        daemon.start();
+        when(transferSender.send(any())).thenReturn(TransferResult.succeeded("t1", Duration.ofMillis(10)));
+
+        assertThat(request("POST", TRANSFERS_PATH, TRANSFER_LINE).status, equalTo(202));
+        verify(transferSender, timeout(5000)).send(any());
+
+        long deadline = System.currentTimeMillis() + 5000;
+        int status;
+        do {
+            status = request("GET", TRANSFERS_PATH + "/t1", null).status;
+        } while (status != 404 && System.currentTimeMillis() < deadline);
+        assertThat(status, equalTo(404));
+    }
+
+    @Test
+    void reportsUnknownTransfer() throws Exception {
+        assertThat(request("GET", TRANSFERS_PATH + "/missing", null).status, equalTo(404));
+    }
+
+    private Response awaitFinished(String id) throws Exception {
+        long deadline = System.currentTimeMillis() + 5000;
+        Response response;
+        do {
+            response = request("GET", TRANSFERS_PATH + "/" + id, null);
+        } while (response.body.contains("PENDING") && System.currentTimeMillis() < deadline);
+        return response;
+    }
+
+    private Response request(String method, String path, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + daemon.getPort() + path).openConnection();
+        connection.setRequestMethod(method);
+        if (body != null) {
+            connection.setDoOutput(true);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        int status = connection.getResponseCode();
+        InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        byte[] buffer = new byte[1024];
+        for (int read; (read = in.read(buffer)) != -1; ) {
+            content.write(buffer, 0, read);
+        }
+        in.close();
+        return new Response(status, new String(content.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+    private static class Response {
+
+        private final int status;
+        private final String body;
+
+        private Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package io.github.bcherniakh.sendmoney.driver;
+
+import io.github.bcherniakh.sendmoney.exception.SendMoneyException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.remote.UnreachableBrowserException;
+
+import java.net.ConnectException;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DisplayName("Grid nodes tests")
+class GridNodesTest {
+
+    private static final String NODES = "http://127.0.0.1:5555/wd/hub, http://127.0.0.1:5556/wd/hub";
+
+    @Test
+    void startsSessionsOnFastestNodeWithFreeSlot() {
+        GridNodes nodes = new GridNodes(NODES, 1);
+        GridNode slow = nodes.getNodes().get(0);
+        GridNode fast = nodes.getNodes().get(1);
+        slow.recordLatency(TimeUnit.MILLISECONDS.toNanos(200));
+        fast.recordLatency(TimeUnit.MILLISECONDS.toNanos(100));
+
+        assertThat(nodes.acquireSlot(0), sameInstance(fast));
+        assertThat(nodes.acquireSlot(0), sameInstance(slow));
+        assertThrows(SendMoneyException.class, () -> nodes.acquireSlot(10));
+
+        fast.releaseSlot();
+        assertThat(nodes.acquireSlot(0), sameInstance(fast));
+    }
+
+    @Test
+    void excludesFailedNodeUntilRetryDelayPasses() {
+        GridNodes nodes = new GridNodes(NODES, 1, 200);
+        GridNode failed = nodes.getNodes().get(0);
+        GridNode healthy = nodes.getNodes().get(1);
+
+        nodes.markDown(failed);
+
+        assertThat(failed.isDown(), equalTo(true));
+        assertThat(nodes.acquireSlot(0), sameInstance(healthy));
+        assertThat(nodes.acquireSlot(5000), sameInstance(failed));
+        assertThat(failed.isDown(), equalTo(false));
+    }
+
+    @Test
+    void tellsWhetherAllNodesAreLocal() {
+        assertThat(new GridNodes(NODES, 1).isLocal(), equalTo(true));
+        assertThat(new GridNodes("http://localhost:5555/wd/hub, http://[::1]:5556/wd/hub", 1).isLocal(), equalTo(true));
+        assertThat(new GridNodes(NODES + ",http://10.0.0.2:5555/wd/hub", 1).isLocal(), equalTo(false));
+    }
+
+    @Test
+    void recognizesLostNodes() {
+        assertThat(GridNodes.isNodeFailure(new UnreachableBrowserException("Node is gone")), equalTo(true));
+        assertThat(GridNodes.isNodeFailure(new WebDriverException(new ConnectException("Connection refused"))), equalTo(true));
+        assertThat(GridNodes.isNodeFailure(new TimeoutException("Send button")), equalTo(false));
+    }
+}
@@ -0,0 +1,186 @@
+package io.github.bcherniakh.sendmoney.driver;
+
+import io.github.bcherniakh.sendmoney.controller.impl.ParallelBatchController;
+import io.github.bcherniakh.sendmoney.controller.impl.PooledTransferSender;
+import io.github.bcherniakh.sendmoney.controller.impl.SeleniumTransferFlow;
+import io.github.bcherniakh.sendmoney.domain.BatchReport;
+import io.github.bcherniakh.sendmoney.domain.Card;
+import io.github.bcherniakh.sendmoney.domain.Transfer;
+import io.github.bcherniakh.sendmoney.domain.TransferStage;
+import io.github.bcherniakh.sendmoney.journal.TransferJournal;
+import io.github.bcherniakh.sendmoney.limit.ConcurrencyLimiter;
+import io.github.bcherniakh.sendmoney.limit.TransferRateLimiter;
+import io.github.bcherniakh.sendmoney.metrics.TransferMetrics;
+import io.github.bcherniakh.sendmoney.page.FillMode;
+import io.github.bcherniakh.sendmoney.stub.HeadlessChrome;
+import io.github.bcherniakh.sendmoney.stub.StubSendMoneySite;
+import io.github.bcherniakh.sendmoney.trace.CommandTracer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.hasSize;
+
+/**
+ * Sends a batch over a hub and two nodes started as separate processes on this machine, and kills one
+ * of the nodes in the middle of the batch. Transfers of the killed node are expected to be sent by the other one,
+ * except those it was lost on after step 2 was submitted.
+ */
+@Tag("slow")
+@DisplayName("Grid sharding benchmark")
+class GridShardingBenchmarkTest {
+
+    private static final int SLOTS_PER_NODE = 2;
+    private static final int TRANSFERS = 16;
+    private static final long SITE_LATENCY_MILLIS = 100;
+    private static final long NODE_KILL_DELAY_MILLIS = 3000;
+    private static final long STARTUP_TIMEOUT_MILLIS = 30_000;
+
+    private static Logger log = LoggerFactory.getLogger(GridShardingBenchmarkTest.class);
+
+    private final List<Process> processes = new ArrayList<>();
+    private StubSendMoneySite site;
+
+    @BeforeEach
+    void startSite() {
+        site = new StubSendMoneySite();
+        site.setLatencyMillis(SITE_LATENCY_MILLIS);
+    }
+
+    @AfterEach
+    void stopGrid() {
+        processes.forEach(Process::destroyForcibly);
+        site.close();
+    }
+
+    @Test
+    void reassignsTransfersOfKilledNode() throws Exception {
+        int hubPort = freePort();
+        startGridProcess(hubPort, "-role", "hub", "-port", String.valueOf(hubPort));
+        String firstNode = startNode(hubPort);
+        String secondNode = startNode(hubPort);
+        Process killedNode = processes.get(processes.size() - 1);
+
+        GridNodes nodes = new GridNodes(firstNode + "," + secondNode, SLOTS_PER_NODE);
+        GridSessionFactory sessionFactory = new GridSessionFactory(nodes,
+                () -> HeadlessChrome.headless(new ChromeOptions()), new CommandTracer(""));
+        SeleniumTransferFlow flow = new SeleniumTransferFlow(site.getUrl(), FillMode.SCRIPT,
+                new TransferMetrics(), new CommandTracer(""));
+        ScheduledExecutorService killer = Executors.newSingleThreadScheduledExecutor();
+
+        try (WebDriverPool pool = new WebDriverPool(sessionFactory, 2 * SLOTS_PER_NODE, 1, TRANSFERS)) {
+            ParallelBatchController controller = new ParallelBatchController(
+                    new PooledTransferSender(pool, flow, TransferJournal.disabled(), ConcurrencyLimiter.disabled(),
+                            TransferRateLimiter.unlimited()), TransferJournal.disabled());
+            pool.start();
+            killer.schedule(killedNode::destroyForcibly, NODE_KILL_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+
+            BatchReport report = controller.sendMoney(transfers());
+
+            log.info("{}", report);
+            nodes.getNodes().forEach(node -> log.info("Node {}: {} ms per transfer, down: {}",
+                    node, TimeUnit.NANOSECONDS.toMillis(node.getLatencyNanos()), node.isDown()));
+            long inDoubt = report.getResults().stream()
+                    .filter(result -> result.getFailedStage() == TransferStage.SUBMIT_STEP_2).count();
+            assertThat(report.getSucceededCount() + inDoubt, equalTo((long) TRANSFERS));
+            // A resent transfer is never completed twice
+            List<String> amounts = site.getTransfers().stream().map(transfer -> transfer.get("amount")).collect(Collectors.toList());
+            assertThat(new HashSet<>(amounts), hasSize(amounts.size()));
+            assertThat((long) amounts.size(), greaterThanOrEqualTo(report.getSucceededCount()));
+        } finally {
+            killer.shutdownNow();
+        }
+    }
+
+    private String startNode(int hubPort) throws IOException, InterruptedException {
+        int port = freePort();
+        startGridProcess(port, "-role", "node", "-hub", "http://127.0.0.1:" + hubPort + "/grid/register",
+                "-port", String.valueOf(port), "-maxSession", String.valueOf(SLOTS_PER_NODE),
+                "-browser", "browserName=chrome,maxInstances=" + SLOTS_PER_NODE);
+        return "http://127.0.0.1:" + port + "/wd/hub";
+    }
+
+    /*
+     * The server classes are on the test classpath, so the processes run the same Selenium version.
+     */
+    private void startGridProcess(int port, String... arguments) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>(Arrays.asList(
+                System.getProperty("java.home") + File.separator + "bin" + File.separator + "java",
+                "-Dwebdriver.chrome.driver=" + System.getProperty("webdriver.chrome.driver", ""),
+                "-cp", System.getProperty("java.class.path"),
+                "org.openqa.grid.selenium.GridLauncherV3"));
+        command.addAll(Arrays.asList(arguments));
+        processes.add(new ProcessBuilder(command).inheritIO().start());
+        awaitListening(port);
+    }
+
+    private static void awaitListening(int port) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + STARTUP_TIMEOUT_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                HttpURLConnection connection = (HttpURLConnection) new URL("http://127.0.0.1:" + port + "/wd/hub/status")
+                        .openConnection();
+                if (connection.getResponseCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // Not listening yet
+            }
+            Thread.sleep(200);
+        }
+        throw new IllegalStateException("Grid process on port " + port + " did not start");
+    }
+
+    private static int freePort() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static List<Transfer> transfers() {
+        List<Transfer> transfers = new ArrayList<>();
+        for (int i = 1; i <= TRANSFERS; i++) {
+            Card sender = new Card();
+            sender.setNumber("4111-1111-1111-1111");
+            sender.setExpiresDate(LocalDate.of(2027, 5, 1));
+            sender.setSecurityCode("123");
+            Card receiver = new Card();
+            receiver.setNumber("5500-0000-0000-0004");
+
+            Transfer transfer = new Transfer();
+            transfer.setId("t" + i);
+            transfer.setSender(sender);
+            transfer.setReceiver(receiver);
+            transfer.setSendersPhoneNumber("380501234567");
+            transfer.setAmount(i);
+            transfers.add(transfer);
+        }
+        return transfers;
+    }
+}
@@ -0,0 +1,126 @@
+package io.github.bcherniakh.sendmoney.driver;
+
+import io.github.bcherniakh.sendmoney.controller.impl.ParallelBatchController;
+import io.github.bcherniakh.sendmoney.controller.impl.PooledTransferSender;
+import io.github.bcherniakh.sendmoney.controller.impl.SeleniumTransferFlow;
+import io.github.bcherniakh.sendmoney.domain.BatchReport;
+import io.github.bcherniakh.sendmoney.domain.Card;
+import io.github.bcherniakh.sendmoney.domain.Transfer;
+import io.github.bcherniakh.sendmoney.journal.TransferJournal;
+import io.github.bcherniakh.sendmoney.limit.ConcurrencyLimiter;
+import io.github.bcherniakh.sendmoney.limit.TransferRateLimiter;
+import io.github.bcherniakh.sendmoney.metrics.TransferMetrics;
+import io.github.bcherniakh.sendmoney.page.FillMode;
+import io.github.bcherniakh.sendmoney.stub.HeadlessChrome;
+import io.github.bcherniakh.sendmoney.stub.StubSendMoneySite;
+import io.github.bcherniakh.sendmoney.trace.CommandTracer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Compares the browser memory of the concurrent transfers made by a browser per transfer
+ * and by tabs of a single browser against the local copy of the site.
+ * Needs a chromedriver, so it is tagged as slow and excluded from the regular build.
+ */
+@Tag("slow")
+@DisplayName("Tab multiplexing benchmark")
+class TabMultiplexingBenchmarkTest {
+
+    private static final int CONCURRENT_TRANSFERS = 4;
+    private static final int TRANSFERS = 12;
+    private static final long SITE_LATENCY_MILLIS = 100;
+    private static final long MEGABYTE = 1024 * 1024;
+
+    private static Logger log = LoggerFactory.getLogger(TabMultiplexingBenchmarkTest.class);
+
+    private StubSendMoneySite site;
+
+    @BeforeEach
+    void startSite() {
+        site = new StubSendMoneySite();
+        site.setLatencyMillis(SITE_LATENCY_MILLIS);
+    }
+
+    @AfterEach
+    void stopSite() {
+        site.close();
+    }
+
+    @Test
+    void comparesBrowserPerTransferWithTabs() {
+        long browserPerTransfer = sendBatch(CONCURRENT_TRANSFERS, 1);
+        stopSite();
+        startSite();
+        long tabs = sendBatch(1, CONCURRENT_TRANSFERS);
+
+        log.info("Browser memory per concurrent transfer. Browser per transfer: {} MB, tabs: {} MB",
+                browserPerTransfer / MEGABYTE / CONCURRENT_TRANSFERS, tabs / MEGABYTE / CONCURRENT_TRANSFERS);
+    }
+
+    /*
+     * Returns the peak browser memory. Every transfer has its own amount, so a transfer mixed up
+     * with another one in a shared browser is noticed.
+     */
+    private long sendBatch(int browsers, int tabs) {
+        ChromeOptions options = new ChromeOptions();
+        options.addArguments("--disable-background-timer-throttling", "--disable-renderer-backgrounding");
+        DriverSessionFactory sessionFactory = new DriverSessionFactory(() -> HeadlessChrome.start(options));
+        SeleniumTransferFlow flow = new SeleniumTransferFlow(site.getUrl(), FillMode.SCRIPT,
+                new TransferMetrics(), new CommandTracer(""));
+
+        try (WebDriverPool pool = new WebDriverPool(sessionFactory, browsers, tabs, TRANSFERS);
+             BrowserMemoryProbe memoryProbe = new BrowserMemoryProbe()) {
+            ParallelBatchController controller = new ParallelBatchController(
+                    new PooledTransferSender(pool, flow, TransferJournal.disabled(), ConcurrencyLimiter.disabled(),
+                            TransferRateLimiter.unlimited()), TransferJournal.disabled());
+            memoryProbe.start(200);
+
+            BatchReport report = controller.sendMoney(transfers());
+
+            log.info("{} browsers with {} tabs: {}", browsers, tabs, report);
+            assertThat(report.getSucceededCount(), equalTo((long) TRANSFERS));
+            Set<String> amounts = site.getTransfers().stream().map(transfer -> transfer.get("amount"))
+                    .collect(Collectors.toCollection(TreeSet::new));
+            assertThat(amounts, equalTo(transfers().stream().map(transfer -> String.format("%d.00", (int) transfer.getAmount()))
+                    .collect(Collectors.toCollection(TreeSet::new))));
+            return memoryProbe.getPeakBytes();
+        }
+    }
+
+    private List<Transfer> transfers() {
+        List<Transfer> transfers = new ArrayList<>();
+        for (int i = 1; i <= TRANSFERS; i++) {
+            Card sender = new Card();
+            sender.setNumber("4111-1111-1111-1111");
+            sender.setExpiresDate(LocalDate.of(2027, 5, 1));
+            sender.setSecurityCode("123");
+            Card receiver = new Card();
+            receiver.setNumber("5500-0000-0000-0004");
+
+            Transfer transfer = new Transfer();
+            transfer.setId("t" + i);
+            transfer.setSender(sender);
+            transfer.setReceiver(receiver);
+            transfer.setSendersPhoneNumber("380501234567");
+            transfer.setAmount(i);
+            transfers.add(transfer);
+        }
+        return transfers;
+    }
+}
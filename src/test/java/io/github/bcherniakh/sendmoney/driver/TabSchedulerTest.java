@@ -0,0 +1,134 @@
+package io.github.bcherniakh.sendmoney.driver;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.openqa.selenium.By;
+import org.openqa.selenium.Cookie;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.mockito.Mockito.*;
+
+@DisplayName("Tab scheduler tests")
+class TabSchedulerTest {
+
+    private WebDriver browser;
+    private WebDriver.TargetLocator targetLocator;
+    private WebDriver.Options options;
+    private TabScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        browser = mock(WebDriver.class, withSettings().extraInterfaces(JavascriptExecutor.class));
+        targetLocator = mock(WebDriver.TargetLocator.class);
+        options = mock(WebDriver.Options.class);
+        when(browser.switchTo()).thenReturn(targetLocator);
+        when(browser.manage()).thenReturn(options);
+        when(browser.getWindowHandle()).thenReturn("first");
+        when(browser.getWindowHandles())
+                .thenReturn(Collections.singleton("first"))
+                .thenReturn(new HashSet<>(Arrays.asList("first", "second")));
+        scheduler = new TabScheduler(browser);
+    }
+
+    @Test
+    void switchesToTabBeforeItsCommand() {
+        WebDriver first = scheduler.openTab();
+        WebDriver second = scheduler.openTab();
+
+        second.getTitle();
+        first.getCurrentUrl();
+
+        InOrder inOrder = inOrder(targetLocator, browser);
+        inOrder.verify(targetLocator).window("second");
+        inOrder.verify(browser).getTitle();
+        inOrder.verify(targetLocator).window("first");
+        inOrder.verify(browser).getCurrentUrl();
+        assertThat(scheduler.getSwitchCount(), equalTo(2L));
+        assertThat(first, instanceOf(BrowserTab.class));
+        assertThat(((BrowserTab) second).getTabHandle(), equalTo("second"));
+    }
+
+    @Test
+    void keepsCookiesOfEveryTab() {
+        Cookie firstSession = new Cookie("session", "first");
+        WebDriver first = scheduler.openTab();
+        WebDriver second = scheduler.openTab();
+        when(options.getCookies()).thenReturn(Collections.singleton(firstSession), Collections.emptySet());
+
+        second.getTitle();
+        first.getTitle();
+
+        InOrder inOrder = inOrder(options, targetLocator);
+        inOrder.verify(options).getCookies();
+        inOrder.verify(targetLocator).window("second");
+        inOrder.verify(options).deleteAllCookies();
+        inOrder.verify(options).getCookies();
+        inOrder.verify(targetLocator).window("first");
+        inOrder.verify(options).deleteAllCookies();
+        inOrder.verify(options).addCookie(firstSession);
+    }
+
+    @Test
+    void bindsFoundElementsToTab() {
+        WebElement element = mock(WebElement.class);
+        when(browser.findElement(By.id("amount"))).thenReturn(element);
+        WebDriver first = scheduler.openTab();
+        WebDriver second = scheduler.openTab();
+
+        WebElement amount = second.findElement(By.id("amount"));
+        first.getTitle();
+        amount.sendKeys("10");
+
+        InOrder inOrder = inOrder(targetLocator, element);
+        inOrder.verify(targetLocator).window("first");
+        inOrder.verify(targetLocator).window("second");
+        inOrder.verify(element).sendKeys("10");
+    }
+
+    @Test
+    void quitsBrowserWithLastTab() {
+        WebDriver first = scheduler.openTab();
+        WebDriver second = scheduler.openTab();
+
+        first.quit();
+        verify(browser).close();
+        verify(browser, never()).quit();
+
+        second.quit();
+        verify(browser).quit();
+        assertThat(scheduler.isOpen(), equalTo(false));
+    }
+
+    @Test
+    void givesStep1TurnToOneTabAtATime() throws InterruptedException {
+        DriverSession first = new DriverSession(scheduler.openTab(), null, scheduler);
+        DriverSession second = new DriverSession(scheduler.openTab(), null, scheduler);
+        CountDownLatch secondOnStep1 = new CountDownLatch(1);
+
+        first.awaitStep1Turn();
+        Thread secondTransfer = new Thread(() -> {
+            second.awaitStep1Turn();
+            secondOnStep1.countDown();
+            second.passStep1Turn();
+        });
+        secondTransfer.start();
+
+        assertThat(secondOnStep1.await(200, TimeUnit.MILLISECONDS), equalTo(false));
+        first.passStep1Turn();
+        assertThat(secondOnStep1.await(1, TimeUnit.SECONDS), equalTo(true));
+        secondTransfer.join();
+    }
+}
@@ -0,0 +1,197 @@
+package io.github.bcherniakh.sendmoney.driver;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.SessionNotCreatedException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.ui.Wait;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Mockito.*;
+
+@DisplayName("Browser pool tests")
+class WebDriverPoolTest {
+
+    private DriverSessionFactory sessionFactory;
+    private WebDriverPool pool;
+
+    @BeforeEach
+    void setUp() {
+        sessionFactory = mock(DriverSessionFactory.class);
+        when(sessionFactory.create()).then(invocation -> newSession());
+        pool = new WebDriverPool(sessionFactory, 1, 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.close();
+    }
+
+    @Test
+    void launchesBrowsersOnStart() {
+        pool.start();
+
+        verify(sessionFactory, timeout(1000)).create();
+    }
+
+    @Test
+    void launchesOnlyRequestedBrowsers() throws InterruptedException {
+        WebDriverPool largePool = new WebDriverPool(sessionFactory, 3, 2);
+        try {
+            largePool.start(1);
+            largePool.borrow();
+            Thread.sleep(100);
+
+            verify(sessionFactory, times(1)).create();
+        } finally {
+            largePool.close();
+        }
+    }
+
+    @Test
+    void resetsAndReusesReleasedSession() {
+        DriverSession session = pool.borrow();
+        pool.release(session, false);
+
+        assertThat(pool.borrow(), sameInstance(session));
+        verify(session.getWebDriver().manage()).deleteAllCookies();
+        verify(session.getWebDriver().navigate()).to("about:blank");
+    }
+
+    @Test
+    void recyclesSessionAfterFailedTransfer() {
+        DriverSession session = pool.borrow();
+        pool.release(session, true);
+
+        assertThat(pool.borrow(), not(sameInstance(session)));
+        verify(session.getWebDriver()).quit();
+    }
+
+    @Test
+    void recyclesSessionAfterMaxUses() {
+        DriverSession session = pool.borrow();
+        pool.release(session, false);
+        pool.release(pool.borrow(), false);
+
+        assertThat(pool.borrow(), not(sameInstance(session)));
+        verify(session.getWebDriver()).quit();
+    }
+
+    @Test
+    void launchesBrowserAgainAfterFailedLaunch() {
+        when(sessionFactory.create())
+                .thenThrow(new SessionNotCreatedException("Chrome crashed"))
+                .then(invocation -> newSession());
+
+        DriverSession session = pool.borrow();
+
+        assertThat(session.getWebDriver(), not(nullValue()));
+        verify(sessionFactory, times(2)).create();
+    }
+
+    @Test
+    void quitsSessionReleasedAfterClose() {
+        DriverSession session = pool.borrow();
+        pool.close();
+
+        pool.release(session, false);
+
+        verify(session.getWebDriver(), atLeastOnce()).quit();
+    }
+
+    @Test
+    void quitsBrowsersOnClose() {
+        DriverSession session = pool.borrow();
+
+        pool.close();
+
+        verify(session.getWebDriver()).quit();
+    }
+
+    @Test
+    void sharesBrowserBetweenTabSessions() {
+        TabScheduler tabScheduler = mock(TabScheduler.class);
+        when(tabScheduler.isOpen()).thenReturn(true);
+        DriverSession firstTab = newTabSession(tabScheduler);
+        DriverSession replacementTab = newTabSession(tabScheduler);
+        when(sessionFactory.createTabs(2)).thenReturn(Arrays.asList(firstTab, newTabSession(tabScheduler)));
+        when(sessionFactory.openTab(tabScheduler)).thenReturn(replacementTab);
+        WebDriverPool tabPool = new WebDriverPool(sessionFactory, 1, 2, 2);
+
+        try {
+            assertThat(tabPool.size(), equalTo(2));
+            DriverSession first = tabPool.borrow();
+            DriverSession second = tabPool.borrow();
+            assertThat(first, not(sameInstance(second)));
+
+            tabPool.release(first, true);
+
+            assertThat(tabPool.borrow(), sameInstance(replacementTab));
+            verify(first.getWebDriver()).quit();
+            verify(sessionFactory).createTabs(2);
+            verify(sessionFactory, never()).create();
+        } finally {
+            tabPool.close();
+        }
+    }
+
+    @Test
+    void borrowsSessionOfFastestGridNodeAndRecyclesSessionsOfFailedOne() {
+        GridNodes nodes = new GridNodes("http://127.0.0.1:5555/wd/hub,http://127.0.0.1:5556/wd/hub", 1);
+        GridNode slow = nodes.getNodes().get(0);
+        GridNode fast = nodes.getNodes().get(1);
+        DriverSession slowSession = newGridSession(slow);
+        DriverSession fastSession = newGridSession(fast);
+        when(sessionFactory.create()).thenReturn(slowSession, fastSession).then(invocation -> newSession());
+        WebDriverPool gridPool = new WebDriverPool(sessionFactory, 2, 10);
+
+        try {
+            DriverSession first = gridPool.borrow();
+            DriverSession second = gridPool.borrow();
+            gridPool.release(first, false);
+            gridPool.release(second, false);
+            verify(slowSession.getWebDriver().navigate(), timeout(1000)).to("about:blank");
+            verify(fastSession.getWebDriver().navigate(), timeout(1000)).to("about:blank");
+            slow.recordLatency(TimeUnit.SECONDS.toNanos(20));
+            fast.recordLatency(TimeUnit.SECONDS.toNanos(10));
+
+            assertThat(gridPool.borrow(), sameInstance(fastSession));
+
+            nodes.markDown(slow);
+            gridPool.release(fastSession, false);
+            verify(fastSession.getWebDriver().navigate(), timeout(1000).times(2)).to("about:blank");
+
+            assertThat(gridPool.borrow(), sameInstance(fastSession));
+            verify(slowSession.getWebDriver(), timeout(1000)).quit();
+        } finally {
+            gridPool.close();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private DriverSession newGridSession(GridNode node) {
+        WebDriver webDriver = mock(WebDriver.class, RETURNS_DEEP_STUBS);
+        return new DriverSession(webDriver, mock(Wait.class), node);
+    }
+
+    @SuppressWarnings("unchecked")
+    private DriverSession newTabSession(TabScheduler tabScheduler) {
+        WebDriver webDriver = mock(WebDriver.class, RETURNS_DEEP_STUBS);
+        return new DriverSession(webDriver, mock(Wait.class), tabScheduler);
+    }
+
+    @SuppressWarnings("unchecked")
+    private DriverSession newSession() {
+        WebDriver webDriver = mock(WebDriver.class, RETURNS_DEEP_STUBS);
+        return new DriverSession(webDriver, mock(Wait.class));
+    }
+}
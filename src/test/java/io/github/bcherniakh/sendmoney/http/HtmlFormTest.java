@@ -0,0 +1,43 @@
+package io.github.bcherniakh.sendmoney.http;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+
+@DisplayName("HTML form tests")
+class HtmlFormTest {
+
+    @Test
+    void readsSubmittedFieldsOfForm() {
+        List<HtmlForm> forms = HtmlForm.parse("<form><input class='block'></form>"
+                + "<FORM id=\"step1\" method=POST action=\"send?step=1&amp;lang=ua\">"
+                + "<input type=\"hidden\" name=\"_csrf\" value=\"a&quot;b\">"
+                + "<input name='card'>"
+                + "<input type=\"checkbox\" name=\"remember\" value=\"1\">"
+                + "<input type=\"checkbox\" name=\"agree\" value=\"yes\" checked>"
+                + "<select name=\"month\"><option value=\"\">MM</option><option value=\"05\" selected>05</option></select>"
+                + "<input type=\"submit\" name=\"send\" value=\"Send\">"
+                + "</FORM>");
+
+        assertThat(forms, hasSize(2));
+        HtmlForm form = forms.get(1);
+        assertThat(form.getMethod(), equalTo("post"));
+        assertThat(form.getAction(), equalTo("send?step=1&lang=ua"));
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("_csrf", "a\"b");
+        fields.put("card", "");
+        fields.put("agree", "yes");
+        fields.put("month", "05");
+        assertThat(form.getFields(), equalTo(fields));
+        assertThat(form.hasFields(Arrays.asList("card", "month")), equalTo(true));
+        assertThat(form.hasFields(Arrays.asList("card", "remember")), equalTo(false));
+    }
+}
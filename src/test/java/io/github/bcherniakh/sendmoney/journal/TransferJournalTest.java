@@ -0,0 +1,193 @@
+package io.github.bcherniakh.sendmoney.journal;
+
+import io.github.bcherniakh.sendmoney.journal.TransferJournal.Recovery;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+@DisplayName("Transfer journal tests")
+class TransferJournalTest {
+
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = Files.createTempFile("transfers", ".journal");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    void recoversStatesAfterReopen() {
+        try (TransferJournal journal = new TransferJournal(file.toString(), 0)) {
+            journal.recordAll(Arrays.asList("done", "filled", "submitted", "failed"), JournalState.QUEUED);
+            journal.record("done", JournalState.STEP2_SUBMITTED);
+            journal.record("done", JournalState.DONE);
+            journal.record("filled", JournalState.STEP1_FILLED);
+            journal.record("submitted", JournalState.STEP2_SUBMITTED);
+            journal.record("failed", JournalState.FAILED);
+        }
+
+        try (TransferJournal journal = new TransferJournal(file.toString(), 0)) {
+            assertThat(journal.recovery("done"), equalTo(Recovery.DONE));
+            assertThat(journal.recovery("filled"), equalTo(Recovery.RESEND));
+            assertThat(journal.recovery("submitted"), equalTo(Recovery.IN_DOUBT));
+            assertThat(journal.recovery("failed"), equalTo(Recovery.RESEND));
+            assertThat(journal.recovery("unknown"), equalTo(Recovery.NEW));
+        }
+    }
+
+    @Test
+    void keepsFailureAfterStep2InDoubt() {
+        try (TransferJournal journal = new TransferJournal(file.toString(), 0)) {
+            journal.record("1", JournalState.STEP2_SUBMITTED);
+            journal.record("1", JournalState.FAILED);
+
+            assertThat(journal.recovery("1"), equalTo(Recovery.IN_DOUBT));
+        }
+    }
+
+    @Test
+    void overwritesTornRecord() throws IOException {
+        try (TransferJournal journal = new TransferJournal(file.toString(), 0)) {
+            journal.record("1", JournalState.DONE);
+            journal.record("2", JournalState.DONE);
+        }
+        long secondRecord = 8 + 9 + 1;
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw")) {
+            raw.seek(secondRecord + 8);
+            raw.write(0x7f);
+        }
+
+        try (TransferJournal journal = new TransferJournal(file.toString(), 0)) {
+            assertThat(journal.recovery("1"), equalTo(Recovery.DONE));
+            assertThat(journal.recovery("2"), equalTo(Recovery.NEW));
+            journal.record("3", JournalState.DONE);
+        }
+        try (TransferJournal journal = new TransferJournal(file.toString(), 0)) {
+            assertThat(journal.recovery("3"), equalTo(Recovery.DONE));
+        }
+    }
+
+    @Test
+    void keepsStatesAfterCompaction() {
+        try (TransferJournal journal = new TransferJournal(file.toString(), 0)) {
+            journal.recordAll(Arrays.asList("done", "failed", "doubt", "progress"), JournalState.QUEUED);
+            journal.recordAll(Arrays.asList("done", "failed", "doubt", "progress"), JournalState.STEP1_FILLED);
+            journal.recordAll(Arrays.asList("done", "doubt", "progress"), JournalState.STEP2_SUBMITTED);
+            journal.record("done", JournalState.DONE);
+            journal.record("failed", JournalState.FAILED);
+            journal.record("doubt", JournalState.FAILED);
+        }
+
+        try (TransferJournal journal = new TransferJournal(file.toString(), 0)) {
+            journal.record("next", JournalState.DONE);
+        }
+        try (TransferJournal journal = new TransferJournal(file.toString(), 0)) {
+            assertThat(journal.recovery("done"), equalTo(Recovery.DONE));
+            assertThat(journal.recovery("failed"), equalTo(Recovery.RESEND));
+            assertThat(journal.recovery("doubt"), equalTo(Recovery.IN_DOUBT));
+            assertThat(journal.recovery("progress"), equalTo(Recovery.IN_DOUBT));
+            assertThat(journal.recovery("next"), equalTo(Recovery.DONE));
+        }
+    }
+
+    @Test
+    void dropsFinishedTransfersOlderThanRetention() {
+        AtomicLong clock = new AtomicLong(System.currentTimeMillis());
+        try (TransferJournal journal = new TransferJournal(file.toString(), 30, clock::get)) {
+            journal.record("old", JournalState.DONE);
+            journal.record("progress", JournalState.QUEUED);
+            clock.addAndGet(TimeUnit.DAYS.toMillis(20));
+            journal.record("young", JournalState.DONE);
+        }
+
+        clock.addAndGet(TimeUnit.DAYS.toMillis(20));
+        try (TransferJournal journal = new TransferJournal(file.toString(), 30, clock::get)) {
+            assertThat(journal.recovery("old"), equalTo(Recovery.NEW));
+            assertThat(journal.recovery("young"), equalTo(Recovery.DONE));
+            assertThat(journal.recovery("progress"), equalTo(Recovery.RESEND));
+        }
+    }
+
+    @Test
+    void keepsFlushingAfterFlusherInterrupt() {
+        try (TransferJournal journal = new TransferJournal(file.toString(), 0)) {
+            journal.record("1", JournalState.QUEUED);
+            Thread.getAllStackTraces().keySet().stream()
+                    .filter(thread -> thread.getName().equals("journal-flush"))
+                    .forEach(Thread::interrupt);
+
+            journal.record("1", JournalState.DONE);
+            journal.record("2", JournalState.QUEUED);
+
+            assertThat(journal.recovery("1"), equalTo(Recovery.DONE));
+            assertThat(journal.recovery("2"), equalTo(Recovery.RESEND));
+        }
+    }
+
+    @Test
+    void continuesInNextChunk() {
+        char[] longId = new char[100_000];
+        Arrays.fill(longId, 'x');
+        int records = TransferJournal.CHUNK_SIZE / longId.length + 10;
+        List<String> ids = new ArrayList<>();
+        try (TransferJournal journal = new TransferJournal(file.toString(), 0)) {
+            for (int i = 0; i < records; i++) {
+                String id = i + new String(longId);
+                ids.add(id);
+                journal.record(id, JournalState.DONE);
+            }
+        }
+
+        try (TransferJournal journal = new TransferJournal(file.toString(), 0)) {
+            ids.forEach(id -> assertThat(journal.recovery(id), equalTo(Recovery.DONE)));
+        }
+    }
+
+    @Test
+    void recordsFromManyThreads() throws InterruptedException {
+        int threads = 8;
+        int perThread = 200;
+        try (TransferJournal journal = new TransferJournal(file.toString(), 0)) {
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            for (int t = 0; t < threads; t++) {
+                int thread = t;
+                executor.execute(() -> {
+                    for (int i = 0; i < perThread; i++) {
+                        journal.record(thread + "-" + i, JournalState.DONE);
+                    }
+                });
+            }
+            executor.shutdown();
+            executor.awaitTermination(30, TimeUnit.SECONDS);
+        }
+
+        try (TransferJournal journal = new TransferJournal(file.toString(), 0)) {
+            for (int t = 0; t < threads; t++) {
+                for (int i = 0; i < perThread; i++) {
+                    assertThat(journal.recovery(t + "-" + i), equalTo(Recovery.DONE));
+                }
+            }
+        }
+    }
+}
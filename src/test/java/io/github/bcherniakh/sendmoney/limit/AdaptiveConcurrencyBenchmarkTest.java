@@ -0,0 +1,113 @@
+package io.github.bcherniakh.sendmoney.limit;
+
+import io.github.bcherniakh.sendmoney.controller.impl.ParallelBatchController;
+import io.github.bcherniakh.sendmoney.controller.impl.PooledTransferSender;
+import io.github.bcherniakh.sendmoney.controller.impl.SeleniumTransferFlow;
+import io.github.bcherniakh.sendmoney.domain.BatchReport;
+import io.github.bcherniakh.sendmoney.domain.Card;
+import io.github.bcherniakh.sendmoney.domain.Transfer;
+import io.github.bcherniakh.sendmoney.driver.DriverSessionFactory;
+import io.github.bcherniakh.sendmoney.driver.WebDriverPool;
+import io.github.bcherniakh.sendmoney.journal.TransferJournal;
+import io.github.bcherniakh.sendmoney.metrics.TransferMetrics;
+import io.github.bcherniakh.sendmoney.page.FillMode;
+import io.github.bcherniakh.sendmoney.stub.HeadlessChrome;
+import io.github.bcherniakh.sendmoney.stub.StubSendMoneySite;
+import io.github.bcherniakh.sendmoney.trace.CommandTracer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+
+/**
+ * Sends a batch with more browser sessions than the local copy of the site serves at a time,
+ * once with all sessions and once behind the concurrency limiter. Logs the throughput, the failures
+ * and the limit the limiter settled at. Needs a chromedriver, so it is tagged as slow and excluded from the regular build.
+ */
+@Tag("slow")
+@DisplayName("Adaptive concurrency benchmark")
+class AdaptiveConcurrencyBenchmarkTest {
+
+    private static final int SESSIONS = 6;
+    private static final int SITE_CAPACITY = 2;
+    private static final int TRANSFERS = 30;
+    private static final long SITE_LATENCY_MILLIS = 200;
+
+    private static Logger log = LoggerFactory.getLogger(AdaptiveConcurrencyBenchmarkTest.class);
+
+    private StubSendMoneySite site;
+
+    @BeforeEach
+    void startSite() {
+        site = new StubSendMoneySite();
+        site.setLatencyMillis(SITE_LATENCY_MILLIS);
+        site.setCapacity(SITE_CAPACITY);
+    }
+
+    @AfterEach
+    void stopSite() {
+        site.close();
+    }
+
+    @Test
+    void comparesFixedWithAdaptiveConcurrency() {
+        sendBatch(ConcurrencyLimiter.disabled());
+        stopSite();
+        startSite();
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(true, 1, 2.0);
+        sendBatch(limiter);
+
+        log.info("Concurrency limit settled at {} of {} sessions, site capacity {}", limiter.getLimit(), SESSIONS, SITE_CAPACITY);
+        assertThat(limiter.getLimit(), lessThan(SESSIONS));
+    }
+
+    private void sendBatch(ConcurrencyLimiter limiter) {
+        ChromeOptions options = new ChromeOptions();
+        DriverSessionFactory sessionFactory = new DriverSessionFactory(() -> HeadlessChrome.start(options));
+        SeleniumTransferFlow flow = new SeleniumTransferFlow(site.getUrl(), FillMode.SCRIPT,
+                new TransferMetrics(), new CommandTracer(""));
+
+        try (WebDriverPool pool = new WebDriverPool(sessionFactory, SESSIONS, TRANSFERS)) {
+            ParallelBatchController controller = new ParallelBatchController(
+                    new PooledTransferSender(pool, flow, TransferJournal.disabled(), limiter, TransferRateLimiter.unlimited()),
+                    TransferJournal.disabled());
+
+            BatchReport report = controller.sendMoney(transfers());
+
+            log.info("Limiter {}: {}. {} transfers per minute", limiter.isEnabled() ? "enabled" : "disabled", report,
+                    report.getSucceededCount() * 60_000 / Math.max(1, report.getElapsed().toMillis()));
+        }
+    }
+
+    private List<Transfer> transfers() {
+        List<Transfer> transfers = new ArrayList<>();
+        for (int i = 1; i <= TRANSFERS; i++) {
+            Card sender = new Card();
+            sender.setNumber("4111-1111-1111-1111");
+            sender.setExpiresDate(LocalDate.of(2027, 5, 1));
+            sender.setSecurityCode("123");
+            Card receiver = new Card();
+            receiver.setNumber("5500-0000-0000-0004");
+
+            Transfer transfer = new Transfer();
+            transfer.setId("t" + i);
+            transfer.setSender(sender);
+            transfer.setReceiver(receiver);
+            transfer.setSendersPhoneNumber("380501234567");
+            transfer.setAmount(i);
+            transfers.add(transfer);
+        }
+        return transfers;
+    }
+}
@@ -0,0 +1,97 @@
+package io.github.bcherniakh.sendmoney.limit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+@DisplayName("Concurrency limiter tests")
+class ConcurrencyLimiterTest {
+
+    private static final long LATENCY = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final AtomicLong clock = new AtomicLong(1);
+    private final ConcurrencyLimiter limiter = new ConcurrencyLimiter(true, 2, 2.0, clock::get);
+
+    @Test
+    void raisesLimitWhileLatencyStaysLow() {
+        for (int round = 0; round < 3; round++) {
+            sendRound(limiter.getLimit(), LATENCY);
+        }
+
+        assertThat(limiter.getLimit(), equalTo(4));
+    }
+
+    @Test
+    void keepsLimitWhileTransfersDoNotReachIt() {
+        for (int round = 0; round < 3; round++) {
+            sendRound(1, LATENCY);
+        }
+
+        assertThat(limiter.getLimit(), equalTo(2));
+    }
+
+    @Test
+    void backsOffOncePerRoundOfSlowTransfers() {
+        for (int round = 0; round < 3; round++) {
+            sendRound(limiter.getLimit(), LATENCY);
+        }
+
+        sendRound(4, LATENCY * 3);
+
+        assertThat(limiter.getLimit(), equalTo(3));
+    }
+
+    @Test
+    void halvesLimitOnceAfterTimeouts() {
+        for (int round = 0; round < 6; round++) {
+            sendRound(limiter.getLimit(), LATENCY);
+        }
+        int limit = limiter.getLimit();
+        long first = limiter.acquire();
+        long second = limiter.acquire();
+        clock.addAndGet(LATENCY);
+
+        limiter.onTimeout(first);
+        limiter.onTimeout(second);
+
+        assertThat(limiter.getLimit(), equalTo(limit / 2));
+    }
+
+    @Test
+    void holdsTransfersOverLimit() throws InterruptedException {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(true, 1, 2.0, clock::get);
+        long first = limiter.acquire();
+        CountDownLatch secondSent = new CountDownLatch(1);
+        Thread second = new Thread(() -> {
+            limiter.acquire();
+            secondSent.countDown();
+            limiter.onIgnored();
+        });
+        second.start();
+
+        assertThat(secondSent.await(200, TimeUnit.MILLISECONDS), equalTo(false));
+        limiter.onSuccess(first);
+        assertThat(secondSent.await(1, TimeUnit.SECONDS), equalTo(true));
+        second.join();
+    }
+
+    /*
+     * Sends the transfers at the same time, they all finish after the latency.
+     */
+    private void sendRound(int transfers, long latency) {
+        long[] startedAt = new long[transfers];
+        for (int i = 0; i < transfers; i++) {
+            startedAt[i] = limiter.acquire();
+        }
+        clock.addAndGet(latency);
+        for (long started : startedAt) {
+            limiter.onSuccess(started);
+        }
+    }
+}
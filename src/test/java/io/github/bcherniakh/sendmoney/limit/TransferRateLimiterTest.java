@@ -0,0 +1,87 @@
+package io.github.bcherniakh.sendmoney.limit;
+
+import io.github.bcherniakh.sendmoney.domain.Card;
+import io.github.bcherniakh.sendmoney.domain.Transfer;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+@DisplayName("Transfer rate limiter tests")
+class TransferRateLimiterTest {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final String SENDER = "4111-1111-1111-1111";
+    private static final String OTHER_SENDER = "5500-0000-0000-0004";
+
+    private final AtomicLong clock = new AtomicLong(-5 * SECOND);
+
+    @Test
+    void spacesTransfersOfSenderAfterBurst() {
+        TransferRateLimiter limiter = new TransferRateLimiter(60, 2, 0, 1, clock::get);
+
+        assertThat(limiter.reserveSender(SENDER), equalTo(0L));
+        assertThat(limiter.reserveSender(SENDER), equalTo(0L));
+        assertThat(limiter.reserveSender(SENDER), equalTo(SECOND));
+        assertThat(limiter.reserveSender(SENDER), equalTo(2 * SECOND));
+        assertThat(limiter.reserveSender(OTHER_SENDER), equalTo(0L));
+
+        clock.addAndGet(3 * SECOND);
+        assertThat(limiter.reserveSender(SENDER), equalTo(0L));
+    }
+
+    @Test
+    void sharesGlobalBucketBetweenSenders() {
+        TransferRateLimiter limiter = new TransferRateLimiter(0, 1, 120, 1, clock::get);
+
+        assertThat(limiter.reserveGlobal(0), equalTo(0L));
+        assertThat(limiter.reserveGlobal(0), equalTo(SECOND / 2));
+        clock.addAndGet(SECOND);
+        assertThat(limiter.reserveGlobal(0), equalTo(0L));
+    }
+
+    @Test
+    void takesGlobalTokenForTimeOfSenderToken() {
+        TransferRateLimiter limiter = new TransferRateLimiter(60, 1, 120, 1, clock::get);
+        Transfer transfer = new Transfer();
+        transfer.setSender(new Card());
+        transfer.getSender().setNumber(SENDER);
+
+        assertThat(limiter.reserve(transfer), equalTo(0L));
+        assertThat(limiter.reserve(transfer), equalTo(SECOND));
+        // Goes after the global token taken for the second transfer
+        transfer.getSender().setNumber(OTHER_SENDER);
+        assertThat(limiter.reserve(transfer), equalTo(3 * SECOND / 2));
+    }
+
+    @Test
+    void limitsTransferWithoutSenderGlobally() {
+        TransferRateLimiter limiter = new TransferRateLimiter(60, 1, 0, 1, clock::get);
+        Transfer transfer = new Transfer();
+        transfer.setId("t1");
+
+        assertThat(limiter.reserve(transfer), equalTo(0L));
+        transfer.setSender(new Card());
+        assertThat(limiter.reserve(transfer), equalTo(0L));
+
+        assertThat(limiter.senderCount(), equalTo(0));
+    }
+
+    @Test
+    void removesIdleSenderBuckets() {
+        TransferRateLimiter limiter = new TransferRateLimiter(60, 1, 0, 1, clock::get);
+        limiter.reserveSender(SENDER);
+        limiter.reserveSender(OTHER_SENDER);
+        clock.addAndGet(TransferRateLimiter.IDLE_NANOS / 2);
+        limiter.reserveSender(OTHER_SENDER);
+
+        clock.addAndGet(TransferRateLimiter.IDLE_NANOS);
+        limiter.reserveSender(OTHER_SENDER);
+
+        assertThat(limiter.senderCount(), equalTo(1));
+    }
+}
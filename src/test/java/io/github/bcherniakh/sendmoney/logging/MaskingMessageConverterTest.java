@@ -0,0 +1,72 @@
+package io.github.bcherniakh.sendmoney.logging;
+
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.impl.Log4jLogEvent;
+import org.apache.logging.log4j.message.ParameterizedMessage;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.not;
+
+@DisplayName("Masking message converter tests")
+class MaskingMessageConverterTest {
+
+    @Test
+    void masksCardNumbersButLastFourDigits() {
+        assertThat(mask("Filling sender card number 5168-7420-1234-5678"),
+                equalTo("Filling sender card number ****-****-****-5678"));
+        assertThat(mask("Cards 5168742012345678 and 4149 4393 0000 1111 are used"),
+                equalTo("Cards ************5678 and **** **** **** 1111 are used"));
+    }
+
+    @Test
+    void masksSecurityCodeAfterKeyword() {
+        assertThat(mask("CVV2: 123"), equalTo("CVV2: ***"));
+        assertThat(mask("sender cvv code is 0042, amount 100"), equalTo("sender cvv code is ****, amount 100"));
+    }
+
+    @Test
+    void keepsOtherNumbers() {
+        String text = "Transfer 42 of 100.50 UAH, phone 380501234567, took 1500 ms, cvv2 code";
+
+        assertThat(mask(text), equalTo(text));
+    }
+
+    @Test
+    void masksFormattedMessageOnly() {
+        LogEvent event = Log4jLogEvent.newBuilder()
+                .setMessage(new ParameterizedMessage("Filling receiver card number {}", "5168-7420-1234-5678"))
+                .build();
+        StringBuilder output = new StringBuilder("12:00:00.000 DEBUG 1234567890123456 - ");
+
+        MaskingMessageConverter.newInstance(null).format(event, output);
+
+        assertThat(output.toString(),
+                equalTo("12:00:00.000 DEBUG 1234567890123456 - Filling receiver card number ****-****-****-5678"));
+    }
+
+    @Test
+    void masksStackTrace() {
+        LogEvent event = Log4jLogEvent.newBuilder()
+                .setMessage(new ParameterizedMessage("Transfer failed"))
+                .setThrown(new IllegalStateException("Declined card 5168-7420-1234-5678, cvv 123",
+                        new IllegalArgumentException("Invalid card 5168742012345678")))
+                .build();
+        StringBuilder output = new StringBuilder();
+
+        MaskingThrowableConverter.newInstance(null, null).format(event, output);
+
+        assertThat(output.toString(), containsString("Declined card ****-****-****-5678, cvv ***"));
+        assertThat(output.toString(), containsString("Invalid card ************5678"));
+        assertThat(output.toString(), not(containsString("5168-7420")));
+    }
+
+    private static String mask(String text) {
+        StringBuilder builder = new StringBuilder(text);
+        MaskingMessageConverter.mask(builder, 0);
+        return builder.toString();
+    }
+}
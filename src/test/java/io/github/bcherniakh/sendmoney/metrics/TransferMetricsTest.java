@@ -0,0 +1,73 @@
+package io.github.bcherniakh.sendmoney.metrics;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.closeTo;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DisplayName("Transfer metrics tests")
+class TransferMetricsTest {
+
+    private TransferMetrics metrics;
+
+    @BeforeEach
+    void setUp() {
+        metrics = new TransferMetrics();
+    }
+
+    @Test
+    void reportsPercentilesOfRecordedSteps() {
+        for (int i = 1; i <= 100; i++) {
+            metrics.record(TransferStep.PAGE_LOAD, TimeUnit.MILLISECONDS.toNanos(i));
+        }
+
+        List<StepStatistics> steps = metrics.getSteps();
+
+        assertThat(steps, hasSize(1));
+        StepStatistics pageLoad = steps.get(0);
+        assertThat(pageLoad.getStep(), equalTo("PAGE_LOAD"));
+        assertThat(pageLoad.getCount(), equalTo(100L));
+        assertThat(pageLoad.getP50(), closeTo(50, 0.1));
+        assertThat(pageLoad.getP99(), closeTo(99, 0.1));
+        assertThat(pageLoad.getMax(), closeTo(100, 0.1));
+    }
+
+    @Test
+    void keepsValuesBetweenReads() {
+        metrics.record(TransferStep.FILL_CVV, TimeUnit.MILLISECONDS.toNanos(5));
+        metrics.getSteps();
+        metrics.record(TransferStep.FILL_CVV, TimeUnit.MILLISECONDS.toNanos(7));
+
+        assertThat(metrics.getSteps().get(0).getCount(), equalTo(2L));
+    }
+
+    @Test
+    void recordsStepEvenWhenItFails() {
+        assertThrows(IllegalStateException.class, () -> metrics.time(TransferStep.FINAL_SUBMIT, () -> {
+            throw new IllegalStateException("Button is gone");
+        }));
+
+        assertThat(metrics.getSteps().get(0).getCount(), equalTo(1L));
+    }
+
+    @Test
+    void exportsStepsAsPrometheusSummaries() {
+        metrics.record(TransferStep.STEP2_LOAD, TimeUnit.MILLISECONDS.toNanos(1500));
+
+        String text = metrics.toPrometheus();
+
+        assertThat(text, containsString("# TYPE sendmoney_step_seconds summary"));
+        assertThat(text, containsString("sendmoney_step_seconds{step=\"step2_load\",quantile=\"0.99\"} 1.50"));
+        assertThat(text, containsString("sendmoney_step_seconds_sum{step=\"step2_load\"} 1.5\n"));
+        assertThat(text, containsString("sendmoney_step_seconds_count{step=\"step2_load\"} 1\n"));
+    }
+}
@@ -0,0 +1,78 @@
+package io.github.bcherniakh.sendmoney.page;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+import java.util.Arrays;
+
+import static io.github.bcherniakh.sendmoney.page.xpath.SiteElements.MainPage.AMOUNT;
+import static io.github.bcherniakh.sendmoney.page.xpath.SiteElements.MainPage.SENDER_CARD_NUMBER;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.mockito.Mockito.*;
+
+@DisplayName("Element cache tests")
+class ElementCacheTest {
+
+    private WebDriver webDriver;
+    private ElementCache elements;
+
+    @BeforeEach
+    void setUp() {
+        webDriver = mock(WebDriver.class);
+        elements = new ElementCache(webDriver);
+    }
+
+    @Test
+    void resolvesElementOnce() {
+        WebElement amount = mock(WebElement.class);
+        when(webDriver.findElement(AMOUNT.locator())).thenReturn(amount);
+
+        elements.use(AMOUNT, element -> element.sendKeys("10"));
+        elements.use(AMOUNT, element -> element.sendKeys("50"));
+
+        verify(webDriver, times(1)).findElement(AMOUNT.locator());
+        verify(amount).sendKeys("10");
+        verify(amount).sendKeys("50");
+        assertThat(elements.getResolveCount(), is(1));
+        assertThat(elements.getHitCount(), is(1));
+    }
+
+    @Test
+    void resolvesStaleElementAgain() {
+        WebElement stale = mock(WebElement.class);
+        WebElement fresh = mock(WebElement.class);
+        doThrow(new StaleElementReferenceException("re-rendered")).when(stale).sendKeys("10");
+        when(webDriver.findElement(AMOUNT.locator())).thenReturn(stale, fresh);
+
+        elements.use(AMOUNT, element -> element.sendKeys("10"));
+
+        verify(fresh).sendKeys("10");
+        assertThat(elements.getResolveCount(), is(2));
+    }
+
+    @Test
+    void clearsTypedElementsBeforeTypingThemAgain() {
+        WebElement first = mock(WebElement.class);
+        WebElement stale = mock(WebElement.class);
+        WebElement freshFirst = mock(WebElement.class);
+        WebElement freshSecond = mock(WebElement.class);
+        doThrow(new StaleElementReferenceException("re-rendered")).when(stale).sendKeys("5678");
+        when(webDriver.findElements(SENDER_CARD_NUMBER.locator()))
+                .thenReturn(Arrays.asList(first, stale), Arrays.asList(freshFirst, freshSecond));
+
+        elements.typeAll(SENDER_CARD_NUMBER, Arrays.asList("1234", "5678"), false);
+
+        verify(first, never()).clear();
+        InOrder inOrder = inOrder(freshFirst, freshSecond);
+        inOrder.verify(freshFirst).clear();
+        inOrder.verify(freshFirst).sendKeys("1234");
+        inOrder.verify(freshSecond).clear();
+        inOrder.verify(freshSecond).sendKeys("5678");
+    }
+}
@@ -0,0 +1,86 @@
+package io.github.bcherniakh.sendmoney.page;
+
+import io.github.bcherniakh.sendmoney.metrics.StepTimer;
+import io.github.bcherniakh.sendmoney.stub.HeadlessChrome;
+import io.github.bcherniakh.sendmoney.stub.StubSendMoneySite;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.By;
+import org.openqa.selenium.PageLoadStrategy;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.ui.Wait;
+import org.openqa.selenium.support.ui.WebDriverWait;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import static io.github.bcherniakh.sendmoney.constant.WebConstant.DEFAULT_WAIT_TIMEOUT;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+/**
+ * Compares the step 1 fill modes against the local copy of the page.
+ * Needs a chromedriver, so it is tagged as slow and excluded from the regular build.
+ */
+@Tag("slow")
+@DisplayName("Step 1 fill modes benchmark")
+class FillModeBenchmarkTest {
+
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASURED_ITERATIONS = 30;
+
+    private static Logger log = LoggerFactory.getLogger(FillModeBenchmarkTest.class);
+
+    private static StubSendMoneySite site;
+    private static WebDriver webDriver;
+    private static Wait<WebDriver> wait;
+
+    private final Step1Form form = new Step1Form("1234-5678-9101-2345", "05", "27", "123", "1098-7654-3210-1234", "10.50");
+
+    @BeforeAll
+    static void startBrowser() {
+        site = new StubSendMoneySite();
+        webDriver = HeadlessChrome.start();
+        wait = new WebDriverWait(webDriver, DEFAULT_WAIT_TIMEOUT);
+    }
+
+    @AfterAll
+    static void stopBrowser() {
+        webDriver.quit();
+        site.close();
+    }
+
+    @Test
+    void comparesFillModes() {
+        double keystrokeMillis = measure(FillMode.KEYSTROKE);
+        double scriptMillis = measure(FillMode.SCRIPT);
+
+        log.info("Step 1 fill. Keystroke: {} ms, script: {} ms, speedup: {}x",
+                keystrokeMillis, scriptMillis, keystrokeMillis / scriptMillis);
+    }
+
+    private double measure(FillMode mode) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            fill(mode);
+        }
+        long total = 0;
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            total += fill(mode);
+        }
+        return total / 1_000_000.0 / MEASURED_ITERATIONS;
+    }
+
+    private long fill(FillMode mode) {
+        SendMoneyPbPage page = new SendMoneyPbPage(webDriver, wait, site.getUrl(), StepTimer.NONE,
+                PageLoadStrategy.NORMAL);
+        long startedAt = System.nanoTime();
+        page.fillStep1(form, mode);
+        long elapsed = System.nanoTime() - startedAt;
+
+        String buttonClass = webDriver.findElement(By.id("send_button")).getAttribute("class");
+        assertThat(buttonClass, equalTo("content__buttom send_money_step_1"));
+        return elapsed;
+    }
+}
@@ -0,0 +1,74 @@
+package io.github.bcherniakh.sendmoney.page;
+
+import io.github.bcherniakh.sendmoney.page.xpath.SiteElement;
+import io.github.bcherniakh.sendmoney.page.xpath.SiteElements.MainPage;
+import io.github.bcherniakh.sendmoney.stub.HeadlessChrome;
+import io.github.bcherniakh.sendmoney.stub.StubSendMoneySite;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.By;
+import org.openqa.selenium.WebDriver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.function.Function;
+
+/**
+ * Measures the cost of resolving all step 1 elements against the local copy of the page.
+ * Compares the original XPaths, the CSS selectors and the {@link ElementCache} reusing the resolved elements.
+ */
+@Tag("slow")
+@DisplayName("Locator benchmark")
+class LocatorBenchmarkTest {
+
+    private static final int ITERATIONS = 50;
+
+    private static Logger log = LoggerFactory.getLogger(LocatorBenchmarkTest.class);
+
+    private static StubSendMoneySite site;
+    private static WebDriver webDriver;
+
+    @BeforeAll
+    static void startBrowser() {
+        site = new StubSendMoneySite();
+        webDriver = HeadlessChrome.start();
+        webDriver.get(site.getUrl());
+    }
+
+    @AfterAll
+    static void stopBrowser() {
+        webDriver.quit();
+        site.close();
+    }
+
+    @Test
+    void comparesLookupCost() {
+        long xPathMicros = lookupMicros(element -> By.xpath(element.xPath()));
+        long cssMicros = lookupMicros(SiteElement::locator);
+
+        ElementCache elements = new ElementCache(webDriver);
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            for (MainPage element : MainPage.values()) {
+                elements.findAll(element);
+            }
+        }
+        long cachedMicros = (System.nanoTime() - startedAt) / 1000 / ITERATIONS;
+
+        log.info("Resolving all step 1 elements. XPath: {} us, CSS: {} us, cached: {} us",
+                xPathMicros, cssMicros, cachedMicros);
+    }
+
+    private long lookupMicros(Function<SiteElement, By> locator) {
+        long startedAt = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            for (MainPage element : MainPage.values()) {
+                webDriver.findElements(locator.apply(element));
+            }
+        }
+        return (System.nanoTime() - startedAt) / 1000 / ITERATIONS;
+    }
+}
@@ -0,0 +1,87 @@
+package io.github.bcherniakh.sendmoney.page;
+
+import io.github.bcherniakh.sendmoney.metrics.StepStatistics;
+import io.github.bcherniakh.sendmoney.metrics.TransferMetrics;
+import io.github.bcherniakh.sendmoney.metrics.TransferStep;
+import io.github.bcherniakh.sendmoney.stub.HeadlessChrome;
+import io.github.bcherniakh.sendmoney.stub.StubSendMoneySite;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.PageLoadStrategy;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.openqa.selenium.support.ui.WebDriverWait;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import static io.github.bcherniakh.sendmoney.constant.WebConstant.DEFAULT_WAIT_TIMEOUT;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.hasSize;
+
+/**
+ * Compares the time to interactive of both pages with every page load strategy against the local copy of the site,
+ * which delays every response including the banner the transfer does not need.
+ */
+@Tag("slow")
+@DisplayName("Page load strategy benchmark")
+class PageLoadStrategyBenchmarkTest {
+
+    private static final int ITERATIONS = 10;
+    private static final long SITE_LATENCY_MILLIS = 200;
+    private static final Set<TransferStep> REPORTED_STEPS = EnumSet.of(TransferStep.PAGE_LOAD,
+            TransferStep.STEP1_INTERACTIVE, TransferStep.STEP2_LOAD, TransferStep.STEP2_INTERACTIVE);
+
+    private static Logger log = LoggerFactory.getLogger(PageLoadStrategyBenchmarkTest.class);
+
+    private final Step1Form form = new Step1Form("1234-5678-9101-2345", "05", "27", "123", "1098-7654-3210-1234", "10.50");
+
+    private StubSendMoneySite site;
+
+    @BeforeEach
+    void startSite() {
+        site = new StubSendMoneySite();
+        site.setLatencyMillis(SITE_LATENCY_MILLIS);
+    }
+
+    @AfterEach
+    void stopSite() {
+        site.close();
+    }
+
+    @Test
+    void comparesTimeToInteractive() {
+        for (PageLoadStrategy strategy : PageLoadStrategy.values()) {
+            TransferMetrics metrics = transfer(strategy);
+            metrics.getSteps().stream()
+                    .filter(step -> REPORTED_STEPS.contains(TransferStep.valueOf(step.getStep())))
+                    .map(StepStatistics::toString)
+                    .forEach(step -> log.info("{}: {}", strategy, step));
+        }
+        assertThat(site.getTransfers(), hasSize(ITERATIONS * PageLoadStrategy.values().length));
+    }
+
+    private TransferMetrics transfer(PageLoadStrategy strategy) {
+        TransferMetrics metrics = new TransferMetrics();
+        WebDriver webDriver = HeadlessChrome.start(new ChromeOptions().setPageLoadStrategy(strategy));
+        try {
+            WebDriverWait wait = new WebDriverWait(webDriver, DEFAULT_WAIT_TIMEOUT);
+            for (int i = 0; i < ITERATIONS; i++) {
+                webDriver.manage().deleteAllCookies();
+                SendMoneyPbPage page = new SendMoneyPbPage(webDriver, wait, site.getUrl(), metrics, strategy);
+                page.fillStep1(form, FillMode.SCRIPT);
+                TransferConfirmationPage confirmationPage = page.clickSendButton();
+                confirmationPage.fillPhoneNumber("380501234567");
+                confirmationPage.clickSendButton();
+            }
+        } finally {
+            webDriver.quit();
+        }
+        return metrics;
+    }
+}
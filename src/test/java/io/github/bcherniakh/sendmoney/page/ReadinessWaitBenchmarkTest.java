@@ -0,0 +1,91 @@
+package io.github.bcherniakh.sendmoney.page;
+
+import io.github.bcherniakh.sendmoney.metrics.StepTimer;
+import io.github.bcherniakh.sendmoney.stub.HeadlessChrome;
+import io.github.bcherniakh.sendmoney.stub.StubSendMoneySite;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.PageLoadStrategy;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.support.ui.Wait;
+import org.openqa.selenium.support.ui.WebDriverWait;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+import static io.github.bcherniakh.sendmoney.constant.WebConstant.DEFAULT_WAIT_TIMEOUT;
+import static io.github.bcherniakh.sendmoney.constant.WebConstant.SCRIPT_TIMEOUT;
+import static io.github.bcherniakh.sendmoney.page.xpath.SiteElements.MainPage.SEND_BUTTON;
+import static org.openqa.selenium.By.xpath;
+import static org.openqa.selenium.support.ui.ExpectedConditions.attributeToBe;
+
+/**
+ * Measures the gap between the send button becoming active and the wait noticing it.
+ * Compares the polling {@link WebDriverWait} with {@link ReadinessWait} against the local copy of the page,
+ * which activates the button a random time after the form is filled.
+ */
+@Tag("slow")
+@DisplayName("Readiness wait benchmark")
+class ReadinessWaitBenchmarkTest {
+
+    private static final String ACTIVE_SEND_BUTTON_CLASS = "content__buttom send_money_step_1";
+    private static final int ITERATIONS = 20;
+    private static final int MAX_ACTIVATION_DELAY_MILLIS = 700;
+
+    private static Logger log = LoggerFactory.getLogger(ReadinessWaitBenchmarkTest.class);
+
+    private static StubSendMoneySite site;
+    private static WebDriver webDriver;
+    private static Wait<WebDriver> wait;
+
+    private final Step1Form form = new Step1Form("1234-5678-9101-2345", "05", "27", "123", "1098-7654-3210-1234", "10.50");
+
+    @BeforeAll
+    static void startBrowser() {
+        site = new StubSendMoneySite();
+        webDriver = HeadlessChrome.start();
+        webDriver.manage().timeouts().setScriptTimeout(SCRIPT_TIMEOUT, TimeUnit.SECONDS);
+        wait = new WebDriverWait(webDriver, DEFAULT_WAIT_TIMEOUT);
+    }
+
+    @AfterAll
+    static void stopBrowser() {
+        webDriver.quit();
+        site.close();
+    }
+
+    @Test
+    void comparesReactionGap() {
+        long pollingGap = 0;
+        long eventGap = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            long delay = (i * 97L) % MAX_ACTIVATION_DELAY_MILLIS + 50;
+
+            openFilledPage(delay);
+            wait.until(attributeToBe(xpath(SEND_BUTTON.xPath()), "class", ACTIVE_SEND_BUTTON_CLASS));
+            pollingGap += System.currentTimeMillis() - activatedAt();
+
+            openFilledPage(delay);
+            new ReadinessWait(webDriver, wait).untilAttributeEquals(SEND_BUTTON, "class", ACTIVE_SEND_BUTTON_CLASS);
+            eventGap += System.currentTimeMillis() - activatedAt();
+        }
+
+        log.info("Average gap between readiness and reaction. WebDriverWait polling: {} ms, ReadinessWait: {} ms",
+                pollingGap / ITERATIONS, eventGap / ITERATIONS);
+    }
+
+    private void openFilledPage(long activationDelay) {
+        SendMoneyPbPage page = new SendMoneyPbPage(webDriver, wait, site.getUrl() + "?activationDelay=" + activationDelay,
+                StepTimer.NONE, PageLoadStrategy.NORMAL);
+        page.fillStep1(form, FillMode.SCRIPT);
+    }
+
+    private long activatedAt() {
+        return ((Number) ((JavascriptExecutor) webDriver).executeScript("return window.sendButtonActivatedAt;")).longValue();
+    }
+}
@@ -0,0 +1,97 @@
+package io.github.bcherniakh.sendmoney.page;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.support.ui.Wait;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static io.github.bcherniakh.sendmoney.page.xpath.SiteElements.MainPage.AMOUNT;
+import static io.github.bcherniakh.sendmoney.page.xpath.SiteElements.MainPage.SEND_BUTTON;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@DisplayName("Readiness wait tests")
+class ReadinessWaitTest {
+
+    private WebDriver webDriver;
+    private Wait<WebDriver> fallbackWait;
+    private ReadinessWait readinessWait;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        webDriver = mock(WebDriver.class, withSettings().extraInterfaces(JavascriptExecutor.class));
+        fallbackWait = mock(Wait.class);
+        readinessWait = new ReadinessWait(webDriver, fallbackWait);
+    }
+
+    @Test
+    void returnsWhenBrowserSignalsReadiness() {
+        when(executeAsyncScript()).thenReturn(result(true));
+
+        readinessWait.untilEnabled(AMOUNT);
+
+        verify(fallbackWait, never()).until(any());
+        assertThat(readinessWait.getLastReactionMillis(), greaterThanOrEqualTo(0L));
+    }
+
+    @Test
+    void pollsWhenScriptFails() {
+        when(executeAsyncScript()).thenThrow(new WebDriverException("Script is not supported"));
+
+        readinessWait.untilAttributeEquals(AMOUNT, "class", "active");
+
+        verify(fallbackWait).until(any());
+    }
+
+    @Test
+    void pollsWhenDriverCanNotRunScripts() {
+        new ReadinessWait(mock(WebDriver.class), fallbackWait).untilEnabled(AMOUNT);
+
+        verify(fallbackWait).until(any());
+    }
+
+    @Test
+    void timesOutWhenBrowserReportsTimeout() {
+        when(executeAsyncScript()).thenReturn(result(false));
+
+        assertThrows(TimeoutException.class, () -> readinessWait.untilEnabled(AMOUNT));
+        verify(fallbackWait, never()).until(any());
+    }
+
+    @Test
+    void pollsPageUntilItHasAllElements() {
+        when(((JavascriptExecutor) webDriver).executeScript(anyString(), any(), any()))
+                .thenThrow(new WebDriverException("Document unloaded"))
+                .thenReturn(false)
+                .thenReturn(true);
+
+        readinessWait.untilPresent("step2", Arrays.asList(AMOUNT, SEND_BUTTON));
+
+        verify((JavascriptExecutor) webDriver, times(3))
+                .executeScript(anyString(), eq(Arrays.asList(AMOUNT.selector(), SEND_BUTTON.selector())), eq("step2"));
+    }
+
+    private Object executeAsyncScript() {
+        return ((JavascriptExecutor) webDriver).executeAsyncScript(anyString(), any(), any(), any(), any());
+    }
+
+    private Map<String, Object> result(boolean ready) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("ready", ready);
+        result.put("readyAt", System.currentTimeMillis());
+        return result;
+    }
+}
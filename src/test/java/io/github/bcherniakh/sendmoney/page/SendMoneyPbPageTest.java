@@ -1,23 +1,31 @@
 package io.github.bcherniakh.sendmoney.page;
 
 import io.github.bcherniakh.sendmoney.exception.InvalidInputException;
+import io.github.bcherniakh.sendmoney.metrics.StepTimer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
-import org.openqa.selenium.By;
+import org.mockito.InOrder;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.PageLoadStrategy;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.support.ui.Wait;
 
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
+import static io.github.bcherniakh.sendmoney.page.xpath.SiteElements.MainPage.AMOUNT;
 import static io.github.bcherniakh.sendmoney.page.xpath.SiteElements.MainPage.RECEIVER_CARD_NUMBER;
 import static io.github.bcherniakh.sendmoney.page.xpath.SiteElements.MainPage.SENDER_CARD_NUMBER;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.equalTo;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @DisplayName("Main page tests")
@@ -53,7 +61,7 @@ class SendMoneyPbPageTest {
                     fourthSenderCardNumberBlock
             );
 
-            when(webDriver.findElements(By.xpath(SENDER_CARD_NUMBER.xPath()))).thenReturn(senderCardNumberInputBlocks);
+            when(webDriver.findElements(SENDER_CARD_NUMBER.locator())).thenReturn(senderCardNumberInputBlocks);
 
             page.fillSenderCardNumber("1234-5678-9101-2345");
             verify(firstSenderCardNumberBlock).sendKeys("1234");
@@ -97,7 +105,7 @@ class SendMoneyPbPageTest {
                     fourthReceiverCardNumberBlock
             );
 
-            when(webDriver.findElements(By.xpath(RECEIVER_CARD_NUMBER.xPath()))).thenReturn(receiverCardNumberInputBlocks);
+            when(webDriver.findElements(RECEIVER_CARD_NUMBER.locator())).thenReturn(receiverCardNumberInputBlocks);
 
             page.fillReceiverCardNumber("1234-5678-9101-2345");
             verify(firstReceiverCardNumberBlock).sendKeys("1234");
@@ -123,4 +131,67 @@ class SendMoneyPbPageTest {
             assertThat(exception.getMessage(), equalTo("Each card number block should consist of 4 symbols. Symbols in block 3. Block 345"));
         }
     }
-}
\ No newline at end of file
+
+    @Nested
+    @DisplayName("Step 1 form")
+    class Step1 {
+
+        private final Step1Form form = new Step1Form("1234-5678-9101-2345", "05", "27", "123", "1098-7654-3210-1234", "10.50");
+
+        private WebDriver scriptingDriver;
+        private SendMoneyPbPage scriptingPage;
+
+        @BeforeEach
+        void setUp() {
+            scriptingDriver = mock(WebDriver.class, withSettings().extraInterfaces(JavascriptExecutor.class));
+            scriptingPage = new SendMoneyPbPage(scriptingDriver, wait);
+        }
+
+        @Test
+        void fillsAllFieldsWithSingleScriptCall() {
+            when(((JavascriptExecutor) scriptingDriver).executeScript(anyString(), any(), any())).thenReturn(Collections.emptyList());
+
+            scriptingPage.fillStep1(form, FillMode.SCRIPT);
+
+            verify((JavascriptExecutor) scriptingDriver).executeScript(anyString(), any(), any());
+            verify(scriptingDriver, never()).findElement(any());
+            verify(scriptingDriver, never()).findElements(any());
+        }
+
+        @Test
+        void typesFieldsScriptCouldNotFill() {
+            WebElement amount = mock(WebElement.class);
+            when(amount.isEnabled()).thenReturn(true);
+            when(scriptingDriver.findElement(AMOUNT.locator())).thenReturn(amount);
+            when(((JavascriptExecutor) scriptingDriver).executeScript(anyString(), any(), any()))
+                    .thenReturn(Collections.singletonList(AMOUNT.name()));
+
+            scriptingPage.fillStep1(form, FillMode.SCRIPT);
+
+            InOrder inOrder = inOrder(amount);
+            inOrder.verify(amount).clear();
+            inOrder.verify(amount).sendKeys("10.50");
+            verify(scriptingDriver, never()).findElements(any());
+        }
+
+        @Test
+        void waitsForFieldsInsteadOfPageLoadWithEagerStrategy() {
+            when(((JavascriptExecutor) scriptingDriver).executeScript(anyString(), any(), any())).thenReturn(true);
+
+            new SendMoneyPbPage(scriptingDriver, wait, "http://127.0.0.1/ua/", StepTimer.NONE, PageLoadStrategy.EAGER);
+
+            InOrder inOrder = inOrder(scriptingDriver);
+            inOrder.verify((JavascriptExecutor) scriptingDriver).executeScript(anyString());
+            inOrder.verify(scriptingDriver).get("http://127.0.0.1/ua/");
+            inOrder.verify((JavascriptExecutor) scriptingDriver).executeScript(anyString(), any(), isNull());
+        }
+
+        @Test
+        void validatesCardNumberBeforeRunningScript() {
+            Step1Form invalidForm = new Step1Form("1234-5678-9101-345", "05", "27", "123", "1098-7654-3210-1234", "10.50");
+
+            assertThrows(InvalidInputException.class, () -> scriptingPage.fillStep1(invalidForm, FillMode.SCRIPT));
+            verify((JavascriptExecutor) scriptingDriver, never()).executeScript(anyString(), any(), any());
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package io.github.bcherniakh.sendmoney.proxy;
+
+import io.github.bcherniakh.sendmoney.exception.InvalidInputException;
+import io.github.bcherniakh.sendmoney.stub.StubSendMoneySite;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.Socket;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DisplayName("Filtering proxy tests")
+class FilteringProxyTest {
+
+    private StubSendMoneySite site;
+    private FilteringProxy proxy;
+
+    @BeforeEach
+    void startSite() {
+        site = new StubSendMoneySite();
+    }
+
+    @AfterEach
+    void stopSite() {
+        if (proxy != null) {
+            proxy.close();
+        }
+        site.close();
+    }
+
+    @Test
+    void allowRulesMakeExceptionsFromDenyRules() {
+        RequestFilter filter = RequestFilter.parse("image https://sendmoney.privatbank.ua/*/logo.png",
+                "image,font *; * *://*.doubleclick.net/*");
+
+        assertThat(filter.allows("https://sendmoney.privatbank.ua/ua/banner.png", ResourceType.IMAGE), equalTo(false));
+        assertThat(filter.allows("https://sendmoney.privatbank.ua/img/logo.png", ResourceType.IMAGE), equalTo(true));
+        assertThat(filter.allows("https://stats.g.doubleclick.net/", ResourceType.OTHER), equalTo(false));
+        assertThat(filter.allows("https://sendmoney.privatbank.ua/", ResourceType.OTHER), equalTo(true));
+        assertThat(filter.allows("https://sendmoney.privatbank.ua/ua/", ResourceType.DOCUMENT), equalTo(true));
+        assertThat(filter.deniesAll(ResourceType.FONT), equalTo(true));
+        assertThat(filter.deniesAll(ResourceType.IMAGE), equalTo(false));
+        assertThat(RequestFilter.allowAll().allows("http://any/", ResourceType.SCRIPT), equalTo(true));
+    }
+
+    @Test
+    void rejectsMalformedRules() {
+        assertThrows(InvalidInputException.class, () -> RequestFilter.parse("", "image"));
+        assertThrows(InvalidInputException.class, () -> RequestFilter.parse("", "picture *"));
+    }
+
+    @Test
+    void detectsResourceTypeByHeadersAndPath() {
+        assertThat(ResourceType.detect("image", null, "/ua/"), equalTo(ResourceType.IMAGE));
+        assertThat(ResourceType.detect("empty", null, "/api/rates"), equalTo(ResourceType.XHR));
+        assertThat(ResourceType.detect(null, null, "/fonts/a.woff2"), equalTo(ResourceType.FONT));
+        assertThat(ResourceType.detect(null, "text/html,application/xhtml+xml", "/ua/"), equalTo(ResourceType.DOCUMENT));
+        assertThat(ResourceType.detect(null, null, "/v1.2/data"), equalTo(ResourceType.OTHER));
+    }
+
+    @Test
+    void blocksDeniedRequestsAndCountsTraffic() throws IOException {
+        proxy = new FilteringProxy(RequestFilter.parse("", "* */assets/*.js"));
+        int port = proxy.start();
+
+        assertThat(get(port, site.getUrl()), equalTo(200));
+        assertThat(get(port, site.getUrl() + "assets/banner.png"), equalTo(200));
+        assertThat(get(port, site.getUrl() + "assets/analytics.js"), equalTo(403));
+
+        TrafficReport report = proxy.getReport();
+        assertThat(site.getAssetRequests(), contains("/ua/assets/banner.png"));
+        assertThat(report.getRequestCount(), equalTo(3L));
+        assertThat(report.getBlockedCount(), equalTo(1L));
+        assertThat(report.getBytesReceived(), greaterThan(256 * 1024L));
+        assertThat(report.getBytesSent(), greaterThan(0L));
+    }
+
+    @Test
+    void answersBadRequestToMalformedConnectPort() throws IOException {
+        proxy = new FilteringProxy(RequestFilter.allowAll());
+        int port = proxy.start();
+
+        assertThat(connect(port, "sendmoney.privatbank.ua:https"), startsWith("HTTP/1.1 400"));
+        assertThat(connect(port, "sendmoney.privatbank.ua:70000"), startsWith("HTTP/1.1 400"));
+    }
+
+    private static String connect(int proxyPort, String authority) throws IOException {
+        try (Socket socket = new Socket("127.0.0.1", proxyPort)) {
+            socket.setSoTimeout(5000);
+            socket.getOutputStream().write(("CONNECT " + authority + " HTTP/1.1\r\nHost: " + authority + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            return new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII))
+                    .readLine();
+        }
+    }
+
+    private static int get(int proxyPort, String url) throws IOException {
+        Proxy proxy = new Proxy(Proxy.Type.HTTP, new InetSocketAddress("127.0.0.1", proxyPort));
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection(proxy);
+        int status = connection.getResponseCode();
+        if (status == 200) {
+            try (InputStream body = connection.getInputStream()) {
+                byte[] buffer = new byte[4096];
+                while (body.read(buffer) != -1) {
+                    // The whole response is read, so it is counted by the proxy
+                }
+            }
+        }
+        connection.disconnect();
+        return status;
+    }
+}
@@ -0,0 +1,77 @@
+package io.github.bcherniakh.sendmoney.proxy;
+
+import io.github.bcherniakh.sendmoney.stub.HeadlessChrome;
+import io.github.bcherniakh.sendmoney.stub.StubSendMoneySite;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThan;
+
+/**
+ * Compares the page load time and the traffic of the local copy of the page loaded with all its assets
+ * and with the banner and the tracking script blocked by the {@link FilteringProxy}.
+ */
+@Tag("slow")
+@DisplayName("Resource blocking benchmark")
+class ResourceBlockingBenchmarkTest {
+
+    private static final int ITERATIONS = 20;
+    private static final long SITE_LATENCY_MILLIS = 50;
+
+    private static Logger log = LoggerFactory.getLogger(ResourceBlockingBenchmarkTest.class);
+
+    private StubSendMoneySite site;
+
+    @BeforeEach
+    void startSite() {
+        site = new StubSendMoneySite();
+        site.setLatencyMillis(SITE_LATENCY_MILLIS);
+    }
+
+    @AfterEach
+    void stopSite() {
+        site.close();
+    }
+
+    @Test
+    void comparesPageLoadWithAndWithoutBlocking() {
+        TrafficReport unfiltered = loadPages(RequestFilter.allowAll(), "Unfiltered");
+        TrafficReport filtered = loadPages(RequestFilter.parse("", "image *; script */assets/*"), "Filtered");
+
+        assertThat(filtered.getBytesReceived(), lessThan(unfiltered.getBytesReceived()));
+    }
+
+    private TrafficReport loadPages(RequestFilter filter, String name) {
+        try (FilteringProxy proxy = new FilteringProxy(filter)) {
+            ChromeOptions options = new ChromeOptions();
+            options.addArguments("--proxy-server=http://127.0.0.1:" + proxy.start(), "--proxy-bypass-list=<-loopback>",
+                    "--disk-cache-size=1");
+            WebDriver webDriver = HeadlessChrome.start(options);
+            try {
+                long totalNanos = 0;
+                for (int i = 0; i < ITERATIONS; i++) {
+                    webDriver.manage().deleteAllCookies();
+                    long start = System.nanoTime();
+                    webDriver.get(site.getUrl() + "?iteration=" + i);
+                    totalNanos += System.nanoTime() - start;
+                }
+                TrafficReport report = proxy.getReport();
+                log.info("{}: page load {} ms on average. {}", name,
+                        TimeUnit.NANOSECONDS.toMillis(totalNanos / ITERATIONS), report);
+                return report;
+            } finally {
+                webDriver.quit();
+            }
+        }
+    }
+}
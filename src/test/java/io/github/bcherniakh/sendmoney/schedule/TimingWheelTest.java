@@ -0,0 +1,78 @@
+package io.github.bcherniakh.sendmoney.schedule;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+
+@DisplayName("Timing wheel tests")
+class TimingWheelTest {
+
+    private static final long START = 1_760_000_000L;
+
+    @Test
+    void releasesValuesAtTheirTicksAcrossAllWheels() {
+        TimingWheel<Long> wheel = new TimingWheel<>(START);
+        Random random = new Random(42);
+        List<Long> ticks = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            long tick = START + 1 + (random.nextLong() >>> (64 - 8 * (1 + random.nextInt(4))));
+            ticks.add(tick);
+            wheel.add(tick, tick, value -> {
+                throw new AssertionError("Released at once");
+            });
+        }
+        Collections.sort(ticks);
+
+        List<Long> released = new ArrayList<>();
+        while (wheel.size() > 0) {
+            long next = wheel.nextTick();
+            wheel.advance(next, value -> {
+                assertThat(value, equalTo(wheel.getCurrentTick()));
+                released.add(value);
+            });
+        }
+
+        assertThat(released, equalTo(ticks));
+        assertThat(wheel.nextTick(), equalTo(TimingWheel.NONE));
+    }
+
+    @Test
+    void releasesEverythingDueWhenAdvancedPastIt() {
+        TimingWheel<String> wheel = new TimingWheel<>(START);
+        wheel.add(START + 5, "a", value -> {
+        });
+        wheel.add(START + 70_000, "b", value -> {
+        });
+        wheel.add(START + 300, "c", value -> {
+        });
+        List<String> released = new ArrayList<>();
+
+        wheel.advance(START + 4, released::add);
+        assertThat(released, empty());
+
+        wheel.advance(START + 100_000, released::add);
+        assertThat(released, equalTo(Arrays.asList("a", "c", "b")));
+        assertThat(wheel.getCurrentTick(), equalTo(START + 100_000));
+    }
+
+    @Test
+    void releasesValueDueNowAtOnce() {
+        TimingWheel<String> wheel = new TimingWheel<>(START);
+        List<String> released = new ArrayList<>();
+
+        wheel.add(START, "now", released::add);
+        wheel.add(START - 10, "late", released::add);
+
+        assertThat(released, equalTo(Arrays.asList("now", "late")));
+        assertThat(wheel.size(), equalTo(0));
+    }
+}
@@ -0,0 +1,146 @@
+package io.github.bcherniakh.sendmoney.schedule;
+
+import io.github.bcherniakh.sendmoney.domain.Transfer;
+import io.github.bcherniakh.sendmoney.exception.InvalidInputException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@DisplayName("Transfer scheduler tests")
+class TransferSchedulerTest {
+
+    private static final String TRANSFER = ",4111-1111-1111-1111,05/2099,123,380501234567,5500-0000-0000-0004,10.50";
+    private static final long TICK_MILLIS = 10;
+
+    @Test
+    void releasesTransfersDueAtTheSameTickTogether() throws InterruptedException {
+        BlockingQueue<List<Transfer>> released = new LinkedBlockingQueue<>();
+        TransferScheduler scheduler = new TransferScheduler("", TICK_MILLIS);
+        scheduler.start(released::add);
+        try {
+            String dueAt = Instant.ofEpochMilli((System.currentTimeMillis() / TICK_MILLIS + 20) * TICK_MILLIS).toString();
+            scheduler.schedule(Arrays.asList(dueAt + ",,t1" + TRANSFER, dueAt + ",,t2" + TRANSFER, dueAt + ",,t3" + TRANSFER));
+
+            List<Transfer> batch = released.poll(5, TimeUnit.SECONDS);
+
+            assertThat(batch.stream().map(Transfer::getId).sorted().collect(Collectors.toList()),
+                    equalTo(Arrays.asList("t1", "t2", "t3")));
+            // The release is recorded once the transfers are handed over, close waits for it
+            scheduler.close();
+            assertThat(scheduler.size(), equalTo(0));
+        } finally {
+            scheduler.close();
+        }
+    }
+
+    @Test
+    void releasesTransfersAgainAfterFailedRelease() throws InterruptedException {
+        BlockingQueue<List<Transfer>> released = new LinkedBlockingQueue<>();
+        AtomicInteger releases = new AtomicInteger();
+        TransferScheduler scheduler = new TransferScheduler("", TICK_MILLIS, 50, System::currentTimeMillis);
+        scheduler.start(transfers -> {
+            if (releases.getAndIncrement() == 0) {
+                throw new IllegalStateException("Journal is not available");
+            }
+            released.add(transfers);
+        });
+        try {
+            long dueMillis = (System.currentTimeMillis() / TICK_MILLIS + 20) * TICK_MILLIS;
+            String dueAt = Instant.ofEpochMilli(dueMillis).toString();
+            scheduler.schedule(Collections.singletonList(dueAt + ",PT1H,payout" + TRANSFER));
+
+            List<Transfer> batch = released.poll(5, TimeUnit.SECONDS);
+
+            assertThat(releases.get(), equalTo(2));
+            assertThat(batch.get(0).getId(), equalTo("payout@" + dueAt));
+            scheduler.close();
+            assertThat(scheduler.get("payout").getNextAt(), equalTo(Instant.ofEpochMilli(dueMillis + 3_600_000).toString()));
+        } finally {
+            scheduler.close();
+        }
+    }
+
+    @Test
+    void releasesTransfersMissedWhileStoppedAfterRestart() throws IOException, InterruptedException {
+        Path file = Files.createTempFile("transfers", ".schedule");
+        try {
+            long dueMillis = System.currentTimeMillis() + 100;
+            String dueAt = Instant.ofEpochMilli(dueMillis).toString();
+            TransferScheduler stopped = new TransferScheduler(file.toString(), TICK_MILLIS);
+            stopped.start(transfers -> {
+                throw new AssertionError("Released before the stop");
+            });
+            stopped.schedule(Arrays.asList(dueAt + ",PT1H,payout" + TRANSFER, dueAt + ",,cancelled" + TRANSFER));
+            stopped.cancel("cancelled");
+            stopped.close();
+            Thread.sleep(200);
+
+            assertThat(Files.readAllLines(file).stream().anyMatch(line -> line.contains(",123,")), equalTo(false));
+
+            BlockingQueue<List<Transfer>> released = new LinkedBlockingQueue<>();
+            TransferScheduler restarted = new TransferScheduler(file.toString(), TICK_MILLIS);
+            restarted.start(released::add);
+            try {
+                // Waits for the CVV, which is not in the file
+                assertThat(released.poll(200, TimeUnit.MILLISECONDS), nullValue());
+                assertThat(restarted.get("payout").isCvvRequired(), equalTo(true));
+                assertThrows(InvalidInputException.class, () -> restarted.supplyCvv("payout", "12"));
+
+                assertThat(restarted.supplyCvv("payout", "123").isCvvRequired(), equalTo(false));
+                List<Transfer> batch = released.poll(5, TimeUnit.SECONDS);
+                assertThat(batch.stream().map(Transfer::getId).collect(Collectors.toList()),
+                        equalTo(Collections.singletonList("payout@" + dueAt)));
+                assertThat(batch.get(0).getSender().getSecurityCode(), equalTo("123"));
+                assertThat(restarted.get("cancelled"), nullValue());
+            } finally {
+                restarted.close();
+            }
+
+            TransferScheduler reopened = new TransferScheduler(file.toString(), TICK_MILLIS);
+            reopened.start(transfers -> {
+                throw new AssertionError("Released again");
+            });
+            assertThat(reopened.get("payout").getNextAt(), equalTo(Instant.ofEpochMilli(dueMillis + 3_600_000).toString()));
+            reopened.close();
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test
+    void rejectsInvalidScheduleLine() {
+        TransferScheduler scheduler = new TransferScheduler("", TICK_MILLIS);
+        scheduler.start(transfers -> {
+        });
+        try {
+            InvalidInputException dueAt = assertThrows(InvalidInputException.class,
+                    () -> scheduler.schedule(Collections.singletonList("tomorrow,,t1" + TRANSFER)));
+            InvalidInputException batchLine = assertThrows(InvalidInputException.class,
+                    () -> scheduler.schedule(Arrays.asList("# payouts", "2099-01-01T00:00:00Z,,t1,1234")));
+
+            assertThat(dueAt.getMessage(), containsString("Invalid schedule line 1"));
+            assertThat(batchLine.getMessage(), containsString("Invalid batch line 2"));
+            assertThat(scheduler.size(), equalTo(0));
+        } finally {
+            scheduler.close();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package io.github.bcherniakh.sendmoney.stub;
+
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.chrome.ChromeDriver;
+import org.openqa.selenium.chrome.ChromeOptions;
+
+/**
+ * Starts a headless Chrome for the tests tagged as slow.
+ * Path to the chromedriver is taken from the webdriver.chrome.driver system property.
+ */
+public final class HeadlessChrome {
+
+    private HeadlessChrome() {
+    }
+
+    public static WebDriver start() {
+        return start(new ChromeOptions());
+    }
+
+    public static WebDriver start(ChromeOptions options) {
+        return new ChromeDriver(headless(options));
+    }
+
+    /**
+     * @return the options with the arguments of a headless browser, for the browsers started on Grid nodes
+     */
+    public static ChromeOptions headless(ChromeOptions options) {
+        options.addArguments("--headless", "--disable-gpu", "--no-sandbox");
+        return options;
+    }
+}
@@ -0,0 +1,279 @@
+package io.github.bcherniakh.sendmoney.stub;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Embedded local copy of the Sendmoney site. Serves both pages and accepts the forms they submit.
+ * Both forms carry a token of the session, as the site forms do, and are rejected without it.
+ * Every completed transfer is recorded with all submitted fields.
+ * The step 1 page loads a banner and a tracking script from the assets, like the site does with the images
+ * and the analytics the transfer does not need.
+ */
+public class StubSendMoneySite implements AutoCloseable {
+
+    private static final String ROOT = "/ua/";
+    private static final String ASSETS = ROOT + "assets/";
+    private static final int ASSET_BYTES = 256 * 1024;
+    private static final String SESSION_COOKIE = "SID";
+    private static final String TOKEN_FIELD = "token";
+    private static final String PHONE_FIELD = "<input id=\"step2Phone\" name=\"phone\">";
+    private static final String[] STEP1_FIELDS = {
+            "sender_card", "sender_exp_month", "sender_exp_year", "sender_cvv", "receiver_card", "amount"
+    };
+
+    private final HttpServer server;
+    private final String step1Page;
+    private final String step2Page;
+    private final Map<String, Map<String, String>> sessions = new ConcurrentHashMap<>();
+    private final List<Map<String, String>> transfers = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> assetRequests = Collections.synchronizedList(new ArrayList<>());
+
+    private volatile boolean phoneRequired = true;
+    private volatile long latencyMillis;
+    private volatile Semaphore capacity;
+
+    public StubSendMoneySite() {
+        try {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        step1Page = resource("/stub/step1.html");
+        step2Page = resource("/stub/step2.html");
+        server.createContext(ROOT, this::handle);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+    }
+
+    /**
+     * @return address of the main page, the same one as the sendmoney.url property points to
+     */
+    public String getUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + ROOT;
+    }
+
+    /**
+     * When {@code false} the step 2 page has no phone number field, as it happens for PB cards.
+     */
+    public void setPhoneRequired(boolean phoneRequired) {
+        this.phoneRequired = phoneRequired;
+    }
+
+    /**
+     * Delays every response of the site.
+     */
+    public void setLatencyMillis(long latencyMillis) {
+        this.latencyMillis = latencyMillis;
+    }
+
+    /**
+     * Serves this number of requests at a time, the others wait for their turn. So the latency climbs
+     * with the concurrent requests over the capacity, as it does on an overloaded site.
+     *
+     * @param requests number of requests served at a time. 0 - no limit
+     */
+    public void setCapacity(int requests) {
+        this.capacity = requests > 0 ? new Semaphore(requests, true) : null;
+    }
+
+    /**
+     * @return fields of completed transfers in the order they were completed
+     */
+    public List<Map<String, String>> getTransfers() {
+        synchronized (transfers) {
+            return new ArrayList<>(transfers);
+        }
+    }
+
+    /**
+     * @return paths of the requested assets in the order they were requested
+     */
+    public List<String> getAssetRequests() {
+        synchronized (assetRequests) {
+            return new ArrayList<>(assetRequests);
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        Semaphore servingCapacity = capacity;
+        if (servingCapacity == null) {
+            sleep(latencyMillis);
+        } else {
+            servingCapacity.acquireUninterruptibly();
+            try {
+                sleep(latencyMillis);
+            } finally {
+                servingCapacity.release();
+            }
+        }
+        String path = exchange.getRequestURI().getPath();
+        String method = exchange.getRequestMethod();
+
+        if ("GET".equals(method) && ROOT.equals(path)) {
+            String sessionId = UUID.randomUUID().toString();
+            Map<String, String> session = new HashMap<>();
+            session.put(TOKEN_FIELD, UUID.randomUUID().toString());
+            sessions.put(sessionId, session);
+            exchange.getResponseHeaders().add("Set-Cookie", SESSION_COOKIE + "=" + sessionId + "; Path=" + ROOT);
+            respond(exchange, 200, step1Page.replace("${token}", session.get(TOKEN_FIELD)));
+        } else if ("POST".equals(method) && path.endsWith("/step1")) {
+            acceptStep1(exchange);
+        } else if ("GET".equals(method) && path.endsWith("/step2")) {
+            Map<String, String> session = session(exchange);
+            respond(exchange, 200, step2Page.replace("${phone}", phoneRequired ? PHONE_FIELD : "")
+                    .replace("${token}", session == null ? "" : session.get(TOKEN_FIELD)));
+        } else if ("POST".equals(method) && path.endsWith("/step2")) {
+            acceptStep2(exchange);
+        } else if ("GET".equals(method) && path.startsWith(ASSETS)) {
+            serveAsset(exchange, path);
+        } else {
+            respond(exchange, 404, "Not found");
+        }
+    }
+
+    private void acceptStep1(HttpExchange exchange) throws IOException {
+        Map<String, String> session = session(exchange);
+        Map<String, String> form = readForm(exchange);
+        if (session == null || !session.get(TOKEN_FIELD).equals(form.get(TOKEN_FIELD))) {
+            respond(exchange, 400, "Invalid form token");
+            return;
+        }
+        for (String field : STEP1_FIELDS) {
+            if (form.getOrDefault(field, "").isEmpty()) {
+                respond(exchange, 400, "Missing " + field);
+                return;
+            }
+        }
+        session.putAll(form);
+        exchange.getResponseHeaders().add("Location", ROOT + "step2");
+        respond(exchange, 302, "");
+    }
+
+    private void acceptStep2(HttpExchange exchange) throws IOException {
+        Map<String, String> session = session(exchange);
+        Map<String, String> form = readForm(exchange);
+        if (session == null || !session.containsKey(STEP1_FIELDS[0])
+                || !session.get(TOKEN_FIELD).equals(form.get(TOKEN_FIELD))
+                || (phoneRequired && form.getOrDefault("phone", "").isEmpty())) {
+            respond(exchange, 400, "Transfer is not confirmed");
+            return;
+        }
+        Map<String, String> transfer = new HashMap<>(session);
+        transfer.putAll(form);
+        transfers.add(transfer);
+        session.keySet().retainAll(Collections.singleton(TOKEN_FIELD));
+        respond(exchange, 200, "<html><body><div id=\"done\">Done</div></body></html>");
+    }
+
+    private void serveAsset(HttpExchange exchange, String path) throws IOException {
+        assetRequests.add(path);
+        boolean script = path.endsWith(".js");
+        byte[] bytes = new byte[ASSET_BYTES];
+        Arrays.fill(bytes, (byte) ' ');
+        if (script) {
+            bytes[0] = '/';
+            bytes[1] = '*';
+            bytes[ASSET_BYTES - 2] = '*';
+            bytes[ASSET_BYTES - 1] = '/';
+        }
+        exchange.getResponseHeaders().add("Content-Type", script ? "application/javascript" : "image/png");
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream responseBody = exchange.getResponseBody()) {
+            responseBody.write(bytes);
+        }
+    }
+
+    private Map<String, String> session(HttpExchange exchange) {
+        String cookies = exchange.getRequestHeaders().getFirst("Cookie");
+        if (cookies == null) {
+            return null;
+        }
+        for (String cookie : cookies.split(";")) {
+            String[] pair = cookie.trim().split("=", 2);
+            if (pair.length == 2 && SESSION_COOKIE.equals(pair[0])) {
+                return sessions.get(pair[1]);
+            }
+        }
+        return null;
+    }
+
+    private Map<String, String> readForm(HttpExchange exchange) throws IOException {
+        Map<String, String> form = new HashMap<>();
+        String body = new String(readAll(exchange.getRequestBody()), StandardCharsets.UTF_8);
+        for (String pair : body.split("&")) {
+            String[] nameValue = pair.split("=", 2);
+            if (nameValue.length == 2) {
+                form.put(URLDecoder.decode(nameValue[0], "UTF-8"), URLDecoder.decode(nameValue[1], "UTF-8"));
+            }
+        }
+        return form;
+    }
+
+    private void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "text/html; charset=utf-8");
+        if (bytes.length == 0) {
+            exchange.sendResponseHeaders(status, -1);
+            exchange.close();
+            return;
+        }
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream responseBody = exchange.getResponseBody()) {
+            responseBody.write(bytes);
+        }
+    }
+
+    private static String resource(String name) {
+        try (InputStream stream = StubSendMoneySite.class.getResourceAsStream(name)) {
+            return new String(readAll(stream), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] readAll(InputStream stream) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        byte[] chunk = new byte[4096];
+        int read;
+        while ((read = stream.read(chunk)) != -1) {
+            buffer.write(chunk, 0, read);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package io.github.bcherniakh.sendmoney.trace;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.openqa.selenium.By;
+import org.openqa.selenium.JavascriptExecutor;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.internal.WrapsElement;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.instanceOf;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.mockito.Mockito.*;
+
+@DisplayName("Command tracer tests")
+class CommandTracerTest {
+
+    private static final By AMOUNT = By.id("amount");
+
+    private Path file;
+    private WebDriver webDriver;
+    private WebElement amount;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        file = Files.createTempFile("commands", ".trace.json");
+        webDriver = mock(WebDriver.class, withSettings().extraInterfaces(JavascriptExecutor.class));
+        amount = mock(WebElement.class);
+        when(webDriver.findElement(AMOUNT)).thenReturn(amount);
+        when(amount.getAttribute("class")).thenReturn("active");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    void writesCommandsWithTransferId() throws IOException {
+        CommandTracer tracer = new CommandTracer(file.toString());
+        WebDriver traced = tracer.wrap(webDriver);
+
+        tracer.inTransfer("t1", () -> {
+            WebElement element = traced.findElement(AMOUNT);
+            element.getAttribute("class");
+            element.sendKeys("4111111111111111");
+        });
+        tracer.close();
+
+        List<JsonObject> spans = spans();
+        assertThat(names(spans), contains("findElement", "getAttribute", "sendKeys", "transfer"));
+        spans.forEach(span -> assertThat(span.getAsJsonObject("args").get("transfer").getAsString(), equalTo("t1")));
+        assertThat(spans.get(0).getAsJsonObject("args").get("detail").getAsString(), equalTo(AMOUNT.toString()));
+        assertThat(new String(Files.readAllBytes(file), StandardCharsets.UTF_8), not(containsString("4111")));
+    }
+
+    @Test
+    void keepsDriverCapabilities() {
+        CommandTracer tracer = new CommandTracer(file.toString());
+        WebDriver traced = tracer.wrap(webDriver);
+
+        WebElement element = traced.findElement(AMOUNT);
+        tracer.close();
+
+        assertThat(traced, instanceOf(JavascriptExecutor.class));
+        assertThat(((WrapsElement) element).getWrappedElement(), sameInstance(amount));
+    }
+
+    @Test
+    void returnsSameDriverWhenDisabled() {
+        assertThat(new CommandTracer("").wrap(webDriver), sameInstance(webDriver));
+    }
+
+    private List<JsonObject> spans() throws IOException {
+        String json = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+        List<JsonObject> spans = new ArrayList<>();
+        for (JsonElement event : new Gson().fromJson(json, JsonArray.class)) {
+            if ("X".equals(event.getAsJsonObject().get("ph").getAsString())) {
+                spans.add(event.getAsJsonObject());
+            }
+        }
+        return spans;
+    }
+
+    private List<String> names(List<JsonObject> spans) {
+        List<String> names = new ArrayList<>();
+        spans.forEach(span -> names.add(span.get("name").getAsString()));
+        return names;
+    }
+}
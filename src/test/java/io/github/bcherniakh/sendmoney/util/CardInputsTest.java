@@ -0,0 +1,63 @@
+package io.github.bcherniakh.sendmoney.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.YearMonth;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.nullValue;
+
+@DisplayName("Card inputs tests")
+class CardInputsTest {
+
+    private static final int MAY_2020 = CardInputs.monthIndex(YearMonth.of(2020, 5));
+
+    @Test
+    void checksCardNumberFormatAndLuhnDigit() {
+        assertThat(cardNumber("4111-1111-1111-1111"), nullValue());
+        assertThat(cardNumber(" 5500-0000-0000-0004 "), nullValue());
+        assertThat(cardNumber("4111-1111-1111-1112"), equalTo(InputError.CARD_NUMBER_CHECKSUM));
+        assertThat(cardNumber("4111111111111111"), equalTo(InputError.CARD_NUMBER_FORMAT));
+        assertThat(cardNumber("4111-1111-1111-111a"), equalTo(InputError.CARD_NUMBER_FORMAT));
+    }
+
+    @Test
+    void checksExpiresDate() {
+        assertThat(expiresDate("05/2020"), nullValue());
+        assertThat(expiresDate("12/2031"), nullValue());
+        assertThat(expiresDate("04/2020"), equalTo(InputError.CARD_EXPIRED));
+        assertThat(expiresDate("13/2021"), equalTo(InputError.EXPIRES_DATE_FORMAT));
+        assertThat(expiresDate("5/2021"), equalTo(InputError.EXPIRES_DATE_FORMAT));
+    }
+
+    @Test
+    void checksCvvPhoneAndAmount() {
+        assertThat(CardInputs.checkCvv("123", 0, 3), nullValue());
+        assertThat(CardInputs.checkCvv("12", 0, 2), equalTo(InputError.CVV_FORMAT));
+
+        assertThat(CardInputs.checkPhone("380501234567", 0, 12), nullValue());
+        assertThat(CardInputs.checkPhone("", 0, 0), nullValue());
+        assertThat(CardInputs.checkPhone("0501234567", 0, 10), equalTo(InputError.PHONE_FORMAT));
+
+        assertThat(amount("10.50"), nullValue());
+        assertThat(amount("7"), nullValue());
+        assertThat(amount("0.00"), equalTo(InputError.AMOUNT_FORMAT));
+        assertThat(amount("10,50"), equalTo(InputError.AMOUNT_FORMAT));
+        assertThat(amount("1.005"), equalTo(InputError.AMOUNT_FORMAT));
+        assertThat(amount("-5"), equalTo(InputError.AMOUNT_FORMAT));
+    }
+
+    private static InputError cardNumber(String text) {
+        return CardInputs.checkCardNumber(text, 0, text.length());
+    }
+
+    private static InputError expiresDate(String text) {
+        return CardInputs.checkExpiresDate(text, 0, text.length(), MAY_2020);
+    }
+
+    private static InputError amount(String text) {
+        return CardInputs.checkAmount(text, 0, text.length());
+    }
+}
@@ -0,0 +1,129 @@
+package io.github.bcherniakh.sendmoney.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.equalTo;
+
+@DisplayName("Keyed serial executor tests")
+class KeyedSerialExecutorTest {
+
+    @Test
+    void runsTasksOfKeyInSubmissionOrderOneAtATime() throws InterruptedException {
+        KeyedSerialExecutor<String> executor = new KeyedSerialExecutor<>("test", 4, 8);
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+
+        for (int i = 0; i < 20; i++) {
+            int task = i;
+            executor.submit("card", () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                sleep(2);
+                order.add(task);
+                running.decrementAndGet();
+            });
+        }
+        executor.shutdown();
+        executor.awaitTermination();
+
+        List<Integer> expected = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            expected.add(i);
+        }
+        assertThat(order, equalTo(expected));
+        assertThat(maxRunning.get(), equalTo(1));
+    }
+
+    @Test
+    void runsOtherKeysWhileHotKeyIsBusy() throws InterruptedException {
+        KeyedSerialExecutor<String> executor = new KeyedSerialExecutor<>("test", 2, 100);
+        CountDownLatch othersDone = new CountDownLatch(3);
+        CountDownLatch release = new CountDownLatch(1);
+
+        executor.submit("hot", () -> await(release));
+        for (int i = 0; i < 10; i++) {
+            executor.submit("hot", () -> {
+            });
+        }
+        for (int i = 0; i < 3; i++) {
+            executor.submit("cold" + i, othersDone::countDown);
+        }
+
+        assertThat(othersDone.await(5, TimeUnit.SECONDS), equalTo(true));
+        release.countDown();
+        executor.shutdown();
+        executor.awaitTermination();
+    }
+
+    @Test
+    void waitsForFreePlaceWhenFull() throws InterruptedException {
+        KeyedSerialExecutor<String> executor = new KeyedSerialExecutor<>("test", 1, 1);
+        CountDownLatch release = new CountDownLatch(1);
+        executor.submit("a", () -> await(release));
+        executor.submit("b", () -> {
+        });
+
+        Thread producer = new Thread(() -> {
+            try {
+                executor.submit("c", () -> {
+                });
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        producer.start();
+        producer.join(100);
+        assertThat(producer.isAlive(), equalTo(true));
+
+        release.countDown();
+        producer.join(5000);
+        assertThat(producer.isAlive(), equalTo(false));
+        executor.shutdown();
+        executor.awaitTermination();
+    }
+
+    @Test
+    void parksDelayedLaneWithoutHoldingWorker() throws InterruptedException {
+        KeyedSerialExecutor<String> executor = new KeyedSerialExecutor<>("test", 1, 8);
+        List<String> order = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch otherDone = new CountDownLatch(1);
+
+        executor.submit("limited", () -> TimeUnit.MILLISECONDS.toNanos(300), () -> order.add("limited-1"));
+        executor.submit("limited", () -> order.add("limited-2"));
+        executor.submit("other", () -> {
+            order.add("other");
+            otherDone.countDown();
+        });
+
+        assertThat(otherDone.await(200, TimeUnit.MILLISECONDS), equalTo(true));
+        executor.shutdown();
+        executor.awaitTermination();
+        assertThat(order, equalTo(Arrays.asList("other", "limited-1", "limited-2")));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}